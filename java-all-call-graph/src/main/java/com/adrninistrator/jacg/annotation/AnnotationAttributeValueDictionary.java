@@ -0,0 +1,76 @@
+package com.adrninistrator.jacg.annotation;
+
+import com.adrninistrator.jacg.dto.annotation_attribute.BaseAnnotationAttribute;
+import com.adrninistrator.jacg.extensions.annotation_attributes.AllAnnotationAttributesPraser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/19
+ * @description: 注解属性值字典，相同的属性值只保存一份，并使用int序号表示
+ * 数据库中的属性值在首次被获取时才解析，解析后的注解属性对象会被缓存，属性值相同时使用同一个对象，使用方不能修改
+ */
+class AnnotationAttributeValueDictionary {
+    /*
+        属性值对应的序号，仅在加载时使用，加载完成后释放
+        key: 数据库中的属性值
+        value: 序号
+     */
+    private Map<String, Integer> idMap = new HashMap<>();
+
+    // 各序号对应的数据库中的属性值
+    private final List<String> rawValueList = new ArrayList<>();
+
+    // 各序号对应的解析后的注解属性，加载完成后创建
+    private AtomicReferenceArray<BaseAnnotationAttribute> attributeArray;
+
+    /**
+     * 添加属性值，返回对应的序号
+     *
+     * @param rawValue 数据库中的属性值
+     * @return
+     */
+    int add(String rawValue) {
+        Integer id = idMap.get(rawValue);
+        if (id != null) {
+            return id;
+        }
+
+        int newId = rawValueList.size();
+        rawValueList.add(rawValue);
+        idMap.put(rawValue, newId);
+        return newId;
+    }
+
+    // 加载完成
+    void finishLoading() {
+        idMap = null;
+        attributeArray = new AtomicReferenceArray<>(rawValueList.size());
+    }
+
+    /**
+     * 获取序号对应的注解属性，首次获取时解析
+     *
+     * @param id
+     * @return
+     */
+    BaseAnnotationAttribute getAttribute(int id) {
+        BaseAnnotationAttribute attribute = attributeArray.get(id);
+        if (attribute != null) {
+            return attribute;
+        }
+
+        // 多个线程同时解析时结果相同，只保留先写入的对象
+        attributeArray.compareAndSet(id, null, AllAnnotationAttributesPraser.parse(rawValueList.get(id)));
+        return attributeArray.get(id);
+    }
+
+    int size() {
+        return rawValueList.size();
+    }
+}
@@ -0,0 +1,321 @@
+package com.adrninistrator.jacg.annotation;
+
+import com.adrninistrator.jacg.common.DC;
+import com.adrninistrator.jacg.common.JACGConstants;
+import com.adrninistrator.jacg.common.enums.DbInsertMode;
+import com.adrninistrator.jacg.dboper.DbOperWrapper;
+import com.adrninistrator.jacg.dboper.DbOperator;
+import com.adrninistrator.jacg.dto.method.MethodAndHash;
+import com.adrninistrator.jacg.graph.EntryMethodReachability;
+import com.adrninistrator.jacg.util.JACGSqlUtil;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/19
+ * @description: 注解倒排索引，记录有各注解的方法及类
+ * 有注解的方法按方法HASH+长度排序、有注解的类按完整类名排序后分配序号，每个注解对应的方法及类的集合使用位图记录，下标为序号
+ * 在写入数据库时生成并写入数据库，查询时一次性从数据库加载
+ * 位图的分块及编码方式与方法可达入口方法表相同
+ */
+public class AnnotationIndex {
+    private static final Logger logger = LoggerFactory.getLogger(AnnotationIndex.class);
+
+    // 方法序号对应的方法HASH+长度
+    private String[] methodHashArray;
+
+    // 方法序号对应的完整方法
+    private String[] fullMethodArray;
+
+    // 类序号对应的完整类名
+    private String[] fullClassNameArray;
+
+    /*
+        注解对应的方法序号位图
+        key 注解类名
+        value 有该注解的方法序号位图
+     */
+    private final Map<String, BitSet> methodBitSetMap = new HashMap<>();
+
+    /*
+        注解对应的类序号位图
+        key 注解类名
+        value 有该注解的类序号位图
+     */
+    private final Map<String, BitSet> classBitSetMap = new HashMap<>();
+
+    private AnnotationIndex() {
+    }
+
+    /**
+     * 根据方法注解表及类注解表生成注解倒排索引
+     *
+     * @param dbOperator
+     * @param appName
+     * @return null: 生成失败
+     */
+    public static AnnotationIndex build(DbOperator dbOperator, String appName) {
+        long startTime = System.currentTimeMillis();
+
+        // 有注解的方法，按方法HASH+长度排序，key: 方法HASH+长度，value: 完整方法
+        Map<String, String> methodMap = new TreeMap<>();
+        // 注解对应的方法HASH+长度
+        Map<String, Set<String>> annotationMethodMap = new HashMap<>();
+        String methodSql = "select " + JACGSqlUtil.joinColumns(DC.MA_METHOD_HASH, DC.MA_ANNOTATION_NAME, DC.MA_FULL_METHOD) +
+                " from " + JACGConstants.TABLE_PREFIX_METHOD_ANNOTATION + appName;
+        if (!dbOperator.queryStream(methodSql, null, rs -> {
+            String methodHash = rs.getString(1);
+            methodMap.putIfAbsent(methodHash, rs.getString(3));
+            annotationMethodMap.computeIfAbsent(rs.getString(2), k -> new HashSet<>()).add(methodHash);
+            return true;
+        })) {
+            return null;
+        }
+
+        // 有注解的类，按完整类名排序
+        Set<String> classSet = new TreeSet<>();
+        // 注解对应的完整类名
+        Map<String, Set<String>> annotationClassMap = new HashMap<>();
+        String classSql = "select " + JACGSqlUtil.joinColumns(DC.CA_FULL_CLASS_NAME, DC.CA_ANNOTATION_NAME) +
+                " from " + JACGConstants.TABLE_PREFIX_CLASS_ANNOTATION + appName;
+        if (!dbOperator.queryStream(classSql, null, rs -> {
+            String fullClassName = rs.getString(1);
+            classSet.add(fullClassName);
+            annotationClassMap.computeIfAbsent(rs.getString(2), k -> new HashSet<>()).add(fullClassName);
+            return true;
+        })) {
+            return null;
+        }
+
+        AnnotationIndex annotationIndex = new AnnotationIndex();
+        annotationIndex.methodHashArray = methodMap.keySet().toArray(new String[0]);
+        annotationIndex.fullMethodArray = methodMap.values().toArray(new String[0]);
+        annotationIndex.fullClassNameArray = classSet.toArray(new String[0]);
+
+        Map<String, Integer> methodIdMap = genIdMap(annotationIndex.methodHashArray);
+        for (Map.Entry<String, Set<String>> entry : annotationMethodMap.entrySet()) {
+            BitSet bitSet = new BitSet(annotationIndex.methodHashArray.length);
+            for (String methodHash : entry.getValue()) {
+                bitSet.set(methodIdMap.get(methodHash));
+            }
+            annotationIndex.methodBitSetMap.put(entry.getKey(), bitSet);
+        }
+
+        Map<String, Integer> classIdMap = genIdMap(annotationIndex.fullClassNameArray);
+        for (Map.Entry<String, Set<String>> entry : annotationClassMap.entrySet()) {
+            BitSet bitSet = new BitSet(annotationIndex.fullClassNameArray.length);
+            for (String fullClassName : entry.getValue()) {
+                bitSet.set(classIdMap.get(fullClassName));
+            }
+            annotationIndex.classBitSetMap.put(entry.getKey(), bitSet);
+        }
+
+        logger.info("生成注解倒排索引完毕，有注解的方法数量 {} 有注解的类数量 {} 注解数量 {} {} 耗时 {} S", annotationIndex.methodHashArray.length,
+                annotationIndex.fullClassNameArray.length, annotationIndex.methodBitSetMap.size(), annotationIndex.classBitSetMap.size(),
+                (System.currentTimeMillis() - startTime) / 1000.0D);
+        return annotationIndex;
+    }
+
+    private static Map<String, Integer> genIdMap(String[] array) {
+        Map<String, Integer> idMap = new HashMap<>(array.length);
+        for (int id = 0; id < array.length; id++) {
+            idMap.put(array[id], id);
+        }
+        return idMap;
+    }
+
+    /**
+     * 将注解倒排索引写入数据库
+     *
+     * @param dbOperator
+     * @param dbOperWrapper
+     * @return
+     */
+    public boolean write2Db(DbOperator dbOperator, DbOperWrapper dbOperWrapper) {
+        String targetSql = dbOperWrapper.genAndCacheInsertSql(JACGConstants.SQL_KEY_INSERT_ANNOTATION_TARGET,
+                DbInsertMode.DIME_INSERT,
+                JACGConstants.TABLE_PREFIX_ANNOTATION_TARGET,
+                JACGConstants.TABLE_COLUMNS_ANNOTATION_TARGET);
+
+        List<Object[]> objectList = new ArrayList<>(JACGConstants.DB_INSERT_BATCH_SIZE);
+        for (int methodId = 0; methodId < methodHashArray.length; methodId++) {
+            objectList.add(new Object[]{JACGConstants.ANNOTATION_TARGET_TYPE_METHOD, methodId, methodHashArray[methodId], fullMethodArray[methodId]});
+            if (!dbOperator.tryBatchInsert(targetSql, objectList, false)) {
+                return false;
+            }
+        }
+        for (int classId = 0; classId < fullClassNameArray.length; classId++) {
+            objectList.add(new Object[]{JACGConstants.ANNOTATION_TARGET_TYPE_CLASS, classId, "", fullClassNameArray[classId]});
+            if (!dbOperator.tryBatchInsert(targetSql, objectList, false)) {
+                return false;
+            }
+        }
+        if (!dbOperator.tryBatchInsert(targetSql, objectList, true)) {
+            return false;
+        }
+
+        String indexSql = dbOperWrapper.genAndCacheInsertSql(JACGConstants.SQL_KEY_INSERT_ANNOTATION_INDEX,
+                DbInsertMode.DIME_INSERT,
+                JACGConstants.TABLE_PREFIX_ANNOTATION_INDEX,
+                JACGConstants.TABLE_COLUMNS_ANNOTATION_INDEX);
+        return writeBitSet2Db(dbOperator, indexSql, JACGConstants.ANNOTATION_TARGET_TYPE_METHOD, methodBitSetMap, objectList) &&
+                writeBitSet2Db(dbOperator, indexSql, JACGConstants.ANNOTATION_TARGET_TYPE_CLASS, classBitSetMap, objectList) &&
+                dbOperator.tryBatchInsert(indexSql, objectList, true);
+    }
+
+    // 将注解对应的位图分块后写入数据库
+    private boolean writeBitSet2Db(DbOperator dbOperator, String sql, String targetType, Map<String, BitSet> bitSetMap, List<Object[]> objectList) {
+        for (Map.Entry<String, BitSet> entry : bitSetMap.entrySet()) {
+            BitSet bitSet = entry.getValue();
+            int blockSeq = -1;
+            for (int id = bitSet.nextSetBit(0); id >= 0; id = bitSet.nextSetBit((blockSeq + 1) * JACGConstants.ENTRY_BITMAP_BLOCK_SIZE)) {
+                blockSeq = id / JACGConstants.ENTRY_BITMAP_BLOCK_SIZE;
+                objectList.add(new Object[]{entry.getKey(), targetType, blockSeq, EntryMethodReachability.encodeBlock(bitSet, blockSeq)});
+                if (!dbOperator.tryBatchInsert(sql, objectList, false)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 从数据库加载注解倒排索引
+     *
+     * @param dbOperator
+     * @param dbOperWrapper
+     * @param appName
+     * @return null: 加载失败
+     */
+    public static AnnotationIndex load(DbOperator dbOperator, DbOperWrapper dbOperWrapper, String appName) {
+        long startTime = System.currentTimeMillis();
+
+        String targetSqlKey = JACGConstants.SQL_KEY_AT_QUERY_ALL;
+        String targetSql = dbOperWrapper.getCachedSql(targetSqlKey);
+        if (targetSql == null) {
+            targetSql = "select " + JACGSqlUtil.joinColumns(DC.AT_TARGET_TYPE, DC.AT_TARGET_ID, DC.AT_METHOD_HASH, DC.AT_FULL_NAME) +
+                    " from " + JACGConstants.TABLE_PREFIX_ANNOTATION_TARGET + appName;
+            dbOperWrapper.cacheSql(targetSqlKey, targetSql);
+        }
+
+        Map<Integer, String[]> methodMap = new HashMap<>();
+        Map<Integer, String> classMap = new HashMap<>();
+        if (!dbOperator.queryStream(targetSql, null, rs -> {
+            if (JACGConstants.ANNOTATION_TARGET_TYPE_METHOD.equals(rs.getString(1))) {
+                methodMap.put(rs.getInt(2), new String[]{rs.getString(3), rs.getString(4)});
+            } else {
+                classMap.put(rs.getInt(2), rs.getString(4));
+            }
+            return true;
+        })) {
+            return null;
+        }
+
+        AnnotationIndex annotationIndex = new AnnotationIndex();
+        annotationIndex.methodHashArray = new String[methodMap.size()];
+        annotationIndex.fullMethodArray = new String[methodMap.size()];
+        for (Map.Entry<Integer, String[]> entry : methodMap.entrySet()) {
+            annotationIndex.methodHashArray[entry.getKey()] = entry.getValue()[0];
+            annotationIndex.fullMethodArray[entry.getKey()] = entry.getValue()[1];
+        }
+        annotationIndex.fullClassNameArray = new String[classMap.size()];
+        for (Map.Entry<Integer, String> entry : classMap.entrySet()) {
+            annotationIndex.fullClassNameArray[entry.getKey()] = entry.getValue();
+        }
+
+        String indexSqlKey = JACGConstants.SQL_KEY_AI_QUERY_ALL;
+        String indexSql = dbOperWrapper.getCachedSql(indexSqlKey);
+        if (indexSql == null) {
+            indexSql = "select " + JACGSqlUtil.joinColumns(DC.AI_ANNOTATION_NAME, DC.AI_TARGET_TYPE, DC.AI_BLOCK_SEQ, DC.AI_TARGET_BITMAP) +
+                    " from " + JACGConstants.TABLE_PREFIX_ANNOTATION_INDEX + appName;
+            dbOperWrapper.cacheSql(indexSqlKey, indexSql);
+        }
+
+        if (!dbOperator.queryStream(indexSql, null, rs -> {
+            Map<String, BitSet> bitSetMap = JACGConstants.ANNOTATION_TARGET_TYPE_METHOD.equals(rs.getString(2)) ? annotationIndex.methodBitSetMap :
+                    annotationIndex.classBitSetMap;
+            BitSet bitSet = bitSetMap.computeIfAbsent(rs.getString(1), k -> new BitSet());
+            EntryMethodReachability.decodeBlock(bitSet, rs.getInt(3), rs.getString(4));
+            return true;
+        })) {
+            return null;
+        }
+
+        logger.info("加载注解倒排索引完毕，有注解的方法数量 {} 有注解的类数量 {} 耗时 {} S", annotationIndex.methodHashArray.length,
+                annotationIndex.fullClassNameArray.length, (System.currentTimeMillis() - startTime) / 1000.0D);
+        return annotationIndex;
+    }
+
+    // 合并指定注解对应的位图
+    private BitSet mergeBitSet(Map<String, BitSet> bitSetMap, String[] annotationClassNames) {
+        BitSet mergedBitSet = new BitSet();
+        for (String annotationClassName : annotationClassNames) {
+            BitSet bitSet = bitSetMap.get(annotationClassName);
+            if (bitSet != null) {
+                mergedBitSet.or(bitSet);
+            }
+        }
+        return mergedBitSet;
+    }
+
+    /**
+     * 查询带有指定注解的完整方法及方法HASH
+     *
+     * @param annotationClassNames 注解类名
+     * @param fullClassName        完整类名，非null时只查询指定类中的方法
+     * @return 按方法HASH+长度排序，不包含重复记录
+     */
+    public List<MethodAndHash> getMethodsAndHashWithAnnotations(String[] annotationClassNames, String fullClassName) {
+        String fullMethodPrefix = fullClassName == null ? null : fullClassName + JACGConstants.FLAG_COLON;
+        BitSet bitSet = mergeBitSet(methodBitSetMap, annotationClassNames);
+        List<MethodAndHash> methodAndHashList = new ArrayList<>(bitSet.cardinality());
+        for (int methodId = bitSet.nextSetBit(0); methodId >= 0; methodId = bitSet.nextSetBit(methodId + 1)) {
+            if (fullMethodPrefix == null || StringUtils.startsWith(fullMethodArray[methodId], fullMethodPrefix)) {
+                methodAndHashList.add(new MethodAndHash(fullMethodArray[methodId], methodHashArray[methodId]));
+            }
+        }
+        return methodAndHashList;
+    }
+
+    /**
+     * 查询带有指定注解的完整方法
+     *
+     * @param annotationClassNames 注解类名
+     * @return 按方法HASH+长度排序，不包含重复记录
+     */
+    public List<String> getMethodsWithAnnotations(String[] annotationClassNames) {
+        BitSet bitSet = mergeBitSet(methodBitSetMap, annotationClassNames);
+        List<String> fullMethodList = new ArrayList<>(bitSet.cardinality());
+        for (int methodId = bitSet.nextSetBit(0); methodId >= 0; methodId = bitSet.nextSetBit(methodId + 1)) {
+            fullMethodList.add(fullMethodArray[methodId]);
+        }
+        return fullMethodList;
+    }
+
+    /**
+     * 查询带有指定注解的完整类名
+     *
+     * @param annotationClassNames 注解类名
+     * @return 按完整类名排序，不包含重复记录
+     */
+    public List<String> getClassesWithAnnotations(String[] annotationClassNames) {
+        BitSet bitSet = mergeBitSet(classBitSetMap, annotationClassNames);
+        List<String> fullClassNameList = new ArrayList<>(bitSet.cardinality());
+        for (int classId = bitSet.nextSetBit(0); classId >= 0; classId = bitSet.nextSetBit(classId + 1)) {
+            fullClassNameList.add(fullClassNameArray[classId]);
+        }
+        return fullClassNameList;
+    }
+}
@@ -0,0 +1,307 @@
+package com.adrninistrator.jacg.annotation;
+
+import com.adrninistrator.jacg.cache.LruCache;
+import com.adrninistrator.jacg.common.CommonAnnotationConstants;
+import com.adrninistrator.jacg.common.DC;
+import com.adrninistrator.jacg.common.JACGConstants;
+import com.adrninistrator.jacg.dboper.DbOperWrapper;
+import com.adrninistrator.jacg.dboper.DbOperator;
+import com.adrninistrator.jacg.dto.annotation.MethodWithAnnotationInfo;
+import com.adrninistrator.jacg.dto.annotation_attribute.BaseAnnotationAttribute;
+import com.adrninistrator.jacg.extensions.annotation_attributes.AllAnnotationAttributesPraser;
+import com.adrninistrator.jacg.util.JACGSqlUtil;
+import com.adrninistrator.jacg.util.JACGUtil;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/19
+ * @description: 按需从数据库查询方法及类上的注解信息，查询结果保存在限制最大数量的缓存中，没有注解的方法及类也会缓存
+ * 多个未缓存的方法或类会合并为一次查询；多个线程同时查询同一个方法或类时可能重复查询，结果相同
+ * 查询时使用当前线程数据库会话的连接，避免工作线程持有会话连接时再从连接池获取连接，导致连接池耗尽
+ * 缓存的注解信息Map会被多个线程共用，写入缓存前转换为不能修改的Map
+ */
+class AnnotationLazyLoader {
+    private static final Logger logger = LoggerFactory.getLogger(AnnotationLazyLoader.class);
+
+    // 每次查询的方法HASH或类名的最大数量
+    private static final int QUERY_BATCH_SIZE = 100;
+
+    // 代表方法没有注解的缓存对象
+    private static final MethodAnnotationEntry EMPTY_METHOD_ENTRY = new MethodAnnotationEntry(null);
+
+    // 代表类没有注解的缓存对象，使用==比较
+    private static final Map<String, Map<String, BaseAnnotationAttribute>> EMPTY_CLASS_ENTRY = Collections.unmodifiableMap(new HashMap<>(0));
+
+    private final DbOperator dbOperator;
+
+    private final DbOperWrapper dbOperWrapper;
+
+    private final String appName;
+
+    /*
+        方法注解信息缓存
+        key 方法完整名称HASH+长度
+        value 注解信息
+     */
+    private final LruCache<String, MethodAnnotationEntry> methodCache;
+
+    /*
+        类注解信息缓存
+        key 完整类名
+        value 注解信息，key为注解类名，value为注解属性Map
+     */
+    private final LruCache<String, Map<String, Map<String, BaseAnnotationAttribute>>> classCache;
+
+    AnnotationLazyLoader(DbOperator dbOperator, DbOperWrapper dbOperWrapper, String appName, int cacheSize) {
+        this.dbOperator = dbOperator;
+        this.dbOperWrapper = dbOperWrapper;
+        this.appName = appName;
+        methodCache = new LruCache<>("方法注解信息", cacheSize);
+        classCache = new LruCache<>("类注解信息", cacheSize);
+    }
+
+    /**
+     * 获取方法的注解信息，未缓存时从数据库查询
+     *
+     * @param methodHash 完整方法HASH+长度
+     * @return null: 方法没有注解或查询失败
+     */
+    MethodAnnotationEntry getMethodEntry(String methodHash) {
+        MethodAnnotationEntry entry = methodCache.get(methodHash);
+        if (entry == null) {
+            Map<String, MethodAnnotationEntry> queriedMap = queryMethods(new String[]{methodHash});
+            if (queriedMap == null) {
+                return null;
+            }
+            entry = queriedMap.get(methodHash);
+        }
+        return entry == EMPTY_METHOD_ENTRY ? null : entry;
+    }
+
+    /**
+     * 获取类的注解信息，未缓存时从数据库查询
+     *
+     * @param fullClassName 完整类名
+     * @return null: 类没有注解或查询失败
+     */
+    Map<String, Map<String, BaseAnnotationAttribute>> getClassAnnotationMap(String fullClassName) {
+        Map<String, Map<String, BaseAnnotationAttribute>> annotationMap = classCache.get(fullClassName);
+        if (annotationMap == null) {
+            Map<String, Map<String, Map<String, BaseAnnotationAttribute>>> queriedMap = queryClasses(new String[]{fullClassName});
+            if (queriedMap == null) {
+                return null;
+            }
+            annotationMap = queriedMap.get(fullClassName);
+        }
+        return annotationMap == EMPTY_CLASS_ENTRY ? null : annotationMap;
+    }
+
+    /**
+     * 预先查询多个方法的注解信息，已缓存的方法不查询，未缓存的方法分批查询
+     *
+     * @param methodHashes
+     * @return
+     */
+    boolean prefetchMethods(Collection<String> methodHashes) {
+        Set<String> missedSet = new LinkedHashSet<>();
+        for (String methodHash : methodHashes) {
+            if (!methodCache.contains(methodHash)) {
+                missedSet.add(methodHash);
+            }
+        }
+
+        List<String> missedList = new ArrayList<>(missedSet);
+        for (int i = 0; i < missedList.size(); i += QUERY_BATCH_SIZE) {
+            List<String> batchList = missedList.subList(i, Math.min(i + QUERY_BATCH_SIZE, missedList.size()));
+            if (queryMethods(batchList.toArray(new String[0])) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 从数据库查询指定方法的注解信息，并写入缓存
+     *
+     * @param methodHashes
+     * @return null: 查询失败
+     */
+    private Map<String, MethodAnnotationEntry> queryMethods(String[] methodHashes) {
+        String sqlKey = JACGConstants.SQL_KEY_MA_QUERY_ANNOTATIONS_BY_METHOD_HASHES;
+        String sql = dbOperWrapper.getCachedSql(sqlKey, methodHashes.length);
+        if (sql == null) {
+            sql = "select " + JACGSqlUtil.joinColumns(DC.MA_METHOD_HASH, DC.COMMON_ANNOTATION_ANNOTATION_NAME, DC.COMMON_ANNOTATION_ATTRIBUTE_NAME,
+                    DC.COMMON_ANNOTATION_ATTRIBUTE_VALUE, DC.MA_FULL_METHOD) +
+                    " from " + JACGConstants.TABLE_PREFIX_METHOD_ANNOTATION + appName +
+                    " where " + DC.MA_METHOD_HASH + " in " + JACGSqlUtil.genQuestionString(methodHashes.length);
+            dbOperWrapper.cacheSql(sqlKey, sql, methodHashes.length);
+        }
+
+        Map<String, MethodAnnotationEntry> queriedMap = new HashMap<>(methodHashes.length);
+        List<Object> list = dbOperator.queryList(sql, methodHashes, rs -> {
+            MethodAnnotationEntry entry = queriedMap.computeIfAbsent(rs.getString(1), k -> new MethodAnnotationEntry(new HashMap<>()));
+            if (entry.methodWithAnnotationInfo == null) {
+                String fullMethod = rs.getString(5);
+                entry.methodWithAnnotationInfo = new MethodWithAnnotationInfo(fullMethod, JACGUtil.getFullClassNameFromMethod(fullMethod));
+            }
+            recordAttribute(entry.annotationMap, rs.getString(2), rs.getString(3), rs.getString(4));
+            return null;
+        });
+        if (list == null) {
+            return null;
+        }
+
+        for (String methodHash : methodHashes) {
+            MethodAnnotationEntry entry = queriedMap.get(methodHash);
+            if (entry == null) {
+                entry = EMPTY_METHOD_ENTRY;
+                queriedMap.put(methodHash, entry);
+            } else {
+                entry.annotationMap = AnnotationStorage.toUnmodifiableAnnotationMap(entry.annotationMap);
+            }
+            methodCache.put(methodHash, entry);
+        }
+        return queriedMap;
+    }
+
+    /**
+     * 从数据库查询指定类的注解信息，并写入缓存
+     *
+     * @param fullClassNames
+     * @return null: 查询失败
+     */
+    private Map<String, Map<String, Map<String, BaseAnnotationAttribute>>> queryClasses(String[] fullClassNames) {
+        String sqlKey = JACGConstants.SQL_KEY_CA_QUERY_ANNOTATIONS_BY_CLASS_NAMES;
+        String sql = dbOperWrapper.getCachedSql(sqlKey, fullClassNames.length);
+        if (sql == null) {
+            sql = "select " + JACGSqlUtil.joinColumns(DC.CA_FULL_CLASS_NAME, DC.COMMON_ANNOTATION_ANNOTATION_NAME, DC.COMMON_ANNOTATION_ATTRIBUTE_NAME,
+                    DC.COMMON_ANNOTATION_ATTRIBUTE_VALUE) +
+                    " from " + JACGConstants.TABLE_PREFIX_CLASS_ANNOTATION + appName +
+                    " where " + DC.CA_FULL_CLASS_NAME + " in " + JACGSqlUtil.genQuestionString(fullClassNames.length);
+            dbOperWrapper.cacheSql(sqlKey, sql, fullClassNames.length);
+        }
+
+        Map<String, Map<String, Map<String, BaseAnnotationAttribute>>> queriedMap = new HashMap<>(fullClassNames.length);
+        if (!queryClassAnnotations(sql, fullClassNames, queriedMap)) {
+            return null;
+        }
+
+        for (String fullClassName : fullClassNames) {
+            Map<String, Map<String, BaseAnnotationAttribute>> annotationMap = queriedMap.get(fullClassName);
+            if (annotationMap == null) {
+                annotationMap = EMPTY_CLASS_ENTRY;
+            } else {
+                annotationMap = AnnotationStorage.toUnmodifiableAnnotationMap(annotationMap);
+            }
+            queriedMap.put(fullClassName, annotationMap);
+            classCache.put(fullClassName, annotationMap);
+        }
+        return queriedMap;
+    }
+
+    /**
+     * 从数据库查询有Spring MVC RequestMapping相关注解的方法HASH+长度，不查询注解信息
+     *
+     * @param methodHashSet 保存查询到的方法HASH+长度
+     * @return
+     */
+    boolean querySpringControllerMethodHashes(Set<String> methodHashSet) {
+        String[] annotationNames = CommonAnnotationConstants.SPRING_MVC_MAPPING_ANNOTATIONS;
+        String sqlKey = JACGConstants.SQL_KEY_MA_QUERY_METHOD_HASHES_BY_ANNOTATION_NAMES;
+        String sql = dbOperWrapper.getCachedSql(sqlKey, annotationNames.length);
+        if (sql == null) {
+            sql = "select distinct " + DC.MA_METHOD_HASH +
+                    " from " + JACGConstants.TABLE_PREFIX_METHOD_ANNOTATION + appName +
+                    " where " + DC.COMMON_ANNOTATION_ANNOTATION_NAME + " in " + JACGSqlUtil.genQuestionString(annotationNames.length);
+            dbOperWrapper.cacheSql(sqlKey, sql, annotationNames.length);
+        }
+
+        List<Object> list = dbOperator.queryList(sql, annotationNames, rs -> {
+            methodHashSet.add(rs.getString(1));
+            return null;
+        });
+        return list != null;
+    }
+
+    /**
+     * 从数据库查询有Spring Component相关注解的类的注解信息，只包含Spring Component相关注解，不写入缓存
+     *
+     * @param classAnnotationMap key: 完整类名 value: 注解信息
+     * @return
+     */
+    boolean querySpringComponentClasses(Map<String, Map<String, Map<String, BaseAnnotationAttribute>>> classAnnotationMap) {
+        String[] annotationNames = CommonAnnotationConstants.SPRING_COMPONENT_ANNOTATIONS;
+        String sqlKey = JACGConstants.SQL_KEY_CA_QUERY_ANNOTATIONS_BY_ANNOTATION_NAMES;
+        String sql = dbOperWrapper.getCachedSql(sqlKey, annotationNames.length);
+        if (sql == null) {
+            sql = "select " + JACGSqlUtil.joinColumns(DC.CA_FULL_CLASS_NAME, DC.COMMON_ANNOTATION_ANNOTATION_NAME, DC.COMMON_ANNOTATION_ATTRIBUTE_NAME,
+                    DC.COMMON_ANNOTATION_ATTRIBUTE_VALUE) +
+                    " from " + JACGConstants.TABLE_PREFIX_CLASS_ANNOTATION + appName +
+                    " where " + DC.COMMON_ANNOTATION_ANNOTATION_NAME + " in " + JACGSqlUtil.genQuestionString(annotationNames.length);
+            dbOperWrapper.cacheSql(sqlKey, sql, annotationNames.length);
+        }
+
+        return queryClassAnnotations(sql, annotationNames, classAnnotationMap);
+    }
+
+    private boolean queryClassAnnotations(String sql, Object[] arguments, Map<String, Map<String, Map<String, BaseAnnotationAttribute>>> classAnnotationMap) {
+        List<Object> list = dbOperator.queryList(sql, arguments, rs -> {
+            Map<String, Map<String, BaseAnnotationAttribute>> annotationMap = classAnnotationMap.computeIfAbsent(rs.getString(1), k -> new HashMap<>());
+            recordAttribute(annotationMap, rs.getString(2), rs.getString(3), rs.getString(4));
+            return null;
+        });
+        return list != null;
+    }
+
+    // 记录注解属性，对于未指定属性的注解，属性名称字段会是""，只记录注解
+    private void recordAttribute(Map<String, Map<String, BaseAnnotationAttribute>> annotationMap, String annotationName, String attributeName,
+                                 String attributeValue) {
+        Map<String, BaseAnnotationAttribute> attributeMap = annotationMap.computeIfAbsent(annotationName, k -> new HashMap<>());
+        if (StringUtils.isNotBlank(attributeName)) {
+            attributeMap.put(attributeName, AllAnnotationAttributesPraser.parse(attributeValue));
+        }
+    }
+
+    // 输出缓存的统计信息
+    void printStatistics() {
+        logger.info("按需查询注解信息的缓存统计 {}", methodCache.getStatistics());
+        logger.info("按需查询注解信息的缓存统计 {}", classCache.getStatistics());
+    }
+
+    // 一个方法的注解信息
+    static class MethodAnnotationEntry {
+        /*
+            注解信息
+            key 注解类名
+            value 注解属性Map
+         */
+        private Map<String, Map<String, BaseAnnotationAttribute>> annotationMap;
+
+        // 方法及所在类信息，在查询时写入
+        private MethodWithAnnotationInfo methodWithAnnotationInfo;
+
+        MethodAnnotationEntry(Map<String, Map<String, BaseAnnotationAttribute>> annotationMap) {
+            this.annotationMap = annotationMap;
+        }
+
+        Map<String, Map<String, BaseAnnotationAttribute>> getAnnotationMap() {
+            return annotationMap;
+        }
+
+        MethodWithAnnotationInfo getMethodWithAnnotationInfo() {
+            return methodWithAnnotationInfo;
+        }
+    }
+}
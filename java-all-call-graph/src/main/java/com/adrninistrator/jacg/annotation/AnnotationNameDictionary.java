@@ -0,0 +1,71 @@
+package com.adrninistrator.jacg.annotation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/19
+ * @description: 注解类名、注解属性名等重复出现的名称字典，相同的名称只保存一个String对象，并使用int序号表示
+ * 仅在初始化时写入，初始化完成后只读，可在多线程中使用
+ */
+class AnnotationNameDictionary {
+    /*
+        名称对应的序号
+        key: 名称
+        value: 序号
+     */
+    private final Map<String, Integer> idMap = new HashMap<>();
+
+    // 各序号对应的名称
+    private final List<String> nameList = new ArrayList<>();
+
+    /**
+     * 获取名称对应的序号，不存在时添加
+     *
+     * @param name
+     * @return
+     */
+    int getOrAddId(String name) {
+        Integer id = idMap.get(name);
+        if (id != null) {
+            return id;
+        }
+
+        int newId = nameList.size();
+        nameList.add(name);
+        idMap.put(name, newId);
+        return newId;
+    }
+
+    /**
+     * 获取名称对应的序号
+     *
+     * @param name
+     * @return -1: 名称不存在
+     */
+    int getId(String name) {
+        Integer id = idMap.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * 获取字典中与指定名称相同的String对象，不存在时添加
+     *
+     * @param name
+     * @return
+     */
+    String intern(String name) {
+        return nameList.get(getOrAddId(name));
+    }
+
+    String getName(int id) {
+        return nameList.get(id);
+    }
+
+    int size() {
+        return nameList.size();
+    }
+}
@@ -3,32 +3,46 @@ package com.adrninistrator.jacg.annotation;
 import com.adrninistrator.jacg.common.CommonAnnotationConstants;
 import com.adrninistrator.jacg.common.DC;
 import com.adrninistrator.jacg.common.JACGConstants;
+import com.adrninistrator.jacg.dboper.DbOperWrapper;
 import com.adrninistrator.jacg.dboper.DbOperator;
 import com.adrninistrator.jacg.dto.annotation.MethodWithAnnotationInfo;
 import com.adrninistrator.jacg.dto.annotation_attribute.BaseAnnotationAttribute;
 import com.adrninistrator.jacg.dto.annotation_attribute.StringAnnotationAttribute;
-import com.adrninistrator.jacg.extensions.annotation_attributes.AllAnnotationAttributesPraser;
+import com.adrninistrator.jacg.dto.spring.SpringBeanInfo;
+import com.adrninistrator.jacg.spring.SpringIndex;
 import com.adrninistrator.jacg.util.JACGSqlUtil;
 import com.adrninistrator.jacg.util.JACGUtil;
+import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author adrninistrator
  * @date 2022/4/9
  * @description: 保存类及方法上的注解信息
+ * 注解类名、注解属性名及注解属性值通过字典保存为int序号，每个类或方法的注解信息保存为int数组，获取时再生成对应的Map，以减少内存占用
+ * 按需查询模式下，初始化时不查询数据库，在首次获取方法或类的注解信息时才查询，查询结果保存在限制最大数量的缓存中
  */
 public class AnnotationStorage {
     private static final Logger logger = LoggerFactory.getLogger(AnnotationStorage.class);
 
     private DbOperator dbOperator;
 
+    private final DbOperWrapper dbOperWrapper;
+
     private String appName;
 
     // 完成初始化标志
@@ -42,36 +56,43 @@ public class AnnotationStorage {
     private final Map<String, MethodWithAnnotationInfo> methodWithAnnotationInfoHashMap = new ConcurrentHashMap<>(100);
 
     /*
-        保存类注解信息，Map格式
+        保存类注解信息
         key 完整类名
-        value
-            注解属性
-            key：
-                注解类名
-            value：
-                注解属性Map
-                key 属性名称
-                value 属性值
+        value 注解信息数组，格式见recordAnnotation()
      */
-    private final Map<String, Map<String, Map<String, BaseAnnotationAttribute>>> classAnnotationInfoMap = new ConcurrentHashMap<>(100);
+    private final Map<String, int[]> classAnnotationInfoMap = new ConcurrentHashMap<>(100);
 
     /*
-        保存方法注解信息，Map格式
+        保存方法注解信息
         key 方法完整名称HASH+长度
-        value
-            注解属性
-            key：
-                注解类名
-            value：
-                注解属性Map
-                key 属性名称
-                value 属性值
+        value 注解信息数组，格式见recordAnnotation()
      */
-    private final Map<String, Map<String, Map<String, BaseAnnotationAttribute>>> methodAnnotationInfoMap = new ConcurrentHashMap<>(100);
+    private final Map<String, int[]> methodAnnotationInfoMap = new ConcurrentHashMap<>(100);
+
+    // 注解类名、注解属性名、方法所在类名的字典
+    private final AnnotationNameDictionary nameDictionary = new AnnotationNameDictionary();
+
+    // 注解属性值的字典
+    private final AnnotationAttributeValueDictionary valueDictionary = new AnnotationAttributeValueDictionary();
+
+    // 按需查询注解信息，为null时代表一次性查询全部注解信息
+    private final AnnotationLazyLoader lazyLoader;
 
     public AnnotationStorage(DbOperator dbOperator, String appName) {
+        this(dbOperator, new DbOperWrapper(dbOperator, appName), appName, false);
+    }
+
+    /**
+     * @param dbOperator
+     * @param dbOperWrapper
+     * @param appName
+     * @param lazyLoad      true: 在首次获取方法或类的注解信息时才从数据库查询 false: 初始化时从数据库查询全部注解信息
+     */
+    public AnnotationStorage(DbOperator dbOperator, DbOperWrapper dbOperWrapper, String appName, boolean lazyLoad) {
         this.dbOperator = dbOperator;
+        this.dbOperWrapper = dbOperWrapper;
         this.appName = appName;
+        lazyLoader = lazyLoad ? new AnnotationLazyLoader(dbOperator, dbOperWrapper, appName, JACGConstants.ANNOTATION_LAZY_CACHE_SIZE) : null;
     }
 
     private boolean checkInited() {
@@ -92,6 +113,12 @@ public class AnnotationStorage {
             return true;
         }
 
+        if (lazyLoader != null) {
+            logger.info("按需从数据库查询注解信息，方法及类的注解信息各自最多缓存 {} 个", JACGConstants.ANNOTATION_LAZY_CACHE_SIZE);
+            inited = true;
+            return true;
+        }
+
         // 从数据库查询类注解信息
         if (!queryClassAnnotationInfo()) {
             return false;
@@ -102,107 +129,158 @@ public class AnnotationStorage {
             return false;
         }
 
+        valueDictionary.finishLoading();
+        logger.info("注解信息字典中的名称数量 {} 属性值数量 {}", nameDictionary.size(), valueDictionary.size());
         inited = true;
         return true;
     }
 
-    // 从数据库查询类或方法上的注解的属性
-    private boolean queryClassOrMethodAnnotationAttributes(boolean handleClassOrMethod,
-                                                           List<Map<String, Object>> annotationList,
-                                                           Map<String, Map<String, Map<String, BaseAnnotationAttribute>>> annotationWithAttributesMap) {
-        if (annotationList == null) {
-            return false;
+    /**
+     * 从数据库流式查询类或方法上的注解及注解属性，逐行记录，不需要将全部查询结果保存在内存中
+     * 对于未指定属性的注解，数据库中也会有一条属性名称为""的记录，因此可以获取到全部注解
+     *
+     * @param handleClassOrMethod true: 处理类 false: 处理方法
+     * @param annotationInfoMap
+     * @return
+     */
+    private boolean queryClassOrMethodAnnotationAttributes(boolean handleClassOrMethod, Map<String, int[]> annotationInfoMap) {
+        String sql;
+        if (handleClassOrMethod) {
+            sql = "select " + JACGSqlUtil.joinColumns(DC.CA_FULL_CLASS_NAME, DC.COMMON_ANNOTATION_ANNOTATION_NAME, DC.COMMON_ANNOTATION_ATTRIBUTE_NAME,
+                    DC.COMMON_ANNOTATION_ATTRIBUTE_VALUE) +
+                    " from " + JACGConstants.TABLE_PREFIX_CLASS_ANNOTATION + appName;
+        } else {
+            sql = "select " + JACGSqlUtil.joinColumns(DC.MA_METHOD_HASH, DC.COMMON_ANNOTATION_ANNOTATION_NAME, DC.COMMON_ANNOTATION_ATTRIBUTE_NAME,
+                    DC.COMMON_ANNOTATION_ATTRIBUTE_VALUE) +
+                    " from " + JACGConstants.TABLE_PREFIX_METHOD_ANNOTATION + appName;
         }
 
-        logger.info("查询{}上注解的属性，数量 {}", handleClassOrMethod ? "类" : "方法", annotationList.size());
-
-        if (annotationList.isEmpty()) {
+        boolean success = dbOperator.queryStream(sql, null, rs -> {
+            // 记录注解及注解属性
+            recordAnnotation(annotationInfoMap, rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4));
             return true;
+        });
+
+        logger.info("查询{}上注解的属性，有注解的{}数量 {}", handleClassOrMethod ? "类" : "方法", handleClassOrMethod ? "类" : "方法",
+                annotationInfoMap.size());
+        return success;
+    }
+
+    /**
+     * 记录注解及注解属性
+     * 每个类或方法的注解信息数组中，每3个元素对应数据库中的一条记录，依次为注解类名序号、注解属性名序号、注解属性值序号
+     * 对于未指定属性的注解，属性名称字段会是""，注解属性名序号及注解属性值序号记录为-1
+     *
+     * @param annotationInfoMap
+     * @param classNameOrMethodHash
+     * @param annotationName
+     * @param attributeName
+     * @param attributeValue
+     */
+    private void recordAnnotation(Map<String, int[]> annotationInfoMap, String classNameOrMethodHash, String annotationName, String attributeName,
+                                  String attributeValue) {
+        int annotationId = nameDictionary.getOrAddId(annotationName);
+        int attributeNameId = -1;
+        int attributeValueId = -1;
+        if (StringUtils.isNotBlank(attributeName)) {
+            attributeNameId = nameDictionary.getOrAddId(attributeName);
+            attributeValueId = valueDictionary.add(attributeValue);
         }
 
-        // 遍历查询到的注解
-        for (Map<String, Object> annotationMap : annotationList) {
-            String classNameOrMethodHash = (String) annotationMap.get(DC.ALIAS_ANNOTATION_CLASS_OR_METHOD);
-            String annotationName = (String) annotationMap.get(DC.COMMON_ANNOTATION_ANNOTATION_NAME);
-
-            Map<String, BaseAnnotationAttribute> tmpAttributeMap = new HashMap<>();
-            // 当前方法HASH在Map中的value，若不存在则put，存在则get，避免覆盖
-            Map<String, Map<String, BaseAnnotationAttribute>> tmpAnnotationMap = annotationWithAttributesMap.computeIfAbsent(classNameOrMethodHash, k -> new HashMap<>());
-            tmpAnnotationMap.put(annotationName, tmpAttributeMap);
-
-            // 查询当前注解的属性值
-            String sql;
-            if (handleClassOrMethod) {
-                sql = "select " + JACGSqlUtil.joinColumns(DC.COMMON_ANNOTATION_ATTRIBUTE_NAME, DC.COMMON_ANNOTATION_ATTRIBUTE_VALUE) +
-                        " from " + JACGConstants.TABLE_PREFIX_CLASS_ANNOTATION + appName +
-                        " where " + DC.CA_FULL_CLASS_NAME + " = ? and " + DC.COMMON_ANNOTATION_ANNOTATION_NAME + " = ?";
-            } else {
-                sql = "select " + JACGSqlUtil.joinColumns(DC.COMMON_ANNOTATION_ATTRIBUTE_NAME, DC.COMMON_ANNOTATION_ATTRIBUTE_VALUE) +
-                        " from " + JACGConstants.TABLE_PREFIX_METHOD_ANNOTATION + appName +
-                        " where " + DC.MA_METHOD_HASH + " = ? and " + DC.COMMON_ANNOTATION_ANNOTATION_NAME + " = ?";
-            }
+        int[] annotationInfo = annotationInfoMap.get(classNameOrMethodHash);
+        int index;
+        if (annotationInfo == null) {
+            index = 0;
+            annotationInfo = new int[3];
+        } else {
+            // 每个类或方法的注解记录数很少，每次只扩充一条记录的长度
+            index = annotationInfo.length;
+            annotationInfo = Arrays.copyOf(annotationInfo, index + 3);
+        }
+        annotationInfo[index] = annotationId;
+        annotationInfo[index + 1] = attributeNameId;
+        annotationInfo[index + 2] = attributeValueId;
+        annotationInfoMap.put(classNameOrMethodHash, annotationInfo);
+    }
 
-            List<Map<String, Object>> list = dbOperator.queryList(sql, new Object[]{classNameOrMethodHash, annotationName});
-            if (list == null) {
-                return false;
-            }
+    /**
+     * 根据注解信息数组生成注解信息Map，每次调用生成新的Map，注解属性对象是共用的，因此返回的Map不能修改
+     *
+     * @param annotationInfo
+     * @return
+     */
+    private Map<String, Map<String, BaseAnnotationAttribute>> genAnnotationMap(int[] annotationInfo) {
+        Map<String, Map<String, BaseAnnotationAttribute>> annotationMap = new HashMap<>();
+        for (int i = 0; i < annotationInfo.length; i += 3) {
+            Map<String, BaseAnnotationAttribute> attributeMap = annotationMap.computeIfAbsent(nameDictionary.getName(annotationInfo[i]), k -> new HashMap<>());
+            recordAttribute(annotationInfo, i, attributeMap);
+        }
+        return toUnmodifiableAnnotationMap(annotationMap);
+    }
+
+    /**
+     * 将注解信息Map及其中的注解属性Map转换为不能修改的Map
+     *
+     * @param annotationMap
+     * @return
+     */
+    static Map<String, Map<String, BaseAnnotationAttribute>> toUnmodifiableAnnotationMap(Map<String, Map<String, BaseAnnotationAttribute>> annotationMap) {
+        for (Map.Entry<String, Map<String, BaseAnnotationAttribute>> entry : annotationMap.entrySet()) {
+            entry.setValue(Collections.unmodifiableMap(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(annotationMap);
+    }
 
-            if (list.isEmpty()) {
-                return true;
+    /**
+     * 根据注解信息数组生成指定注解的属性Map
+     *
+     * @param annotationInfo
+     * @param annotationName
+     * @return null: 不存在指定注解，返回的Map不能修改
+     */
+    private Map<String, BaseAnnotationAttribute> genAttributeMap(int[] annotationInfo, String annotationName) {
+        int annotationId = nameDictionary.getId(annotationName);
+        if (annotationId == -1) {
+            return null;
+        }
+
+        Map<String, BaseAnnotationAttribute> attributeMap = null;
+        for (int i = 0; i < annotationInfo.length; i += 3) {
+            if (annotationInfo[i] != annotationId) {
+                continue;
             }
 
-            for (Map<String, Object> resultAttributesMap : list) {
-                // 记录注解属性Map
-                recordAttributeMap(resultAttributesMap, tmpAttributeMap);
+            if (attributeMap == null) {
+                attributeMap = new HashMap<>();
             }
+            recordAttribute(annotationInfo, i, attributeMap);
         }
-
-        return true;
+        return attributeMap == null ? null : Collections.unmodifiableMap(attributeMap);
     }
 
-    // 记录注解属性Map
-    private void recordAttributeMap(Map<String, Object> resultAttributesMap, Map<String, BaseAnnotationAttribute> tmpAttributeMap) {
-        String attributeName = (String) resultAttributesMap.get(DC.COMMON_ANNOTATION_ATTRIBUTE_NAME);
-        if (StringUtils.isBlank(attributeName)) {
-            // 对于未指定属性的注解，属性名称字段会是""，不需要put
+    // 记录注解属性
+    private void recordAttribute(int[] annotationInfo, int index, Map<String, BaseAnnotationAttribute> attributeMap) {
+        int attributeNameId = annotationInfo[index + 1];
+        if (attributeNameId == -1) {
+            // 未指定属性的注解，不需要put
             return;
         }
 
-        String attributeValue = (String) resultAttributesMap.get(DC.COMMON_ANNOTATION_ATTRIBUTE_VALUE);
-        // 解析注解属性
-        BaseAnnotationAttribute annotationAttribute = AllAnnotationAttributesPraser.parse(attributeValue);
-
-        tmpAttributeMap.put(attributeName, annotationAttribute);
+        attributeMap.put(nameDictionary.getName(attributeNameId), valueDictionary.getAttribute(annotationInfo[index + 2]));
     }
 
     // 从数据库查询类注解信息
     private boolean queryClassAnnotationInfo() {
         logger.info("从数据库查询类注解信息");
-        // 查询有注解的类信息，包含类名，注解类名
-        String sql = "select " + JACGSqlUtil.joinColumns(DC.CA_FULL_CLASS_NAME + " as " + DC.ALIAS_ANNOTATION_CLASS_OR_METHOD,
-                DC.COMMON_ANNOTATION_ANNOTATION_NAME) +
-                " from " + JACGConstants.TABLE_PREFIX_CLASS_ANNOTATION + appName +
-                " group by " + JACGSqlUtil.joinColumns(DC.CA_FULL_CLASS_NAME, DC.COMMON_ANNOTATION_ANNOTATION_NAME);
-
-        List<Map<String, Object>> list = dbOperator.queryList(sql, null);
-
-        // 从数据库查询类上的注解的属性
-        return queryClassOrMethodAnnotationAttributes(true, list, classAnnotationInfoMap);
+        // 从数据库查询类上的注解及注解的属性
+        return queryClassOrMethodAnnotationAttributes(true, classAnnotationInfoMap);
     }
 
     // 从数据库查询方法注解信息
     private boolean queryMethodAnnotationInfo() {
         logger.info("从数据库查询方法注解信息");
-        // 查询有注解的方法信息，包含方法HASH，注解类名
-        String sql = "select " + JACGSqlUtil.joinColumns(DC.MA_METHOD_HASH + " as " + DC.ALIAS_ANNOTATION_CLASS_OR_METHOD,
-                DC.COMMON_ANNOTATION_ANNOTATION_NAME) +
-                " from " + JACGConstants.TABLE_PREFIX_METHOD_ANNOTATION + appName +
-                " group by " + JACGSqlUtil.joinColumns(DC.MA_METHOD_HASH, DC.COMMON_ANNOTATION_ANNOTATION_NAME);
-
-        List<Map<String, Object>> list = dbOperator.queryList(sql, null);
-
-        // 从数据库查询方法上的注解的属性
-        if (!queryClassOrMethodAnnotationAttributes(false, list, methodAnnotationInfoMap)) {
+        // 从数据库查询方法上的注解及注解的属性
+        if (!queryClassOrMethodAnnotationAttributes(false, methodAnnotationInfoMap)) {
             return false;
         }
 
@@ -216,19 +294,15 @@ public class AnnotationStorage {
                 " from " + JACGConstants.TABLE_PREFIX_METHOD_ANNOTATION + appName +
                 " group by " + JACGSqlUtil.joinColumns(DC.MA_METHOD_HASH, DC.MA_FULL_METHOD);
 
-        List<Map<String, Object>> list = dbOperator.queryList(sql, null);
-        if (list == null) {
-            return false;
-        }
-
-        for (Map<String, Object> map : list) {
-            String methodHash = (String) map.get(DC.MA_METHOD_HASH);
-            String fullMethod = (String) map.get(DC.MA_FULL_METHOD);
+        return dbOperator.queryStream(sql, null, rs -> {
+            String methodHash = rs.getString(1);
+            String fullMethod = rs.getString(2);
 
-            methodWithAnnotationInfoHashMap.put(methodHash, new MethodWithAnnotationInfo(fullMethod, JACGUtil.getFullClassNameFromMethod(fullMethod)));
-        }
-
-        return true;
+            // 同一个类的多个方法使用同一个类名对象
+            methodWithAnnotationInfoHashMap.put(methodHash, new MethodWithAnnotationInfo(fullMethod,
+                    nameDictionary.intern(JACGUtil.getFullClassNameFromMethod(fullMethod))));
+            return true;
+        });
     }
 
     /**
@@ -242,11 +316,36 @@ public class AnnotationStorage {
             return null;
         }
 
+        if (lazyLoader != null) {
+            AnnotationLazyLoader.MethodAnnotationEntry entry = lazyLoader.getMethodEntry(methodHash);
+            return entry == null ? null : entry.getMethodWithAnnotationInfo();
+        }
+
         return methodWithAnnotationInfoHashMap.get(methodHash);
     }
 
+    /**
+     * 判断方法上是否有注解，不生成注解信息Map
+     * 按需查询模式下，未缓存时会从数据库查询
+     *
+     * @param methodHash 完整方法HASH+长度
+     * @return
+     */
+    public boolean checkMethodWithAnnotation(String methodHash) {
+        if (!checkInited()) {
+            return false;
+        }
+
+        if (lazyLoader != null) {
+            return lazyLoader.getMethodEntry(methodHash) != null;
+        }
+
+        return methodAnnotationInfoMap.containsKey(methodHash);
+    }
+
     /**
      * 根据完整类名获取对应的注解信息，Map格式
+     * 返回的Map不能修改，Map中的注解属性对象是共用的
      *
      * @param fullClassName 完整类名
      * @return
@@ -256,11 +355,17 @@ public class AnnotationStorage {
             return null;
         }
 
-        return classAnnotationInfoMap.get(fullClassName);
+        if (lazyLoader != null) {
+            return lazyLoader.getClassAnnotationMap(fullClassName);
+        }
+
+        int[] annotationInfo = classAnnotationInfoMap.get(fullClassName);
+        return annotationInfo == null ? null : genAnnotationMap(annotationInfo);
     }
 
     /**
      * 根据完整方法HASH+长度获取对应的方法的注解信息，Map格式
+     * 返回的Map不能修改，Map中的注解属性对象是共用的
      *
      * @param methodHash 完整方法HASH+长度
      * @return
@@ -270,41 +375,75 @@ public class AnnotationStorage {
             return null;
         }
 
-        return methodAnnotationInfoMap.get(methodHash);
+        if (lazyLoader != null) {
+            AnnotationLazyLoader.MethodAnnotationEntry entry = lazyLoader.getMethodEntry(methodHash);
+            return entry == null ? null : entry.getAnnotationMap();
+        }
+
+        int[] annotationInfo = methodAnnotationInfoMap.get(methodHash);
+        return annotationInfo == null ? null : genAnnotationMap(annotationInfo);
     }
 
     /**
      * 根据完整类名，及注解类名，获取对应的注解属性信息，Map格式
+     * 返回的Map不能修改，Map中的注解属性对象是共用的
      *
      * @param fullClassName  完整类名
      * @param annotationName 注解类名
      * @return
      */
     public Map<String, BaseAnnotationAttribute> getAttributeMap4ClassAnnotation(String fullClassName, String annotationName) {
-        Map<String, Map<String, BaseAnnotationAttribute>> map = getAnnotationMap4Class(fullClassName);
-        if (map == null) {
+        if (!checkInited()) {
+            return null;
+        }
+
+        if (lazyLoader != null) {
+            Map<String, Map<String, BaseAnnotationAttribute>> map = lazyLoader.getClassAnnotationMap(fullClassName);
+            if (map == null) {
+                logger.warn("未找到指定类的注解信息 {}", fullClassName);
+                return null;
+            }
+            return map.get(annotationName);
+        }
+
+        int[] annotationInfo = classAnnotationInfoMap.get(fullClassName);
+        if (annotationInfo == null) {
             logger.warn("未找到指定类的注解信息 {}", fullClassName);
             return null;
         }
 
-        return map.get(annotationName);
+        return genAttributeMap(annotationInfo, annotationName);
     }
 
     /**
      * 根据完整方法HASH+长度，及注解类名，获取对应的方法的注解属性信息，Map格式
+     * 返回的Map不能修改，Map中的注解属性对象是共用的
      *
      * @param methodHash     完整方法HASH+长度
      * @param annotationName 注解类名
      * @return
      */
     public Map<String, BaseAnnotationAttribute> getAttributeMap4MethodAnnotation(String methodHash, String annotationName) {
-        Map<String, Map<String, BaseAnnotationAttribute>> map = getAnnotationMap4Method(methodHash);
-        if (map == null) {
+        if (!checkInited()) {
+            return null;
+        }
+
+        if (lazyLoader != null) {
+            Map<String, Map<String, BaseAnnotationAttribute>> map = getAnnotationMap4Method(methodHash);
+            if (map == null) {
+                logger.warn("未找到指定方法HASH的注解信息 {}", methodHash);
+                return null;
+            }
+            return map.get(annotationName);
+        }
+
+        int[] annotationInfo = methodAnnotationInfoMap.get(methodHash);
+        if (annotationInfo == null) {
             logger.warn("未找到指定方法HASH的注解信息 {}", methodHash);
             return null;
         }
 
-        return map.get(annotationName);
+        return genAttributeMap(annotationInfo, annotationName);
     }
 
     /**
@@ -430,6 +569,7 @@ public class AnnotationStorage {
 
     /**
      * 获取Spring的Bean信息
+     * 写入数据库时已生成Spring Bean信息表时，从该表查询，否则根据类上的注解生成
      *
      * @param beanNameAndClassMap 可为空，key: bean的名称 value: bean的完整类名
      * @param classAndBeanNameMap 可为空，key: bean的完整类名 value: bean的名称
@@ -445,42 +585,171 @@ public class AnnotationStorage {
             return false;
         }
 
-        // 遍历类注解信息
-        for (Map.Entry<String, Map<String, Map<String, BaseAnnotationAttribute>>> classAnnotationMapEntry : classAnnotationInfoMap.entrySet()) {
-            String fullClassName = classAnnotationMapEntry.getKey();
-            Map<String, Map<String, BaseAnnotationAttribute>> annotationMapOfClass = classAnnotationMapEntry.getValue();
-            for (String springComponentAnnotations : CommonAnnotationConstants.SPRING_COMPONENT_ANNOTATIONS) {
-                Map<String, BaseAnnotationAttribute> springComponentAnnotationMap = annotationMapOfClass.get(springComponentAnnotations);
-                if (springComponentAnnotationMap == null) {
-                    continue;
-                }
+        List<SpringBeanInfo> springBeanInfoList;
+        SpringIndex springIndex = dbOperWrapper.getSpringIndex();
+        if (springIndex != null) {
+            springBeanInfoList = springIndex.getSpringBeanInfoList();
+        } else {
+            springBeanInfoList = genSpringBeanInfoList();
+            if (springBeanInfoList == null) {
+                return false;
+            }
+        }
 
-                // 在当前类对应的注解中，找到Spring Component相关注解
-                BaseAnnotationAttribute valueAttribute = springComponentAnnotationMap.get(CommonAnnotationConstants.SPRING_COMPONENT_ATTRIBUTE_NAME);
-                if (valueAttribute == null) {
-                    // Spring Component相关注解未指定value，则bean的名称为简单类名首字段小写
-                    String simpleClassName = JACGUtil.getSimpleClassNameFromFull(fullClassName);
-                    String firstLetterLowerClassName = JACGUtil.getFirstLetterLowerClassName(simpleClassName);
-                    setBeanMap(firstLetterLowerClassName, fullClassName, beanNameAndClassMap, classAndBeanNameMap);
+        for (SpringBeanInfo springBeanInfo : springBeanInfoList) {
+            setBeanMap(springBeanInfo.getBeanName(), springBeanInfo.getFullClassName(), beanNameAndClassMap, classAndBeanNameMap);
+        }
+        return true;
+    }
+
+    /**
+     * 根据类上的Spring Component相关注解生成Spring的Bean信息
+     *
+     * @return null: 处理失败，非null: 按完整类名排序
+     */
+    public List<SpringBeanInfo> genSpringBeanInfoList() {
+        if (!checkInited()) {
+            return null;
+        }
+
+        List<SpringBeanInfo> springBeanInfoList = new ArrayList<>();
+        if (lazyLoader != null) {
+            // 按需查询模式下，从数据库查询有Spring Component相关注解的类
+            Map<String, Map<String, Map<String, BaseAnnotationAttribute>>> springComponentClassMap = new HashMap<>();
+            if (!lazyLoader.querySpringComponentClasses(springComponentClassMap)) {
+                return null;
+            }
+
+            for (Map.Entry<String, Map<String, Map<String, BaseAnnotationAttribute>>> springComponentClassEntry : springComponentClassMap.entrySet()) {
+                String fullClassName = springComponentClassEntry.getKey();
+                for (String springComponentAnnotations : CommonAnnotationConstants.SPRING_COMPONENT_ANNOTATIONS) {
+                    Map<String, BaseAnnotationAttribute> springComponentAnnotationMap = springComponentClassEntry.getValue().get(springComponentAnnotations);
+                    if (springComponentAnnotationMap == null) {
+                        continue;
+                    }
+
+                    if (!recordSpringBean(fullClassName, springComponentAnnotations, springComponentAnnotationMap, springBeanInfoList)) {
+                        return null;
+                    }
                     break;
                 }
-
-                // Spring Component相关注解有指定value，则作为bean的名称
-                if (!(valueAttribute instanceof StringAnnotationAttribute)) {
-                    logger.error("{} 类的 {} 注解 {} 属性类型非法 {}", fullClassName, springComponentAnnotations, CommonAnnotationConstants.SPRING_COMPONENT_ATTRIBUTE_NAME,
-                            valueAttribute.getClass().getName());
-                    return false;
+            }
+        } else {
+            // 遍历类注解信息
+            for (Map.Entry<String, int[]> classAnnotationInfoEntry : classAnnotationInfoMap.entrySet()) {
+                String fullClassName = classAnnotationInfoEntry.getKey();
+                int[] annotationInfo = classAnnotationInfoEntry.getValue();
+                for (String springComponentAnnotations : CommonAnnotationConstants.SPRING_COMPONENT_ANNOTATIONS) {
+                    Map<String, BaseAnnotationAttribute> springComponentAnnotationMap = genAttributeMap(annotationInfo, springComponentAnnotations);
+                    if (springComponentAnnotationMap == null) {
+                        continue;
+                    }
+
+                    if (!recordSpringBean(fullClassName, springComponentAnnotations, springComponentAnnotationMap, springBeanInfoList)) {
+                        return null;
+                    }
+                    break;
                 }
-
-                String value = ((StringAnnotationAttribute) valueAttribute).getAttributeString();
-                setBeanMap(value, fullClassName, beanNameAndClassMap, classAndBeanNameMap);
-                break;
             }
         }
 
+        springBeanInfoList.sort(Comparator.comparing(SpringBeanInfo::getFullClassName));
+        return springBeanInfoList;
+    }
+
+    // 根据类上的Spring Component相关注解，记录Bean信息
+    private boolean recordSpringBean(String fullClassName, String springComponentAnnotations, Map<String, BaseAnnotationAttribute> springComponentAnnotationMap,
+                                     List<SpringBeanInfo> springBeanInfoList) {
+        // 在当前类对应的注解中，找到Spring Component相关注解
+        BaseAnnotationAttribute valueAttribute = springComponentAnnotationMap.get(CommonAnnotationConstants.SPRING_COMPONENT_ATTRIBUTE_NAME);
+        if (valueAttribute == null) {
+            // Spring Component相关注解未指定value，则bean的名称为简单类名首字段小写
+            String simpleClassName = JACGUtil.getSimpleClassNameFromFull(fullClassName);
+            String firstLetterLowerClassName = JACGUtil.getFirstLetterLowerClassName(simpleClassName);
+            springBeanInfoList.add(new SpringBeanInfo(fullClassName, firstLetterLowerClassName, springComponentAnnotations));
+            return true;
+        }
+
+        // Spring Component相关注解有指定value，则作为bean的名称
+        if (!(valueAttribute instanceof StringAnnotationAttribute)) {
+            logger.error("{} 类的 {} 注解 {} 属性类型非法 {}", fullClassName, springComponentAnnotations, CommonAnnotationConstants.SPRING_COMPONENT_ATTRIBUTE_NAME,
+                    valueAttribute.getClass().getName());
+            return false;
+        }
+
+        String value = ((StringAnnotationAttribute) valueAttribute).getAttributeString();
+        springBeanInfoList.add(new SpringBeanInfo(fullClassName, value, springComponentAnnotations));
         return true;
     }
 
+    /**
+     * 预先查询多个方法的注解信息，仅在按需查询模式下有效，已缓存的方法不会重复查询
+     * 需要获取一批方法的注解信息时，先调用当前方法可以减少查询数据库的次数
+     *
+     * @param methodHashes 完整方法HASH+长度
+     * @return
+     */
+    public boolean prefetch4Methods(Collection<String> methodHashes) {
+        if (lazyLoader == null || !checkInited()) {
+            return true;
+        }
+
+        return lazyLoader.prefetchMethods(methodHashes);
+    }
+
+    /**
+     * 获取有Spring MVC RequestMapping相关注解的全部方法的完整方法HASH+长度
+     * 按需查询模式下，只从数据库查询方法HASH+长度，不查询注解信息
+     *
+     * @return null: 处理失败，非null: 按方法HASH+长度排序
+     */
+    public Set<String> getSpringControllerMethodHashes() {
+        if (!checkInited()) {
+            return null;
+        }
+
+        Set<String> methodHashSet = new TreeSet<>();
+        if (lazyLoader != null) {
+            return lazyLoader.querySpringControllerMethodHashes(methodHashSet) ? methodHashSet : null;
+        }
+
+        // 遍历方法注解信息
+        int[] mappingAnnotationIds = new int[CommonAnnotationConstants.SPRING_MVC_MAPPING_ANNOTATIONS.length];
+        for (int i = 0; i < mappingAnnotationIds.length; i++) {
+            mappingAnnotationIds[i] = nameDictionary.getId(CommonAnnotationConstants.SPRING_MVC_MAPPING_ANNOTATIONS[i]);
+        }
+        for (Map.Entry<String, int[]> methodAnnotationInfoEntry : methodAnnotationInfoMap.entrySet()) {
+            int[] annotationInfo = methodAnnotationInfoEntry.getValue();
+            for (int i = 0; i < annotationInfo.length; i += 3) {
+                if (ArrayUtils.contains(mappingAnnotationIds, annotationInfo[i])) {
+                    methodHashSet.add(methodAnnotationInfoEntry.getKey());
+                    break;
+                }
+            }
+        }
+        return methodHashSet;
+    }
+
+    /**
+     * 获取有注解的全部方法的完整方法HASH+长度
+     *
+     * @return null: 按需查询模式，或未完成初始化
+     */
+    public Set<String> getMethodHashesWithAnnotation() {
+        if (lazyLoader != null || !checkInited()) {
+            return null;
+        }
+
+        return Collections.unmodifiableSet(methodAnnotationInfoMap.keySet());
+    }
+
+    // 按需查询模式下，输出缓存的统计信息
+    public void printLazyCacheStatistics() {
+        if (lazyLoader != null) {
+            lazyLoader.printStatistics();
+        }
+    }
+
     private void setBeanMap(String beanName, String className, Map<String, String> beanNameAndClassMap, Map<String, String> classAndBeanNameMap) {
         if (beanNameAndClassMap != null) {
             beanNameAndClassMap.put(beanName, className);
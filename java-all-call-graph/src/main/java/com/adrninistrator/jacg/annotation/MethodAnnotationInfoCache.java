@@ -0,0 +1,197 @@
+package com.adrninistrator.jacg.annotation;
+
+import com.adrninistrator.jacg.common.JACGConstants;
+import com.adrninistrator.jacg.dto.annotation.MethodWithAnnotationInfo;
+import com.adrninistrator.jacg.dto.annotation_attribute.BaseAnnotationAttribute;
+import com.adrninistrator.jacg.extensions.annotation_handler.AbstractAnnotationHandler;
+import com.adrninistrator.jacg.thread.ThreadFactory4TPE;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/19
+ * @description: 方法注解信息缓存，保存各方法上的注解经过注解处理类处理后生成的、在调用链中显示的注解信息
+ * 可在多个线程中同时使用，同一个方法在多个线程中同时被处理时，只保留先写入的结果
+ * 可以在生成调用链之前，使用多个线程预先处理全部有注解的方法
+ */
+public class MethodAnnotationInfoCache {
+    private static final Logger logger = LoggerFactory.getLogger(MethodAnnotationInfoCache.class);
+
+    private final AnnotationStorage annotationStorage;
+
+    // 用于对方法上的注解进行处理的类
+    private final List<AbstractAnnotationHandler> annotationHandlerList;
+
+    /*
+        各方法处理后的注解信息
+        key: 完整方法HASH+长度
+        value: 处理后的注解信息，以@开头
+     */
+    private final Map<String, String> methodAnnotationInfoMap = new ConcurrentHashMap<>();
+
+    // 从缓存中获取到注解信息的次数
+    private final LongAdder hitTimes = new LongAdder();
+
+    // 生成注解信息的次数
+    private final LongAdder genTimes = new LongAdder();
+
+    // 生成注解信息的总耗时
+    private final LongAdder genNanos = new LongAdder();
+
+    // 预先处理的方法数量
+    private int precomputeNum = 0;
+
+    // 预先处理的耗时
+    private long precomputeMillis = 0L;
+
+    public MethodAnnotationInfoCache(AnnotationStorage annotationStorage, List<AbstractAnnotationHandler> annotationHandlerList) {
+        this.annotationStorage = annotationStorage;
+        this.annotationHandlerList = annotationHandlerList;
+    }
+
+    /**
+     * 获取方法对应的注解信息，未处理过时进行处理并缓存
+     *
+     * @param methodHash 完整方法HASH+长度
+     * @return 方法上没有注解时返回空字符串
+     */
+    public String get(String methodHash) {
+        String existedAnnotationInfo = methodAnnotationInfoMap.get(methodHash);
+        if (existedAnnotationInfo != null) {
+            // 当前方法对应的注解信息已处理过，直接使用
+            hitTimes.increment();
+            return existedAnnotationInfo;
+        }
+
+        if (!annotationStorage.checkMethodWithAnnotation(methodHash)) {
+            // 当前方法上没有注解，不生成注解信息Map，也不计入统计
+            return "";
+        }
+
+        // 当前方法上有注解，且对应的注解信息未处理过
+        String allAnnotationInfo = genAnnotationInfo(methodHash);
+        String oldAnnotationInfo = methodAnnotationInfoMap.putIfAbsent(methodHash, allAnnotationInfo);
+        return oldAnnotationInfo != null ? oldAnnotationInfo : allAnnotationInfo;
+    }
+
+    // 使用注解处理类生成方法对应的注解信息，耗时包含生成注解信息Map的耗时
+    private String genAnnotationInfo(String methodHash) {
+        long startTime = System.nanoTime();
+        StringBuilder stringBuilder = new StringBuilder();
+
+        // 根据完整方法HASH+长度获取对应的注解信息
+        Map<String, Map<String, BaseAnnotationAttribute>> methodAnnotationMap = annotationStorage.getAnnotationMap4Method(methodHash);
+        MethodWithAnnotationInfo methodWithAnnotationInfo = annotationStorage.getMethodWithAnnotationInfo(methodHash);
+        if (methodAnnotationMap != null && methodWithAnnotationInfo != null) {
+            // 遍历当前方法上的所有注解进行处理
+            for (Map.Entry<String, Map<String, BaseAnnotationAttribute>> methodAnnotationMapEntry : methodAnnotationMap.entrySet()) {
+                String annotationName = methodAnnotationMapEntry.getKey();
+                // 遍历用于对方法上的注解进行处理的类
+                for (AbstractAnnotationHandler annotationHandler : annotationHandlerList) {
+                    if (!annotationHandler.checkHandleAnnotation(annotationName)) {
+                        continue;
+                    }
+
+                    // 找到能够处理的类进行处理
+                    String annotationInfo = annotationHandler.handleAnnotation(methodWithAnnotationInfo.getFullMethod(), methodWithAnnotationInfo.getFullClassName(),
+                            annotationName, methodAnnotationMapEntry.getValue());
+                    // 假如注解信息中包含了特定字符，会导致调用链文件行分隔时出现问题，因此将TAB替换为空格，半角@替换为全角＠
+                    if (StringUtils.contains(annotationInfo, JACGConstants.FLAG_TAB)) {
+                        logger.warn("注解内容中包含了TAB，将其替换为空格，请确认是否有影响 {}", annotationInfo);
+                        annotationInfo = annotationInfo.replace(JACGConstants.FLAG_TAB, JACGConstants.FLAG_SPACE);
+                    }
+                    if (StringUtils.contains(annotationInfo, JACGConstants.FLAG_AT)) {
+                        logger.warn("注解内容中包含了半角{}，将其替换为全角＠，请确认是否有影响 {}", JACGConstants.FLAG_AT, annotationInfo);
+                        annotationInfo = annotationInfo.replace(JACGConstants.FLAG_AT, "＠");
+                    }
+
+                    // 注解信息以@开头，在以上方法中不需要返回以@开头
+                    stringBuilder.append(JACGConstants.FLAG_AT).append(annotationInfo);
+                    break;
+                }
+            }
+        }
+
+        genTimes.increment();
+        genNanos.add(System.nanoTime() - startTime);
+        return stringBuilder.toString();
+    }
+
+    /**
+     * 使用多个线程预先处理全部有注解的方法
+     * 注解信息使用按需查询模式时，不支持预先处理
+     *
+     * @param threadNum 线程数
+     * @return
+     */
+    public boolean precompute(int threadNum) {
+        Set<String> methodHashSet = annotationStorage.getMethodHashesWithAnnotation();
+        if (methodHashSet == null) {
+            logger.warn("注解信息使用按需查询模式，不预先处理方法注解信息");
+            return true;
+        }
+
+        long startTime = System.currentTimeMillis();
+        List<String> methodHashList = new ArrayList<>(methodHashSet);
+        // 将方法按线程数分段，每个线程处理一段
+        int usedThreadNum = Math.max(1, Math.min(threadNum, methodHashList.size()));
+        int segmentSize = (methodHashList.size() + usedThreadNum - 1) / usedThreadNum;
+        AtomicBoolean success = new AtomicBoolean(true);
+
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(usedThreadNum, usedThreadNum, 10L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new ThreadFactory4TPE("jacg_annotation"));
+        for (int start = 0; start < methodHashList.size(); start += segmentSize) {
+            List<String> segment = methodHashList.subList(start, Math.min(start + segmentSize, methodHashList.size()));
+            threadPoolExecutor.execute(() -> {
+                try {
+                    for (String methodHash : segment) {
+                        get(methodHash);
+                    }
+                } catch (Exception e) {
+                    logger.error("error ", e);
+                    success.set(false);
+                }
+            });
+        }
+
+        threadPoolExecutor.shutdown();
+        try {
+            while (!threadPoolExecutor.awaitTermination(10L, TimeUnit.SECONDS)) {
+                logger.info("等待预先处理方法注解信息完成 ...");
+            }
+        } catch (InterruptedException e) {
+            logger.error("error ", e);
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        precomputeNum = methodHashList.size();
+        precomputeMillis = System.currentTimeMillis() - startTime;
+        logger.info("预先处理方法注解信息完毕，方法数量 {} 线程数 {} 耗时 {} S", precomputeNum, usedThreadNum, precomputeMillis / 1000.0D);
+        return success.get();
+    }
+
+    // 输出统计信息，节省的耗时按从缓存中获取的次数与平均生成耗时估算
+    public void printStatistics() {
+        long hit = hitTimes.sum();
+        long gen = genTimes.sum();
+        long totalNanos = genNanos.sum();
+        double avgMicros = gen == 0 ? 0.0D : totalNanos / 1000.0D / gen;
+        logger.info("方法注解信息缓存 缓存数量 {} 生成次数 {} 生成总耗时 {} ms 平均生成耗时 {} us 缓存命中次数 {} 估算节省耗时 {} ms 预先处理方法数量 {} 预先处理耗时 {} ms",
+                methodAnnotationInfoMap.size(), gen, String.format("%.1f", totalNanos / 1000000.0D), String.format("%.1f", avgMicros), hit,
+                String.format("%.1f", hit * avgMicros / 1000.0D), precomputeNum, precomputeMillis);
+    }
+}
@@ -0,0 +1,99 @@
+package com.adrninistrator.jacg.archive;
+
+import com.adrninistrator.jacg.dto.archive.ArchiveEntryInfo;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/8
+ * @description: 将一个调用链文件的内容写入归档文件，内容达到指定长度时作为一个片段写入数据文件，关闭时写入剩余内容并记录条目索引信息
+ * 每个条目在内存中最多缓存一个片段的内容，多个线程同时写入不同条目时，各条目的片段在数据文件中交错保存
+ */
+public class ArchiveEntryWriter extends Writer {
+
+    // 每个片段缓存的最大字符数
+    private static final int SEGMENT_CHAR_SIZE = 256 * 1024;
+
+    private final CallGraphArchiveWriter callGraphArchiveWriter;
+
+    // 调用链文件路径
+    private final String filePath;
+
+    private final StringBuilder stringBuilder = new StringBuilder();
+
+    // 已写入的各片段在数据文件中的偏移量及长度
+    private long[] offsets = new long[1];
+    private int[] lengths = new int[1];
+    private int segmentNum = 0;
+
+    private boolean closed = false;
+
+    public ArchiveEntryWriter(CallGraphArchiveWriter callGraphArchiveWriter, String filePath) {
+        this.callGraphArchiveWriter = callGraphArchiveWriter;
+        this.filePath = filePath;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        stringBuilder.append(cbuf, off, len);
+        if (stringBuilder.length() >= SEGMENT_CHAR_SIZE) {
+            writeSegment(false);
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        stringBuilder.append(str, off, off + len);
+        if (stringBuilder.length() >= SEGMENT_CHAR_SIZE) {
+            writeSegment(false);
+        }
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        if (stringBuilder.length() > 0 || segmentNum == 0) {
+            // 内容为空的条目也需要写入一个片段
+            writeSegment(true);
+        }
+        callGraphArchiveWriter.addEntryInfo(new ArchiveEntryInfo(callGraphArchiveWriter.genEntryName(filePath), Arrays.copyOf(offsets, segmentNum),
+                Arrays.copyOf(lengths, segmentNum)));
+    }
+
+    /**
+     * 将缓存的内容作为一个片段写入数据文件
+     *
+     * @param last 是否为最后一个片段
+     * @throws IOException
+     */
+    private void writeSegment(boolean last) throws IOException {
+        int end = stringBuilder.length();
+        if (!last && end > 0 && Character.isHighSurrogate(stringBuilder.charAt(end - 1))) {
+            // 代理项字符对不能拆分到两个片段中，保留在下一个片段
+            end--;
+        }
+
+        byte[] bytes = callGraphArchiveWriter.encodeSegment(stringBuilder.substring(0, end));
+        long offset = callGraphArchiveWriter.writeSegment(filePath, bytes);
+        stringBuilder.delete(0, end);
+
+        if (segmentNum == offsets.length) {
+            offsets = Arrays.copyOf(offsets, segmentNum * 2);
+            lengths = Arrays.copyOf(lengths, segmentNum * 2);
+        }
+        offsets[segmentNum] = offset;
+        lengths[segmentNum] = bytes.length;
+        segmentNum++;
+    }
+}
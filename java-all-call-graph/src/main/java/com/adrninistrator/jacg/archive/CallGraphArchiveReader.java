@@ -0,0 +1,338 @@
+package com.adrninistrator.jacg.archive;
+
+import com.adrninistrator.jacg.common.JACGConstants;
+import com.adrninistrator.jacg.dto.archive.ArchiveEntryInfo;
+import com.adrninistrator.jacg.dto.method.MethodInfoInFileName;
+import com.adrninistrator.jacg.util.JACGCallGraphFileUtil;
+import com.adrninistrator.jacg.util.JACGFileUtil;
+import com.adrninistrator.jacg.util.JACGUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/8
+ * @description: 读取调用链归档文件，支持根据条目名称或方法HASH+长度随机访问，条目内容支持流式读取
+ */
+public class CallGraphArchiveReader implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(CallGraphArchiveReader.class);
+
+    // 流式读取条目时的缓冲区大小
+    private static final int ENTRY_READ_BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel dataChannel;
+
+    // 条目内容是否使用gzip格式进行压缩
+    private boolean compress;
+
+    /*
+        条目名称与条目索引信息的映射关系，按照写入顺序保存
+        key: 条目名称
+        value: 条目索引信息
+     */
+    private final Map<String, ArchiveEntryInfo> entryInfoMap = new LinkedHashMap<>();
+
+    /*
+        方法HASH+长度与条目名称的映射关系
+        key: 方法HASH+长度
+        value: 条目名称列表
+     */
+    private final Map<String, List<String>> methodHashEntryMap = new HashMap<>();
+
+    /*
+        配置文件中指定的任务信息与条目名称之间的映射关系
+        key: 配置文件中指定的任务信息
+        value: 条目名称
+     */
+    private final Map<String, String> mappingMap = new LinkedHashMap<>();
+
+    private CallGraphArchiveReader(FileChannel dataChannel) {
+        this.dataChannel = dataChannel;
+    }
+
+    /**
+     * 判断指定目录中是否存在调用链归档文件
+     *
+     * @param dirPath
+     * @return
+     */
+    public static boolean isArchiveDir(String dirPath) {
+        return JACGFileUtil.isFileExists(dirPath + File.separator + JACGConstants.FILE_ARCHIVE_INDEX) &&
+                JACGFileUtil.isFileExists(dirPath + File.separator + JACGConstants.FILE_ARCHIVE_DATA);
+    }
+
+    /**
+     * 创建归档文件读取对象
+     *
+     * @param dirPath 归档文件所在目录
+     * @return null: 创建失败
+     */
+    public static CallGraphArchiveReader genCallGraphArchiveReader(String dirPath) {
+        String dataFilePath = dirPath + File.separator + JACGConstants.FILE_ARCHIVE_DATA;
+        String indexFilePath = dirPath + File.separator + JACGConstants.FILE_ARCHIVE_INDEX;
+        CallGraphArchiveReader callGraphArchiveReader = null;
+        try {
+            callGraphArchiveReader = new CallGraphArchiveReader(new FileInputStream(dataFilePath).getChannel());
+            if (!callGraphArchiveReader.readIndex(indexFilePath)) {
+                callGraphArchiveReader.close();
+                return null;
+            }
+            return callGraphArchiveReader;
+        } catch (Exception e) {
+            logger.error("error {} ", dataFilePath, e);
+            if (callGraphArchiveReader != null) {
+                callGraphArchiveReader.close();
+            }
+            return null;
+        }
+    }
+
+    // 读取索引文件
+    private boolean readIndex(String indexFilePath) throws IOException {
+        try (BufferedReader br = JACGFileUtil.genBufferedReader(indexFilePath)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.startsWith(JACGConstants.ARCHIVE_INDEX_COMPRESS_PREFIX)) {
+                    compress = Boolean.parseBoolean(line.substring(JACGConstants.ARCHIVE_INDEX_COMPRESS_PREFIX.length()));
+                    continue;
+                }
+
+                String[] array = line.split(JACGConstants.FLAG_TAB);
+                if (JACGConstants.ARCHIVE_INDEX_TYPE_ENTRY.equals(array[0]) && array.length >= 4 && array.length % 2 == 0) {
+                    // 条目名称之后依次为各片段的偏移量及长度
+                    String entryName = array[1];
+                    int segmentNum = (array.length - 2) / 2;
+                    long[] offsets = new long[segmentNum];
+                    int[] lengths = new int[segmentNum];
+                    for (int i = 0; i < segmentNum; i++) {
+                        offsets[i] = Long.parseLong(array[2 + i * 2]);
+                        lengths[i] = Integer.parseInt(array[3 + i * 2]);
+                    }
+                    entryInfoMap.put(entryName, new ArchiveEntryInfo(entryName, offsets, lengths));
+
+                    if (entryName.endsWith(JACGConstants.EXT_EMPTY_TXT)) {
+                        // 内容为空的调用链文件名中不包含方法HASH+长度
+                        continue;
+                    }
+
+                    // 记录方法HASH+长度对应的条目
+                    MethodInfoInFileName methodInfoInFileName = JACGCallGraphFileUtil.getMethodInfoFromFileName(JACGUtil.getFileNameFromPath(entryName));
+                    if (methodInfoInFileName != null) {
+                        methodHashEntryMap.computeIfAbsent(methodInfoInFileName.getMethodHash(), k -> new ArrayList<>(1)).add(entryName);
+                    }
+                } else if (JACGConstants.ARCHIVE_INDEX_TYPE_MAPPING.equals(array[0]) && array.length == 3) {
+                    mappingMap.put(array[1], array[2]);
+                } else {
+                    logger.error("归档索引文件内容非法 {} {}", indexFilePath, line);
+                    return false;
+                }
+            }
+        }
+
+        logger.info("读取调用链归档索引文件 {} 条目数量 {}", indexFilePath, entryInfoMap.size());
+        return true;
+    }
+
+    /**
+     * 获取全部条目名称，按照写入顺序返回
+     *
+     * @return
+     */
+    public List<String> getEntryNameList() {
+        return new ArrayList<>(entryInfoMap.keySet());
+    }
+
+    /**
+     * 获取指定条目的索引信息
+     *
+     * @param entryName 条目名称
+     * @return
+     */
+    public ArchiveEntryInfo getEntryInfo(String entryName) {
+        return entryInfoMap.get(entryName);
+    }
+
+    /**
+     * 根据方法HASH+长度查找对应的条目名称
+     *
+     * @param methodHash 方法HASH+长度
+     * @return
+     */
+    public List<String> findEntryNameByMethodHash(String methodHash) {
+        List<String> entryNameList = methodHashEntryMap.get(methodHash);
+        return entryNameList == null ? Collections.emptyList() : entryNameList;
+    }
+
+    /**
+     * 获取配置文件中指定的任务信息与条目名称之间的映射关系
+     *
+     * @return
+     */
+    public Map<String, String> getMappingMap() {
+        return mappingMap;
+    }
+
+    /**
+     * 一次性读取指定条目的内容，返回解压缩后的UTF-8字节
+     * 只适用于较小的条目（条目在归档文件中的长度不超过CallGraphLineScanner.READ_ALL_MAX_SIZE），较大的条目使用genEntryInputStream()或genEntryReader()读取
+     *
+     * @param entryName 条目名称
+     * @return null: 条目不存在
+     * @throws IOException
+     */
+    public byte[] readEntryBytes(String entryName) throws IOException {
+        ArchiveEntryInfo archiveEntryInfo = entryInfoMap.get(entryName);
+        if (archiveEntryInfo == null) {
+            logger.error("归档文件中不存在指定条目 {}", entryName);
+            return null;
+        }
+
+        long totalLength = archiveEntryInfo.getTotalLength();
+        if (totalLength > Integer.MAX_VALUE) {
+            throw new IOException("归档文件条目过大，不支持读取 " + entryName + " " + totalLength);
+        }
+
+        // 按顺序读取各片段并拼接，使用gzip格式压缩时，拼接后为多段连续的压缩数据
+        ByteBuffer byteBuffer = ByteBuffer.allocate((int) totalLength);
+        for (int i = 0; i < archiveEntryInfo.getSegmentNum(); i++) {
+            byteBuffer.limit(byteBuffer.position() + archiveEntryInfo.getLength(i));
+            long position = archiveEntryInfo.getOffset(i);
+            while (byteBuffer.hasRemaining()) {
+                // 使用指定位置读取，支持多个线程同时读取
+                int readLength = dataChannel.read(byteBuffer, position);
+                if (readLength < 0) {
+                    throw new IOException("归档文件内容不完整 " + entryName);
+                }
+                position += readLength;
+            }
+        }
+
+        byte[] bytes = byteBuffer.array();
+        if (compress) {
+            bytes = JACGFileUtil.unGzipBytes(bytes);
+        }
+        return bytes;
+    }
+
+    /**
+     * 获取指定条目内容的输入流，按顺序读取各片段，使用gzip格式压缩时返回解压缩后的内容，不将全部内容读取到内存中
+     * 使用指定位置读取归档文件，支持多个线程同时读取
+     *
+     * @param entryName 条目名称
+     * @return null: 条目不存在
+     * @throws IOException
+     */
+    public InputStream genEntryInputStream(String entryName) throws IOException {
+        ArchiveEntryInfo archiveEntryInfo = entryInfoMap.get(entryName);
+        if (archiveEntryInfo == null) {
+            logger.error("归档文件中不存在指定条目 {}", entryName);
+            return null;
+        }
+
+        InputStream inputStream = new EntryInputStream(archiveEntryInfo);
+        if (compress) {
+            // 拼接后为多段连续的压缩数据，GZIPInputStream会依次解压缩
+            return new GZIPInputStream(inputStream, ENTRY_READ_BUFFER_SIZE);
+        }
+        return inputStream;
+    }
+
+    /**
+     * 获取指定条目内容的BufferedReader，逐行读取，不将全部内容读取到内存中
+     *
+     * @param entryName 条目名称
+     * @return null: 条目不存在
+     * @throws IOException
+     */
+    public BufferedReader genEntryReader(String entryName) throws IOException {
+        InputStream inputStream = genEntryInputStream(entryName);
+        if (inputStream == null) {
+            return null;
+        }
+        return new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8), ENTRY_READ_BUFFER_SIZE);
+    }
+
+    @Override
+    public void close() {
+        try {
+            dataChannel.close();
+        } catch (IOException e) {
+            logger.error("error ", e);
+        }
+    }
+
+    // 按顺序读取条目各片段的输入流
+    private class EntryInputStream extends InputStream {
+        private final ArchiveEntryInfo archiveEntryInfo;
+
+        // 当前读取的片段序号
+        private int segmentIndex = 0;
+
+        // 当前片段已读取的长度
+        private int segmentReadLength = 0;
+
+        // 条目未读取的长度
+        private long remainingLength;
+
+        EntryInputStream(ArchiveEntryInfo archiveEntryInfo) {
+            this.archiveEntryInfo = archiveEntryInfo;
+            this.remainingLength = archiveEntryInfo.getTotalLength();
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] bytes = new byte[1];
+            int readLength = read(bytes, 0, 1);
+            return readLength < 0 ? -1 : bytes[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+
+            while (segmentIndex < archiveEntryInfo.getSegmentNum() && segmentReadLength >= archiveEntryInfo.getLength(segmentIndex)) {
+                segmentIndex++;
+                segmentReadLength = 0;
+            }
+            if (segmentIndex >= archiveEntryInfo.getSegmentNum()) {
+                return -1;
+            }
+
+            int readLength = Math.min(len, archiveEntryInfo.getLength(segmentIndex) - segmentReadLength);
+            // 使用指定位置读取，不修改FileChannel的位置
+            int actualLength = dataChannel.read(ByteBuffer.wrap(b, off, readLength), archiveEntryInfo.getOffset(segmentIndex) + segmentReadLength);
+            if (actualLength < 0) {
+                throw new IOException("归档文件内容不完整 " + archiveEntryInfo.getEntryName());
+            }
+            segmentReadLength += actualLength;
+            remainingLength -= actualLength;
+            return actualLength;
+        }
+
+        // GZIPInputStream根据available()判断一段压缩数据之后是否还有其他压缩数据，需要返回实际未读取的长度
+        @Override
+        public int available() {
+            return (int) Math.min(remainingLength, Integer.MAX_VALUE);
+        }
+    }
+}
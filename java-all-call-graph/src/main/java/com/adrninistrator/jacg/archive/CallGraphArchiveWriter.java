@@ -0,0 +1,189 @@
+package com.adrninistrator.jacg.archive;
+
+import com.adrninistrator.jacg.common.JACGConstants;
+import com.adrninistrator.jacg.dto.archive.ArchiveEntryInfo;
+import com.adrninistrator.jacg.util.JACGFileUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/8
+ * @description: 将调用链文件写入归档文件，一个数据文件加一个索引文件，避免生成大量小文件
+ */
+public class CallGraphArchiveWriter implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(CallGraphArchiveWriter.class);
+
+    // 输出目录
+    private final String dirPath;
+
+    // 条目内容是否使用gzip格式进行压缩
+    private final boolean compress;
+
+    private final FileChannel dataChannel;
+
+    // 当前写入数据文件的偏移量
+    private long currentOffset = 0;
+
+    // 已写入的条目索引信息
+    private final List<ArchiveEntryInfo> archiveEntryInfoList = new ArrayList<>();
+
+    private boolean closed = false;
+
+    private CallGraphArchiveWriter(String dirPath, boolean compress, FileChannel dataChannel) {
+        this.dirPath = dirPath;
+        this.compress = compress;
+        this.dataChannel = dataChannel;
+    }
+
+    /**
+     * 创建归档文件写入对象
+     *
+     * @param dirPath  输出目录
+     * @param compress 条目内容是否使用gzip格式进行压缩
+     * @return null: 创建失败
+     */
+    public static CallGraphArchiveWriter genCallGraphArchiveWriter(String dirPath, boolean compress) {
+        String dataFilePath = dirPath + File.separator + JACGConstants.FILE_ARCHIVE_DATA;
+        logger.info("创建调用链归档文件 {}", dataFilePath);
+        try {
+            return new CallGraphArchiveWriter(dirPath, compress, new FileOutputStream(dataFilePath).getChannel());
+        } catch (IOException e) {
+            logger.error("error {} ", dataFilePath, e);
+            return null;
+        }
+    }
+
+    /**
+     * 根据调用链文件路径生成条目名称，为相对于输出目录的路径，使用/作为分隔符
+     *
+     * @param filePath 调用链文件路径
+     * @return
+     */
+    public String genEntryName(String filePath) {
+        String entryName = filePath;
+        String dirPathWithSeparator = dirPath + File.separator;
+        if (filePath.startsWith(dirPathWithSeparator)) {
+            entryName = filePath.substring(dirPathWithSeparator.length());
+        }
+        return entryName.replace(File.separatorChar, '/');
+    }
+
+    /**
+     * 写入一个内容较少的条目，多个线程会同时调用
+     *
+     * @param filePath 调用链文件路径
+     * @param content  调用链文件内容
+     * @throws IOException
+     */
+    public void addEntry(String filePath, String content) throws IOException {
+        byte[] bytes = encodeSegment(content);
+        long offset = writeSegment(filePath, bytes);
+        addEntryInfo(new ArchiveEntryInfo(genEntryName(filePath), new long[]{offset}, new int[]{bytes.length}));
+    }
+
+    /**
+     * 将条目的一个片段转换为需要写入数据文件的字节，在调用线程中执行，不需要加锁
+     * 使用gzip格式压缩时，每个片段为一段独立的压缩数据，按顺序拼接后可直接解压缩
+     *
+     * @param content 片段内容
+     * @return
+     */
+    byte[] encodeSegment(String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        if (compress) {
+            bytes = JACGFileUtil.genGzipBytes(bytes);
+        }
+        return bytes;
+    }
+
+    /**
+     * 将条目的一个片段写入数据文件，多个线程会同时调用
+     *
+     * @param filePath 调用链文件路径
+     * @param bytes    片段对应的字节
+     * @return 片段在数据文件中的偏移量
+     * @throws IOException
+     */
+    synchronized long writeSegment(String filePath, byte[] bytes) throws IOException {
+        if (closed) {
+            throw new IOException("归档文件已关闭 " + filePath);
+        }
+
+        ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
+        while (byteBuffer.hasRemaining()) {
+            dataChannel.write(byteBuffer);
+        }
+
+        long offset = currentOffset;
+        currentOffset += bytes.length;
+        return offset;
+    }
+
+    /**
+     * 记录条目的索引信息，条目的全部片段写入完毕后调用
+     *
+     * @param archiveEntryInfo
+     */
+    synchronized void addEntryInfo(ArchiveEntryInfo archiveEntryInfo) {
+        archiveEntryInfoList.add(archiveEntryInfo);
+    }
+
+    /**
+     * 写入索引文件，包含各条目的偏移量及长度，以及配置文件中指定的任务信息与条目之间的映射关系
+     *
+     * @param methodInConfAndFileMap 配置文件中指定的任务信息与生成文件路径之间的映射关系
+     * @return
+     */
+    public synchronized boolean writeIndex(Map<String, String> methodInConfAndFileMap) {
+        String indexFilePath = dirPath + File.separator + JACGConstants.FILE_ARCHIVE_INDEX;
+        logger.info("生成调用链归档索引文件 {}", indexFilePath);
+
+        try (BufferedWriter out = JACGFileUtil.genBufferedWriter(indexFilePath)) {
+            out.write(JACGConstants.ARCHIVE_INDEX_COMPRESS_PREFIX + compress + JACGConstants.NEW_LINE);
+            for (ArchiveEntryInfo archiveEntryInfo : archiveEntryInfoList) {
+                // 条目名称之后依次为各片段的偏移量及长度
+                StringBuilder stringBuilder = new StringBuilder(JACGConstants.ARCHIVE_INDEX_TYPE_ENTRY).append(JACGConstants.FLAG_TAB).append(archiveEntryInfo.getEntryName());
+                for (int i = 0; i < archiveEntryInfo.getSegmentNum(); i++) {
+                    stringBuilder.append(JACGConstants.FLAG_TAB).append(archiveEntryInfo.getOffset(i)).append(JACGConstants.FLAG_TAB).append(archiveEntryInfo.getLength(i));
+                }
+                out.write(stringBuilder.append(JACGConstants.NEW_LINE).toString());
+            }
+            for (Map.Entry<String, String> entry : methodInConfAndFileMap.entrySet()) {
+                // 以TAB作为分隔，因为key中可能存在空格
+                out.write(JACGConstants.ARCHIVE_INDEX_TYPE_MAPPING + JACGConstants.FLAG_TAB + entry.getKey() + JACGConstants.FLAG_TAB + genEntryName(entry.getValue()) +
+                        JACGConstants.NEW_LINE);
+            }
+            return true;
+        } catch (Exception e) {
+            logger.error("error {} ", indexFilePath, e);
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        try {
+            dataChannel.close();
+        } catch (IOException e) {
+            logger.error("error ", e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.adrninistrator.jacg.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/19
+ * @description: 限制最大数量的缓存，超过最大数量时淘汰最久未被访问的记录，并统计命中次数、未命中次数及淘汰次数
+ * 各方法均加锁，可在多线程中使用；value不能为null，需要缓存“不存在”的结果时，由使用方指定代表不存在的对象
+ */
+public class LruCache<K, V> {
+    // 缓存名称，用于输出统计信息
+    private final String name;
+
+    private final int maxSize;
+
+    private final Map<K, V> map;
+
+    private long hitTimes = 0L;
+
+    private long missTimes = 0L;
+
+    private long evictTimes = 0L;
+
+    public LruCache(String name, int maxSize) {
+        this.name = name;
+        this.maxSize = maxSize;
+        map = new LinkedHashMap<K, V>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() > LruCache.this.maxSize) {
+                    evictTimes++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 获取缓存的记录，记录命中或未命中次数
+     *
+     * @param key
+     * @return null: 未命中
+     */
+    public synchronized V get(K key) {
+        V value = map.get(key);
+        if (value == null) {
+            missTimes++;
+        } else {
+            hitTimes++;
+        }
+        return value;
+    }
+
+    /**
+     * 判断记录是否已缓存，不记录命中或未命中次数，也不影响淘汰顺序
+     *
+     * @param key
+     * @return
+     */
+    public synchronized boolean contains(K key) {
+        return map.containsKey(key);
+    }
+
+    public synchronized void put(K key, V value) {
+        map.put(key, value);
+    }
+
+    public synchronized void clear() {
+        map.clear();
+    }
+
+    // 获取统计信息
+    public synchronized String getStatistics() {
+        long totalTimes = hitTimes + missTimes;
+        return String.format("[%s] 缓存数量 %d 最大数量 %d 命中次数 %d 未命中次数 %d 命中率 %.2f%% 淘汰次数 %d", name, map.size(), maxSize, hitTimes, missTimes,
+                totalTimes == 0 ? 0.0D : hitTimes * 100.0D / totalTimes, evictTimes);
+    }
+}
@@ -7,8 +7,10 @@ package com.adrninistrator.jacg.common;
  */
 public class CommonAnnotationConstants {
 
+    public static final String SPRING_MVC_REQUEST_MAPPING = "org.springframework.web.bind.annotation.RequestMapping";
+
     public static final String[] SPRING_MVC_MAPPING_ANNOTATIONS = new String[]{
-            "org.springframework.web.bind.annotation.RequestMapping",
+            SPRING_MVC_REQUEST_MAPPING,
             "org.springframework.web.bind.annotation.PatchMapping",
             "org.springframework.web.bind.annotation.DeleteMapping",
             "org.springframework.web.bind.annotation.PutMapping",
@@ -21,6 +23,12 @@ public class CommonAnnotationConstants {
             "path"
     };
 
+    // RequestMapping注解中指定HTTP请求方法的属性名
+    public static final String SPRING_MVC_REQUEST_METHOD_ATTRIBUTE_NAME = "method";
+
+    // GetMapping等注解类名的结尾，去掉后即为对应的HTTP请求方法
+    public static final String SPRING_MVC_MAPPING_ANNOTATION_SUFFIX = "Mapping";
+
     public static final String[] SPRING_COMPONENT_ANNOTATIONS = new String[]{
             "org.springframework.stereotype.Component",
             "org.springframework.stereotype.Controller",
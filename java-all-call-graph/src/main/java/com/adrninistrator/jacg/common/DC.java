@@ -43,6 +43,11 @@ public class DC {
     public static final String MC_CALLEE_FULL_CLASS_NAME = "callee_full_class_name";
     public static final String MC_CALLEE_CLASS_NAME = "callee_class_name";
 
+    public static final String MCSI_SHARD_INDEX = "shard_index";
+    public static final String MCSI_SHARD_NUM = "shard_num";
+    public static final String MCSI_SOURCE_ROW_NUM = "source_row_num";
+    public static final String MCSI_SOURCE_MAX_CALL_ID = "source_max_call_id";
+
     public static final String MLN_METHOD_HASH = "method_hash";
     public static final String MLN_MIN_LINE_NUMBER = "min_line_number";
     public static final String MLN_MAX_LINE_NUMBER = "max_line_number";
@@ -67,6 +72,37 @@ public class DC {
     public static final String MAED_DATA_TYPE = "data_type";
     public static final String MAED_DATA_VALUE = "data_value";
 
+    public static final String EM_ENTRY_ID = "entry_id";
+    public static final String EM_METHOD_HASH = "method_hash";
+    public static final String EM_FULL_METHOD = "full_method";
+
+    public static final String MER_METHOD_HASH = "method_hash";
+    public static final String MER_BLOCK_SEQ = "block_seq";
+    public static final String MER_ENTRY_BITMAP = "entry_bitmap";
+
+    public static final String AT_TARGET_TYPE = "target_type";
+    public static final String AT_TARGET_ID = "target_id";
+    public static final String AT_METHOD_HASH = "method_hash";
+    public static final String AT_FULL_NAME = "full_name";
+
+    public static final String AI_ANNOTATION_NAME = "annotation_name";
+    public static final String AI_TARGET_TYPE = "target_type";
+    public static final String AI_BLOCK_SEQ = "block_seq";
+    public static final String AI_TARGET_BITMAP = "target_bitmap";
+
+    public static final String SB_FULL_CLASS_NAME = "full_class_name";
+    public static final String SB_BEAN_NAME = "bean_name";
+    public static final String SB_ANNOTATION_NAME = "annotation_name";
+
+    public static final String SPC_METHOD_HASH = "method_hash";
+    public static final String SPC_SEQ = "seq";
+    public static final String SPC_SHOW_URI = "show_uri";
+    public static final String SPC_CLASS_PATH = "class_path";
+    public static final String SPC_METHOD_PATH = "method_path";
+    public static final String SPC_REQUEST_METHOD = "request_method";
+    public static final String SPC_ANNOTATION_NAME = "annotation_name";
+    public static final String SPC_FULL_METHOD = "full_method";
+
     private DC() {
         throw new IllegalStateException("illegal");
     }
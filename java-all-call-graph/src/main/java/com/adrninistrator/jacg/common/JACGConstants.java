@@ -78,10 +78,62 @@ public class JACGConstants {
             DC.MAED_DATA_VALUE
     };
 
+    public static final String[] TABLE_COLUMNS_ENTRY_METHOD = new String[]{
+            DC.EM_ENTRY_ID,
+            DC.EM_METHOD_HASH,
+            DC.EM_FULL_METHOD
+    };
+
+    public static final String[] TABLE_COLUMNS_METHOD_CALL_SHARD_INFO = new String[]{
+            DC.MCSI_SHARD_INDEX,
+            DC.MCSI_SHARD_NUM,
+            DC.MCSI_SOURCE_ROW_NUM,
+            DC.MCSI_SOURCE_MAX_CALL_ID
+    };
+
+    public static final String[] TABLE_COLUMNS_METHOD_ENTRY_REACH = new String[]{
+            DC.MER_METHOD_HASH,
+            DC.MER_BLOCK_SEQ,
+            DC.MER_ENTRY_BITMAP
+    };
+
+    public static final String[] TABLE_COLUMNS_ANNOTATION_TARGET = new String[]{
+            DC.AT_TARGET_TYPE,
+            DC.AT_TARGET_ID,
+            DC.AT_METHOD_HASH,
+            DC.AT_FULL_NAME
+    };
+
+    public static final String[] TABLE_COLUMNS_ANNOTATION_INDEX = new String[]{
+            DC.AI_ANNOTATION_NAME,
+            DC.AI_TARGET_TYPE,
+            DC.AI_BLOCK_SEQ,
+            DC.AI_TARGET_BITMAP
+    };
+
+    public static final String[] TABLE_COLUMNS_SPRING_BEAN = new String[]{
+            DC.SB_FULL_CLASS_NAME,
+            DC.SB_BEAN_NAME,
+            DC.SB_ANNOTATION_NAME
+    };
+
+    public static final String[] TABLE_COLUMNS_SPRING_CONTROLLER = new String[]{
+            DC.SPC_METHOD_HASH,
+            DC.SPC_SEQ,
+            DC.SPC_SHOW_URI,
+            DC.SPC_CLASS_PATH,
+            DC.SPC_METHOD_PATH,
+            DC.SPC_REQUEST_METHOD,
+            DC.SPC_ANNOTATION_NAME,
+            DC.SPC_FULL_METHOD
+    };
+
     public static final String DIR_OUTPUT_GRAPH_FOR_CALLEE = "_jacg_o_ee";
     public static final String DIR_OUTPUT_GRAPH_FOR_CALLER = "_jacg_o_er";
     public static final String DIR_OUTPUT_METHODS = "methods";
     public static final String DIR_OUTPUT_FIND_KEYWORD = "_find_kw";
+    // 保存方法调用关系内存映射文件的目录
+    public static final String DIR_METHOD_CALL_STORAGE = "_jacg_storage";
 
     public static final String FILE_CONFIG = "config.properties";
 
@@ -89,12 +141,30 @@ public class JACGConstants {
     public static final String FILE_SQL_CLASS_ANNOTATION = "class_annotation.sql";
     public static final String FILE_SQL_METHOD_ANNOTATION = "method_annotation.sql";
     public static final String FILE_SQL_METHOD_CALL = "method_call.sql";
+    public static final String FILE_SQL_METHOD_CALL_SHARD_INFO = "method_call_shard_info.sql";
     public static final String FILE_SQL_METHOD_LINE_NUMBER = "method_line_number.sql";
     public static final String FILE_SQL_JAR_INFO = "jar_info.sql";
     public static final String FILE_SQL_EXTENDED_DATA = "extended_data.sql";
     public static final String FILE_SQL_MANUAL_ADD_EXTENDED_DATA = "manual_add_extended_data.sql";
+    public static final String FILE_SQL_ENTRY_METHOD = "entry_method.sql";
+    public static final String FILE_SQL_METHOD_ENTRY_REACH = "method_entry_reach.sql";
+    public static final String FILE_SQL_ANNOTATION_TARGET = "annotation_target.sql";
+    public static final String FILE_SQL_ANNOTATION_INDEX = "annotation_index.sql";
+    public static final String FILE_SQL_SPRING_BEAN = "spring_bean.sql";
+    public static final String FILE_SQL_SPRING_CONTROLLER = "spring_controller.sql";
 
     public static final String FILE_MAPPING_NAME = "_mapping.txt";
+    public static final String FILE_ARCHIVE_DATA = "_archive.dat";
+    public static final String FILE_ARCHIVE_INDEX = "_archive.idx";
+    public static final String FILE_KEYWORD_INDEX = "_keyword_index.dat";
+
+    public static final String ARCHIVE_INDEX_COMPRESS_PREFIX = "# compress=";
+    public static final String ARCHIVE_INDEX_TYPE_ENTRY = "F";
+    public static final String ARCHIVE_INDEX_TYPE_MAPPING = "M";
+
+    // 注解倒排索引中的对象类型
+    public static final String ANNOTATION_TARGET_TYPE_METHOD = "method";
+    public static final String ANNOTATION_TARGET_TYPE_CLASS = "class";
 
     public static final String APPNAME_IN_SQL = "{appName}";
 
@@ -125,16 +195,31 @@ public class JACGConstants {
     public static final String SQL_KEY_MC_QUERY_ERFM_BY_EEFM = "mc_query_erfm_by_eefm";
     public static final String SQL_KEY_MC_QUERY_ERFM_BY_EEFM_LIKE_PREFIX = "mc_query_erfm_by_eefm_LIKE_PREFIX";
     public static final String SQL_KEY_MC_QUERY_CHECK_NORMAL_MC_BY_EE_HASH = "mc_query_check_normal_mc_by_ee_hash";
+    public static final String SQL_KEY_MC_QUERY_ALL_4_REVERSE_GRAPH = "mc_query_all_4_reverse_graph";
 
     public static final String SQL_KEY_MLN_QUERY_METHOD = "mln_query_method";
 
     public static final String SQL_KEY_JI_QUERY_JAR_INFO = "ji_query_jar_info";
 
+    public static final String SQL_KEY_EM_QUERY_FULL_METHOD_BY_ID = "em_query_full_method_by_id";
+
+    public static final String SQL_KEY_MER_QUERY_BITMAP_BY_HASH = "mer_query_bitmap_by_hash";
+
+    public static final String SQL_KEY_AT_QUERY_ALL = "at_query_all";
+    public static final String SQL_KEY_AI_QUERY_ALL = "ai_query_all";
+
+    public static final String SQL_KEY_SB_QUERY_ALL = "sb_query_all";
+    public static final String SQL_KEY_SPC_QUERY_ALL = "spc_query_all";
+
     public static final String SQL_KEY_MA_QUERY_FMAH_WITH_ANNOTATIONS = "ma_query_fmah_with_annotations";
     public static final String SQL_KEY_MA_QUERY_FMAH_WITH_ANNOTATIONS_OF_CLASS = "ma_query_fmah_with_annotations_of_class";
     public static final String SQL_KEY_MA_QUERY_FULL_METHOD_WITH_ANNOTATIONS = "ma_query_full_method_with_annotations";
+    public static final String SQL_KEY_MA_QUERY_ANNOTATIONS_BY_METHOD_HASHES = "ma_query_annotations_by_method_hashes";
+    public static final String SQL_KEY_MA_QUERY_METHOD_HASHES_BY_ANNOTATION_NAMES = "ma_query_method_hashes_by_annotation_names";
 
     public static final String SQL_KEY_CA_QUERY_FULL_CLASS_NAME_WITH_ANNOTATION = "ca_query_full_class_name_with_annotation";
+    public static final String SQL_KEY_CA_QUERY_ANNOTATIONS_BY_CLASS_NAMES = "ca_query_annotations_by_class_names";
+    public static final String SQL_KEY_CA_QUERY_ANNOTATIONS_BY_ANNOTATION_NAMES = "ca_query_annotations_by_annotation_names";
 
     public static final String SQL_KEY_ED_QUERY_EXTENDED_DATA = "ed_query_extended_data";
 
@@ -145,9 +230,17 @@ public class JACGConstants {
     public static final String SQL_KEY_INSERT_CLASS_ANNOTATION = "insert_class_annotation";
     public static final String SQL_KEY_INSERT_METHOD_ANNOTATION = "insert_method_annotation";
     public static final String SQL_KEY_INSERT_METHOD_CALL = "insert_method_call";
+    public static final String SQL_KEY_INSERT_METHOD_CALL_BY_CALLEE = "insert_method_call_by_callee";
+    public static final String SQL_KEY_INSERT_METHOD_CALL_SHARD_INFO = "insert_method_call_shard_info";
     public static final String SQL_KEY_INSERT_METHOD_LINE_NUMBER = "insert_method_line_number";
     public static final String SQL_KEY_INSERT_JAR_INFO = "insert_jar_info";
     public static final String SQL_KEY_INSERT_EXTENDED_DATA = "insert_extended_data";
+    public static final String SQL_KEY_INSERT_ENTRY_METHOD = "insert_entry_method";
+    public static final String SQL_KEY_INSERT_METHOD_ENTRY_REACH = "insert_method_entry_reach";
+    public static final String SQL_KEY_INSERT_ANNOTATION_TARGET = "insert_annotation_target";
+    public static final String SQL_KEY_INSERT_ANNOTATION_INDEX = "insert_annotation_index";
+    public static final String SQL_KEY_INSERT_SPRING_BEAN = "insert_spring_bean";
+    public static final String SQL_KEY_INSERT_SPRING_CONTROLLER = "insert_spring_controller";
 
     public static final String SQL_VALUE_MAED_CALLER_FULL_METHOD_ALL = "*";
 
@@ -168,6 +261,7 @@ public class JACGConstants {
     public static final String FLAG_MINUS = "-";
     public static final String FLAG_UNDER_LINE = "_";
     public static final String FLAG_TAB = "\t";
+    public static final String FLAG_COMMA = ",";
     public static final String FLAG_COMMA_WITH_SPACE = ", ";
 
     public static final char FLAG_CHAR_SPACE = FLAG_SPACE.charAt(0);
@@ -182,6 +276,8 @@ public class JACGConstants {
 
     public static final String EXT_TXT = ".txt";
     public static final String EXT_EMPTY_TXT = FLAG_EMPTY + EXT_TXT;
+    public static final String EXT_GZ = ".gz";
+    public static final String EXT_TXT_GZ = EXT_TXT + EXT_GZ;
     public static final String EXT_MD = ".md";
     public static final String EXT_EMPTY_MD = FLAG_EMPTY + EXT_MD;
 
@@ -191,12 +287,42 @@ public class JACGConstants {
     public static final String TABLE_PREFIX_METHOD_ANNOTATION = "method_annotation_";
     public static final String TABLE_PREFIX_CLASS_ANNOTATION = "class_annotation_";
     public static final String TABLE_PREFIX_METHOD_CALL = "method_call_";
+    // 分库保存方法调用关系时，按被调用方法HASH分库的方法调用表
+    public static final String TABLE_PREFIX_METHOD_CALL_BY_CALLEE = "method_call_by_callee_";
+    // 分库保存方法调用关系时，各分库中记录写入分库时的方法调用表信息的表
+    public static final String TABLE_PREFIX_METHOD_CALL_SHARD_INFO = "method_call_shard_info_";
     public static final String TABLE_PREFIX_METHOD_LINE_NUMBER = "method_line_number_";
     public static final String TABLE_PREFIX_JAR_INFO = "jar_info_";
     public static final String TABLE_PREFIX_EXTENDED_DATA = "extended_data_";
+    public static final String TABLE_PREFIX_ENTRY_METHOD = "entry_method_";
+    public static final String TABLE_PREFIX_METHOD_ENTRY_REACH = "method_entry_reach_";
+    public static final String TABLE_PREFIX_ANNOTATION_TARGET = "annotation_target_";
+    public static final String TABLE_PREFIX_ANNOTATION_INDEX = "annotation_index_";
+    public static final String TABLE_PREFIX_SPRING_BEAN = "spring_bean_";
+    public static final String TABLE_PREFIX_SPRING_CONTROLLER = "spring_controller_";
     // todo
     public static final String TABLE_PREFIX_MANUAL_ADD_EXTENDED_DATA = "manual_add_extended_data_";
 
+    // 全部数据库表名前缀，表名为前缀+app.name
+    public static final String[] TABLE_PREFIXES = new String[]{
+            TABLE_PREFIX_CLASS_NAME,
+            TABLE_PREFIX_METHOD_ANNOTATION,
+            TABLE_PREFIX_CLASS_ANNOTATION,
+            TABLE_PREFIX_METHOD_CALL,
+            TABLE_PREFIX_METHOD_CALL_BY_CALLEE,
+            TABLE_PREFIX_METHOD_CALL_SHARD_INFO,
+            TABLE_PREFIX_METHOD_LINE_NUMBER,
+            TABLE_PREFIX_JAR_INFO,
+            TABLE_PREFIX_EXTENDED_DATA,
+            TABLE_PREFIX_ENTRY_METHOD,
+            TABLE_PREFIX_METHOD_ENTRY_REACH,
+            TABLE_PREFIX_ANNOTATION_TARGET,
+            TABLE_PREFIX_ANNOTATION_INDEX,
+            TABLE_PREFIX_SPRING_BEAN,
+            TABLE_PREFIX_SPRING_CONTROLLER,
+            TABLE_PREFIX_MANUAL_ADD_EXTENDED_DATA
+    };
+
     // 调用链文件中，每个级别之间的缩进，两个空格
     public static final String OUTPUT_SPLIT_FLAG = FLAG_SPACE + FLAG_SPACE;
 
@@ -212,10 +338,12 @@ public class JACGConstants {
     public static final String CALL_FLAG_EXTENDED_DATA_MANUAL_ADD = FLAG_TAB + CALL_FLAG_EXTENDED_DATA_MANUAL_ADD_NO_TAB;
 
     public static final String MYSQL_FLAG = "mysql";
-    public static final String MYSQL_REWRITEBATCHEDSTATEMENTS = "rewriteBatchedStatements=true";
 
     public static final int METHOD_CALL_ID_START = 0;
 
+    // 入口方法位图每个分块对应的入口方法序号数量
+    public static final int ENTRY_BITMAP_BLOCK_SIZE = 8192;
+
     public static final int NO_CYCLE_CALL_FLAG = -1;
 
     // todo 使用javacg中的 保存配置文件的根目录
@@ -228,9 +356,33 @@ public class JACGConstants {
     public static final String PROPERTY_SKIP_CHECK_JAR_FILE_UPDATED = "skip.check.jar.file.updated";
     // 指定批量写入数据库时每次插入的数量
     public static final String PROPERTY_DB_INSERT_BATCH_SIZE = "db.insert.batch.size";
+    // 指定流式查询时每次从数据库获取的记录数量
+    public static final String PROPERTY_DB_QUERY_FETCH_SIZE = "db.query.fetch.size";
+    // 指定批量写入数据库时每个SQL语句插入的记录数
+    public static final String PROPERTY_DB_INSERT_ROWS_PER_STATEMENT = "db.insert.rows.per.statement";
+    // 指定批量写入数据库时每个事务执行的SQL语句数
+    public static final String PROPERTY_DB_INSERT_STATEMENTS_PER_TRANSACTION = "db.insert.statements.per.transaction";
+    // 指定慢SQL语句的耗时阈值，单位为毫秒
+    public static final String PROPERTY_DB_SLOW_SQL_THRESHOLD = "db.slow.sql.threshold";
+    // 指定按需查询注解信息时，方法及类的注解信息各自最多缓存的数量
+    public static final String PROPERTY_ANNOTATION_LAZY_CACHE_SIZE = "annotation.lazy.cache.size";
+    // 指定在生成的调用链文件中查找关键字时，处理多个文件的并行度
+    public static final String PROPERTY_FIND_KEYWORD_PARALLELISM = "find.keyword.parallelism";
 
     public static final int DB_INSERT_BATCH_SIZE = System.getProperty(PROPERTY_DB_INSERT_BATCH_SIZE) != null ?
             Integer.parseInt(System.getProperty(PROPERTY_DB_INSERT_BATCH_SIZE)) : 1000;
+    public static final int DB_QUERY_FETCH_SIZE = System.getProperty(PROPERTY_DB_QUERY_FETCH_SIZE) != null ?
+            Integer.parseInt(System.getProperty(PROPERTY_DB_QUERY_FETCH_SIZE)) : 1000;
+    public static final int DB_INSERT_ROWS_PER_STATEMENT = System.getProperty(PROPERTY_DB_INSERT_ROWS_PER_STATEMENT) != null ?
+            Integer.parseInt(System.getProperty(PROPERTY_DB_INSERT_ROWS_PER_STATEMENT)) : 100;
+    public static final int DB_INSERT_STATEMENTS_PER_TRANSACTION = System.getProperty(PROPERTY_DB_INSERT_STATEMENTS_PER_TRANSACTION) != null ?
+            Integer.parseInt(System.getProperty(PROPERTY_DB_INSERT_STATEMENTS_PER_TRANSACTION)) : 10;
+    public static final int DB_SLOW_SQL_THRESHOLD = System.getProperty(PROPERTY_DB_SLOW_SQL_THRESHOLD) != null ?
+            Integer.parseInt(System.getProperty(PROPERTY_DB_SLOW_SQL_THRESHOLD)) : 1000;
+    public static final int ANNOTATION_LAZY_CACHE_SIZE = System.getProperty(PROPERTY_ANNOTATION_LAZY_CACHE_SIZE) != null ?
+            Integer.parseInt(System.getProperty(PROPERTY_ANNOTATION_LAZY_CACHE_SIZE)) : 10000;
+    public static final int FIND_KEYWORD_PARALLELISM = System.getProperty(PROPERTY_FIND_KEYWORD_PARALLELISM) != null ?
+            Integer.parseInt(System.getProperty(PROPERTY_FIND_KEYWORD_PARALLELISM)) : 1;
     public static final int MAX_THREAD_NUM = 100;
     public static final int NOTICE_LINE_NUM = 5000;
     public static final int DB_TEXT_MAX_CHARACTER_SIZE = 3000;
@@ -16,6 +16,16 @@ public enum ConfigKeyEnum {
     CKE_SHOW_CALLER_LINE_NUM("show.caller.line.num", "生成调用链时，是否需要显示调用者源代码行号"),
     CKE_IGNORE_DUP_CALLEE_IN_ONE_CALLER("ignore.dup.callee.in.one.caller", "生成向下的调用链时，在一个调用方法中出现多次的被调用方法（包含自定义数据），是否需要忽略"),
     CKE_MULTI_IMPL_GEN_IN_CURRENT_FILE("multi.impl.gen.in.current.file", "生成向下的调用链时，若接口或父类存在多个实现类或子类，接口或父类方法调用多个实现类或子类方法的调用关系是否需要在当前文件中继续生成，否则会在单独的目录中生成"),
+    CKE_OUTPUT_COMPRESS("output.compress", "生成调用链时，生成的调用链文件是否使用gzip格式进行压缩"),
+    CKE_OUTPUT_ARCHIVE("output.archive", "生成调用链时，是否将调用链文件写入一个归档文件"),
+    CKE_GEN_CALLEE_USE_MEMORY_GRAPH("gen.callee.use.memory.graph", "生成向上的调用链时，是否将方法调用关系一次性加载到内存中进行查询"),
+    CKE_GEN_ENTRY_REACHABILITY("gen.entry.reachability", "写入数据库时，是否计算可以调用到各方法的入口方法并写入数据库"),
+    CKE_GEN_USE_H2_MEMORY_SNAPSHOT("gen.use.h2.memory.snapshot", "生成调用链时，使用H2数据库时是否将数据库文件复制到内存数据库中只读使用"),
+    CKE_METHOD_CALL_STORAGE_MAPPED("method.call.storage.mapped", "写入数据库时是否同时生成方法调用关系内存映射文件，生成调用链时是否通过内存映射文件查询方法调用关系"),
+    CKE_DB_SQL_STATISTICS("db.sql.statistics", "是否统计执行各SQL语句的次数、返回记录数及耗时分布"),
+    CKE_GEN_ANNOTATION_LAZY_LOAD("gen.annotation.lazy.load", "生成调用链时，是否在首次使用时才从数据库查询对应方法或类的注解信息"),
+    CKE_GEN_ANNOTATION_PRECOMPUTE("gen.annotation.precompute", "生成调用链时，是否在开始生成前使用多个线程预先处理全部有注解的方法的注解信息"),
+    CKE_OUTPUT_KEYWORD_INDEX("output.keyword.index", "生成调用链时，是否同时生成用于查找关键字的索引文件"),
     CKE_DB_USE_H2("db.use.h2", "是否使用H2数据库"),
     CKE_DB_H2_FILE_PATH("db.h2.file.path", "H2数据库文件路径（仅当使用H2数据库时需要指定）"),
     CKE_DB_DRIVER_NAME("db.driver.name", "数据库配置（仅当使用非H2数据库时需要指定），驱动类名"),
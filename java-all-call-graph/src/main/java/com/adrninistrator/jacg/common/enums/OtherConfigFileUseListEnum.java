@@ -10,6 +10,8 @@ public enum OtherConfigFileUseListEnum {
             "先生成对应的向上方法完整调用链，再对生成目录的文件根据关键字生成到起始方法的调用链时，用于指定关键字"),
     OCFULE_FIND_KEYWORD_4CALLER(InputDirEnum.IDE_KEYWORD_CONF.getDirName() + "/find_keyword_4caller.properties",
             "先生成对应的向下方法完整调用链，再对生成目录的文件根据关键字生成到起始方法的调用链时，用于指定关键字"),
+    OCFULE_METHOD_CALL_SHARD_DB(InputDirEnum.IDE_CONFIG.getDirName() + "/method_call_shard_db.properties",
+            "分库保存方法调用关系时使用的数据库，使用H2数据库时指定H2数据库文件路径，使用非H2数据库时指定JDBC URL，顺序不能修改"),
     ;
 
     private final String fileName;
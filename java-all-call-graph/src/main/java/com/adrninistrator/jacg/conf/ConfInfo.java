@@ -30,6 +30,26 @@ public class ConfInfo {
 
     private boolean multiImplGenInCurrentFile;
 
+    private boolean outputCompress;
+
+    private boolean outputArchive;
+
+    private boolean genCalleeUseMemoryGraph;
+
+    private boolean genEntryReachability;
+
+    private boolean genUseH2MemorySnapshot;
+
+    private boolean methodCallStorageMapped;
+
+    private boolean dbSqlStatistics;
+
+    private boolean genAnnotationLazyLoad;
+
+    private boolean genAnnotationPrecompute;
+
+    private boolean outputKeywordIndex;
+
     private boolean dbUseH2;
 
     private String dbH2FilePath;
@@ -58,6 +78,16 @@ public class ConfInfo {
                 ", showCallerLineNum=" + showCallerLineNum +
                 ", ignoreDupCalleeInOneCaller=" + ignoreDupCalleeInOneCaller +
                 ", multiImplGenInCurrentFile=" + multiImplGenInCurrentFile +
+                ", outputCompress=" + outputCompress +
+                ", outputArchive=" + outputArchive +
+                ", genCalleeUseMemoryGraph=" + genCalleeUseMemoryGraph +
+                ", genEntryReachability=" + genEntryReachability +
+                ", genUseH2MemorySnapshot=" + genUseH2MemorySnapshot +
+                ", methodCallStorageMapped=" + methodCallStorageMapped +
+                ", dbSqlStatistics=" + dbSqlStatistics +
+                ", genAnnotationLazyLoad=" + genAnnotationLazyLoad +
+                ", genAnnotationPrecompute=" + genAnnotationPrecompute +
+                ", outputKeywordIndex=" + outputKeywordIndex +
                 ", dbUseH2=" + dbUseH2 +
                 ", dbH2FilePath='" + dbH2FilePath + '\'' +
                 ", dbDriverName='" + dbDriverName + '\'' +
@@ -158,6 +188,86 @@ public class ConfInfo {
         this.multiImplGenInCurrentFile = multiImplGenInCurrentFile;
     }
 
+    public boolean isOutputCompress() {
+        return outputCompress;
+    }
+
+    public void setOutputCompress(boolean outputCompress) {
+        this.outputCompress = outputCompress;
+    }
+
+    public boolean isOutputArchive() {
+        return outputArchive;
+    }
+
+    public void setOutputArchive(boolean outputArchive) {
+        this.outputArchive = outputArchive;
+    }
+
+    public boolean isGenCalleeUseMemoryGraph() {
+        return genCalleeUseMemoryGraph;
+    }
+
+    public void setGenCalleeUseMemoryGraph(boolean genCalleeUseMemoryGraph) {
+        this.genCalleeUseMemoryGraph = genCalleeUseMemoryGraph;
+    }
+
+    public boolean isGenEntryReachability() {
+        return genEntryReachability;
+    }
+
+    public void setGenEntryReachability(boolean genEntryReachability) {
+        this.genEntryReachability = genEntryReachability;
+    }
+
+    public boolean isGenUseH2MemorySnapshot() {
+        return genUseH2MemorySnapshot;
+    }
+
+    public void setGenUseH2MemorySnapshot(boolean genUseH2MemorySnapshot) {
+        this.genUseH2MemorySnapshot = genUseH2MemorySnapshot;
+    }
+
+    public boolean isMethodCallStorageMapped() {
+        return methodCallStorageMapped;
+    }
+
+    public void setMethodCallStorageMapped(boolean methodCallStorageMapped) {
+        this.methodCallStorageMapped = methodCallStorageMapped;
+    }
+
+    public boolean isDbSqlStatistics() {
+        return dbSqlStatistics;
+    }
+
+    public void setDbSqlStatistics(boolean dbSqlStatistics) {
+        this.dbSqlStatistics = dbSqlStatistics;
+    }
+
+    public boolean isGenAnnotationLazyLoad() {
+        return genAnnotationLazyLoad;
+    }
+
+    public void setGenAnnotationLazyLoad(boolean genAnnotationLazyLoad) {
+        this.genAnnotationLazyLoad = genAnnotationLazyLoad;
+    }
+
+    public boolean isGenAnnotationPrecompute() {
+        return genAnnotationPrecompute;
+    }
+
+    public void setGenAnnotationPrecompute(boolean genAnnotationPrecompute) {
+        this.genAnnotationPrecompute = genAnnotationPrecompute;
+    }
+
+    public boolean isOutputKeywordIndex() {
+        return outputKeywordIndex;
+    }
+
+    public void setOutputKeywordIndex(boolean outputKeywordIndex) {
+        this.outputKeywordIndex = outputKeywordIndex;
+    }
+
     public boolean isDbUseH2() {
         return dbUseH2;
     }
@@ -34,6 +34,40 @@ public class ConfManager {
             return null;
         }
 
+        if (JACGConstants.DB_QUERY_FETCH_SIZE <= 0) {
+            logger.error("通过-D{}=参数指定的流式查询时每次从数据库获取的记录数量参数非法 {}", JACGConstants.PROPERTY_DB_QUERY_FETCH_SIZE, JACGConstants.DB_QUERY_FETCH_SIZE);
+            return null;
+        }
+
+        if (JACGConstants.DB_INSERT_ROWS_PER_STATEMENT <= 0) {
+            logger.error("通过-D{}=参数指定的批量写入数据库时每个SQL语句插入的记录数参数非法 {}", JACGConstants.PROPERTY_DB_INSERT_ROWS_PER_STATEMENT,
+                    JACGConstants.DB_INSERT_ROWS_PER_STATEMENT);
+            return null;
+        }
+
+        if (JACGConstants.DB_INSERT_STATEMENTS_PER_TRANSACTION <= 0) {
+            logger.error("通过-D{}=参数指定的批量写入数据库时每个事务执行的SQL语句数参数非法 {}", JACGConstants.PROPERTY_DB_INSERT_STATEMENTS_PER_TRANSACTION,
+                    JACGConstants.DB_INSERT_STATEMENTS_PER_TRANSACTION);
+            return null;
+        }
+
+        if (JACGConstants.DB_SLOW_SQL_THRESHOLD <= 0) {
+            logger.error("通过-D{}=参数指定的慢SQL语句耗时阈值参数非法 {}", JACGConstants.PROPERTY_DB_SLOW_SQL_THRESHOLD, JACGConstants.DB_SLOW_SQL_THRESHOLD);
+            return null;
+        }
+
+        if (JACGConstants.ANNOTATION_LAZY_CACHE_SIZE <= 0) {
+            logger.error("通过-D{}=参数指定的按需查询注解信息时的缓存数量参数非法 {}", JACGConstants.PROPERTY_ANNOTATION_LAZY_CACHE_SIZE,
+                    JACGConstants.ANNOTATION_LAZY_CACHE_SIZE);
+            return null;
+        }
+
+        if (JACGConstants.FIND_KEYWORD_PARALLELISM <= 0) {
+            logger.error("通过-D{}=参数指定的查找关键字时的并行度参数非法 {}", JACGConstants.PROPERTY_FIND_KEYWORD_PARALLELISM,
+                    JACGConstants.FIND_KEYWORD_PARALLELISM);
+            return null;
+        }
+
         String configFilePath = getInputRootPath() + InputDirEnum.IDE_CONFIG.getDirName() + "/" + JACGConstants.FILE_CONFIG;
         try (BufferedReader br = JACGFileUtil.genBufferedReader(JACGFileUtil.getFileInputStream(configFilePath))) {
             Properties properties = new Properties();
@@ -79,6 +113,76 @@ public class ConfManager {
                 multiImplGenInCurrentFile = String.valueOf(true);
             }
 
+            // 生成调用链时，生成的调用链文件是否使用gzip格式进行压缩
+            String outputCompress = configureWrapper.getConfig(properties, ConfigKeyEnum.CKE_OUTPUT_COMPRESS);
+            if (StringUtils.isBlank(outputCompress)) {
+                // 允许对应配置为空
+                outputCompress = String.valueOf(false);
+            }
+
+            // 生成调用链时，是否将调用链文件写入一个归档文件
+            String outputArchive = configureWrapper.getConfig(properties, ConfigKeyEnum.CKE_OUTPUT_ARCHIVE);
+            if (StringUtils.isBlank(outputArchive)) {
+                // 允许对应配置为空
+                outputArchive = String.valueOf(false);
+            }
+
+            // 生成调用链时，是否同时生成用于查找关键字的索引文件
+            String outputKeywordIndex = configureWrapper.getConfig(properties, ConfigKeyEnum.CKE_OUTPUT_KEYWORD_INDEX);
+            if (StringUtils.isBlank(outputKeywordIndex)) {
+                // 允许对应配置为空
+                outputKeywordIndex = String.valueOf(false);
+            }
+
+            // 生成向上的调用链时，是否将方法调用关系一次性加载到内存中进行查询
+            String genCalleeUseMemoryGraph = configureWrapper.getConfig(properties, ConfigKeyEnum.CKE_GEN_CALLEE_USE_MEMORY_GRAPH);
+            if (StringUtils.isBlank(genCalleeUseMemoryGraph)) {
+                // 允许对应配置为空
+                genCalleeUseMemoryGraph = String.valueOf(false);
+            }
+
+            // 写入数据库时，是否计算可以调用到各方法的入口方法并写入数据库
+            String genEntryReachability = configureWrapper.getConfig(properties, ConfigKeyEnum.CKE_GEN_ENTRY_REACHABILITY);
+            if (StringUtils.isBlank(genEntryReachability)) {
+                // 允许对应配置为空
+                genEntryReachability = String.valueOf(false);
+            }
+
+            // 生成调用链时，使用H2数据库时是否将数据库文件复制到内存数据库中只读使用
+            String genUseH2MemorySnapshot = configureWrapper.getConfig(properties, ConfigKeyEnum.CKE_GEN_USE_H2_MEMORY_SNAPSHOT);
+            if (StringUtils.isBlank(genUseH2MemorySnapshot)) {
+                // 允许对应配置为空
+                genUseH2MemorySnapshot = String.valueOf(false);
+            }
+
+            // 是否使用内存映射文件保存及查询方法调用关系
+            String methodCallStorageMapped = configureWrapper.getConfig(properties, ConfigKeyEnum.CKE_METHOD_CALL_STORAGE_MAPPED);
+            if (StringUtils.isBlank(methodCallStorageMapped)) {
+                // 允许对应配置为空
+                methodCallStorageMapped = String.valueOf(false);
+            }
+
+            // 是否统计执行各SQL语句的次数、返回记录数及耗时分布
+            String dbSqlStatistics = configureWrapper.getConfig(properties, ConfigKeyEnum.CKE_DB_SQL_STATISTICS);
+            if (StringUtils.isBlank(dbSqlStatistics)) {
+                // 允许对应配置为空
+                dbSqlStatistics = String.valueOf(false);
+            }
+
+            // 生成调用链时，是否在首次使用时才从数据库查询对应方法或类的注解信息
+            String genAnnotationLazyLoad = configureWrapper.getConfig(properties, ConfigKeyEnum.CKE_GEN_ANNOTATION_LAZY_LOAD);
+            if (StringUtils.isBlank(genAnnotationLazyLoad)) {
+                // 允许对应配置为空
+                genAnnotationLazyLoad = String.valueOf(false);
+            }
+
+            // 生成调用链时，是否在开始生成前使用多个线程预先处理全部有注解的方法的注解信息
+            String genAnnotationPrecompute = configureWrapper.getConfig(properties, ConfigKeyEnum.CKE_GEN_ANNOTATION_PRECOMPUTE);
+            if (StringUtils.isBlank(genAnnotationPrecompute)) {
+                // 允许对应配置为空
+                genAnnotationPrecompute = String.valueOf(false);
+            }
+
             // 生成调用链时的详细程度
             String callGraphOutputDetail = configureWrapper.getConfig(properties, ConfigKeyEnum.CKE_CALL_GRAPH_OUTPUT_DETAIL);
             if (checkBlank(callGraphOutputDetail, ConfigKeyEnum.CKE_CALL_GRAPH_OUTPUT_DETAIL, configFilePath)) {
@@ -140,6 +244,16 @@ public class ConfManager {
             confInfo.setShowCallerLineNum(Boolean.parseBoolean(showCallerLineNum));
             confInfo.setIgnoreDupCalleeInOneCaller(Boolean.parseBoolean(ignoreDupCalleeInOneCaller));
             confInfo.setMultiImplGenInCurrentFile(Boolean.parseBoolean(multiImplGenInCurrentFile));
+            confInfo.setOutputCompress(Boolean.parseBoolean(outputCompress));
+            confInfo.setOutputArchive(Boolean.parseBoolean(outputArchive));
+            confInfo.setOutputKeywordIndex(Boolean.parseBoolean(outputKeywordIndex));
+            confInfo.setGenCalleeUseMemoryGraph(Boolean.parseBoolean(genCalleeUseMemoryGraph));
+            confInfo.setGenEntryReachability(Boolean.parseBoolean(genEntryReachability));
+            confInfo.setGenUseH2MemorySnapshot(Boolean.parseBoolean(genUseH2MemorySnapshot));
+            confInfo.setMethodCallStorageMapped(Boolean.parseBoolean(methodCallStorageMapped));
+            confInfo.setDbSqlStatistics(Boolean.parseBoolean(dbSqlStatistics));
+            confInfo.setGenAnnotationLazyLoad(Boolean.parseBoolean(genAnnotationLazyLoad));
+            confInfo.setGenAnnotationPrecompute(Boolean.parseBoolean(genAnnotationPrecompute));
             if (System.getProperty(JACGConstants.PROPERTY_WRITE_CONFIG_IN_RESULT) != null) {
                 confInfo.setWriteConf(true);
             }
@@ -0,0 +1,114 @@
+package com.adrninistrator.jacg.dboper;
+
+import com.adrninistrator.jacg.annotation.AnnotationStorage;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/17
+ * @description: 数据库相关的共享对象，包括数据源、SQL语句缓存及从数据库加载的注解信息，由DbObjectRegistry创建，同一个JVM中使用相同数据库及appName的操作共用
+ * 引用次数及是否已关闭只在DbObjectRegistry中加锁修改
+ */
+public class DbObjectHolder {
+    // 在DbObjectRegistry中对应的key
+    private final String key;
+
+    // 数据库标识，不包含是否使用内存快照，用于判断是否为同一个数据库
+    private final String dbKey;
+
+    private final String appName;
+
+    private final DbOperator dbOperator;
+
+    private final DbOperWrapper dbOperWrapper;
+
+    // 类及方法上的注解信息，在首次使用时加载
+    private AnnotationStorage annotationStorage;
+
+    // 被引用的次数
+    private int refTimes = 0;
+
+    // 数据源允许的最大连接数，为同时使用当前对象的各个操作需要的连接数之和
+    private int maxPoolSize = 0;
+
+    DbObjectHolder(String key, String dbKey, String appName, DbOperator dbOperator) {
+        this.key = key;
+        this.dbKey = dbKey;
+        this.appName = appName;
+        this.dbOperator = dbOperator;
+        dbOperWrapper = new DbOperWrapper(dbOperator, appName);
+    }
+
+    public DbOperator getDbOperator() {
+        return dbOperator;
+    }
+
+    public DbOperWrapper getDbOperWrapper() {
+        return dbOperWrapper;
+    }
+
+    /**
+     * 获取类及方法上的注解信息，首次调用时创建，之后直接返回已创建的对象
+     * 已创建的对象无论是否为按需查询模式，获取到的注解信息都相同，因此不区分
+     *
+     * @param lazyLoad true: 创建时使用按需查询模式 false: 创建时从数据库加载全部注解信息
+     * @return null: 加载失败
+     */
+    public synchronized AnnotationStorage getAnnotationStorage(boolean lazyLoad) {
+        if (annotationStorage == null) {
+            AnnotationStorage newAnnotationStorage = new AnnotationStorage(dbOperator, dbOperWrapper, appName, lazyLoad);
+            if (!newAnnotationStorage.init()) {
+                return null;
+            }
+            annotationStorage = newAnnotationStorage;
+        }
+        return annotationStorage;
+    }
+
+    // 清除从数据库加载的信息，数据库中的数据被修改时使用
+    synchronized void clearLoadedData() {
+        annotationStorage = null;
+        dbOperWrapper.resetAnnotationIndex();
+        dbOperWrapper.resetSpringIndex();
+    }
+
+    /**
+     * 修改最大连接数，同时使用当前对象的各个操作需要的连接数相加，使各操作的线程都可以获取到连接
+     *
+     * @param poolSizeDelta 增加的连接数，小于0时为减少
+     */
+    public synchronized void changeMaxPoolSize(int poolSizeDelta) {
+        maxPoolSize += poolSizeDelta;
+        if (poolSizeDelta != 0 && maxPoolSize > 0) {
+            dbOperator.setMaxPoolSize(maxPoolSize);
+        }
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    String getDbKey() {
+        return dbKey;
+    }
+
+    String getAppName() {
+        return appName;
+    }
+
+    void increaseRefTimes() {
+        refTimes++;
+    }
+
+    /**
+     * 减少被引用的次数
+     *
+     * @return true: 已不再被引用 false: 仍被引用
+     */
+    boolean decreaseRefTimes() {
+        return --refTimes == 0;
+    }
+
+    boolean isReferenced() {
+        return refTimes > 0;
+    }
+}
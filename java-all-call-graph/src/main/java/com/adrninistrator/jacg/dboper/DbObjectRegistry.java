@@ -0,0 +1,161 @@
+package com.adrninistrator.jacg.dboper;
+
+import com.adrninistrator.jacg.conf.ConfInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/17
+ * @description: 数据库相关共享对象的注册表，按数据库配置及appName共用数据源、SQL语句缓存及从数据库加载的注解信息，通过引用次数管理数据源的关闭
+ * 默认情况下，共享对象不再被引用时立即关闭数据源，只有同时执行的多个操作之间会共用
+ * 在依次执行多个操作前调用beginShare()，全部执行完毕后调用endShare()，可使依次执行的操作之间也共用，在endShare()时关闭不再被引用的数据源
+ */
+public class DbObjectRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(DbObjectRegistry.class);
+
+    /*
+        已创建的共享对象
+        key: 数据库配置及appName
+        value: 对应的共享对象
+     */
+    private static final Map<String, DbObjectHolder> HOLDER_MAP = new HashMap<>();
+
+    // 调用beginShare()的次数
+    private static int shareTimes = 0;
+
+    private DbObjectRegistry() {
+        throw new IllegalStateException("illegal");
+    }
+
+    /**
+     * 开始共享，在调用endShare()之前，共享对象不再被引用时不关闭数据源，之后执行的操作可以继续使用
+     * 支持嵌套调用，需要与endShare()成对调用
+     */
+    public static synchronized void beginShare() {
+        shareTimes++;
+    }
+
+    /**
+     * 结束共享，调用次数与beginShare()相同时，关闭不再被引用的数据源
+     */
+    public static synchronized void endShare() {
+        if (shareTimes == 0) {
+            logger.warn("未调用beginShare()");
+            return;
+        }
+
+        if (--shareTimes > 0) {
+            return;
+        }
+
+        Iterator<DbObjectHolder> iterator = HOLDER_MAP.values().iterator();
+        while (iterator.hasNext()) {
+            DbObjectHolder holder = iterator.next();
+            if (!holder.isReferenced()) {
+                iterator.remove();
+                holder.getDbOperator().closeDs();
+            }
+        }
+    }
+
+    /**
+     * 获取数据库相关共享对象，不存在时创建，使用完毕后需要调用release()
+     * 数据源的最大连接数增加配置参数中的线程数
+     *
+     * @param confInfo
+     * @param useH2MemorySnapshot 使用H2数据库时，是否将数据库文件复制到内存数据库中只读使用
+     * @return null: 创建失败
+     */
+    public static synchronized DbObjectHolder acquire(ConfInfo confInfo, boolean useH2MemorySnapshot) {
+        String dbKey = genDbKey(confInfo);
+        String key = dbKey + "|" + (confInfo.isDbUseH2() && useH2MemorySnapshot) + "|" + confInfo.getAppName();
+
+        DbObjectHolder holder = HOLDER_MAP.get(key);
+        if (holder == null) {
+            DbOperator dbOperator = DbOperator.genInstance(confInfo, useH2MemorySnapshot);
+            if (dbOperator == null) {
+                return null;
+            }
+
+            holder = new DbObjectHolder(key, dbKey, confInfo.getAppName(), dbOperator);
+            HOLDER_MAP.put(key, holder);
+        } else {
+            logger.info("使用已创建的数据源 {}", key);
+        }
+
+        holder.changeMaxPoolSize(confInfo.getThreadNum());
+        holder.increaseRefTimes();
+        return holder;
+    }
+
+    /**
+     * 释放数据库相关共享对象，不再被引用且未开始共享时关闭数据源
+     *
+     * @param holder
+     * @param poolSize 当前操作需要的连接数，即获取时的线程数加上之后通过DbObjectHolder.changeMaxPoolSize()修改的连接数，从数据源的最大连接数中减去
+     */
+    public static synchronized void release(DbObjectHolder holder, int poolSize) {
+        if (holder == null) {
+            return;
+        }
+
+        holder.changeMaxPoolSize(-poolSize);
+        if (!holder.decreaseRefTimes()) {
+            return;
+        }
+
+        // 已从注册表中移除的共享对象，不再被引用时需要关闭
+        boolean registered = HOLDER_MAP.get(holder.getKey()) == holder;
+        if (registered && shareTimes > 0) {
+            return;
+        }
+
+        if (registered) {
+            HOLDER_MAP.remove(holder.getKey());
+        }
+        holder.getDbOperator().closeDs();
+    }
+
+    /**
+     * 数据库中的数据将被修改时调用，使使用同一个数据库及appName的其他共享对象不再被之后的操作使用，并清除当前共享对象从数据库加载的信息
+     * 其他共享对象仍被引用时，在不再被引用时关闭数据源
+     *
+     * @param current 当前使用的共享对象
+     */
+    public static synchronized void invalidateOthers(DbObjectHolder current) {
+        current.clearLoadedData();
+
+        List<DbObjectHolder> removedHolderList = new ArrayList<>();
+        Iterator<DbObjectHolder> iterator = HOLDER_MAP.values().iterator();
+        while (iterator.hasNext()) {
+            DbObjectHolder holder = iterator.next();
+            if (holder != current && holder.getDbKey().equals(current.getDbKey()) && holder.getAppName().equals(current.getAppName())) {
+                iterator.remove();
+                removedHolderList.add(holder);
+            }
+        }
+
+        for (DbObjectHolder holder : removedHolderList) {
+            logger.info("数据库中的数据将被修改，不再使用已创建的数据源 {}", holder.getKey());
+            if (!holder.isReferenced()) {
+                holder.getDbOperator().closeDs();
+            }
+        }
+    }
+
+    // 生成数据库标识
+    private static String genDbKey(ConfInfo confInfo) {
+        if (confInfo.isDbUseH2()) {
+            return "h2|" + new File(confInfo.getDbH2FilePath()).getAbsolutePath();
+        }
+        return confInfo.getDbDriverName() + "|" + confInfo.getDbUrl() + "|" + confInfo.getDbUsername();
+    }
+}
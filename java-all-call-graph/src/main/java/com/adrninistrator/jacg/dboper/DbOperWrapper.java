@@ -1,10 +1,13 @@
 package com.adrninistrator.jacg.dboper;
 
+import com.adrninistrator.jacg.annotation.AnnotationIndex;
 import com.adrninistrator.jacg.common.DC;
 import com.adrninistrator.jacg.common.JACGConstants;
 import com.adrninistrator.jacg.common.enums.DbInsertMode;
 import com.adrninistrator.jacg.dto.entity.MethodCallEntity;
 import com.adrninistrator.jacg.dto.method.MethodAndHash;
+import com.adrninistrator.jacg.graph.EntryMethodReachability;
+import com.adrninistrator.jacg.spring.SpringIndex;
 import com.adrninistrator.jacg.util.JACGSqlUtil;
 import com.adrninistrator.jacg.util.JACGUtil;
 import com.adrninistrator.javacg.enums.CallTypeEnum;
@@ -15,6 +18,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -39,6 +43,18 @@ public class DbOperWrapper {
     // 类名相同但包名不同的类名
     private Set<String> duplicateClassNameSet = null;
 
+    // 注解倒排索引，首次使用时从数据库加载
+    private AnnotationIndex annotationIndex = null;
+
+    // 是否已尝试加载注解倒排索引
+    private boolean annotationIndexLoaded = false;
+
+    // Spring索引，首次使用时从数据库加载
+    private SpringIndex springIndex = null;
+
+    // 是否已尝试加载Spring索引
+    private boolean springIndexLoaded = false;
+
     private final DbOperator dbOperator;
 
     private final String appName;
@@ -72,6 +88,8 @@ public class DbOperWrapper {
         String finalSqlKey = genSqlKey(sqlKey, num);
         if (sqlCacheMap.putIfAbsent(finalSqlKey, sql) == null) {
             logger.info("[{}] cache sql: [{}] [{}]", objSeq, finalSqlKey, sql);
+            // 登记SQL语句对应的key，用于按key统计SQL语句的执行情况
+            dbOperator.registerSqlKey(sql, finalSqlKey);
         }
     }
 
@@ -89,21 +107,91 @@ public class DbOperWrapper {
         return sql;
     }
 
+    /**
+     * 获取注解倒排索引，首次调用时从数据库加载
+     * 注解倒排索引表不存在（写入数据库时使用的版本不支持）或加载失败时，返回null，使用方需要从注解表查询
+     *
+     * @return
+     */
+    private synchronized AnnotationIndex getAnnotationIndex() {
+        if (annotationIndexLoaded) {
+            return annotationIndex;
+        }
+
+        annotationIndexLoaded = true;
+        if (!dbOperator.checkTableExists(JACGConstants.TABLE_PREFIX_ANNOTATION_INDEX + appName)) {
+            logger.info("注解倒排索引表不存在，从注解表查询带有指定注解的方法及类");
+            return null;
+        }
+
+        annotationIndex = AnnotationIndex.load(dbOperator, this, appName);
+        if (annotationIndex == null) {
+            logger.error("加载注解倒排索引失败，从注解表查询带有指定注解的方法及类");
+        }
+        return annotationIndex;
+    }
+
+    /**
+     * 清理已加载的注解倒排索引，在注解倒排索引表被重新写入后调用
+     */
+    public synchronized void resetAnnotationIndex() {
+        annotationIndex = null;
+        annotationIndexLoaded = false;
+    }
+
+    /**
+     * 获取Spring索引，首次调用时从数据库加载
+     * Spring索引表不存在（写入数据库时使用的版本不支持）或加载失败时，返回null，使用方需要根据注解信息生成
+     *
+     * @return
+     */
+    public synchronized SpringIndex getSpringIndex() {
+        if (springIndexLoaded) {
+            return springIndex;
+        }
+
+        springIndexLoaded = true;
+        if (!dbOperator.checkTableExists(JACGConstants.TABLE_PREFIX_SPRING_CONTROLLER + appName)) {
+            logger.info("Spring索引表不存在，根据注解信息生成Spring相关信息");
+            return null;
+        }
+
+        springIndex = SpringIndex.load(dbOperator, this, appName);
+        if (springIndex == null) {
+            logger.error("加载Spring索引失败，根据注解信息生成Spring相关信息");
+        }
+        return springIndex;
+    }
+
+    /**
+     * 清理已加载的Spring索引，在Spring索引表被重新写入后调用
+     */
+    public synchronized void resetSpringIndex() {
+        springIndex = null;
+        springIndexLoaded = false;
+    }
+
     /**
      * 从方法注解表，查询带有指定注解的完整方法及方法HASH
+     * 优先使用注解倒排索引
      *
      * @param annotationClassNames 注解类名
-     * @return
+     * @return 不包含重复记录
      */
     public List<MethodAndHash> getMethodsAndHashWithAnnotations(String[] annotationClassNames) {
         if (ArrayUtils.isEmpty(annotationClassNames)) {
             return null;
         }
 
+        AnnotationIndex usedAnnotationIndex = getAnnotationIndex();
+        if (usedAnnotationIndex != null) {
+            return usedAnnotationIndex.getMethodsAndHashWithAnnotations(annotationClassNames, null);
+        }
+
         String sqlKey = JACGConstants.SQL_KEY_MA_QUERY_FMAH_WITH_ANNOTATIONS;
         String sql = getCachedSql(sqlKey, annotationClassNames.length);
         if (sql == null) {
-            sql = "select " + JACGSqlUtil.joinColumns(DC.MA_FULL_METHOD, DC.MA_METHOD_HASH) +
+            sql = "select distinct " + JACGSqlUtil.joinColumns(DC.MA_FULL_METHOD, DC.MA_METHOD_HASH) +
                     " from " + JACGConstants.TABLE_PREFIX_METHOD_ANNOTATION + appName +
                     " where " + DC.MA_ANNOTATION_NAME + " in " + JACGSqlUtil.genQuestionString(annotationClassNames.length);
             cacheSql(sqlKey, sql, annotationClassNames.length);
@@ -123,21 +211,27 @@ public class DbOperWrapper {
 
     /**
      * 从方法注解表，查询带有指定注解的，且在指定类中的完整方法及方法HASH
+     * 优先使用注解倒排索引
      *
      * @param fullClassName        完整类名
      * @param annotationClassNames 注解类名
-     * @return
+     * @return 不包含重复记录
      */
     public List<MethodAndHash> getMethodsAndHashWithAnnotationsOfClass(String fullClassName, String[] annotationClassNames) {
         if (fullClassName == null || ArrayUtils.isEmpty(annotationClassNames)) {
             return null;
         }
 
+        AnnotationIndex usedAnnotationIndex = getAnnotationIndex();
+        if (usedAnnotationIndex != null) {
+            return usedAnnotationIndex.getMethodsAndHashWithAnnotations(annotationClassNames, fullClassName);
+        }
+
         String sqlKey = JACGConstants.SQL_KEY_MA_QUERY_FMAH_WITH_ANNOTATIONS_OF_CLASS;
         String sql = getCachedSql(sqlKey, annotationClassNames.length);
         if (sql == null) {
             // 指定完整方法需要以[完整类名]:开关，只查询指定类中的方法
-            sql = "select " + JACGSqlUtil.joinColumns(DC.MA_FULL_METHOD, DC.MA_METHOD_HASH) +
+            sql = "select distinct " + JACGSqlUtil.joinColumns(DC.MA_FULL_METHOD, DC.MA_METHOD_HASH) +
                     " from " + JACGConstants.TABLE_PREFIX_METHOD_ANNOTATION + appName +
                     " where " + DC.MA_ANNOTATION_NAME + " in " + JACGSqlUtil.genQuestionString(annotationClassNames.length) +
                     " and " + DC.MA_FULL_METHOD + " like concat(?, ?, '%')";
@@ -163,19 +257,25 @@ public class DbOperWrapper {
 
     /**
      * 从方法注解表，查询带有指定注解的完整方法
+     * 优先使用注解倒排索引
      *
      * @param annotationClassNames 注解类名数组
-     * @return
+     * @return 不包含重复记录
      */
     public List<String> getMethodsWithAnnotations(String[] annotationClassNames) {
         if (ArrayUtils.isEmpty(annotationClassNames)) {
             return null;
         }
 
+        AnnotationIndex usedAnnotationIndex = getAnnotationIndex();
+        if (usedAnnotationIndex != null) {
+            return usedAnnotationIndex.getMethodsWithAnnotations(annotationClassNames);
+        }
+
         String sqlKey = JACGConstants.SQL_KEY_MA_QUERY_FULL_METHOD_WITH_ANNOTATIONS;
         String sql = getCachedSql(sqlKey, annotationClassNames.length);
         if (sql == null) {
-            sql = "select " + DC.MA_FULL_METHOD +
+            sql = "select distinct " + DC.MA_FULL_METHOD +
                     " from " + JACGConstants.TABLE_PREFIX_METHOD_ANNOTATION + appName +
                     " where " + DC.MA_ANNOTATION_NAME + " in " + JACGSqlUtil.genQuestionString(annotationClassNames.length);
             cacheSql(sqlKey, sql, annotationClassNames.length);
@@ -187,19 +287,25 @@ public class DbOperWrapper {
 
     /**
      * 从类注解表，查询带有指定注解的完整类名
+     * 优先使用注解倒排索引
      *
      * @param annotationClassNames 注解类名数组
-     * @return
+     * @return 不包含重复记录
      */
     public List<String> getClassesWithAnnotations(String[] annotationClassNames) {
         if (ArrayUtils.isEmpty(annotationClassNames)) {
             return null;
         }
 
+        AnnotationIndex usedAnnotationIndex = getAnnotationIndex();
+        if (usedAnnotationIndex != null) {
+            return usedAnnotationIndex.getClassesWithAnnotations(annotationClassNames);
+        }
+
         String sqlKey = JACGConstants.SQL_KEY_CA_QUERY_FULL_CLASS_NAME_WITH_ANNOTATION;
         String sql = getCachedSql(sqlKey, annotationClassNames.length);
         if (sql == null) {
-            sql = "select " + DC.CA_FULL_CLASS_NAME +
+            sql = "select distinct " + DC.CA_FULL_CLASS_NAME +
                     " from " + JACGConstants.TABLE_PREFIX_CLASS_ANNOTATION + appName +
                     " where " + DC.CA_ANNOTATION_NAME + " in " + JACGSqlUtil.genQuestionString(annotationClassNames.length);
             cacheSql(sqlKey, sql, annotationClassNames.length);
@@ -617,6 +723,62 @@ public class DbOperWrapper {
         return !list.isEmpty();
     }
 
+    /**
+     * 从方法可达入口方法表，查询可以调用到指定方法的入口方法
+     * 需要在写入数据库时指定计算可以调用到各方法的入口方法
+     *
+     * @param methodHash 方法HASH+长度
+     * @return null: 出现异常 非null: 入口方法列表，按入口方法序号排序，指定方法为入口方法时包含其本身
+     */
+    public List<MethodAndHash> getEntryMethodsByMethodHash(String methodHash) {
+        String sqlKey = JACGConstants.SQL_KEY_MER_QUERY_BITMAP_BY_HASH;
+        String sql = getCachedSql(sqlKey);
+        if (sql == null) {
+            sql = "select " + JACGSqlUtil.joinColumns(DC.MER_BLOCK_SEQ, DC.MER_ENTRY_BITMAP) +
+                    " from " + JACGConstants.TABLE_PREFIX_METHOD_ENTRY_REACH + appName +
+                    " where " + DC.MER_METHOD_HASH + " = ?" +
+                    " order by " + DC.MER_BLOCK_SEQ;
+            cacheSql(sqlKey, sql);
+        }
+
+        List<Map<String, Object>> list = dbOperator.queryList(sql, new Object[]{methodHash});
+        if (list == null) {
+            return null;
+        }
+
+        String entrySqlKey = JACGConstants.SQL_KEY_EM_QUERY_FULL_METHOD_BY_ID;
+        String entrySql = getCachedSql(entrySqlKey);
+        if (entrySql == null) {
+            entrySql = "select " + JACGSqlUtil.joinColumns(DC.EM_ENTRY_ID, DC.EM_METHOD_HASH, DC.EM_FULL_METHOD) +
+                    " from " + JACGConstants.TABLE_PREFIX_ENTRY_METHOD + appName +
+                    " where " + DC.EM_ENTRY_ID + " >= ? and " + DC.EM_ENTRY_ID + " <= ?" +
+                    " order by " + DC.EM_ENTRY_ID;
+            cacheSql(entrySqlKey, entrySql);
+        }
+
+        List<MethodAndHash> entryMethodList = new ArrayList<>();
+        for (Map<String, Object> map : list) {
+            BitSet bitSet = new BitSet();
+            EntryMethodReachability.decodeBlock(bitSet, (Integer) map.get(DC.MER_BLOCK_SEQ), (String) map.get(DC.MER_ENTRY_BITMAP));
+            if (bitSet.isEmpty()) {
+                continue;
+            }
+
+            // 查询当前分块中第一个与最后一个入口方法之间的入口方法，再根据位图过滤
+            List<Map<String, Object>> entryList = dbOperator.queryList(entrySql, new Object[]{bitSet.nextSetBit(0), bitSet.length() - 1});
+            if (entryList == null) {
+                return null;
+            }
+
+            for (Map<String, Object> entryMap : entryList) {
+                if (bitSet.get((Integer) entryMap.get(DC.EM_ENTRY_ID))) {
+                    entryMethodList.add(new MethodAndHash((String) entryMap.get(DC.EM_FULL_METHOD), (String) entryMap.get(DC.EM_METHOD_HASH)));
+                }
+            }
+        }
+        return entryMethodList;
+    }
+
     private DbOperWrapper() {
         throw new IllegalStateException("illegal");
     }
@@ -2,6 +2,7 @@ package com.adrninistrator.jacg.dboper;
 
 import com.adrninistrator.jacg.common.JACGConstants;
 import com.adrninistrator.jacg.conf.ConfInfo;
+import com.adrninistrator.jacg.util.JACGSqlUtil;
 import com.adrninistrator.jacg.util.JACGUtil;
 import com.mchange.v2.c3p0.ComboPooledDataSource;
 import org.apache.commons.lang3.StringUtils;
@@ -33,18 +34,52 @@ public class DbOperator {
 
     private static final AtomicInteger ATOMIC_INTEGER = new AtomicInteger(0);
 
+    // 一个SQL语句中允许使用的参数最大数量，MySQL的限制为65535
+    private static final int MAX_PARAMETER_NUM = 65535;
+
     private final ComboPooledDataSource cpds;
 
     private boolean useH2Db = false;
 
+    // 使用H2数据库的内存快照时，对应的H2数据库文件路径，不使用时为null
+    private String h2MemorySnapshotFilePath;
+
+    // 使用H2数据库的内存快照时，复制到内存数据库中的表对应的app.name
+    private String h2MemorySnapshotAppName;
+
+    // 使用H2数据库的内存快照时，当前对象使用的内存数据库名称，在首次获取连接时确定
+    private String h2MemorySnapshotName;
+
     private final String objSeq;
 
+    // 是否已成功获取过连接，c3p0在首次获取连接时初始化连接池，使用H2数据库时首次获取连接还会创建数据库文件
+    private volatile boolean connectionInited = false;
+
+    // 当前线程绑定的数据库会话
+    private final ThreadLocal<DbSession> sessionThreadLocal = new ThreadLocal<>();
+
+    // SQL语句执行统计，未开启统计时只记录执行耗时超过阈值的SQL语句
+    private final SqlStatistics sqlStatistics;
+
     public static DbOperator genInstance(ConfInfo confInfo) {
+        return genInstance(confInfo, false);
+    }
+
+    /**
+     * 创建实例
+     *
+     * @param confInfo
+     * @param useH2MemorySnapshot 使用H2数据库时，是否将数据库文件复制到内存数据库中只读使用，仅适用于只需要读取数据库的操作
+     * @return
+     */
+    public static DbOperator genInstance(ConfInfo confInfo, boolean useH2MemorySnapshot) {
         try {
             DbOperator instance = new DbOperator(confInfo);
 //            Class.forName(confInfo.getDbDriverName());
 
-            if (confInfo.isDbUseH2()) {
+            if (confInfo.isDbUseH2() && useH2MemorySnapshot) {
+                instance.initH2MemorySnapshotDb(confInfo);
+            } else if (confInfo.isDbUseH2()) {
                 instance.initH2Db(confInfo);
             } else {
                 instance.initNonH2Db(confInfo);
@@ -65,6 +100,8 @@ public class DbOperator {
 
         objSeq = String.valueOf(ATOMIC_INTEGER.incrementAndGet());
         logger.info("objSeq [{}]", objSeq);
+
+        sqlStatistics = new SqlStatistics(confInfo.isDbSqlStatistics());
     }
 
     private void initH2Db(ConfInfo confInfo) throws PropertyVetoException {
@@ -81,6 +118,19 @@ public class DbOperator {
         cpds.setPassword("");
     }
 
+    private void initH2MemorySnapshotDb(ConfInfo confInfo) throws PropertyVetoException {
+        useH2Db = true;
+        h2MemorySnapshotFilePath = confInfo.getDbH2FilePath();
+        h2MemorySnapshotAppName = confInfo.getAppName();
+
+        cpds.setDriverClass("org.h2.Driver");
+        // H2数据库文件在首次获取连接时复制到内存数据库中，JDBC URL在首次获取连接时设置
+        logger.info("[{}] 初始化H2内存快照数据源 {}", objSeq, h2MemorySnapshotFilePath);
+
+        cpds.setUser("");
+        cpds.setPassword("");
+    }
+
     private void initNonH2Db(ConfInfo confInfo) throws PropertyVetoException {
         useH2Db = false;
 
@@ -96,23 +146,74 @@ public class DbOperator {
         cpds.setMaxPoolSize(maxPoolSize);
     }
 
+    /**
+     * 从连接池获取连接
+     * 仅在当前对象首次获取连接时加锁（锁为当前对象，不影响其他对象），之后不加锁，c3p0连接池本身支持多线程并发获取连接
+     *
+     * @return null: 获取失败
+     */
     public Connection getConnection() {
-        synchronized (DbOperator.class) {
-            try {
-//            return DriverManager.getConnection(confInfo.getDbUrl(), confInfo.getDbUsername(), confInfo.getDbPassword());
-                return cpds.getConnection();
-            } catch (SQLException e) {
-                if (StringUtils.contains(e.getMessage(), " has been closed() -- you can no longer use it.")) {
-                    // 以上错误信息见com.mchange.v2.c3p0.impl.AbstractPoolBackedDataSource类，assertCpds()方法
-                    logger.error("数据源已被关闭，若此时确实需要操作数据库，可在操作开始执行调用 AbstractRunner.setCloseDsBeforeExit(false); 方法，使操作完毕时不关闭数据源");
+        try {
+            if (!connectionInited) {
+                synchronized (this) {
+                    // 使用H2数据库的内存快照时，获取H2数据库文件当前内容对应的内存数据库
+                    if (!connectionInited && h2MemorySnapshotFilePath != null && h2MemorySnapshotName == null && !initH2MemorySnapshotUrl()) {
+                        return null;
+                    }
+                    Connection connection = cpds.getConnection();
+                    connectionInited = true;
+                    return connection;
                 }
-                logger.error("getConnection SQLException error ", e);
-                return null;
-            } catch (Exception e) {
-                logger.error("getConnection error ", e);
-                return null;
             }
+//            return DriverManager.getConnection(confInfo.getDbUrl(), confInfo.getDbUsername(), confInfo.getDbPassword());
+            return cpds.getConnection();
+        } catch (SQLException e) {
+            if (StringUtils.contains(e.getMessage(), " has been closed() -- you can no longer use it.")) {
+                // 以上错误信息见com.mchange.v2.c3p0.impl.AbstractPoolBackedDataSource类，assertCpds()方法
+                logger.error("数据源已被关闭，若此时确实需要操作数据库，可在操作开始前调用 DbObjectRegistry.beginShare(); 方法，使操作完毕时不关闭数据源，全部操作完毕后调用 DbObjectRegistry.endShare(); 方法");
+            }
+            logger.error("getConnection SQLException error ", e);
+            return null;
+        } catch (Exception e) {
+            logger.error("getConnection error ", e);
+            return null;
+        }
+    }
+
+    // 获取H2数据库文件当前内容对应的内存数据库，设置数据源的JDBC URL
+    private boolean initH2MemorySnapshotUrl() {
+        String snapshotName = H2MemorySnapshot.acquire(h2MemorySnapshotFilePath, h2MemorySnapshotAppName);
+        if (snapshotName == null) {
+            return false;
         }
+
+        h2MemorySnapshotName = snapshotName;
+        String h2DbJdbcUrl = H2MemorySnapshot.genJdbcUrl(snapshotName);
+        logger.info("[{}] 使用H2内存快照 URL: {}", objSeq, h2DbJdbcUrl);
+        cpds.setJdbcUrl(h2DbJdbcUrl);
+        return true;
+    }
+
+    /**
+     * 登记SQL语句对应的key，用于按key统计SQL语句的执行情况
+     *
+     * @param sql
+     * @param sqlKey
+     */
+    public void registerSqlKey(String sql, String sqlKey) {
+        sqlStatistics.registerSqlKey(sql, sqlKey);
+    }
+
+    /**
+     * 输出SQL语句执行统计结果，未开启统计时不输出
+     */
+    public void printSqlStatistics() {
+        sqlStatistics.printSummary(objSeq);
+    }
+
+    // 记录一次SQL语句的执行
+    private void recordSql(String sql, Object[] arguments, long startTime, int rowNum) {
+        sqlStatistics.record(sql, arguments, startTime, rowNum);
     }
 
     public void closeDs() {
@@ -120,9 +221,111 @@ public class DbOperator {
             logger.info("[{}] 关闭数据源", objSeq);
             cpds.close();
         }
+
+        synchronized (this) {
+            if (h2MemorySnapshotName != null) {
+                // 释放使用的内存数据库，不再被使用且H2数据库文件已有变化时关闭
+                H2MemorySnapshot.release(h2MemorySnapshotName);
+                h2MemorySnapshotName = null;
+            }
+        }
+    }
+
+    /**
+     * 为当前线程打开数据库会话，在关闭会话之前，当前线程通过当前对象执行的数据库操作都使用同一个连接，并缓存已创建的PreparedStatement
+     * 支持嵌套调用，需要与closeSession()成对调用
+     *
+     * @return false: 获取连接失败
+     */
+    public boolean openSession() {
+        DbSession dbSession = sessionThreadLocal.get();
+        if (dbSession != null) {
+            dbSession.increaseOpenTimes();
+            return true;
+        }
+
+        Connection connection = getConnection();
+        if (connection == null) {
+            return false;
+        }
+        sessionThreadLocal.set(new DbSession(connection));
+        return true;
+    }
+
+    /**
+     * 关闭当前线程的数据库会话，将连接释放回连接池
+     */
+    public void closeSession() {
+        DbSession dbSession = sessionThreadLocal.get();
+        if (dbSession == null || !dbSession.decreaseOpenTimes()) {
+            return;
+        }
+
+        sessionThreadLocal.remove();
+        dbSession.close();
+    }
+
+    // 获取用于执行数据库操作的连接，当前线程已打开会话时使用会话的连接
+    private Connection acquireConnection() {
+        DbSession dbSession = sessionThreadLocal.get();
+        if (dbSession != null) {
+            return getSessionConnection(dbSession);
+        }
+        return getConnection();
+    }
+
+    /**
+     * 获取会话的连接
+     * 使用MySQL且未使用游标逐批获取记录时，流式查询的游标未关闭前，同一连接上不能执行其他操作，此时返回null，避免出现数据库驱动的异常
+     *
+     * @param dbSession
+     * @return null: 连接当前不可用
+     */
+    private Connection getSessionConnection(DbSession dbSession) {
+        if (dbSession.isStreaming() && !useStreamCursor()) {
+            logger.error("[{}] 当前线程正在通过流式查询逐行读取MySQL记录，同一连接上不能执行其他数据库操作，可在JDBC URL中指定useCursorFetch=true", objSeq);
+            return null;
+        }
+        return dbSession.getConnection();
+    }
+
+    // 获取当前线程会话，仅当指定连接为会话的连接时返回
+    private DbSession getSessionOfConnection(Connection connection) {
+        DbSession dbSession = sessionThreadLocal.get();
+        if (dbSession != null && dbSession.getConnection() == connection) {
+            return dbSession;
+        }
+        return null;
+    }
+
+    // 创建PreparedStatement，指定连接为会话的连接时使用缓存
+    private PreparedStatement prepareStatement(Connection connection, String sql) throws SQLException {
+        DbSession dbSession = getSessionOfConnection(connection);
+        if (dbSession != null) {
+            return dbSession.prepareStatement(sql);
+        }
+        return connection.prepareStatement(sql);
+    }
+
+    /**
+     * 执行出现异常时，若使用的是会话的连接，移除会话中缓存的SQL语句对应的PreparedStatement，避免在当前会话中继续使用状态异常的PreparedStatement
+     *
+     * @param connection
+     * @param sql
+     */
+    private void evictStatement(Connection connection, String sql) {
+        DbSession dbSession = getSessionOfConnection(connection);
+        if (dbSession != null) {
+            dbSession.removeStatement(sql);
+        }
     }
 
     private void close(Connection connection, PreparedStatement stmt, boolean closeConnection) {
+        if (getSessionOfConnection(connection) != null) {
+            // 会话的连接及缓存的PreparedStatement在关闭会话时关闭
+            return;
+        }
+
         try {
             if (stmt != null) {
                 stmt.close();
@@ -181,37 +384,30 @@ public class DbOperator {
         String tableName = sql.substring(indexStart + JACGConstants.SQL_CREATE_TABLE_HEAD_LENGTH, indexEnd).trim();
 
         // 检查数据库表是否创建成功，可能出现上述建表语句执行失败但未抛出异常的情况
-        if (useH2Db) {
-            if (!checkTableExistsH2(tableName)) {
-                return false;
-            }
-        } else {
-            if (!checkTableExistsNonH2(tableName)) {
-                return false;
-            }
-        }
-
-        logger.info("[{}] 数据库表创建成功 [{}]", objSeq, tableName);
-        return true;
-    }
-
-    private boolean checkTableExistsH2(String tableName) {
-        List<Object> list = queryListOneColumn("SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES where TABLE_SCHEMA = ? and TABLE_NAME = ?",
-                new Object[]{JACGConstants.H2_SCHEMA, tableName});
-        if (JACGUtil.isCollectionEmpty(list)) {
+        if (!checkTableExists(tableName)) {
             logger.error("数据库表创建失败 [{}]", tableName);
             return false;
         }
+
+        logger.info("[{}] 数据库表创建成功 [{}]", objSeq, tableName);
         return true;
     }
 
-    private boolean checkTableExistsNonH2(String tableName) {
-        List<Object> list = queryListOneColumn("show tables like ?", new Object[]{tableName});
-        if (JACGUtil.isCollectionEmpty(list)) {
-            logger.error("数据库表创建失败 [{}]", tableName);
-            return false;
+    /**
+     * 检查数据库表是否存在
+     *
+     * @param tableName
+     * @return
+     */
+    public boolean checkTableExists(String tableName) {
+        List<Object> list;
+        if (useH2Db) {
+            list = queryListOneColumn("SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES where TABLE_SCHEMA = ? and TABLE_NAME = ?",
+                    new Object[]{JACGConstants.H2_SCHEMA, tableName});
+        } else {
+            list = queryListOneColumn("show tables like ?", new Object[]{tableName});
         }
-        return true;
+        return !JACGUtil.isCollectionEmpty(list);
     }
 
     public boolean truncateTable(String tableName) {
@@ -225,15 +421,16 @@ public class DbOperator {
         PreparedStatement stmt = null;
 
         try {
-            connection = getConnection();
+            connection = acquireConnection();
             if (connection == null) {
                 return false;
             }
 
-            stmt = connection.prepareStatement(sql);
+            stmt = prepareStatement(connection, sql);
             stmt.execute();
             return true;
         } catch (Exception e) {
+            evictStatement(connection, sql);
             logger.error("error [{}] ", sql, e);
             return false;
         } finally {
@@ -249,10 +446,14 @@ public class DbOperator {
         PreparedStatement stmt = null;
 
         try {
-            stmt = connection.prepareStatement(sql);
+            long startTime = System.nanoTime();
+            stmt = prepareStatement(connection, sql);
             setArguments(stmt, arguments);
-            return stmt.executeUpdate();
+            int rowNum = stmt.executeUpdate();
+            recordSql(sql, arguments, startTime, rowNum);
+            return rowNum;
         } catch (Exception e) {
+            evictStatement(connection, sql);
             if (!noticeDropTable(e, sql)) {
                 logger.error("error [{}] ", sql, e);
             }
@@ -263,47 +464,261 @@ public class DbOperator {
     }
 
     public Integer update(String sql, Object[] arguments) {
-        Connection connection = getConnection();
+        Connection connection = acquireConnection();
         if (connection == null) {
             return null;
         }
         return update(connection, true, sql, arguments);
     }
 
+    /**
+     * 批量插入
+     * 对于“... values (?, ?, ...)”格式的SQL语句，生成一次插入多行记录的“... values (?, ?, ...), (?, ?, ...), ...”语句执行，不依赖JDBC驱动对批量操作的改写
+     * 每个语句插入的记录数及每个事务执行的语句数通过JVM参数db.insert.rows.per.statement、db.insert.statements.per.transaction指定
+     * 一个事务执行失败时回滚，并将该事务中的记录拆分为两半分别重试，直到单条记录插入失败
+     *
+     * @param sql          插入一行记录的SQL语句
+     * @param argumentList
+     * @return
+     */
     public boolean batchInsert(String sql, List<Object[]> argumentList) {
         Connection connection = null;
-        PreparedStatement stmt = null;
+        /*
+            当前插入操作使用的PreparedStatement，使用会话的连接时为会话缓存的PreparedStatement
+            key: 每个语句插入的记录数
+            value: 对应的PreparedStatement
+         */
+        Map<Integer, PreparedStatement> stmtMap = new HashMap<>();
+        // 一次插入多行记录的SQL语句前缀，SQL语句格式不支持时为null
+        String multiRowSqlPrefix = null;
 
         try {
-            connection = getConnection();
+            long startTime = System.nanoTime();
+            connection = acquireConnection();
             if (connection == null) {
                 return false;
             }
 
             connection.setAutoCommit(false);
 
-            stmt = connection.prepareStatement(sql);
-
             int columnNum = argumentList.get(0).length;
-
-            for (Object[] argument : argumentList) {
-                for (int i = 0; i < columnNum; i++) {
-                    stmt.setObject(i + 1, argument[i]);
+            multiRowSqlPrefix = getMultiRowSqlPrefix(sql, columnNum);
+            int rowsPerStatement = multiRowSqlPrefix == null ? 1 : Math.max(1, Math.min(JACGConstants.DB_INSERT_ROWS_PER_STATEMENT,
+                    MAX_PARAMETER_NUM / columnNum));
+            int rowsPerTransaction = rowsPerStatement * JACGConstants.DB_INSERT_STATEMENTS_PER_TRANSACTION;
+
+            int rowNum = argumentList.size();
+            for (int start = 0; start < rowNum; start += rowsPerTransaction) {
+                if (!insertInTransaction(connection, sql, multiRowSqlPrefix, rowsPerStatement, stmtMap, argumentList, start,
+                        Math.min(rowNum, start + rowsPerTransaction))) {
+                    return false;
                 }
-                stmt.addBatch();
             }
-
-            stmt.executeBatch();
-            stmt.clearBatch();
-            connection.commit();
+            recordSql(sql, null, startTime, rowNum);
             return true;
         } catch (Exception e) {
+            evictInsertStatements(connection, sql, multiRowSqlPrefix, stmtMap);
             if (!noticeDropTable(e, sql)) {
                 logger.error("error [{}] ", sql, e);
             }
             return false;
         } finally {
-            close(connection, stmt);
+            // 会话的连接不会释放回连接池，需要恢复自动提交
+            resetSessionAfterBatch(connection);
+            for (PreparedStatement stmt : stmtMap.values()) {
+                close(connection, stmt, false);
+            }
+            close(connection, null);
+        }
+    }
+
+    /**
+     * 记录数量达到批量写入数量，或需要强制写入时，批量插入，插入后清空记录列表
+     * 用于逐条向列表中添加记录，并在最后强制写入剩余记录的场景
+     *
+     * @param sql          插入一行记录的SQL语句
+     * @param argumentList 待插入的记录列表
+     * @param force        true: 列表非空时都写入 false: 记录数量达到批量写入数量时才写入
+     * @return
+     */
+    public boolean tryBatchInsert(String sql, List<Object[]> argumentList, boolean force) {
+        if (argumentList.isEmpty() || (!force && argumentList.size() < JACGConstants.DB_INSERT_BATCH_SIZE)) {
+            return true;
+        }
+
+        boolean success = batchInsert(sql, argumentList);
+        argumentList.clear();
+        return success;
+    }
+
+    /**
+     * 获取一次插入多行记录的SQL语句前缀，即插入一行记录的SQL语句去掉最后的“(?, ?, ...)”
+     *
+     * @param sql
+     * @param columnNum
+     * @return null: SQL语句格式不支持一次插入多行记录
+     */
+    private String getMultiRowSqlPrefix(String sql, int columnNum) {
+        String valuesString = JACGSqlUtil.genQuestionString(columnNum);
+        if (valuesString == null || !StringUtils.endsWith(sql, valuesString)) {
+            return null;
+        }
+
+        String prefix = sql.substring(0, sql.length() - valuesString.length());
+        if (!StringUtils.endsWithIgnoreCase(StringUtils.stripEnd(prefix, null), " values")) {
+            return null;
+        }
+        return prefix;
+    }
+
+    /**
+     * 在一个事务中插入指定范围的记录，失败时回滚，并拆分后重试
+     *
+     * @param connection
+     * @param sql
+     * @param multiRowSqlPrefix
+     * @param rowsPerStatement
+     * @param stmtMap
+     * @param argumentList
+     * @param start             开始下标，包含
+     * @param end               结束下标，不包含
+     * @return false: 单条记录插入失败
+     * @throws SQLException 出现SQL语法错误，拆分后重试也会失败
+     */
+    private boolean insertInTransaction(Connection connection, String sql, String multiRowSqlPrefix, int rowsPerStatement,
+                                        Map<Integer, PreparedStatement> stmtMap, List<Object[]> argumentList, int start, int end) throws SQLException {
+        try {
+            for (int statementStart = start; statementStart < end; statementStart += rowsPerStatement) {
+                int statementEnd = Math.min(end, statementStart + rowsPerStatement);
+                if (multiRowSqlPrefix == null) {
+                    executeBatch(connection, sql, stmtMap, argumentList, statementStart, end);
+                    break;
+                }
+                executeMultiRowInsert(connection, sql, multiRowSqlPrefix, stmtMap, argumentList, statementStart, statementEnd);
+            }
+            connection.commit();
+            return true;
+        } catch (SQLException e) {
+            connection.rollback();
+            // 出现异常的PreparedStatement不再使用，重试时重新创建
+            evictInsertStatements(connection, sql, multiRowSqlPrefix, stmtMap);
+            if (ExceptionUtils.indexOfType(e, SQLSyntaxErrorException.class) != -1) {
+                throw e;
+            }
+
+            if (end - start == 1) {
+                logger.error("插入记录失败 [{}] [{}] ", sql, StringUtils.join(argumentList.get(start), " "), e);
+                return false;
+            }
+
+            // 拆分为两半后重试
+            int middle = (start + end) >>> 1;
+            logger.warn("插入 {} 条记录失败，拆分后重试 [{}] {}", end - start, sql, e.getMessage());
+            return insertInTransaction(connection, sql, multiRowSqlPrefix, rowsPerStatement, stmtMap, argumentList, start, middle) &&
+                    insertInTransaction(connection, sql, multiRowSqlPrefix, rowsPerStatement, stmtMap, argumentList, middle, end);
+        }
+    }
+
+    // 执行一次插入多行记录的SQL语句
+    private void executeMultiRowInsert(Connection connection, String sql, String multiRowSqlPrefix, Map<Integer, PreparedStatement> stmtMap,
+                                       List<Object[]> argumentList, int start, int end) throws SQLException {
+        int rowNum = end - start;
+        PreparedStatement stmt = getInsertStatement(connection, sql, multiRowSqlPrefix, rowNum, stmtMap);
+
+        int index = 1;
+        for (int i = start; i < end; i++) {
+            for (Object argument : argumentList.get(i)) {
+                stmt.setObject(index++, argument);
+            }
+        }
+        stmt.executeUpdate();
+    }
+
+    // 通过JDBC批量操作插入记录，在SQL语句格式不支持一次插入多行记录时使用
+    private void executeBatch(Connection connection, String sql, Map<Integer, PreparedStatement> stmtMap, List<Object[]> argumentList, int start,
+                              int end) throws SQLException {
+        PreparedStatement stmt = getInsertStatement(connection, sql, null, 1, stmtMap);
+        try {
+            for (int i = start; i < end; i++) {
+                Object[] argument = argumentList.get(i);
+                for (int j = 0; j < argument.length; j++) {
+                    stmt.setObject(j + 1, argument[j]);
+                }
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        } finally {
+            stmt.clearBatch();
+        }
+    }
+
+    /**
+     * 获取插入指定行数记录的PreparedStatement
+     *
+     * @param connection
+     * @param sql               插入一行记录的SQL语句
+     * @param multiRowSqlPrefix 一次插入多行记录的SQL语句前缀，为null时使用插入一行记录的SQL语句
+     * @param rowNum
+     * @param stmtMap
+     * @return
+     * @throws SQLException
+     */
+    private PreparedStatement getInsertStatement(Connection connection, String sql, String multiRowSqlPrefix, int rowNum,
+                                                 Map<Integer, PreparedStatement> stmtMap) throws SQLException {
+        PreparedStatement stmt = stmtMap.get(rowNum);
+        if (stmt == null) {
+            // 会话的连接使用会话缓存的PreparedStatement
+            stmt = prepareStatement(connection, genInsertSql(sql, multiRowSqlPrefix, rowNum));
+            stmtMap.put(rowNum, stmt);
+        }
+        return stmt;
+    }
+
+    // 生成插入指定行数记录的SQL语句
+    private String genInsertSql(String sql, String multiRowSqlPrefix, int rowNum) {
+        if (multiRowSqlPrefix == null || rowNum <= 1) {
+            return sql;
+        }
+        // 将“(?, ?, ...)”重复指定次数
+        return multiRowSqlPrefix + StringUtils.repeat(sql.substring(multiRowSqlPrefix.length()), ", ", rowNum);
+    }
+
+    /**
+     * 插入出现异常时，不再使用当前插入操作使用的PreparedStatement
+     * 使用会话的连接时，从会话中移除缓存的PreparedStatement，否则关闭PreparedStatement
+     *
+     * @param connection
+     * @param sql
+     * @param multiRowSqlPrefix
+     * @param stmtMap
+     */
+    private void evictInsertStatements(Connection connection, String sql, String multiRowSqlPrefix, Map<Integer, PreparedStatement> stmtMap) {
+        if (connection == null || stmtMap.isEmpty()) {
+            return;
+        }
+
+        DbSession dbSession = getSessionOfConnection(connection);
+        for (Map.Entry<Integer, PreparedStatement> entry : stmtMap.entrySet()) {
+            if (dbSession != null) {
+                dbSession.removeStatement(genInsertSql(sql, multiRowSqlPrefix, entry.getKey()));
+            } else {
+                close(connection, entry.getValue(), false);
+            }
+        }
+        stmtMap.clear();
+    }
+
+    // 批量写入后，若使用的是会话的连接，回滚未提交的数据，并恢复自动提交
+    private void resetSessionAfterBatch(Connection connection) {
+        if (connection == null || getSessionOfConnection(connection) == null) {
+            return;
+        }
+
+        try {
+            connection.rollback();
+            connection.setAutoCommit(true);
+        } catch (Exception e) {
+            logger.error("error ", e);
         }
     }
 
@@ -325,7 +740,8 @@ public class DbOperator {
         ResultSet rs = null;
 
         try {
-            stmt = connection.prepareStatement(sql);
+            long startTime = System.nanoTime();
+            stmt = prepareStatement(connection, sql);
             setArguments(stmt, arguments);
 
             rs = stmt.executeQuery();
@@ -334,8 +750,10 @@ public class DbOperator {
             while (rs.next()) {
                 list.add(rs.getObject(1));
             }
+            recordSql(sql, arguments, startTime, list.size());
             return list;
         } catch (Exception e) {
+            evictStatement(connection, sql);
             if (!noticeDropTable(e, sql)) {
                 logger.error("error [{}] [{}] ", sql, StringUtils.join(arguments, " "), e);
             }
@@ -354,7 +772,7 @@ public class DbOperator {
      * @return
      */
     public List<Object> queryListOneColumn(String sql, Object[] arguments) {
-        Connection connection = getConnection();
+        Connection connection = acquireConnection();
         if (connection == null) {
             return null;
         }
@@ -378,7 +796,8 @@ public class DbOperator {
         ResultSet rs = null;
 
         try {
-            stmt = connection.prepareStatement(sql);
+            long startTime = System.nanoTime();
+            stmt = prepareStatement(connection, sql);
             setArguments(stmt, arguments);
             rs = stmt.executeQuery();
 
@@ -397,8 +816,10 @@ public class DbOperator {
                 }
                 list.add(map);
             }
+            recordSql(sql, arguments, startTime, list.size());
             return list;
         } catch (Exception e) {
+            evictStatement(connection, sql);
             if (!noticeDropTable(e, sql)) {
                 logger.error("error [{}] [{}] ", sql, StringUtils.join(arguments, " "), e);
             }
@@ -410,7 +831,7 @@ public class DbOperator {
     }
 
     public List<Map<String, Object>> queryList(String sql, Object[] arguments) {
-        Connection connection = getConnection();
+        Connection connection = acquireConnection();
         if (connection == null) {
             return null;
         }
@@ -430,12 +851,13 @@ public class DbOperator {
         ResultSet rs = null;
 
         try {
-            connection = getConnection();
+            long startTime = System.nanoTime();
+            connection = acquireConnection();
             if (connection == null) {
                 return null;
             }
 
-            stmt = connection.prepareStatement(sql);
+            stmt = prepareStatement(connection, sql);
             setArguments(stmt, arguments);
             rs = stmt.executeQuery();
 
@@ -452,8 +874,10 @@ public class DbOperator {
                     map.put(meta.getColumnLabel(i), rs.getObject(i));
                 }
             }
+            recordSql(sql, arguments, startTime, map.isEmpty() ? 0 : 1);
             return map;
         } catch (Exception e) {
+            evictStatement(connection, sql);
             if (!noticeDropTable(e, sql)) {
                 logger.error("error [{}] [{}] ", sql, StringUtils.join(arguments, " "), e);
             }
@@ -464,6 +888,180 @@ public class DbOperator {
         }
     }
 
+    /**
+     * 查询列表，使用指定的RowMapper将每行记录转换为对象
+     *
+     * @param sql
+     * @param arguments
+     * @param rowMapper
+     * @param <T>
+     * @return null: 出现异常
+     */
+    public <T> List<T> queryList(String sql, Object[] arguments, RowMapper<T> rowMapper) {
+        Connection connection = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+
+        try {
+            long startTime = System.nanoTime();
+            connection = acquireConnection();
+            if (connection == null) {
+                return null;
+            }
+
+            stmt = prepareStatement(connection, sql);
+            setArguments(stmt, arguments);
+            rs = stmt.executeQuery();
+
+            List<T> list = new ArrayList<>();
+            while (rs.next()) {
+                list.add(rowMapper.mapRow(rs));
+            }
+            recordSql(sql, arguments, startTime, list.size());
+            return list;
+        } catch (Exception e) {
+            evictStatement(connection, sql);
+            if (!noticeDropTable(e, sql)) {
+                logger.error("error [{}] [{}] ", sql, StringUtils.join(arguments, " "), e);
+            }
+            return null;
+        } finally {
+            close(connection, stmt);
+            closeResultSet(rs);
+        }
+    }
+
+    /**
+     * 查询一行记录，使用指定的RowMapper处理查询到的记录
+     * RowMapper可以将记录写入可重复使用的对象中，避免每次查询都创建Map
+     *
+     * @param sql
+     * @param arguments
+     * @param rowMapper
+     * @return null: 出现异常 Boolean.FALSE: 未查询到记录 Boolean.TRUE: 查询到记录
+     */
+    public Boolean queryOneRow(String sql, Object[] arguments, RowMapper<?> rowMapper) {
+        Connection connection = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+
+        try {
+            long startTime = System.nanoTime();
+            connection = acquireConnection();
+            if (connection == null) {
+                return null;
+            }
+
+            stmt = prepareStatement(connection, sql);
+            setArguments(stmt, arguments);
+            rs = stmt.executeQuery();
+
+            if (!rs.next()) {
+                recordSql(sql, arguments, startTime, 0);
+                return Boolean.FALSE;
+            }
+            rowMapper.mapRow(rs);
+            recordSql(sql, arguments, startTime, 1);
+            return Boolean.TRUE;
+        } catch (Exception e) {
+            evictStatement(connection, sql);
+            if (!noticeDropTable(e, sql)) {
+                logger.error("error [{}] [{}] ", sql, StringUtils.join(arguments, " "), e);
+            }
+            return null;
+        } finally {
+            close(connection, stmt);
+            closeResultSet(rs);
+        }
+    }
+
+    /**
+     * 流式查询，使用只能向前移动的游标逐行处理查询结果，不会将全部查询结果保存在内存中，适用于查询大量记录
+     * 每次从数据库获取的记录数量通过JVM参数db.query.fetch.size指定
+     * 使用当前线程会话的连接，当前线程未打开会话时在查询期间打开会话，每个线程只占用连接池中的一个连接；PreparedStatement每次新创建，不使用会话缓存的PreparedStatement
+     * 在游标未关闭时，rowHandler中也可以通过当前对象执行其他数据库操作（使用同一连接）；
+     * 但使用MySQL且JDBC URL未指定useCursorFetch=true时，MySQL驱动逐行读取记录期间同一连接上不能执行其他操作，此时rowHandler中通过当前对象执行的数据库操作会失败
+     *
+     * @param sql
+     * @param arguments
+     * @param rowHandler
+     * @return true: 处理成功 false: 处理失败
+     */
+    public boolean queryStream(String sql, Object[] arguments, RowHandler rowHandler) {
+        if (!openSession()) {
+            return false;
+        }
+
+        DbSession dbSession = sessionThreadLocal.get();
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        boolean streaming = false;
+
+        try {
+            long startTime = System.nanoTime();
+            Connection connection = getSessionConnection(dbSession);
+            if (connection == null) {
+                return false;
+            }
+
+            stmt = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(chooseStreamFetchSize());
+            setArguments(stmt, arguments);
+            rs = stmt.executeQuery();
+            dbSession.beginStreaming();
+            streaming = true;
+
+            int rowNum = 0;
+            while (rs.next()) {
+                if (!rowHandler.handleRow(rs)) {
+                    logger.error("处理查询结果失败 [{}] [{}]", sql, StringUtils.join(arguments, " "));
+                    return false;
+                }
+                rowNum++;
+            }
+            // 流式查询的耗时包含处理查询结果的耗时
+            recordSql(sql, arguments, startTime, rowNum);
+            return true;
+        } catch (Exception e) {
+            if (!noticeDropTable(e, sql)) {
+                logger.error("error [{}] [{}] ", sql, StringUtils.join(arguments, " "), e);
+            }
+            return false;
+        } finally {
+            // 需要先关闭ResultSet，再关闭会话（会话被关闭时将连接释放回连接池）
+            closeResultSet(rs);
+            try {
+                if (stmt != null) {
+                    stmt.close();
+                }
+            } catch (Exception e) {
+                logger.error("error ", e);
+            }
+            if (streaming) {
+                dbSession.endStreaming();
+            }
+            closeSession();
+        }
+    }
+
+    /**
+     * 确定流式查询时每次从数据库获取的记录数量
+     * 使用MySQL时，JDBC URL中未指定useCursorFetch=true时，指定的数量不生效，需要使用Integer.MIN_VALUE逐行获取
+     *
+     * @return
+     */
+    private int chooseStreamFetchSize() {
+        if (!useStreamCursor()) {
+            return Integer.MIN_VALUE;
+        }
+        return JACGConstants.DB_QUERY_FETCH_SIZE;
+    }
+
+    // 流式查询时是否使用游标逐批获取记录，使用游标时，游标未关闭前同一连接上也可以执行其他操作
+    private boolean useStreamCursor() {
+        return useH2Db || StringUtils.containsIgnoreCase(cpds.getJdbcUrl(), "useCursorFetch=true");
+    }
+
     private void setArguments(PreparedStatement stmt, Object[] arguments) throws SQLException {
         if (arguments != null) {
             int argumentNum = arguments.length;
@@ -0,0 +1,123 @@
+package com.adrninistrator.jacg.dboper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/12
+ * @description: 与一个线程绑定的数据库会话，在会话期间固定使用同一个连接，并缓存已创建的PreparedStatement
+ * SQL语句通过DbOperWrapper.getCachedSql()获取，同一个SQL key对应的SQL语句相同，因此使用SQL语句作为缓存的key
+ * 仅在当前线程中使用，不需要考虑线程安全
+ */
+class DbSession {
+    private static final Logger logger = LoggerFactory.getLogger(DbSession.class);
+
+    private final Connection connection;
+
+    /*
+        缓存的PreparedStatement
+        key: SQL语句
+        value: 对应的PreparedStatement
+     */
+    private final Map<String, PreparedStatement> stmtMap = new HashMap<>();
+
+    // 会话被打开的次数，支持嵌套打开，次数减为0时关闭
+    private int openTimes = 1;
+
+    // 会话的连接上正在执行的流式查询数量，支持在流式查询的处理过程中嵌套执行流式查询
+    private int streamingTimes = 0;
+
+    DbSession(Connection connection) {
+        this.connection = connection;
+    }
+
+    Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * 获取SQL语句对应的PreparedStatement，不存在时创建并缓存
+     *
+     * @param sql
+     * @return
+     * @throws SQLException
+     */
+    PreparedStatement prepareStatement(String sql) throws SQLException {
+        PreparedStatement stmt = stmtMap.get(sql);
+        if (stmt == null || stmt.isClosed()) {
+            stmt = connection.prepareStatement(sql);
+            stmtMap.put(sql, stmt);
+        }
+        return stmt;
+    }
+
+    /**
+     * 关闭并移除SQL语句对应的PreparedStatement，在执行出现异常时使用，避免继续使用状态异常的PreparedStatement
+     *
+     * @param sql
+     */
+    void removeStatement(String sql) {
+        PreparedStatement stmt = stmtMap.remove(sql);
+        if (stmt == null) {
+            return;
+        }
+
+        try {
+            stmt.close();
+        } catch (Exception e) {
+            logger.error("error ", e);
+        }
+    }
+
+    void increaseOpenTimes() {
+        openTimes++;
+    }
+
+    /**
+     * 减少会话被打开的次数
+     *
+     * @return true: 次数已减为0，需要关闭会话 false: 不需要关闭会话
+     */
+    boolean decreaseOpenTimes() {
+        return --openTimes == 0;
+    }
+
+    void beginStreaming() {
+        streamingTimes++;
+    }
+
+    void endStreaming() {
+        streamingTimes--;
+    }
+
+    // 会话的连接上是否有未关闭的流式查询游标
+    boolean isStreaming() {
+        return streamingTimes > 0;
+    }
+
+    // 关闭缓存的PreparedStatement，并将连接释放回连接池
+    void close() {
+        for (PreparedStatement stmt : stmtMap.values()) {
+            try {
+                stmt.close();
+            } catch (Exception e) {
+                logger.error("error ", e);
+            }
+        }
+        stmtMap.clear();
+
+        try {
+            // 使用数据源，只是将连接释放回连接池，不会断开与数据库的连接
+            connection.close();
+        } catch (Exception e) {
+            logger.error("error ", e);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.adrninistrator.jacg.dboper;
+
+import com.adrninistrator.jacg.common.JACGConstants;
+import com.adrninistrator.jacg.util.JACGFileUtil;
+import com.adrninistrator.jacg.util.JACGUtil;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/15
+ * @description: 将H2数据库文件中当前app.name对应的数据库表复制到内存数据库中，供生成调用链时只读使用
+ * 以只读方式打开H2数据库文件，通过SCRIPT ... TABLE命令只导出当前app.name对应的表的建表、数据及索引语句，在内存数据库中执行，不复制同一个H2数据库文件中其他app.name的表
+ * 内存数据库名称包含复制时H2数据库文件的最后修改时间，同一个JVM中使用同一个H2数据库文件及app.name的多个DbOperator共用同一个内存数据库，只复制一次；
+ * H2数据库文件有变化时（例如在同一个JVM中重新写入了数据库），会在下次获取连接时复制到新的内存数据库中，不影响正在使用旧的内存数据库的操作，
+ * 旧的内存数据库在不再被使用时关闭；最新的内存数据库在JVM退出前一直保留
+ */
+class H2MemorySnapshot {
+    private static final Logger logger = LoggerFactory.getLogger(H2MemorySnapshot.class);
+
+    // H2数据库JDBC URL中的参数，与使用H2数据库文件时一致
+    private static final String H2_URL_MODE = ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE";
+
+    /*
+        已完成复制且未关闭的内存数据库
+        key: 内存数据库名称
+        value: 对应的内存数据库信息
+     */
+    private static final Map<String, SnapshotInfo> LOADED_SNAPSHOT_MAP = new HashMap<>();
+
+    /*
+        H2数据库文件及app.name最新的内存数据库
+        key: H2数据库文件及app.name对应的内存数据库名称前缀
+        value: 内存数据库名称
+     */
+    private static final Map<String, String> LATEST_SNAPSHOT_MAP = new HashMap<>();
+
+    private H2MemorySnapshot() {
+        throw new IllegalStateException("illegal");
+    }
+
+    private static class SnapshotInfo {
+        // H2数据库文件及app.name对应的内存数据库名称前缀
+        private final String namePrefix;
+
+        // 被DbOperator使用的次数
+        private int refTimes = 0;
+
+        SnapshotInfo(String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+    }
+
+    /**
+     * 生成内存数据库JDBC URL
+     *
+     * @param snapshotName 内存数据库名称
+     * @return
+     */
+    static String genJdbcUrl(String snapshotName) {
+        return "jdbc:h2:mem:" + snapshotName + ";DB_CLOSE_DELAY=-1" + H2_URL_MODE +
+                ";INIT=CREATE SCHEMA IF NOT EXISTS " + JACGConstants.H2_SCHEMA + "\\;SET SCHEMA " + JACGConstants.H2_SCHEMA;
+    }
+
+    /**
+     * 获取H2数据库文件当前内容对应的内存数据库，不存在时将H2数据库文件中指定app.name的表复制到新的内存数据库中，使用完毕后需要调用release()
+     *
+     * @param h2DbFilePath H2数据库文件路径，不包含后缀
+     * @param appName
+     * @return 内存数据库名称，null: 失败
+     */
+    static synchronized String acquire(String h2DbFilePath, String appName) {
+        File h2DbFile = new File(h2DbFilePath + JACGConstants.H2_FILE_EXT);
+        if (!h2DbFile.isFile()) {
+            logger.error("H2数据库文件不存在 {}", JACGFileUtil.getCanonicalPath(h2DbFile));
+            return null;
+        }
+
+        String namePrefix = genSnapshotNamePrefix(h2DbFilePath, appName);
+        String snapshotName = namePrefix + "_" + h2DbFile.lastModified();
+        SnapshotInfo snapshotInfo = LOADED_SNAPSHOT_MAP.get(snapshotName);
+        if (snapshotInfo == null) {
+            if (!load(h2DbFilePath, h2DbFile, appName, snapshotName)) {
+                return null;
+            }
+
+            snapshotInfo = new SnapshotInfo(namePrefix);
+            LOADED_SNAPSHOT_MAP.put(snapshotName, snapshotInfo);
+            String oldSnapshotName = LATEST_SNAPSHOT_MAP.put(namePrefix, snapshotName);
+            if (oldSnapshotName != null) {
+                // 旧的内存数据库未被使用时直接关闭，否则在不再被使用时关闭
+                closeIfUnused(oldSnapshotName);
+            }
+        }
+
+        snapshotInfo.refTimes++;
+        return snapshotName;
+    }
+
+    /**
+     * 释放内存数据库，不再被使用且不是H2数据库文件最新的内存数据库时关闭
+     *
+     * @param snapshotName 内存数据库名称
+     */
+    static synchronized void release(String snapshotName) {
+        SnapshotInfo snapshotInfo = LOADED_SNAPSHOT_MAP.get(snapshotName);
+        if (snapshotInfo == null || snapshotInfo.refTimes == 0) {
+            logger.warn("内存数据库未被使用 {}", snapshotName);
+            return;
+        }
+
+        snapshotInfo.refTimes--;
+        if (!snapshotName.equals(LATEST_SNAPSHOT_MAP.get(snapshotInfo.namePrefix))) {
+            closeIfUnused(snapshotName);
+        }
+    }
+
+    // 将H2数据库文件中指定app.name的表复制到指定的内存数据库中
+    private static boolean load(String h2DbFilePath, File h2DbFile, String appName, String snapshotName) {
+        long startTime = System.currentTimeMillis();
+        String sourceJdbcUrl = JACGConstants.H2_PROTOCOL + h2DbFilePath + ";ACCESS_MODE_DATA=r" + H2_URL_MODE;
+        logger.info("将H2数据库文件复制到内存数据库 {} {} {}", JACGFileUtil.getCanonicalPath(h2DbFile), appName, snapshotName);
+
+        int sqlNum = 0;
+        try (Connection snapshotConnection = DriverManager.getConnection(genJdbcUrl(snapshotName), "", "");
+             Statement snapshotStmt = snapshotConnection.createStatement()) {
+            try (Connection sourceConnection = DriverManager.getConnection(sourceJdbcUrl, "", "");
+                 Statement sourceStmt = sourceConnection.createStatement()) {
+                List<String> tableNameList = queryAppTableNames(sourceConnection, appName);
+                if (tableNameList.isEmpty()) {
+                    logger.error("H2数据库文件中不存在app.name对应的数据库表，请先执行写入数据库操作 {} {}", JACGFileUtil.getCanonicalPath(h2DbFile), appName);
+                    snapshotStmt.execute("SHUTDOWN");
+                    return false;
+                }
+
+                logger.info("复制到内存数据库的表 {}", StringUtils.join(tableNameList, " "));
+                try (ResultSet rs = sourceStmt.executeQuery("SCRIPT NOPASSWORDS NOSETTINGS TABLE " + StringUtils.join(tableNameList, ", "))) {
+                    while (rs.next()) {
+                        snapshotStmt.execute(rs.getString(1));
+                        sqlNum++;
+                    }
+                }
+            } catch (Exception e) {
+                logger.error("将H2数据库文件复制到内存数据库失败 {} ", JACGFileUtil.getCanonicalPath(h2DbFile), e);
+                // 关闭复制了部分数据的内存数据库
+                snapshotStmt.execute("SHUTDOWN");
+                return false;
+            }
+        } catch (Exception e) {
+            logger.error("将H2数据库文件复制到内存数据库失败 {} ", JACGFileUtil.getCanonicalPath(h2DbFile), e);
+            return false;
+        }
+
+        logger.info("将H2数据库文件复制到内存数据库完毕，执行SQL语句数量 {} 耗时 {} S", sqlNum, (System.currentTimeMillis() - startTime) / 1000.0D);
+        return true;
+    }
+
+    // 查询H2数据库文件中指定app.name对应的表，返回的表名包含schema
+    private static List<String> queryAppTableNames(Connection sourceConnection, String appName) throws SQLException {
+        List<String> tableNameList = new ArrayList<>(JACGConstants.TABLE_PREFIXES.length);
+        try (PreparedStatement stmt = sourceConnection.prepareStatement(
+                "SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES where TABLE_SCHEMA = ? and TABLE_NAME = ?")) {
+            for (String tablePrefix : JACGConstants.TABLE_PREFIXES) {
+                stmt.setString(1, JACGConstants.H2_SCHEMA);
+                stmt.setString(2, tablePrefix + appName);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        tableNameList.add(JACGConstants.H2_SCHEMA + "." + rs.getString(1));
+                    }
+                }
+            }
+        }
+        return tableNameList;
+    }
+
+    // 内存数据库不再被使用时关闭
+    private static void closeIfUnused(String snapshotName) {
+        SnapshotInfo snapshotInfo = LOADED_SNAPSHOT_MAP.get(snapshotName);
+        if (snapshotInfo == null || snapshotInfo.refTimes > 0) {
+            return;
+        }
+
+        LOADED_SNAPSHOT_MAP.remove(snapshotName);
+        logger.info("关闭不再使用的内存数据库 {}", snapshotName);
+        try (Connection connection = DriverManager.getConnection(genJdbcUrl(snapshotName), "", "");
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("SHUTDOWN");
+        } catch (Exception e) {
+            logger.error("关闭内存数据库失败 {} ", snapshotName, e);
+        }
+    }
+
+    // 生成H2数据库文件及app.name对应的内存数据库名称前缀，使用H2数据库文件路径及app.name的HASH，只保留字母与数字
+    private static String genSnapshotNamePrefix(String h2DbFilePath, String appName) {
+        String canonicalPath = JACGFileUtil.getCanonicalPath(new File(h2DbFilePath));
+        String hash = JACGUtil.genHashWithLen((canonicalPath != null ? canonicalPath : h2DbFilePath) + "|" + appName);
+        return "jacg_snapshot_" + hash.replaceAll("[^A-Za-z0-9]", "");
+    }
+}
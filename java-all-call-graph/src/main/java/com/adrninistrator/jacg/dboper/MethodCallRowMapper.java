@@ -0,0 +1,112 @@
+package com.adrninistrator.jacg.dboper;
+
+import com.adrninistrator.jacg.common.DC;
+import com.adrninistrator.jacg.dto.entity.MethodCallRow;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/13
+ * @description: 将方法调用表的查询结果写入可重复使用的MethodCallRow对象
+ * 查询SQL语句中的字段顺序需要与构造函数中指定的字段顺序一致，按字段序号获取值，避免按字段名称查找
+ * 不保存查询结果，对于相同的查询字段只需要创建一次，支持多线程使用
+ */
+public class MethodCallRowMapper {
+    // 查询的字段
+    private final String[] columns;
+
+    public MethodCallRowMapper(String[] columns) {
+        for (String column : columns) {
+            if (!isSupportedColumn(column)) {
+                throw new IllegalArgumentException("不支持的方法调用表字段 " + column);
+            }
+        }
+        this.columns = columns;
+    }
+
+    /**
+     * 将查询结果的当前行写入指定的MethodCallRow对象
+     *
+     * @param rs
+     * @param methodCallRow
+     * @return
+     * @throws SQLException
+     */
+    public MethodCallRow mapRow(ResultSet rs, MethodCallRow methodCallRow) throws SQLException {
+        methodCallRow.clear();
+        for (int i = 0; i < columns.length; i++) {
+            int columnIndex = i + 1;
+            switch (columns[i]) {
+                case DC.MC_CALL_ID:
+                    methodCallRow.setCallId(rs.getInt(columnIndex));
+                    break;
+                case DC.MC_CALL_TYPE:
+                    methodCallRow.setCallType(rs.getString(columnIndex));
+                    break;
+                case DC.MC_ENABLED:
+                    methodCallRow.setEnabled(rs.getInt(columnIndex));
+                    break;
+                case DC.MC_CALLER_METHOD_HASH:
+                    methodCallRow.setCallerMethodHash(rs.getString(columnIndex));
+                    break;
+                case DC.MC_CALLER_FULL_METHOD:
+                    methodCallRow.setCallerFullMethod(rs.getString(columnIndex));
+                    break;
+                case DC.MC_CALLER_METHOD_NAME:
+                    methodCallRow.setCallerMethodName(rs.getString(columnIndex));
+                    break;
+                case DC.MC_CALLER_FULL_CLASS_NAME:
+                    methodCallRow.setCallerFullClassName(rs.getString(columnIndex));
+                    break;
+                case DC.MC_CALLER_CLASS_NAME:
+                    methodCallRow.setCallerClassName(rs.getString(columnIndex));
+                    break;
+                case DC.MC_CALLER_LINE_NUM:
+                    methodCallRow.setCallerLineNum(rs.getInt(columnIndex));
+                    break;
+                case DC.MC_CALLEE_METHOD_HASH:
+                    methodCallRow.setCalleeMethodHash(rs.getString(columnIndex));
+                    break;
+                case DC.MC_CALLEE_FULL_METHOD:
+                    methodCallRow.setCalleeFullMethod(rs.getString(columnIndex));
+                    break;
+                case DC.MC_CALLEE_METHOD_NAME:
+                    methodCallRow.setCalleeMethodName(rs.getString(columnIndex));
+                    break;
+                case DC.MC_CALLEE_FULL_CLASS_NAME:
+                    methodCallRow.setCalleeFullClassName(rs.getString(columnIndex));
+                    break;
+                case DC.MC_CALLEE_CLASS_NAME:
+                    methodCallRow.setCalleeClassName(rs.getString(columnIndex));
+                    break;
+                default:
+                    break;
+            }
+        }
+        return methodCallRow;
+    }
+
+    private boolean isSupportedColumn(String column) {
+        switch (column) {
+            case DC.MC_CALL_ID:
+            case DC.MC_CALL_TYPE:
+            case DC.MC_ENABLED:
+            case DC.MC_CALLER_METHOD_HASH:
+            case DC.MC_CALLER_FULL_METHOD:
+            case DC.MC_CALLER_METHOD_NAME:
+            case DC.MC_CALLER_FULL_CLASS_NAME:
+            case DC.MC_CALLER_CLASS_NAME:
+            case DC.MC_CALLER_LINE_NUM:
+            case DC.MC_CALLEE_METHOD_HASH:
+            case DC.MC_CALLEE_FULL_METHOD:
+            case DC.MC_CALLEE_METHOD_NAME:
+            case DC.MC_CALLEE_FULL_CLASS_NAME:
+            case DC.MC_CALLEE_CLASS_NAME:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
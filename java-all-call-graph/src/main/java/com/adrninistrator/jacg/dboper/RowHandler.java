@@ -0,0 +1,21 @@
+package com.adrninistrator.jacg.dboper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/14
+ * @description: 流式查询时逐行处理查询结果，ResultSet已指向当前行，不需要也不允许调用next()
+ */
+@FunctionalInterface
+public interface RowHandler {
+    /**
+     * 处理当前行记录
+     *
+     * @param rs
+     * @return true: 处理成功，继续处理下一行 false: 处理失败，停止查询
+     * @throws SQLException
+     */
+    boolean handleRow(ResultSet rs) throws SQLException;
+}
@@ -0,0 +1,21 @@
+package com.adrninistrator.jacg.dboper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/13
+ * @description: 将查询结果的当前行转换为指定类型的对象，避免为每行记录创建Map
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+    /**
+     * 处理查询结果的当前行，不需要调用ResultSet.next()
+     *
+     * @param rs
+     * @return 当前行对应的对象，可以返回同一个对象以便重复使用
+     * @throws SQLException
+     */
+    T mapRow(ResultSet rs) throws SQLException;
+}
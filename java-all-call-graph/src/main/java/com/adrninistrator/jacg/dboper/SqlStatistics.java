@@ -0,0 +1,187 @@
+package com.adrninistrator.jacg.dboper;
+
+import com.adrninistrator.jacg.common.JACGConstants;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/18
+ * @description: 记录执行耗时超过阈值的SQL语句，并在开启统计时按SQL语句的key统计执行次数、返回记录数及耗时分布
+ * SQL语句的key在DbOperWrapper.cacheSql()时登记，未登记key的SQL语句（如拼接参数生成的SQL语句）统一使用同一个key统计，避免统计信息随SQL语句数量无限增长
+ */
+public class SqlStatistics {
+    private static final Logger logger = LoggerFactory.getLogger(SqlStatistics.class);
+
+    // 未登记key的SQL语句统计时使用的key
+    public static final String UNREGISTERED_SQL_KEY = "[未登记key的SQL语句]";
+
+    // 耗时分布各区间的上限，单位为微秒，最后一个区间没有上限
+    private static final long[] BUCKET_UPPER_MICROS = new long[]{100L, 200L, 500L, 1000L, 2000L, 5000L, 10000L, 50000L, 100000L, 500000L, 1000000L};
+
+    private static final String[] BUCKET_NAMES = new String[]{"<100us", "<200us", "<500us", "<1ms", "<2ms", "<5ms", "<10ms", "<50ms", "<100ms", "<500ms",
+            "<1s", ">=1s"};
+
+    /*
+        SQL语句对应的key
+        key: SQL语句
+        value: SQL语句的key
+     */
+    private final Map<String, String> sqlKeyMap = new ConcurrentHashMap<>();
+
+    /*
+        统计信息
+        key: SQL语句的key
+        value: 对应的统计信息
+     */
+    private final Map<String, SqlStatInfo> statInfoMap = new ConcurrentHashMap<>();
+
+    // 慢SQL语句耗时阈值，单位为纳秒
+    private final long slowThresholdNanos = JACGConstants.DB_SLOW_SQL_THRESHOLD * 1000000L;
+
+    // 是否统计SQL语句的执行情况，不统计时只记录执行耗时超过阈值的SQL语句
+    private final boolean statisticsEnabled;
+
+    public SqlStatistics(boolean statisticsEnabled) {
+        this.statisticsEnabled = statisticsEnabled;
+    }
+
+    /**
+     * 登记SQL语句对应的key
+     *
+     * @param sql
+     * @param sqlKey
+     */
+    public void registerSqlKey(String sql, String sqlKey) {
+        sqlKeyMap.putIfAbsent(sql, sqlKey);
+    }
+
+    /**
+     * 记录一次SQL语句的执行
+     *
+     * @param sql
+     * @param arguments
+     * @param startTime 开始执行的时间，通过System.nanoTime()获取
+     * @param rowNum    返回或影响的记录数
+     */
+    public void record(String sql, Object[] arguments, long startTime, int rowNum) {
+        long spendNanos = System.nanoTime() - startTime;
+        if (!statisticsEnabled && spendNanos < slowThresholdNanos) {
+            return;
+        }
+
+        String sqlKey = sqlKeyMap.getOrDefault(sql, UNREGISTERED_SQL_KEY);
+        if (statisticsEnabled) {
+            statInfoMap.computeIfAbsent(sqlKey, k -> new SqlStatInfo()).add(spendNanos, rowNum);
+        }
+
+        if (spendNanos >= slowThresholdNanos) {
+            logger.warn("执行SQL语句耗时 {} ms 超过阈值 {} ms [{}] [{}] [{}]", spendNanos / 1000000L, JACGConstants.DB_SLOW_SQL_THRESHOLD, sqlKey, sql,
+                    StringUtils.join(arguments, " "));
+        }
+    }
+
+    /**
+     * 输出统计结果，按总耗时从大到小排序
+     *
+     * @param objSeq 数据源序号
+     */
+    public void printSummary(String objSeq) {
+        if (statInfoMap.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<String, SqlStatInfo>> entryList = new ArrayList<>(statInfoMap.entrySet());
+        entryList.sort((o1, o2) -> Long.compare(o2.getValue().totalNanos.sum(), o1.getValue().totalNanos.sum()));
+
+        StringBuilder stringBuilder = new StringBuilder();
+        stringBuilder.append("[").append(objSeq).append("] SQL语句执行统计，按总耗时从大到小排序\n")
+                .append("SQL语句的key\t执行次数\t返回记录数\t总耗时(ms)\t平均耗时(us)\t最大耗时(ms)\tP50\tP90\tP99\t耗时分布");
+        for (Map.Entry<String, SqlStatInfo> entry : entryList) {
+            SqlStatInfo statInfo = entry.getValue();
+            long count = statInfo.count.sum();
+            long totalNanos = statInfo.totalNanos.sum();
+            stringBuilder.append("\n").append(entry.getKey())
+                    .append("\t").append(count)
+                    .append("\t").append(statInfo.rowNum.sum())
+                    .append("\t").append(String.format("%.1f", totalNanos / 1000000.0D))
+                    .append("\t").append(count == 0 ? 0 : totalNanos / count / 1000L)
+                    .append("\t").append(String.format("%.1f", statInfo.maxNanos.get() / 1000000.0D))
+                    .append("\t").append(statInfo.getPercentile(count, 50))
+                    .append("\t").append(statInfo.getPercentile(count, 90))
+                    .append("\t").append(statInfo.getPercentile(count, 99))
+                    .append("\t").append(statInfo.getBuckets());
+        }
+        logger.info("{}", stringBuilder);
+    }
+
+    // 一个SQL语句的key对应的统计信息
+    private static class SqlStatInfo {
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder rowNum = new LongAdder();
+
+        private final LongAdder totalNanos = new LongAdder();
+
+        private final AtomicLong maxNanos = new AtomicLong(0);
+
+        // 各耗时区间的执行次数
+        private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKET_NAMES.length);
+
+        void add(long spendNanos, int rows) {
+            count.increment();
+            rowNum.add(rows);
+            totalNanos.add(spendNanos);
+
+            maxNanos.accumulateAndGet(spendNanos, Math::max);
+
+            long spendMicros = spendNanos / 1000L;
+            int index = 0;
+            while (index < BUCKET_UPPER_MICROS.length && spendMicros >= BUCKET_UPPER_MICROS[index]) {
+                index++;
+            }
+            bucketCounts.incrementAndGet(index);
+        }
+
+        // 获取指定百分位对应的耗时区间
+        String getPercentile(long count, int percent) {
+            if (count == 0) {
+                return "-";
+            }
+
+            long target = (count * percent + 99) / 100;
+            long accumulated = 0;
+            for (int i = 0; i < BUCKET_NAMES.length; i++) {
+                accumulated += bucketCounts.get(i);
+                if (accumulated >= target) {
+                    return BUCKET_NAMES[i];
+                }
+            }
+            return BUCKET_NAMES[BUCKET_NAMES.length - 1];
+        }
+
+        // 获取执行次数非0的耗时区间
+        String getBuckets() {
+            StringBuilder stringBuilder = new StringBuilder();
+            for (int i = 0; i < BUCKET_NAMES.length; i++) {
+                long bucketCount = bucketCounts.get(i);
+                if (bucketCount > 0) {
+                    if (stringBuilder.length() > 0) {
+                        stringBuilder.append(" ");
+                    }
+                    stringBuilder.append(BUCKET_NAMES[i]).append(":").append(bucketCount);
+                }
+            }
+            return stringBuilder.toString();
+        }
+    }
+}
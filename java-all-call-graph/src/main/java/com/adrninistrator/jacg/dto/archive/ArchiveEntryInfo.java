@@ -0,0 +1,53 @@
+package com.adrninistrator.jacg.dto.archive;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/8
+ * @description: 调用链归档文件中一个条目的索引信息
+ * 条目内容按写入顺序分为一个或多个片段保存在数据文件中，各片段在数据文件中不一定连续，按顺序拼接后为条目的完整内容
+ */
+public class ArchiveEntryInfo {
+    // 条目名称，为调用链文件相对于输出目录的路径，使用/作为分隔符
+    private final String entryName;
+
+    // 各片段在数据文件中的偏移量
+    private final long[] offsets;
+
+    // 各片段在数据文件中的长度
+    private final int[] lengths;
+
+    public ArchiveEntryInfo(String entryName, long[] offsets, int[] lengths) {
+        this.entryName = entryName;
+        this.offsets = offsets;
+        this.lengths = lengths;
+    }
+
+    /**
+     * 获取条目内容在数据文件中的总长度
+     *
+     * @return
+     */
+    public long getTotalLength() {
+        long totalLength = 0L;
+        for (int length : lengths) {
+            totalLength += length;
+        }
+        return totalLength;
+    }
+
+    public String getEntryName() {
+        return entryName;
+    }
+
+    public int getSegmentNum() {
+        return offsets.length;
+    }
+
+    public long getOffset(int segmentIndex) {
+        return offsets[segmentIndex];
+    }
+
+    public int getLength(int segmentIndex) {
+        return lengths[segmentIndex];
+    }
+}
@@ -0,0 +1,154 @@
+package com.adrninistrator.jacg.dto.entity;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/13
+ * @description: 从方法调用表查询到的一行记录，可重复使用，每次查询前会清空所有字段
+ * 仅查询时指定的字段有值，其他字段为null或-1
+ */
+public class MethodCallRow {
+    private int callId;
+    private String callType;
+    private int enabled;
+    private String callerMethodHash;
+    private String callerFullMethod;
+    private String callerMethodName;
+    private String callerFullClassName;
+    private String callerClassName;
+    private int callerLineNum;
+    private String calleeMethodHash;
+    private String calleeFullMethod;
+    private String calleeMethodName;
+    private String calleeFullClassName;
+    private String calleeClassName;
+
+    // 清空所有字段
+    public void clear() {
+        callId = -1;
+        callType = null;
+        enabled = -1;
+        callerMethodHash = null;
+        callerFullMethod = null;
+        callerMethodName = null;
+        callerFullClassName = null;
+        callerClassName = null;
+        callerLineNum = -1;
+        calleeMethodHash = null;
+        calleeFullMethod = null;
+        calleeMethodName = null;
+        calleeFullClassName = null;
+        calleeClassName = null;
+    }
+
+    public int getCallId() {
+        return callId;
+    }
+
+    public void setCallId(int callId) {
+        this.callId = callId;
+    }
+
+    public String getCallType() {
+        return callType;
+    }
+
+    public void setCallType(String callType) {
+        this.callType = callType;
+    }
+
+    public int getEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(int enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getCallerMethodHash() {
+        return callerMethodHash;
+    }
+
+    public void setCallerMethodHash(String callerMethodHash) {
+        this.callerMethodHash = callerMethodHash;
+    }
+
+    public String getCallerFullMethod() {
+        return callerFullMethod;
+    }
+
+    public void setCallerFullMethod(String callerFullMethod) {
+        this.callerFullMethod = callerFullMethod;
+    }
+
+    public String getCallerMethodName() {
+        return callerMethodName;
+    }
+
+    public void setCallerMethodName(String callerMethodName) {
+        this.callerMethodName = callerMethodName;
+    }
+
+    public String getCallerFullClassName() {
+        return callerFullClassName;
+    }
+
+    public void setCallerFullClassName(String callerFullClassName) {
+        this.callerFullClassName = callerFullClassName;
+    }
+
+    public String getCallerClassName() {
+        return callerClassName;
+    }
+
+    public void setCallerClassName(String callerClassName) {
+        this.callerClassName = callerClassName;
+    }
+
+    public int getCallerLineNum() {
+        return callerLineNum;
+    }
+
+    public void setCallerLineNum(int callerLineNum) {
+        this.callerLineNum = callerLineNum;
+    }
+
+    public String getCalleeMethodHash() {
+        return calleeMethodHash;
+    }
+
+    public void setCalleeMethodHash(String calleeMethodHash) {
+        this.calleeMethodHash = calleeMethodHash;
+    }
+
+    public String getCalleeFullMethod() {
+        return calleeFullMethod;
+    }
+
+    public void setCalleeFullMethod(String calleeFullMethod) {
+        this.calleeFullMethod = calleeFullMethod;
+    }
+
+    public String getCalleeMethodName() {
+        return calleeMethodName;
+    }
+
+    public void setCalleeMethodName(String calleeMethodName) {
+        this.calleeMethodName = calleeMethodName;
+    }
+
+    public String getCalleeFullClassName() {
+        return calleeFullClassName;
+    }
+
+    public void setCalleeFullClassName(String calleeFullClassName) {
+        this.calleeFullClassName = calleeFullClassName;
+    }
+
+    public String getCalleeClassName() {
+        return calleeClassName;
+    }
+
+    public void setCalleeClassName(String calleeClassName) {
+        this.calleeClassName = calleeClassName;
+    }
+}
@@ -1,5 +1,7 @@
 package com.adrninistrator.jacg.dto.keyword;
 
+import com.adrninistrator.jacg.scanner.CallGraphLineView;
+
 /**
  * @author adrninistrator
  * @date 2022/8/26
@@ -13,10 +15,10 @@ public class FileContentNode {
     // 方法级别
     private final int methodLevel;
 
-    // 文件行内容
-    private final String fileLineContent;
+    // 文件行内容，在需要使用时才转换为字符串
+    private final CallGraphLineView fileLineContent;
 
-    public FileContentNode(FileContentNode parentNode, int methodLevel, String fileLineContent) {
+    public FileContentNode(FileContentNode parentNode, int methodLevel, CallGraphLineView fileLineContent) {
         this.parentNode = parentNode;
         this.methodLevel = methodLevel;
         this.fileLineContent = fileLineContent;
@@ -32,6 +34,6 @@ public class FileContentNode {
     }
 
     public String getFileLineContent() {
-        return fileLineContent;
+        return fileLineContent.toString();
     }
 }
@@ -0,0 +1,53 @@
+package com.adrninistrator.jacg.dto.keyword_index;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/19
+ * @description: 根据关键字索引查询到的一个调用链文件中可能包含关键字的行
+ * 片段指调用链文件中连续的调用链信息的行，从不属于调用链信息的行（或文件开头）之后的第一行调用链信息开始
+ */
+public class KeywordIndexCandidate {
+    // 调用链文件内容的字节数（未压缩）
+    private final int contentLength;
+
+    // 各片段开始的行号，从1开始，升序
+    private final int[] regionStartLineNums;
+
+    // 各片段开始的行在文件内容中的字节位置
+    private final int[] regionStartOffsets;
+
+    // 可能包含关键字的行号，升序
+    private final int[] lineNums;
+
+    public KeywordIndexCandidate(int contentLength, int[] regionStartLineNums, int[] regionStartOffsets, int[] lineNums) {
+        this.contentLength = contentLength;
+        this.regionStartLineNums = regionStartLineNums;
+        this.regionStartOffsets = regionStartOffsets;
+        this.lineNums = lineNums;
+    }
+
+    /**
+     * 是否不存在可能包含关键字的行
+     *
+     * @return
+     */
+    public boolean isEmpty() {
+        return lineNums.length == 0;
+    }
+
+    public int getContentLength() {
+        return contentLength;
+    }
+
+    public int[] getRegionStartLineNums() {
+        return regionStartLineNums;
+    }
+
+    public int[] getRegionStartOffsets() {
+        return regionStartOffsets;
+    }
+
+    public int[] getLineNums() {
+        return lineNums;
+    }
+}
@@ -0,0 +1,35 @@
+package com.adrninistrator.jacg.dto.spring;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/19
+ * @description: Spring Bean信息
+ */
+public class SpringBeanInfo {
+    // 完整类名
+    private final String fullClassName;
+
+    // Bean名称
+    private final String beanName;
+
+    // 定义Bean的注解类名
+    private final String annotationName;
+
+    public SpringBeanInfo(String fullClassName, String beanName, String annotationName) {
+        this.fullClassName = fullClassName;
+        this.beanName = beanName;
+        this.annotationName = annotationName;
+    }
+
+    public String getFullClassName() {
+        return fullClassName;
+    }
+
+    public String getBeanName() {
+        return beanName;
+    }
+
+    public String getAnnotationName() {
+        return annotationName;
+    }
+}
@@ -0,0 +1,76 @@
+package com.adrninistrator.jacg.dto.spring;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/19
+ * @description: Spring Controller方法的一个路径信息
+ */
+public class SpringControllerInfo {
+    // 方法HASH+长度
+    private final String methodHash;
+
+    // 序号，一个方法对应多个路径时从0开始递增
+    private final int seq;
+
+    // 类与方法上的注解中的路径拼接后的路径
+    private final String showUri;
+
+    // 类上的注解中的路径
+    private final String classPath;
+
+    // 方法上的注解中的路径
+    private final String methodPath;
+
+    // HTTP请求方法，多个时使用半角逗号分隔，未指定时为空字符串
+    private final String requestMethod;
+
+    // 方法上的注解类名
+    private final String annotationName;
+
+    // 完整方法
+    private final String fullMethod;
+
+    public SpringControllerInfo(String methodHash, int seq, String showUri, String classPath, String methodPath, String requestMethod, String annotationName,
+                                String fullMethod) {
+        this.methodHash = methodHash;
+        this.seq = seq;
+        this.showUri = showUri;
+        this.classPath = classPath;
+        this.methodPath = methodPath;
+        this.requestMethod = requestMethod;
+        this.annotationName = annotationName;
+        this.fullMethod = fullMethod;
+    }
+
+    public String getMethodHash() {
+        return methodHash;
+    }
+
+    public int getSeq() {
+        return seq;
+    }
+
+    public String getShowUri() {
+        return showUri;
+    }
+
+    public String getClassPath() {
+        return classPath;
+    }
+
+    public String getMethodPath() {
+        return methodPath;
+    }
+
+    public String getRequestMethod() {
+        return requestMethod;
+    }
+
+    public String getAnnotationName() {
+        return annotationName;
+    }
+
+    public String getFullMethod() {
+        return fullMethod;
+    }
+}
@@ -1,6 +1,7 @@
 package com.adrninistrator.jacg.extensions.annotation_handler;
 
 import com.adrninistrator.jacg.annotation.AnnotationStorage;
+import com.adrninistrator.jacg.dboper.DbOperWrapper;
 import com.adrninistrator.jacg.dto.annotation_attribute.BaseAnnotationAttribute;
 
 import java.util.Map;
@@ -15,6 +16,9 @@ public abstract class AbstractAnnotationHandler {
     // 保存类及方法上的注解信息
     protected AnnotationStorage annotationStorage;
 
+    // 数据库公共操作封装对象，可为null
+    protected DbOperWrapper dbOperWrapper;
+
     /**
      * 判断当前类是否处理对应的注解
      * 在项目中可以指定多个方法注解处理类，当某个类的该方法返回true时，调用handleAnnotation获取对应的注解信息，不再调用后续的方法注解处理类进行处理
@@ -27,6 +31,7 @@ public abstract class AbstractAnnotationHandler {
     /**
      * 返回方法上的注解处理后的结果
      * 当前方法不需要以@开头
+     * 当前方法会在多个线程中同时被调用，每个方法的处理结果会被缓存，同一个方法通常只处理一次
      *
      * @param fullMethod     完整方法
      * @param fullClassName  方法所在类完整类名
@@ -39,4 +44,8 @@ public abstract class AbstractAnnotationHandler {
     public void setAnnotationStorage(AnnotationStorage annotationStorage) {
         this.annotationStorage = annotationStorage;
     }
+
+    public void setDbOperWrapper(DbOperWrapper dbOperWrapper) {
+        this.dbOperWrapper = dbOperWrapper;
+    }
 }
@@ -5,10 +5,16 @@ import com.adrninistrator.jacg.common.CommonAnnotationConstants;
 import com.adrninistrator.jacg.common.JACGConstants;
 import com.adrninistrator.jacg.dto.annotation_attribute.BaseAnnotationAttribute;
 import com.adrninistrator.jacg.dto.annotation_attribute.ListStringAnnotationAttribute;
+import com.adrninistrator.jacg.spring.SpringIndex;
+import com.adrninistrator.jacg.util.JACGUtil;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -26,7 +32,17 @@ public class SpringMvcRequestMappingHandler extends AbstractAnnotationHandler {
 
     @Override
     public String handleAnnotation(String fullMethod, String fullClassName, String annotationName, Map<String, BaseAnnotationAttribute> attributesMap) {
-        String path = getPath(fullClassName, attributesMap);
+        String path = null;
+        if (dbOperWrapper != null) {
+            // 优先使用写入数据库时生成的Spring索引中的路径
+            SpringIndex springIndex = dbOperWrapper.getSpringIndex();
+            if (springIndex != null) {
+                path = springIndex.getShowUri(JACGUtil.genHashWithLen(fullMethod), annotationName);
+            }
+        }
+        if (path == null) {
+            path = getPath(fullClassName, attributesMap);
+        }
 
         // 返回注解类名("path")
         return annotationName + JACGConstants.FLAG_LEFT_BRACKET + path + JACGConstants.FLAG_RIGHT_BRACKET;
@@ -34,16 +50,30 @@ public class SpringMvcRequestMappingHandler extends AbstractAnnotationHandler {
 
     /**
      * 获取Spring MVC RequestMapping注解的path路径，与类上的属性进行拼接
+     * 类或方法上的注解指定了多个路径时，使用第一个
      *
      * @param fullClassName 方法对应的完整类名
      * @param attributesMap 方法上的注解属性Map
      * @return path路径
      */
-    public  String getPath(String fullClassName, Map<String, BaseAnnotationAttribute> attributesMap) {
-        StringBuilder path = new StringBuilder();
-
+    public String getPath(String fullClassName, Map<String, BaseAnnotationAttribute> attributesMap) {
         // 获取Spring MVC对应类上的注解中的path
-        String springMvcClassPath = getSpringMvcClassPath(fullClassName);
+        List<String> springMvcClassPathList = getSpringMvcClassPathList(fullClassName);
+        String springMvcClassPath = springMvcClassPathList == null ? null : springMvcClassPathList.get(0);
+        // 获取Spring MVC对应方法上的注解中的path
+        String springMvcMethodPath = getPathListInRequestMappingAnnotation(attributesMap).get(0);
+        return genShowUri(springMvcClassPath, springMvcMethodPath);
+    }
+
+    /**
+     * 将类上的注解中的path与方法上的注解中的path进行拼接
+     *
+     * @param springMvcClassPath  类上的注解中的path，类上没有对应注解时为null
+     * @param springMvcMethodPath 方法上的注解中的path
+     * @return
+     */
+    public static String genShowUri(String springMvcClassPath, String springMvcMethodPath) {
+        StringBuilder path = new StringBuilder();
         if (springMvcClassPath != null) {
             if (!StringUtils.startsWith(springMvcClassPath, "/")) {
                 path.append("/");
@@ -51,8 +81,6 @@ public class SpringMvcRequestMappingHandler extends AbstractAnnotationHandler {
             path.append(springMvcClassPath);
         }
 
-        // 获取Spring MVC对应方法上的注解中的path
-        String springMvcMethodPath = getPathInRequestMappingAnnotation(attributesMap);
         if (!StringUtils.startsWith(springMvcMethodPath, "/")) {
             path.append("/");
         }
@@ -61,34 +89,58 @@ public class SpringMvcRequestMappingHandler extends AbstractAnnotationHandler {
     }
 
     // 判断是否为Spring MVC的RequestMapping注解
-    private  boolean isRequestMappingAnnotation(String annotationName) {
+    private boolean isRequestMappingAnnotation(String annotationName) {
         return StringUtils.equalsAny(annotationName, CommonAnnotationConstants.SPRING_MVC_MAPPING_ANNOTATIONS);
     }
 
-    // 获取Spring MVC对应注解中的path
-    private  String getPathInRequestMappingAnnotation(Map<String, BaseAnnotationAttribute> annotationAttributeMap) {
+    /**
+     * 获取Spring MVC对应注解中的全部path
+     *
+     * @param annotationAttributeMap 注解属性Map
+     * @return 至少包含一个元素，未指定path时为空字符串
+     */
+    public List<String> getPathListInRequestMappingAnnotation(Map<String, BaseAnnotationAttribute> annotationAttributeMap) {
         for (String attributeName : CommonAnnotationConstants.SPRING_MVC_MAPPING_ATTRIBUTE_NAMES) {
-            String path = doGetPathInRequestMappingAnnotation(annotationAttributeMap, attributeName);
-            if (path != null) {
-                return path;
+            List<String> pathList = doGetPathListInRequestMappingAnnotation(annotationAttributeMap, attributeName);
+            if (pathList != null) {
+                return pathList;
             }
         }
-        return "";
+        return Collections.singletonList("");
     }
 
-    private  String doGetPathInRequestMappingAnnotation(Map<String, BaseAnnotationAttribute> annotationAttributeMap, String attributeName) {
+    private List<String> doGetPathListInRequestMappingAnnotation(Map<String, BaseAnnotationAttribute> annotationAttributeMap, String attributeName) {
         ListStringAnnotationAttribute listStringAnnotationAttribute = annotationStorage.getAttributeFromMap(annotationAttributeMap, attributeName,
                 ListStringAnnotationAttribute.class);
-        if (listStringAnnotationAttribute == null) {
+        if (listStringAnnotationAttribute == null || JACGUtil.isCollectionEmpty(listStringAnnotationAttribute.getAttributeList())) {
             // 尝试不同的属性名称，可能不存在，不需要打印日志
             return null;
         }
 
-        return listStringAnnotationAttribute.getAttributeList().get(0);
+        return listStringAnnotationAttribute.getAttributeList();
+    }
+
+    /**
+     * 获取Spring MVC对应类上的注解中的全部path
+     *
+     * @param fullClassName 完整类名
+     * @return null: 类上没有Spring MVC的RequestMapping注解
+     */
+    public List<String> getSpringMvcClassPathList(String fullClassName) {
+        Map<String, BaseAnnotationAttribute> classRequestMappingAttributeMap = getClassRequestMappingAttributeMap(fullClassName);
+        if (classRequestMappingAttributeMap == null) {
+            return null;
+        }
+        return getPathListInRequestMappingAnnotation(classRequestMappingAttributeMap);
     }
 
-    // 获取Spring MVC对应类上的注解中的path
-    private  String getSpringMvcClassPath(String fullClassName) {
+    /**
+     * 获取类上的Spring MVC的RequestMapping注解的属性Map
+     *
+     * @param fullClassName 完整类名
+     * @return null: 类上没有对应注解
+     */
+    public Map<String, BaseAnnotationAttribute> getClassRequestMappingAttributeMap(String fullClassName) {
         Map<String, Map<String, BaseAnnotationAttribute>> classAnnotationMap = annotationStorage.getAnnotationMap4Class(fullClassName);
         if (classAnnotationMap == null) {
             logger.error("未找到指定类的注解信息 {}", fullClassName);
@@ -96,15 +148,51 @@ public class SpringMvcRequestMappingHandler extends AbstractAnnotationHandler {
         }
 
         for (Map.Entry<String, Map<String, BaseAnnotationAttribute>> classAnnotationMapEntry : classAnnotationMap.entrySet()) {
-            String annotationName = classAnnotationMapEntry.getKey();
             // 判断是否为Spring MVC的RequestMapping注解
-            if (isRequestMappingAnnotation(annotationName)) {
-                return getPathInRequestMappingAnnotation(classAnnotationMapEntry.getValue());
+            if (isRequestMappingAnnotation(classAnnotationMapEntry.getKey())) {
+                return classAnnotationMapEntry.getValue();
             }
         }
         return null;
     }
 
+    /**
+     * 获取方法对应的HTTP请求方法
+     * GetMapping等注解根据注解类名确定；RequestMapping注解使用方法上注解的method属性，未指定时使用类上注解的method属性
+     *
+     * @param annotationName    方法上的注解类名
+     * @param attributesMap     方法上的注解属性Map
+     * @param classAttributeMap 类上的RequestMapping注解属性Map，可为null
+     * @return 多个时使用半角逗号分隔，未指定时为空字符串
+     */
+    public static String getRequestMethod(String annotationName, Map<String, BaseAnnotationAttribute> attributesMap,
+                                          Map<String, BaseAnnotationAttribute> classAttributeMap) {
+        if (!CommonAnnotationConstants.SPRING_MVC_REQUEST_MAPPING.equals(annotationName)) {
+            String simpleClassName = JACGUtil.getSimpleClassNameFromFull(annotationName);
+            return StringUtils.removeEnd(simpleClassName, CommonAnnotationConstants.SPRING_MVC_MAPPING_ANNOTATION_SUFFIX).toUpperCase(Locale.ROOT);
+        }
+
+        String requestMethod = doGetRequestMethod(attributesMap);
+        if (requestMethod.isEmpty() && classAttributeMap != null) {
+            requestMethod = doGetRequestMethod(classAttributeMap);
+        }
+        return requestMethod;
+    }
+
+    private static String doGetRequestMethod(Map<String, BaseAnnotationAttribute> attributesMap) {
+        BaseAnnotationAttribute attribute = attributesMap.get(CommonAnnotationConstants.SPRING_MVC_REQUEST_METHOD_ATTRIBUTE_NAME);
+        if (!(attribute instanceof ListStringAnnotationAttribute)) {
+            return "";
+        }
+
+        List<String> requestMethodList = new ArrayList<>();
+        for (String value : ((ListStringAnnotationAttribute) attribute).getAttributeList()) {
+            // 枚举值可能包含枚举类名，只保留最后的名称
+            requestMethodList.add(StringUtils.substringAfterLast(JACGConstants.FLAG_DOT + value, JACGConstants.FLAG_DOT));
+        }
+        return StringUtils.join(requestMethodList, JACGConstants.FLAG_COMMA);
+    }
+
     /**
      * 从注解信息中获取Spring Mvc的path
      * 注解信息示例：  @org.springframework.web.bind.annotation.RequestMapping(/path1/path2.do)
@@ -5,6 +5,8 @@ import com.adrninistrator.jacg.common.enums.ConfigKeyEnum;
 import com.adrninistrator.jacg.common.enums.OutputDetailEnum;
 import com.adrninistrator.jacg.conf.ConfInfo;
 import com.adrninistrator.jacg.conf.ConfigureWrapper;
+import com.adrninistrator.jacg.dboper.DbObjectHolder;
+import com.adrninistrator.jacg.dboper.DbObjectRegistry;
 import com.adrninistrator.jacg.dboper.DbOperWrapper;
 import com.adrninistrator.jacg.dboper.DbOperator;
 import com.adrninistrator.jacg.dto.method.MethodInfoInFileName;
@@ -40,6 +42,12 @@ public abstract class BaseExtractor {
 
     protected DbOperWrapper dbOperWrapper;
 
+    // 数据库相关共享对象
+    protected DbObjectHolder dbObjectHolder;
+
+    // 在数据库相关共享对象中需要的连接数，释放时从数据源的最大连接数中减去
+    private int dbPoolSize;
+
     /**
      * 选择生成包含关键字的所有方法到起始方法之间的调用链方向
      *
@@ -94,12 +102,14 @@ public abstract class BaseExtractor {
      * @return
      */
     protected boolean genDbObject() {
-        dbOperator = DbOperator.genInstance(confInfo);
-        if (dbOperator == null) {
+        dbObjectHolder = DbObjectRegistry.acquire(confInfo, false);
+        if (dbObjectHolder == null) {
             return false;
         }
+        dbPoolSize = confInfo.getThreadNum();
 
-        dbOperWrapper = new DbOperWrapper(dbOperator, confInfo.getAppName());
+        dbOperator = dbObjectHolder.getDbOperator();
+        dbOperWrapper = dbObjectHolder.getDbOperWrapper();
         return true;
     }
 
@@ -107,7 +117,9 @@ public abstract class BaseExtractor {
      * 关闭数据源
      */
     protected void closeDs() {
-        dbOperator.closeDs();
+        dbOperator.printSqlStatistics();
+        DbObjectRegistry.release(dbObjectHolder, dbPoolSize);
+        dbObjectHolder = null;
     }
 
     // 返回当前查找关键字对应的结果目录
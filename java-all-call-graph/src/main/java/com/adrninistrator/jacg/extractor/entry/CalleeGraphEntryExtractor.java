@@ -4,14 +4,14 @@ import com.adrninistrator.jacg.common.JACGConstants;
 import com.adrninistrator.jacg.conf.ConfigureWrapper;
 import com.adrninistrator.jacg.extractor.dto.result.CalleeEntryMethodFile;
 import com.adrninistrator.jacg.extractor.dto.result.CalleeEntryMethodInfo;
+import com.adrninistrator.jacg.scanner.CallGraphLineScanner;
+import com.adrninistrator.jacg.scanner.CallGraphLineView;
 import com.adrninistrator.jacg.util.JACGCallGraphFileUtil;
-import com.adrninistrator.jacg.util.JACGFileUtil;
 import com.adrninistrator.jacg.util.JACGUtil;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -97,15 +97,20 @@ public class CalleeGraphEntryExtractor extends BaseExtractor {
         AtomicBoolean handleData = new AtomicBoolean(false);
 
         List<CalleeEntryMethodInfo> calleeEntryMethodInfoList = new ArrayList<>();
-        try (BufferedReader br = JACGFileUtil.genBufferedReader(filePath)) {
-            String line;
+        // 只有需要处理的行才转换为字符串
+        CallGraphLineScanner callGraphLineScanner = CallGraphLineScanner.genScanner(filePath);
+        if (callGraphLineScanner == null) {
+            return null;
+        }
+        try {
+            CallGraphLineView line;
             List<String> lineList = new ArrayList<>(2);
-            while ((line = br.readLine()) != null) {
+            while ((line = callGraphLineScanner.nextLine()) != null) {
                 lineNumber++;
 
-                if (JACGCallGraphFileUtil.isDataSeqLine(line)) {
+                if (line.isDataSeqLine()) {
                     // 读取到#时，说明开始处理一段数据
-                    dataSeq = JACGCallGraphFileUtil.getDataSeqFromLine(line, lineNumber);
+                    dataSeq = line.getDataSeq(lineNumber);
                     if (dataSeq == JACGConstants.DATA_SEQ_NONE) {
                         return null;
                     }
@@ -125,9 +130,9 @@ public class CalleeGraphEntryExtractor extends BaseExtractor {
                     continue;
                 }
 
-                if (JACGCallGraphFileUtil.isCallGraphLine(line)) {
+                if (line.isCallGraphLine()) {
                     // 当前行为调用链数据，进行处理
-                    lineList.add(line);
+                    lineList.add(line.toString());
 
                     if (lineList.size() == 2) {
                         // 处理一个入口方法信息
@@ -145,6 +150,8 @@ public class CalleeGraphEntryExtractor extends BaseExtractor {
         } catch (Exception e) {
             logger.error("error ", e);
             return null;
+        } finally {
+            callGraphLineScanner.close();
         }
     }
 
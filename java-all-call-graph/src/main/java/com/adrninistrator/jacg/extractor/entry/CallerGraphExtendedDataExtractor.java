@@ -7,14 +7,14 @@ import com.adrninistrator.jacg.extensions.dto.multi_impl.MultiImplMethodData;
 import com.adrninistrator.jacg.extensions.util.JsonUtil;
 import com.adrninistrator.jacg.extractor.dto.result.CallerExtendedDataFile;
 import com.adrninistrator.jacg.extractor.dto.result.CallerExtendedDataInfo;
+import com.adrninistrator.jacg.scanner.CallGraphLineScanner;
+import com.adrninistrator.jacg.scanner.CallGraphLineView;
 import com.adrninistrator.jacg.util.JACGCallGraphFileUtil;
-import com.adrninistrator.jacg.util.JACGFileUtil;
 import com.adrninistrator.jacg.util.JACGUtil;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
@@ -101,15 +101,20 @@ public class CallerGraphExtendedDataExtractor extends BaseExtractor {
         boolean handleData = false;
 
         List<CallerExtendedDataInfo> callerExtendedDataInfoList = new ArrayList<>();
-        try (BufferedReader br = JACGFileUtil.genBufferedReader(filePath)) {
-            String line;
-            String lastLine = null;
-            while ((line = br.readLine()) != null) {
+        // 只有包含自定义数据的行及其上一行才转换为字符串
+        CallGraphLineScanner callGraphLineScanner = CallGraphLineScanner.genScanner(filePath);
+        if (callGraphLineScanner == null) {
+            return null;
+        }
+        try {
+            CallGraphLineView line;
+            CallGraphLineView lastLine = null;
+            while ((line = callGraphLineScanner.nextLine()) != null) {
                 lineNumber++;
 
-                if (JACGCallGraphFileUtil.isDataSeqLine(line)) {
+                if (line.isDataSeqLine()) {
                     // 读取到#时，说明开始处理一段数据
-                    dataSeq = JACGCallGraphFileUtil.getDataSeqFromLine(line, lineNumber);
+                    dataSeq = line.getDataSeq(lineNumber);
                     if (dataSeq == JACGConstants.DATA_SEQ_NONE) {
                         return null;
                     }
@@ -127,7 +132,7 @@ public class CallerGraphExtendedDataExtractor extends BaseExtractor {
                     continue;
                 }
 
-                if (JACGCallGraphFileUtil.checkLineContainsExtendedData(line)) {
+                if (line.containsExtendedData()) {
                     // 当前行包含自定义数据，进行处理
                     if (!handleOneExtendedData(line, lastLine, dataSeq, lineNumber, callerExtendedDataInfoList)) {
                         logger.error("行号 {} 自定义数据格式非法 {}", lineNumber, line);
@@ -146,6 +151,8 @@ public class CallerGraphExtendedDataExtractor extends BaseExtractor {
         } catch (Exception e) {
             logger.error("error ", e);
             return null;
+        } finally {
+            callGraphLineScanner.close();
         }
     }
 
@@ -169,12 +176,13 @@ public class CallerGraphExtendedDataExtractor extends BaseExtractor {
     }
 
     // 处理一条自定义数据
-    private boolean handleOneExtendedData(String line,
-                                          String lastLine,
+    private boolean handleOneExtendedData(CallGraphLineView line,
+                                          CallGraphLineView lastLine,
                                           int dataSeq,
                                           int lineNumber,
                                           List<CallerExtendedDataInfo> callerExtendedDataInfoList) {
-        BaseExtendedData extendedData = JACGCallGraphFileUtil.getExtendedDataFromLine(line);
+        String extendedDataString = line.getExtendedDataString();
+        BaseExtendedData extendedData = extendedDataString == null ? null : JACGCallGraphFileUtil.getExtendedDataFromString(extendedDataString);
         if (extendedData == null) {
             logger.error("行号 {} {} 未获取到自定义数据", lineNumber, line);
             return false;
@@ -188,8 +196,9 @@ public class CallerGraphExtendedDataExtractor extends BaseExtractor {
         callerExtendedDataInfo.setDataValue(dataValue);
         callerExtendedDataInfo.setDataSeq(dataSeq);
         callerExtendedDataInfo.setLineNumber(lineNumber);
-        callerExtendedDataInfo.setLastLineContent(lastLine);
-        callerExtendedDataInfo.setLineContent(line);
+        String lastLineContent = lastLine == null ? null : lastLine.toString();
+        callerExtendedDataInfo.setLastLineContent(lastLineContent);
+        callerExtendedDataInfo.setLineContent(line.toString());
 
         if (JACGConstants.DATA_TYPE_JUMP_MULTI_IMPL.equals(dataType)) {
             // 处理存在多个实现类的接口或父类方法
@@ -199,7 +208,7 @@ public class CallerGraphExtendedDataExtractor extends BaseExtractor {
 
         // 不存在多个实现类的接口或父类方法
         // 根据向下的调用链文件行内容获取被调用方法
-        String lastLineFullMethod = JACGCallGraphFileUtil.getCalleeMethodFromCallerGraph(lastLine);
+        String lastLineFullMethod = JACGCallGraphFileUtil.getCalleeMethodFromCallerGraph(lastLineContent);
         if (lastLineFullMethod == null) {
             return false;
         }
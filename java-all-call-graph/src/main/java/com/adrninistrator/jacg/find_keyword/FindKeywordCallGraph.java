@@ -1,16 +1,21 @@
 package com.adrninistrator.jacg.find_keyword;
 
+import com.adrninistrator.jacg.archive.CallGraphArchiveReader;
 import com.adrninistrator.jacg.common.JACGConstants;
 import com.adrninistrator.jacg.common.enums.OtherConfigFileUseListEnum;
 import com.adrninistrator.jacg.conf.ConfInfo;
 import com.adrninistrator.jacg.conf.ConfigureWrapper;
 import com.adrninistrator.jacg.dboper.DbOperWrapper;
+import com.adrninistrator.jacg.dto.archive.ArchiveEntryInfo;
 import com.adrninistrator.jacg.dto.keyword.FileContentNode;
+import com.adrninistrator.jacg.dto.keyword_index.KeywordIndexCandidate;
 import com.adrninistrator.jacg.extensions.find_filter.BaseFindKeywordFilter;
+import com.adrninistrator.jacg.keyword_index.KeywordIndexReader;
 import com.adrninistrator.jacg.runner.RunnerGenAllGraph4Callee;
 import com.adrninistrator.jacg.runner.RunnerGenAllGraph4Caller;
 import com.adrninistrator.jacg.runner.base.AbstractRunnerGenCallGraph;
-import com.adrninistrator.jacg.util.JACGCallGraphFileUtil;
+import com.adrninistrator.jacg.scanner.CallGraphLineScanner;
+import com.adrninistrator.jacg.scanner.CallGraphLineView;
 import com.adrninistrator.jacg.util.JACGFileUtil;
 import com.adrninistrator.jacg.util.JACGUtil;
 import com.adrninistrator.jacg.writer.WriterSupportHeaderAndSkip;
@@ -18,13 +23,20 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * @author adrninistrator
@@ -46,14 +58,27 @@ public class FindKeywordCallGraph {
     // 处理目录时，需要返回生成文件路径列表
     private boolean returnResultFileListKey = false;
 
+    // 是否直接查找关键字，为true时生成调用链时只处理可能到达关键字的方法，不生成完整的调用链
+    private boolean directSearch = false;
+
     // 关键字搜索自定义过滤处理类
     private BaseFindKeywordFilter baseFindKeywordFilter;
 
     // 额外指定的关键字
     private final List<String> extraKeywordList = new ArrayList<>();
 
-    // 读取文件内容时，上一行的节点
-    private FileContentNode lastNode;
+    // 用于查找关键字的多关键字匹配对象，生成调用链前根据关键字列表构建
+    private KeywordMatcher keywordMatcher;
+
+    /*
+        通过关键字索引查询到的各调用链文件中可能包含关键字的行，不使用关键字索引时为null
+        key: 调用链文件相对于输出目录的路径，使用/作为分隔符
+        value: 可能包含关键字的行
+     */
+    private Map<String, KeywordIndexCandidate> keywordIndexCandidateMap;
+
+    // 处理多个调用链文件时的并行度，为1时顺序处理
+    private int parallelism = JACGConstants.FIND_KEYWORD_PARALLELISM;
 
     // 用于生成方法完整调用链的对象
     private AbstractRunnerGenCallGraph runnerGenCallGraph;
@@ -160,6 +185,13 @@ public class FindKeywordCallGraph {
             return null;
         }
 
+        // 将关键字列表构建为多关键字匹配对象，每行只需要遍历一次
+        keywordMatcher = KeywordMatcher.build(keywordList);
+        if (directSearch) {
+            // 直接查找关键字，生成调用链时只处理可能到达关键字的方法
+            runnerGenCallGraph.setDirectSearchKeywordMatcher(keywordMatcher);
+        }
+
         boolean success = runnerGenCallGraph.run(configureWrapper);
         String outputPath = runnerGenCallGraph.getSuccessOutputDir();
 
@@ -194,6 +226,30 @@ public class FindKeywordCallGraph {
         returnResultFileListKey = true;
     }
 
+    /**
+     * 设置直接查找关键字
+     * 根据完整方法、方法注解信息、自定义数据判断方法是否与关键字匹配，生成调用链时只处理起始方法到匹配方法之间路径上的方法，再从生成的调用链中查找关键字
+     * 生成的结果文件格式与生成完整调用链时相同，结果文件中的行号为调用链文件中的行号，与生成完整调用链时的行号不同
+     * 关键字只出现在调用链行的其他内容中时（如方法级别、调用者源代码行号、入口方法标志等），无法查找到
+     */
+    public void setDirectSearch() {
+        directSearch = true;
+    }
+
+    /**
+     * 设置处理多个调用链文件时的并行度，大于1时使用ForkJoinPool并行处理，默认值通过JVM参数指定
+     * 并行处理时，指定的关键字搜索自定义过滤处理类需要支持在多个线程中同时使用
+     *
+     * @param parallelism
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            logger.error("并行度参数非法 {}", parallelism);
+            return;
+        }
+        this.parallelism = parallelism;
+    }
+
     private String genHeaderInfo(String filePath, List<String> keywordList, boolean order4ee) {
         StringBuilder stringBuilder = new StringBuilder();
         stringBuilder.append("- 处理文件: ").append(filePath).append(JACGConstants.NEW_LINE);
@@ -218,14 +274,25 @@ public class FindKeywordCallGraph {
         // 目录路径后增加分隔符
         String finalSrcDirPath = JACGUtil.addSeparator4FilePath(srcDirPath);
 
+        // 存在关键字索引文件时，查询可能包含关键字的行
+        keywordIndexCandidateMap = queryKeywordIndexCandidates(srcDirPath, keywordList);
+
+        if (CallGraphArchiveReader.isArchiveDir(srcDirPath)) {
+            // 目录中存在调用链归档文件，从归档文件中读取
+            if (!handleArchive(srcDirPath, finalSrcDirPath, keywordList, order4ee)) {
+                return null;
+            }
+            return genResultFileList(order4ee);
+        }
+
         Set<String> subDirPathSet = new HashSet<>();
         List<String> subFilePathList = new ArrayList<>();
 
-        // 从目录中查找需要处理的文件
-        JACGFileUtil.searchDir(finalSrcDirPath, subDirPathSet, subFilePathList, JACGConstants.EXT_TXT);
+        // 从目录中查找需要处理的文件，支持使用gzip压缩的文件
+        JACGFileUtil.searchDir(finalSrcDirPath, subDirPathSet, subFilePathList, JACGConstants.EXT_TXT, JACGConstants.EXT_TXT_GZ);
 
         if (subFilePathList.isEmpty()) {
-            logger.error("{} 目录中未找到后缀为[{}]的文件", finalSrcDirPath, JACGConstants.EXT_TXT);
+            logger.error("{} 目录中未找到后缀为[{}]或[{}]的文件", finalSrcDirPath, JACGConstants.EXT_TXT, JACGConstants.EXT_TXT_GZ);
             return null;
         }
 
@@ -255,6 +322,7 @@ public class FindKeywordCallGraph {
             }
         }
 
+        List<Callable<Boolean>> taskList = new ArrayList<>(subFilePathList.size());
         for (String subFilePath : subFilePathList) {
             String subFileName = JACGUtil.getFileNameFromPath(subFilePath);
             // 跳过合并文件，跳过映射文件
@@ -262,10 +330,225 @@ public class FindKeywordCallGraph {
                 continue;
             }
 
-            logger.info("处理文件: {}", subFilePath);
-            handleOneFile(finalSrcDirPathLength, keyWordsNotFoundDirPath, subFilePath, keywordList, order4ee);
+            taskList.add(() -> {
+                logger.info("处理文件: {}", subFilePath);
+                return handleOneFile(finalSrcDirPathLength, keyWordsNotFoundDirPath, subFilePath, keywordList, order4ee);
+            });
+        }
+
+        // 执行处理各个文件的任务
+        if (!runTasks(taskList)) {
+            return null;
+        }
+
+        return genResultFileList(order4ee);
+    }
+
+    /**
+     * 查询关键字索引，获取各调用链文件中可能包含关键字的行
+     * 关键字索引中的词为调用链信息的行去掉方法级别及缩进后，使用TAB分隔的每一列，有关键字不支持通过索引查找时，需要完整读取调用链文件
+     *
+     * @param srcDirPath  调用链文件所在目录
+     * @param keywordList 关键字列表
+     * @return null: 不使用关键字索引
+     */
+    private Map<String, KeywordIndexCandidate> queryKeywordIndexCandidates(String srcDirPath, List<String> keywordList) {
+        if (!KeywordIndexReader.isKeywordIndexExists(srcDirPath)) {
+            logger.info("目录中不存在关键字索引文件，完整读取调用链文件查找关键字 {}", srcDirPath);
+            return null;
+        }
+
+        for (String keyword : keywordList) {
+            if (!KeywordIndexReader.isKeywordSupported(keyword)) {
+                logger.info("关键字不支持通过索引查找，完整读取调用链文件查找关键字 [{}]", keyword);
+                return null;
+            }
+        }
+
+        long startTime = System.currentTimeMillis();
+        KeywordIndexReader keywordIndexReader = KeywordIndexReader.genKeywordIndexReader(srcDirPath);
+        if (keywordIndexReader == null) {
+            return null;
+        }
+
+        Map<String, KeywordIndexCandidate> candidateMap = keywordIndexReader.queryCandidates(keywordMatcher);
+        if (candidateMap == null) {
+            return null;
+        }
+
+        int candidateFileNum = 0;
+        long candidateLineNum = 0L;
+        for (KeywordIndexCandidate keywordIndexCandidate : candidateMap.values()) {
+            if (!keywordIndexCandidate.isEmpty()) {
+                candidateFileNum++;
+                candidateLineNum += keywordIndexCandidate.getLineNums().length;
+            }
+        }
+        logger.info("通过关键字索引查找关键字，索引中的文件数量 {} 可能包含关键字的文件数量 {} 行数量 {} 耗时 {} S", candidateMap.size(), candidateFileNum, candidateLineNum,
+                (System.currentTimeMillis() - startTime) / 1000.0D);
+        return candidateMap;
+    }
+
+    // 获取调用链文件对应的关键字索引查询结果，返回null时需要完整读取调用链文件
+    private KeywordIndexCandidate getKeywordIndexCandidate(String entryName) {
+        if (keywordIndexCandidateMap == null) {
+            return null;
+        }
+        return keywordIndexCandidateMap.get(entryName);
+    }
+
+    /**
+     * 执行处理各个调用链文件的任务，每个任务生成独立的.md文件，生成的文件与执行顺序无关
+     * 并行度大于1时使用ForkJoinPool并行处理，否则顺序处理
+     * 某个任务处理失败时，其他任务仍会继续处理
+     *
+     * @param taskList
+     * @return true: 全部任务处理成功 false: 存在处理失败的任务
+     */
+    private boolean runTasks(List<Callable<Boolean>> taskList) {
+        long startTime = System.currentTimeMillis();
+        int usedParallelism = Math.min(parallelism, taskList.size());
+        int failNum = 0;
+        if (usedParallelism <= 1) {
+            for (Callable<Boolean> task : taskList) {
+                try {
+                    if (!Boolean.TRUE.equals(task.call())) {
+                        failNum++;
+                    }
+                } catch (Exception e) {
+                    logger.error("error ", e);
+                    failNum++;
+                }
+            }
+        } else {
+            ForkJoinPool forkJoinPool = new ForkJoinPool(usedParallelism);
+            try {
+                for (Future<Boolean> future : forkJoinPool.invokeAll(taskList)) {
+                    try {
+                        if (!Boolean.TRUE.equals(future.get())) {
+                            failNum++;
+                        }
+                    } catch (CancellationException e) {
+                        logger.error("处理文件的任务被取消");
+                        failNum++;
+                    } catch (ExecutionException e) {
+                        logger.error("处理文件的任务出现异常 ", e.getCause());
+                        failNum++;
+                    }
+                }
+            } catch (InterruptedException e) {
+                logger.error("等待处理文件的任务完成时被中断 ", e);
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                forkJoinPool.shutdown();
+            }
+        }
+        logger.info("处理文件完毕，文件数量 {} 失败数量 {} 并行度 {} 耗时 {} S", taskList.size(), failNum, Math.max(usedParallelism, 1),
+                (System.currentTimeMillis() - startTime) / 1000.0D);
+        if (failNum > 0) {
+            logger.error("存在处理失败的文件，数量 {}", failNum);
+            return false;
+        }
+        return true;
+    }
+
+    // 处理调用链归档文件
+    private boolean handleArchive(String srcDirPath, String finalSrcDirPath, List<String> keywordList, boolean order4ee) {
+        // 记录当前处理的目录
+        currentDirPath = finalSrcDirPath + JACGConstants.DIR_OUTPUT_FIND_KEYWORD;
+        if (!JACGFileUtil.isDirectoryExists(currentDirPath)) {
+            return false;
+        }
+
+        // 未搜索到关键字的文件保存目录
+        String keyWordsNotFoundDirPath = currentDirPath + File.separator + JACGConstants.KEYWORDS_NOT_FOUND_DIR;
+
+        CallGraphArchiveReader callGraphArchiveReader = CallGraphArchiveReader.genCallGraphArchiveReader(srcDirPath);
+        if (callGraphArchiveReader == null) {
+            return false;
+        }
+
+        try {
+            String archiveFilePath = finalSrcDirPath + JACGConstants.FILE_ARCHIVE_DATA;
+            Set<String> handledDirNameSet = new HashSet<>();
+            List<Callable<Boolean>> taskList = new ArrayList<>();
+            for (String entryName : callGraphArchiveReader.getEntryNameList()) {
+                // 条目名称为调用链文件相对于输出目录的路径，使用/作为分隔符
+                String txtFileName = entryName.replace('/', File.separatorChar);
+                int lastSeparatorIndex = txtFileName.lastIndexOf(File.separatorChar);
+                if (lastSeparatorIndex != -1) {
+                    // 创建md文件需要保存的目录
+                    String subDirName = txtFileName.substring(0, lastSeparatorIndex);
+                    if (handledDirNameSet.add(subDirName) && !JACGFileUtil.isDirectoryExists(currentDirPath + File.separator + subDirName)) {
+                        return false;
+                    }
+                }
+
+                // 归档文件支持多个线程同时读取
+                taskList.add(() -> {
+                    logger.info("处理归档文件条目: {}", entryName);
+                    CallGraphLineScanner callGraphLineScanner = null;
+                    try {
+                        KeywordIndexCandidate keywordIndexCandidate = getKeywordIndexCandidate(entryName);
+                        if (keywordIndexCandidate == null || !keywordIndexCandidate.isEmpty()) {
+                            // 条目中可能包含关键字时才需要读取
+                            callGraphLineScanner = genEntryScanner(callGraphArchiveReader, entryName);
+                            if (callGraphLineScanner == null) {
+                                logger.error("处理归档文件条目失败 {}", entryName);
+                                return false;
+                            }
+                        }
+                        if (!doHandleOneFile(txtFileName, archiveFilePath + JACGConstants.FLAG_COLON + entryName, callGraphLineScanner, keywordIndexCandidate,
+                                keyWordsNotFoundDirPath, keywordList, order4ee)) {
+                            logger.error("处理归档文件条目失败 {}", entryName);
+                            return false;
+                        }
+                        return true;
+                    } catch (Exception e) {
+                        logger.error("error {} ", entryName, e);
+                        return false;
+                    } finally {
+                        if (callGraphLineScanner != null) {
+                            callGraphLineScanner.close();
+                        }
+                    }
+                });
+            }
+
+            // 执行处理各个条目的任务
+            return runTasks(taskList);
+        } finally {
+            callGraphArchiveReader.close();
         }
+    }
+
+    /**
+     * 创建读取归档文件条目的对象，条目较小时一次性读取全部内容，否则从输入流逐行读取，避免条目过大时占用过多内存或超过数组长度上限
+     *
+     * @param callGraphArchiveReader
+     * @param entryName
+     * @return null: 创建失败
+     * @throws IOException
+     */
+    private CallGraphLineScanner genEntryScanner(CallGraphArchiveReader callGraphArchiveReader, String entryName) throws IOException {
+        ArchiveEntryInfo archiveEntryInfo = callGraphArchiveReader.getEntryInfo(entryName);
+        if (archiveEntryInfo == null) {
+            logger.error("归档文件中不存在指定条目 {}", entryName);
+            return null;
+        }
+
+        if (archiveEntryInfo.getTotalLength() <= CallGraphLineScanner.READ_ALL_MAX_SIZE) {
+            byte[] entryBytes = callGraphArchiveReader.readEntryBytes(entryName);
+            return entryBytes == null ? null : CallGraphLineScanner.genScanner(entryBytes);
+        }
+
+        InputStream inputStream = callGraphArchiveReader.genEntryInputStream(entryName);
+        return inputStream == null ? null : CallGraphLineScanner.genScanner(inputStream);
+    }
 
+    // 返回生成的结果文件路径列表
+    private List<String> genResultFileList(boolean order4ee) {
         if (!returnResultFileListKey) {
             // 不需要返回生成文件路径列表
             return null;
@@ -301,43 +584,64 @@ public class FindKeywordCallGraph {
     private boolean handleOneFile(int srcDirPathLength, String keyWordsNotFoundDirPath, String txtFilePath, List<String> keywordList, boolean order4ee) {
         // 获取txt文件去掉所在目录之后的文件名，可能包含中间的目录名
         String txtFileName = txtFilePath.substring(srcDirPathLength);
+        if (JACGFileUtil.isGzipFile(txtFileName)) {
+            // 使用gzip压缩的文件，先去掉.gz后缀
+            txtFileName = txtFileName.substring(0, txtFileName.length() - JACGConstants.EXT_GZ.length());
+        }
+
+        KeywordIndexCandidate keywordIndexCandidate = getKeywordIndexCandidate(txtFilePath.substring(srcDirPathLength).replace(File.separatorChar, '/'));
+        if (keywordIndexCandidate != null && keywordIndexCandidate.isEmpty()) {
+            // 文件中不包含关键字，不需要读取
+            return doHandleOneFile(txtFileName, txtFilePath, null, keywordIndexCandidate, keyWordsNotFoundDirPath, keywordList, order4ee);
+        }
+
+        // 根据文件大小及是否压缩选择读取方式，见CallGraphLineScanner.genScanner()
+        CallGraphLineScanner callGraphLineScanner = CallGraphLineScanner.genScanner(txtFilePath);
+        if (callGraphLineScanner == null) {
+            return false;
+        }
+        try {
+            return doHandleOneFile(txtFileName, txtFilePath, callGraphLineScanner, keywordIndexCandidate, keyWordsNotFoundDirPath, keywordList, order4ee);
+        } finally {
+            callGraphLineScanner.close();
+        }
+    }
+
+    /**
+     * 处理一个调用链文件的内容
+     *
+     * @param txtFileName             调用链文件去掉所在目录之后的文件名，可能包含中间的目录名
+     * @param txtFilePath             调用链文件路径，用于生成文件头
+     * @param callGraphLineScanner    调用链文件内容，关键字索引查询结果为空时为null
+     * @param keywordIndexCandidate   关键字索引查询结果，为null时完整读取调用链文件
+     * @param keyWordsNotFoundDirPath 未搜索到关键字的文件保存目录
+     * @param keywordList             关键字列表
+     * @param order4ee                true: 处理向上的方法调用链 false: 处理向下的方法调用链
+     * @return
+     */
+    private boolean doHandleOneFile(String txtFileName, String txtFilePath, CallGraphLineScanner callGraphLineScanner, KeywordIndexCandidate keywordIndexCandidate,
+                                    String keyWordsNotFoundDirPath, List<String> keywordList, boolean order4ee) {
         String txtFileNameWithOutExt = JACGUtil.getFileNameWithOutExt(txtFileName);
         String mdFilePath = currentDirPath + File.separator + txtFileNameWithOutExt + JACGConstants.EXT_MD;
 
         // 生成文件头
         String headerInfo = genHeaderInfo(txtFilePath, keywordList, order4ee);
-        try (BufferedReader br = JACGFileUtil.genBufferedReader(txtFilePath);
-             WriterSupportHeaderAndSkip out = WriterSupportHeaderAndSkip.genWriterSupportHeaderAndSkip(mdFilePath, headerInfo)) {
-            String line;
-            lastNode = null;
-            StringBuilder foundCallGraph = new StringBuilder();
-            // 文件行号
-            int lineNum = 0;
-            // 数据序号
-            int dataSeq = 0;
-            // 记录每个方法级别最后处理的文件内容节点
-            List<FileContentNode> fileContentNodeList = new ArrayList<>(20);
-
-            while ((line = br.readLine()) != null) {
-                lineNum++;
-                // 处理txt文件的一行
-                if (!handleTxtFileOneLine(line, keywordList, order4ee, foundCallGraph, fileContentNodeList)) {
-                    return false;
-                }
-
-                if (foundCallGraph.length() > 0) {
-                    // 写入查找到的调用链
-                    dataSeq++;
-                    String writeData = JACGConstants.NEW_LINE + JACGConstants.NEW_LINE + JACGConstants.FLAG_HASHTAG + JACGConstants.FLAG_SPACE + dataSeq + JACGConstants.FLAG_DOT +
-                            JACGConstants.FLAG_MD_LINE_NUMBER + lineNum + JACGConstants.NEW_LINE +
-                            JACGConstants.FLAG_MD_CODE + JACGConstants.NEW_LINE;
-
-                    out.write(writeData);
-                    out.write(foundCallGraph.toString());
-                    out.write(JACGConstants.FLAG_MD_CODE);
+        try (WriterSupportHeaderAndSkip out = WriterSupportHeaderAndSkip.genWriterSupportHeaderAndSkip(mdFilePath, headerInfo)) {
+            // 当前文件的查找状态，每个文件使用独立的对象
+            OneFileSearchState searchState = new OneFileSearchState(keywordMatcher.getKeywordNum());
+
+            if (keywordIndexCandidate != null && callGraphLineScanner != null && callGraphLineScanner.getLimit() != CallGraphLineScanner.LIMIT_UNKNOWN &&
+                    keywordIndexCandidate.getContentLength() != callGraphLineScanner.getLimit()) {
+                // 调用链文件在生成关键字索引后被修改（从输入流逐行读取时内容长度未知，不检查）
+                logger.warn("调用链文件长度与关键字索引中记录的不同，完整读取调用链文件 {}", txtFilePath);
+                keywordIndexCandidate = null;
+            }
 
-                    foundCallGraph.setLength(0);
-                }
+            boolean success = keywordIndexCandidate == null ?
+                    searchAllLines(callGraphLineScanner, out, order4ee, searchState) :
+                    searchCandidateLines(callGraphLineScanner, keywordIndexCandidate, out, order4ee, searchState);
+            if (!success) {
+                return false;
             }
 
             if (out.isFirstTime()) {
@@ -352,23 +656,118 @@ public class FindKeywordCallGraph {
         }
     }
 
-    // 处理txt文件的一行
-    private boolean handleTxtFileOneLine(String line, List<String> keywordList, boolean order4ee, StringBuilder foundCallGraph, List<FileContentNode> fileContentNodeList) {
-        if (!JACGCallGraphFileUtil.isCallGraphLine(line)) {
+    // 读取调用链文件的全部行查找关键字
+    private boolean searchAllLines(CallGraphLineScanner callGraphLineScanner, WriterSupportHeaderAndSkip out, boolean order4ee, OneFileSearchState searchState)
+            throws IOException {
+        CallGraphLineView line;
+        // 文件行号
+        int lineNum = 0;
+        while ((line = callGraphLineScanner.nextLine()) != null) {
+            lineNum++;
+            // 处理txt文件的一行
+            if (!handleTxtFileOneLine(line, order4ee, searchState, true)) {
+                return false;
+            }
+            writeFoundCallGraph(out, lineNum, searchState);
+        }
+        return true;
+    }
+
+    /**
+     * 根据关键字索引查询结果，只读取可能包含关键字的行所在的片段查找关键字
+     * 片段从不属于调用链信息的行之后的第一行调用链信息开始，读取片段时的查找状态与完整读取文件时相同，只需要从片段开始读取到最后一个可能包含关键字的行
+     *
+     * @param callGraphLineScanner
+     * @param keywordIndexCandidate
+     * @param out
+     * @param order4ee
+     * @param searchState
+     * @return
+     * @throws IOException
+     */
+    private boolean searchCandidateLines(CallGraphLineScanner callGraphLineScanner, KeywordIndexCandidate keywordIndexCandidate, WriterSupportHeaderAndSkip out,
+                                         boolean order4ee, OneFileSearchState searchState) throws IOException {
+        int[] candidateLineNums = keywordIndexCandidate.getLineNums();
+        int[] regionStartLineNums = keywordIndexCandidate.getRegionStartLineNums();
+        int[] regionStartOffsets = keywordIndexCandidate.getRegionStartOffsets();
+        // 当前所在片段的下标
+        int regionIndex = -1;
+        // 已读取的文件行号
+        int lineNum = 0;
+        for (int candidateLineNum : candidateLineNums) {
+            // 查找可能包含关键字的行所在的片段
+            while (regionIndex + 1 < regionStartLineNums.length && regionStartLineNums[regionIndex + 1] <= candidateLineNum) {
+                regionIndex++;
+            }
+            if (regionIndex >= 0 && lineNum < regionStartLineNums[regionIndex] - 1) {
+                // 跳到片段开始的位置，片段之前的行不属于调用链信息，将查找状态清空
+                callGraphLineScanner.setPosition(regionStartOffsets[regionIndex]);
+                lineNum = regionStartLineNums[regionIndex] - 1;
+                searchState.lastNode = null;
+                searchState.fileContentNodeList.clear();
+            }
+
+            while (lineNum < candidateLineNum) {
+                CallGraphLineView line = callGraphLineScanner.nextLine();
+                if (line == null) {
+                    return true;
+                }
+                lineNum++;
+                // 只对可能包含关键字的行查找关键字
+                if (!handleTxtFileOneLine(line, order4ee, searchState, lineNum == candidateLineNum)) {
+                    return false;
+                }
+            }
+            writeFoundCallGraph(out, lineNum, searchState);
+        }
+        return true;
+    }
+
+    // 写入查找到的调用链
+    private void writeFoundCallGraph(WriterSupportHeaderAndSkip out, int lineNum, OneFileSearchState searchState) throws IOException {
+        StringBuilder foundCallGraph = searchState.foundCallGraph;
+        if (foundCallGraph.length() == 0) {
+            return;
+        }
+
+        searchState.dataSeq++;
+        String writeData = JACGConstants.NEW_LINE + JACGConstants.NEW_LINE + JACGConstants.FLAG_HASHTAG + JACGConstants.FLAG_SPACE + searchState.dataSeq +
+                JACGConstants.FLAG_DOT + JACGConstants.FLAG_MD_LINE_NUMBER + lineNum + JACGConstants.NEW_LINE +
+                JACGConstants.FLAG_MD_CODE + JACGConstants.NEW_LINE;
+
+        out.write(writeData);
+        out.write(foundCallGraph.toString());
+        out.write(JACGConstants.FLAG_MD_CODE);
+
+        foundCallGraph.setLength(0);
+    }
+
+    /**
+     * 处理txt文件的一行
+     *
+     * @param line
+     * @param order4ee
+     * @param searchState
+     * @param checkKeyword 是否需要在当前行查找关键字
+     * @return
+     */
+    private boolean handleTxtFileOneLine(CallGraphLineView line, boolean order4ee, OneFileSearchState searchState, boolean checkKeyword) {
+        if (!line.isCallGraphLine()) {
             // 不属于调用链信息的行，不处理
             // 对于向上的方法调用链，类对应的文件中包含多个方法的信息，需要将上次处理的数据清空
-            lastNode = null;
-            fileContentNodeList.clear();
+            searchState.lastNode = null;
+            searchState.fileContentNodeList.clear();
             return true;
         }
 
         // 处理调用链信息的行
         // 获取方法级别
-        int methodLevel = JACGCallGraphFileUtil.getCallGraphMethodLevel(line);
+        int methodLevel = line.getMethodLevel();
         if (methodLevel == JACGConstants.CALL_GRAPH_METHOD_LEVEL_ILLEGAL) {
             return false;
         }
 
+        FileContentNode lastNode = searchState.lastNode;
         if (lastNode == null) {
             // 还未处理过文件内容节点
             if (methodLevel != JACGConstants.CALL_GRAPH_METHOD_LEVEL_START) {
@@ -377,13 +776,15 @@ public class FindKeywordCallGraph {
             }
 
             // 根文件内容节点
-            lastNode = new FileContentNode(null, JACGConstants.CALL_GRAPH_METHOD_LEVEL_START, line);
+            searchState.lastNode = new FileContentNode(null, JACGConstants.CALL_GRAPH_METHOD_LEVEL_START, line);
 
             // 记录每个方法级别最后处理的文件内容节点
-            recordFileContentNodeInList(methodLevel, fileContentNodeList);
+            recordFileContentNodeInList(methodLevel, searchState);
 
-            // 生成当前节点到根节点的调用链
-            genCallGraph(line, keywordList, foundCallGraph, order4ee);
+            if (checkKeyword) {
+                // 生成当前节点到根节点的调用链
+                genCallGraph(line, order4ee, searchState);
+            }
             return true;
         }
 
@@ -402,45 +803,57 @@ public class FindKeywordCallGraph {
             parentNode = lastNode;
         } else {
             // 上一行大于当前行方法级别，父节点为上一方法级别最后处理的文件内容节点
-            parentNode = fileContentNodeList.get(methodLevel - 1);
+            parentNode = searchState.fileContentNodeList.get(methodLevel - 1);
         }
 
         // 记录当前的文件内容节点
-        lastNode = new FileContentNode(parentNode, methodLevel, line);
+        searchState.lastNode = new FileContentNode(parentNode, methodLevel, line);
 
         // 记录每个方法级别最后处理的文件内容节点
-        recordFileContentNodeInList(methodLevel, fileContentNodeList);
+        recordFileContentNodeInList(methodLevel, searchState);
 
-        // 生成当前节点到根节点的调用链
-        genCallGraph(line, keywordList, foundCallGraph, order4ee);
+        if (checkKeyword) {
+            // 生成当前节点到根节点的调用链
+            genCallGraph(line, order4ee, searchState);
+        }
         return true;
     }
 
     // 记录每个方法级别最后处理的文件内容节点
-    private void recordFileContentNodeInList(int methodLevel, List<FileContentNode> fileContentNodeList) {
+    private void recordFileContentNodeInList(int methodLevel, OneFileSearchState searchState) {
+        List<FileContentNode> fileContentNodeList = searchState.fileContentNodeList;
         if (fileContentNodeList.size() < methodLevel + 1) {
             // List中指定位置数据不存在则增加
-            fileContentNodeList.add(lastNode);
+            fileContentNodeList.add(searchState.lastNode);
             return;
         }
 
         // List中指定位置数据已存在则设置
-        fileContentNodeList.set(methodLevel, lastNode);
+        fileContentNodeList.set(methodLevel, searchState.lastNode);
     }
 
     // 生成当前节点到根节点的调用链
-    private void genCallGraph(String line, List<String> keywordList, StringBuilder foundCallGraph, boolean order4ee) {
-        // 查找关键字
+    private void genCallGraph(CallGraphLineView line, boolean order4ee, OneFileSearchState searchState) {
+        // 查找关键字，直接对文件中的字节进行匹配
         boolean containsKeyword = false;
 
-        for (String keyword : keywordList) {
-            /*
-                使用配置文件中的关键字进行判断
-                再判断是否有指定关键字搜索自定义过滤处理类，若有指定则调用
-             */
-            if (line.contains(keyword) &&
-                    (baseFindKeywordFilter == null || baseFindKeywordFilter.filter(keyword, line))) {
-                containsKeyword = true;
+        if (baseFindKeywordFilter == null) {
+            // 未指定关键字搜索自定义过滤处理类，只需要判断是否包含任意一个关键字
+            containsKeyword = keywordMatcher.containsAny(line.getBuffer(), line.getStart(), line.getEnd());
+        } else {
+            // 使用配置文件中的关键字进行判断，一次遍历获得当前行包含的全部关键字
+            boolean[] matchedFlags = searchState.matchedFlags;
+            if (keywordMatcher.match(line.getBuffer(), line.getStart(), line.getEnd(), matchedFlags) > 0) {
+                for (int i = 0; i < matchedFlags.length; i++) {
+                    if (!matchedFlags[i]) {
+                        continue;
+                    }
+                    matchedFlags[i] = false;
+                    // 对于当前行包含的关键字，调用指定的关键字搜索自定义过滤处理类
+                    if (baseFindKeywordFilter.filter(keywordMatcher.getKeyword(i), line.toString())) {
+                        containsKeyword = true;
+                    }
+                }
             }
         }
 
@@ -451,7 +864,7 @@ public class FindKeywordCallGraph {
         // 当前行存在关键字，生成到根节点的调用链
         List<String> lineList = new ArrayList<>(20);
 
-        FileContentNode tmpNode = lastNode;
+        FileContentNode tmpNode = searchState.lastNode;
         while (true) {
             lineList.add(tmpNode.getFileLineContent());
 
@@ -462,6 +875,7 @@ public class FindKeywordCallGraph {
             tmpNode = tmpNode.getParentNode();
         }
 
+        StringBuilder foundCallGraph = searchState.foundCallGraph;
         if (!order4ee) {
             // 向下的调用链，逆序
             for (int i = lineList.size() - 1; i >= 0; i--) {
@@ -484,4 +898,26 @@ public class FindKeywordCallGraph {
         checkInited();
         return runnerGenCallGraph.getConfInfo();
     }
+
+    // 处理一个调用链文件时的查找状态，每个文件使用独立的对象，以支持多个文件并行处理
+    private static class OneFileSearchState {
+        // 读取文件内容时，上一行的节点
+        private FileContentNode lastNode;
+
+        // 记录每个方法级别最后处理的文件内容节点
+        private final List<FileContentNode> fileContentNodeList = new ArrayList<>(20);
+
+        // 当前行对应的查找到的调用链
+        private final StringBuilder foundCallGraph = new StringBuilder();
+
+        // 当前行包含的关键字标志，下标为关键字序号
+        private final boolean[] matchedFlags;
+
+        // 已写入的查找到的调用链数据序号
+        private int dataSeq = 0;
+
+        OneFileSearchState(int keywordNum) {
+            matchedFlags = new boolean[keywordNum];
+        }
+    }
 }
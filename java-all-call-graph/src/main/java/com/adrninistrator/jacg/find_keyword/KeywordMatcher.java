@@ -0,0 +1,262 @@
+package com.adrninistrator.jacg.find_keyword;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/19
+ * @description: 多关键字匹配，使用Aho-Corasick自动机，遍历一次字符串即可获得其中包含的全部关键字
+ * 自动机基于UTF-8字节构建，可直接对文件中未转换为字符串的字节进行匹配，结果与对字符串使用contains()判断相同
+ * 构建完成后不再修改，可在多个线程中同时使用
+ */
+public class KeywordMatcher {
+    // ASCII字节使用完整的状态转移表，其他字节使用子节点Map及失败指针进行状态转移
+    private static final int ASCII_SIZE = 128;
+
+    private static final int[] EMPTY_OUTPUT = new int[0];
+
+    // 关键字列表
+    private final String[] keywords;
+
+    // ASCII字节的状态转移表，下标为：节点序号 * ASCII_SIZE + 字节
+    private final int[] asciiNext;
+
+    // 各节点中非ASCII字节对应的子节点，下标为节点序号，不存在时为null
+    private final List<Map<Integer, Integer>> nonAsciiChildren;
+
+    // 各节点的失败指针
+    private final int[] fail;
+
+    // 各节点对应的匹配到的关键字序号，包含通过失败指针关联的节点对应的关键字
+    private final int[][] outputs;
+
+    private KeywordMatcher(String[] keywords, List<Map<Integer, Integer>> childrenList, List<int[]> ownOutputList) {
+        this.keywords = keywords;
+        int nodeNum = childrenList.size();
+        asciiNext = new int[nodeNum * ASCII_SIZE];
+        nonAsciiChildren = new ArrayList<>(nodeNum);
+        fail = new int[nodeNum];
+        outputs = new int[nodeNum][];
+
+        for (int node = 0; node < nodeNum; node++) {
+            Map<Integer, Integer> nonAsciiChildMap = null;
+            for (Map.Entry<Integer, Integer> entry : childrenList.get(node).entrySet()) {
+                int c = entry.getKey();
+                if (c >= ASCII_SIZE) {
+                    if (nonAsciiChildMap == null) {
+                        nonAsciiChildMap = new HashMap<>();
+                    }
+                    nonAsciiChildMap.put(c, entry.getValue());
+                }
+            }
+            nonAsciiChildren.add(nonAsciiChildMap);
+        }
+
+        // 按广度优先顺序生成失败指针及状态转移表，处理每个节点时，其失败指针指向的节点已处理完毕
+        outputs[0] = ownOutputList.get(0);
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ASCII_SIZE; c++) {
+            Integer child = childrenList.get(0).get(c);
+            if (child != null) {
+                asciiNext[c] = child;
+            }
+        }
+        for (Integer child : childrenList.get(0).values()) {
+            fail[child] = 0;
+            queue.add(child);
+        }
+
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            int failNode = fail[node];
+            outputs[node] = mergeOutput(ownOutputList.get(node), outputs[failNode]);
+
+            Map<Integer, Integer> children = childrenList.get(node);
+            for (int c = 0; c < ASCII_SIZE; c++) {
+                Integer child = children.get(c);
+                asciiNext[node * ASCII_SIZE + c] = child != null ? child : asciiNext[failNode * ASCII_SIZE + c];
+            }
+
+            for (Map.Entry<Integer, Integer> entry : children.entrySet()) {
+                int c = entry.getKey();
+                int child = entry.getValue();
+                fail[child] = c < ASCII_SIZE ? asciiNext[failNode * ASCII_SIZE + c] : nextNonAscii(failNode, c);
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * 根据关键字列表构建多关键字匹配对象
+     *
+     * @param keywordList 关键字列表，匹配结果中的关键字序号与列表中的下标对应
+     * @return
+     */
+    public static KeywordMatcher build(List<String> keywordList) {
+        String[] keywords = keywordList.toArray(new String[0]);
+        // 各节点的子节点
+        List<Map<Integer, Integer>> childrenList = new ArrayList<>();
+        // 各节点自身对应的关键字序号
+        List<int[]> ownOutputList = new ArrayList<>();
+        childrenList.add(new HashMap<>());
+        ownOutputList.add(EMPTY_OUTPUT);
+
+        for (int i = 0; i < keywords.length; i++) {
+            byte[] keywordBytes = keywords[i].getBytes(StandardCharsets.UTF_8);
+            int node = 0;
+            for (byte b : keywordBytes) {
+                int c = b & 0xFF;
+                Integer child = childrenList.get(node).get(c);
+                if (child == null) {
+                    child = childrenList.size();
+                    childrenList.add(new HashMap<>());
+                    ownOutputList.add(EMPTY_OUTPUT);
+                    childrenList.get(node).put(c, child);
+                }
+                node = child;
+            }
+            ownOutputList.set(node, mergeOutput(ownOutputList.get(node), new int[]{i}));
+        }
+
+        return new KeywordMatcher(keywords, childrenList, ownOutputList);
+    }
+
+    private static int[] mergeOutput(int[] output1, int[] output2) {
+        if (output2.length == 0) {
+            return output1;
+        }
+        if (output1.length == 0) {
+            return output2;
+        }
+        int[] merged = Arrays.copyOf(output1, output1.length + output2.length);
+        System.arraycopy(output2, 0, merged, output1.length, output2.length);
+        return merged;
+    }
+
+    // 非ASCII字节的状态转移
+    private int nextNonAscii(int node, int c) {
+        int currentNode = node;
+        while (true) {
+            Map<Integer, Integer> children = nonAsciiChildren.get(currentNode);
+            if (children != null) {
+                Integer child = children.get(c);
+                if (child != null) {
+                    return child;
+                }
+            }
+            if (currentNode == 0) {
+                return 0;
+            }
+            currentNode = fail[currentNode];
+        }
+    }
+
+    // 状态转移
+    private int next(int node, byte b) {
+        int c = b & 0xFF;
+        return c < ASCII_SIZE ? asciiNext[node * ASCII_SIZE + c] : nextNonAscii(node, c);
+    }
+
+    /**
+     * 查找字符串中包含的关键字
+     *
+     * @param line         需要查找的字符串
+     * @param matchedFlags 用于返回匹配结果，说明见下面的方法
+     * @return 包含的关键字数量（不重复）
+     */
+    public int match(String line, boolean[] matchedFlags) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        return match(ByteBuffer.wrap(bytes), 0, bytes.length, matchedFlags);
+    }
+
+    /**
+     * 查找UTF-8字节中包含的关键字
+     *
+     * @param buffer       需要查找的字节
+     * @param start        开始位置
+     * @param end          结束位置（不包含）
+     * @param matchedFlags 用于返回匹配结果，长度需要不小于关键字数量，下标为关键字序号，包含对应关键字时设为true，调用前需要全部设为false
+     * @return 包含的关键字数量（不重复）
+     */
+    public int match(ByteBuffer buffer, int start, int end, boolean[] matchedFlags) {
+        int matchedNum = markOutput(outputs[0], matchedFlags, 0);
+        if (matchedNum == keywords.length) {
+            return matchedNum;
+        }
+
+        int node = 0;
+        for (int i = start; i < end; i++) {
+            node = next(node, buffer.get(i));
+            int[] output = outputs[node];
+            if (output.length > 0) {
+                matchedNum = markOutput(output, matchedFlags, matchedNum);
+                if (matchedNum == keywords.length) {
+                    // 全部关键字都已匹配
+                    break;
+                }
+            }
+        }
+        return matchedNum;
+    }
+
+    private int markOutput(int[] output, boolean[] matchedFlags, int matchedNum) {
+        int newMatchedNum = matchedNum;
+        for (int keywordIndex : output) {
+            if (!matchedFlags[keywordIndex]) {
+                matchedFlags[keywordIndex] = true;
+                newMatchedNum++;
+            }
+        }
+        return newMatchedNum;
+    }
+
+    /**
+     * 判断字符串中是否包含任意一个关键字
+     *
+     * @param line
+     * @return
+     */
+    public boolean containsAny(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        return containsAny(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    /**
+     * 判断UTF-8字节中是否包含任意一个关键字
+     *
+     * @param buffer 需要查找的字节
+     * @param start  开始位置
+     * @param end    结束位置（不包含）
+     * @return
+     */
+    public boolean containsAny(ByteBuffer buffer, int start, int end) {
+        if (outputs[0].length > 0) {
+            return true;
+        }
+
+        int node = 0;
+        for (int i = start; i < end; i++) {
+            node = next(node, buffer.get(i));
+            if (outputs[node].length > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getKeywordNum() {
+        return keywords.length;
+    }
+
+    public String getKeyword(int index) {
+        return keywords[index];
+    }
+}
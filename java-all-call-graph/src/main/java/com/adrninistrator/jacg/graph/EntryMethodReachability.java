@@ -0,0 +1,339 @@
+package com.adrninistrator.jacg.graph;
+
+import com.adrninistrator.jacg.common.JACGConstants;
+import com.adrninistrator.jacg.common.enums.DbInsertMode;
+import com.adrninistrator.jacg.dboper.DbOperWrapper;
+import com.adrninistrator.jacg.dboper.DbOperator;
+import com.adrninistrator.jacg.dto.method.MethodAndHash;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/10
+ * @description: 计算可以调用到各方法的入口方法，入口方法为没有被其他方法调用的方法
+ * 与生成调用链时的处理一致，只使用启用的调用关系（enabled=1）
+ * 每个方法可以到达的入口方法集合使用位图记录，下标为入口方法序号
+ * 先在反向方法调用关系中计算强连通分量，同一个强连通分量中的方法对应的入口方法相同，再按拓扑顺序从调用方法向被调用方法合并位图
+ * 当方法的调用方法对应同一个位图，且方法本身不是入口方法时，直接复用调用方法的位图，减少内存占用
+ */
+public class EntryMethodReachability {
+    private static final Logger logger = LoggerFactory.getLogger(EntryMethodReachability.class);
+
+    private final ReverseCallGraph reverseCallGraph;
+
+    // 入口方法序号对应的方法序号
+    private int[] entryMethodIdArray;
+
+    // 方法序号对应的入口方法序号，非入口方法为-1
+    private int[] entryIdArray;
+
+    // 方法序号对应的可以到达当前方法的入口方法位图，没有入口方法可以到达时为null
+    private BitSet[] reachBitSetArray;
+
+    private EntryMethodReachability(ReverseCallGraph reverseCallGraph) {
+        this.reverseCallGraph = reverseCallGraph;
+    }
+
+    /**
+     * 根据反向方法调用关系，计算可以调用到各方法的入口方法
+     *
+     * @param reverseCallGraph 反向方法调用关系，加载时需要查询调用方法的完整方法
+     * @return
+     */
+    public static EntryMethodReachability compute(ReverseCallGraph reverseCallGraph) {
+        long startTime = System.currentTimeMillis();
+
+        EntryMethodReachability entryMethodReachability = new EntryMethodReachability(reverseCallGraph);
+        entryMethodReachability.findEntryMethods();
+        entryMethodReachability.computeReachBitSet();
+
+        logger.info("计算可以调用到各方法的入口方法完毕，方法数量 {} 入口方法数量 {} 耗时 {} S", reverseCallGraph.getMethodNum(),
+                entryMethodReachability.entryMethodIdArray.length, (System.currentTimeMillis() - startTime) / 1000.0D);
+        return entryMethodReachability;
+    }
+
+    // 查找入口方法，入口方法序号按方法HASH+长度排序，保证多次执行结果一致
+    private void findEntryMethods() {
+        int methodNum = reverseCallGraph.getMethodNum();
+        List<String> entryMethodHashList = new ArrayList<>();
+        for (int methodId = 0; methodId < methodNum; methodId++) {
+            // 只被未启用的调用关系调用，且未作为调用方法出现的方法，生成调用链时不会作为入口方法处理
+            if (!hasEnabledCaller(methodId) && reverseCallGraph.getCallerFullMethod(methodId) != null) {
+                entryMethodHashList.add(reverseCallGraph.getMethodHash(methodId));
+            }
+        }
+        Collections.sort(entryMethodHashList);
+
+        entryMethodIdArray = new int[entryMethodHashList.size()];
+        entryIdArray = new int[methodNum];
+        Arrays.fill(entryIdArray, -1);
+        for (int entryId = 0; entryId < entryMethodIdArray.length; entryId++) {
+            int methodId = reverseCallGraph.getMethodId(entryMethodHashList.get(entryId));
+            entryMethodIdArray[entryId] = methodId;
+            entryIdArray[methodId] = entryId;
+        }
+    }
+
+    // 判断方法是否存在启用的调用关系对应的调用方法
+    private boolean hasEnabledCaller(int methodId) {
+        for (int position = reverseCallGraph.getCallerStartPosition(methodId); position < reverseCallGraph.getCallerEndPosition(methodId); position++) {
+            if (reverseCallGraph.isEnabled(position)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 计算各方法对应的入口方法位图
+    private void computeReachBitSet() {
+        int methodNum = reverseCallGraph.getMethodNum();
+
+        // 在反向方法调用关系中计算强连通分量，强连通分量序号按完成顺序分配，调用方法所在的强连通分量序号更小
+        int[] sccIdArray = new int[methodNum];
+        int sccNum = computeScc(sccIdArray);
+
+        // 按强连通分量序号对方法进行分组
+        int[] sccOffsetArray = new int[sccNum + 1];
+        for (int methodId = 0; methodId < methodNum; methodId++) {
+            sccOffsetArray[sccIdArray[methodId] + 1]++;
+        }
+        for (int i = 0; i < sccNum; i++) {
+            sccOffsetArray[i + 1] += sccOffsetArray[i];
+        }
+        int[] sccMemberArray = new int[methodNum];
+        int[] fillArray = Arrays.copyOf(sccOffsetArray, sccNum);
+        for (int methodId = 0; methodId < methodNum; methodId++) {
+            sccMemberArray[fillArray[sccIdArray[methodId]]++] = methodId;
+        }
+
+        BitSet[] sccBitSetArray = new BitSet[sccNum];
+        for (int sccId = 0; sccId < sccNum; sccId++) {
+            BitSet bitSet = null;
+            // 当前位图是否为当前强连通分量独有，非独有时修改前需要复制
+            boolean owned = false;
+            for (int i = sccOffsetArray[sccId]; i < sccOffsetArray[sccId + 1]; i++) {
+                int methodId = sccMemberArray[i];
+                if (entryIdArray[methodId] != -1) {
+                    // 入口方法没有调用方法，只会单独作为一个强连通分量
+                    bitSet = new BitSet();
+                    bitSet.set(entryIdArray[methodId]);
+                    owned = true;
+                    continue;
+                }
+
+                for (int position = reverseCallGraph.getCallerStartPosition(methodId); position < reverseCallGraph.getCallerEndPosition(methodId); position++) {
+                    if (!reverseCallGraph.isEnabled(position)) {
+                        continue;
+                    }
+                    int callerSccId = sccIdArray[reverseCallGraph.getCallerId(position)];
+                    BitSet callerBitSet = sccBitSetArray[callerSccId];
+                    if (callerSccId == sccId || callerBitSet == null || callerBitSet == bitSet) {
+                        continue;
+                    }
+
+                    if (bitSet == null) {
+                        bitSet = callerBitSet;
+                        continue;
+                    }
+
+                    if (!owned) {
+                        bitSet = (BitSet) bitSet.clone();
+                        owned = true;
+                    }
+                    bitSet.or(callerBitSet);
+                }
+            }
+            sccBitSetArray[sccId] = bitSet;
+        }
+
+        reachBitSetArray = new BitSet[methodNum];
+        for (int methodId = 0; methodId < methodNum; methodId++) {
+            reachBitSetArray[methodId] = sccBitSetArray[sccIdArray[methodId]];
+        }
+    }
+
+    /**
+     * 使用Tarjan算法（非递归实现，避免调用层级过深时栈溢出）在反向方法调用关系中计算强连通分量
+     *
+     * @param sccIdArray 用于记录方法序号对应的强连通分量序号
+     * @return 强连通分量数量
+     */
+    private int computeScc(int[] sccIdArray) {
+        int methodNum = reverseCallGraph.getMethodNum();
+        int[] indexArray = new int[methodNum];
+        Arrays.fill(indexArray, -1);
+        int[] lowLinkArray = new int[methodNum];
+        boolean[] onStackArray = new boolean[methodNum];
+        int[] stackArray = new int[methodNum];
+        int stackSize = 0;
+        // 模拟递归调用的栈，及各方法当前处理到的调用关系位置
+        int[] callStackArray = new int[methodNum];
+        int[] positionArray = new int[methodNum];
+
+        int index = 0;
+        int sccNum = 0;
+        for (int startId = 0; startId < methodNum; startId++) {
+            if (indexArray[startId] != -1) {
+                continue;
+            }
+
+            int depth = 0;
+            indexArray[startId] = lowLinkArray[startId] = index++;
+            stackArray[stackSize++] = startId;
+            onStackArray[startId] = true;
+            positionArray[startId] = reverseCallGraph.getCallerStartPosition(startId);
+            callStackArray[depth++] = startId;
+
+            while (depth > 0) {
+                int methodId = callStackArray[depth - 1];
+                if (positionArray[methodId] < reverseCallGraph.getCallerEndPosition(methodId)) {
+                    int position = positionArray[methodId]++;
+                    if (!reverseCallGraph.isEnabled(position)) {
+                        // 未启用的调用关系不处理
+                        continue;
+                    }
+                    int callerId = reverseCallGraph.getCallerId(position);
+                    if (indexArray[callerId] == -1) {
+                        indexArray[callerId] = lowLinkArray[callerId] = index++;
+                        stackArray[stackSize++] = callerId;
+                        onStackArray[callerId] = true;
+                        positionArray[callerId] = reverseCallGraph.getCallerStartPosition(callerId);
+                        callStackArray[depth++] = callerId;
+                    } else if (onStackArray[callerId]) {
+                        lowLinkArray[methodId] = Math.min(lowLinkArray[methodId], indexArray[callerId]);
+                    }
+                    continue;
+                }
+
+                depth--;
+                if (depth > 0) {
+                    int parentId = callStackArray[depth - 1];
+                    lowLinkArray[parentId] = Math.min(lowLinkArray[parentId], lowLinkArray[methodId]);
+                }
+
+                if (lowLinkArray[methodId] == indexArray[methodId]) {
+                    int memberId;
+                    do {
+                        memberId = stackArray[--stackSize];
+                        onStackArray[memberId] = false;
+                        sccIdArray[memberId] = sccNum;
+                    } while (memberId != methodId);
+                    sccNum++;
+                }
+            }
+        }
+        return sccNum;
+    }
+
+    /**
+     * 查询可以调用到指定方法的入口方法，指定方法为入口方法时，结果中包含其本身
+     *
+     * @param methodHash 方法HASH+长度
+     * @return 入口方法列表，按入口方法序号排序
+     */
+    public List<MethodAndHash> getEntryMethods(String methodHash) {
+        Integer methodId = reverseCallGraph.getMethodId(methodHash);
+        if (methodId == null || reachBitSetArray[methodId] == null) {
+            return new ArrayList<>(0);
+        }
+
+        BitSet bitSet = reachBitSetArray[methodId];
+        List<MethodAndHash> entryMethodList = new ArrayList<>(bitSet.cardinality());
+        for (int entryId = bitSet.nextSetBit(0); entryId >= 0; entryId = bitSet.nextSetBit(entryId + 1)) {
+            int entryMethodId = entryMethodIdArray[entryId];
+            entryMethodList.add(new MethodAndHash(reverseCallGraph.getCallerFullMethod(entryMethodId), reverseCallGraph.getMethodHash(entryMethodId)));
+        }
+        return entryMethodList;
+    }
+
+    /**
+     * 将入口方法，及可以调用到各方法的入口方法位图写入数据库
+     * 位图按入口方法序号分块，每块使用Base64编码后写入一条记录，不存在入口方法的分块不写入
+     *
+     * @param dbOperator
+     * @param dbOperWrapper
+     * @return
+     */
+    public boolean write2Db(DbOperator dbOperator, DbOperWrapper dbOperWrapper) {
+        String entryMethodSql = dbOperWrapper.genAndCacheInsertSql(JACGConstants.SQL_KEY_INSERT_ENTRY_METHOD,
+                DbInsertMode.DIME_INSERT,
+                JACGConstants.TABLE_PREFIX_ENTRY_METHOD,
+                JACGConstants.TABLE_COLUMNS_ENTRY_METHOD);
+
+        List<Object[]> objectList = new ArrayList<>(JACGConstants.DB_INSERT_BATCH_SIZE);
+        for (int entryId = 0; entryId < entryMethodIdArray.length; entryId++) {
+            int entryMethodId = entryMethodIdArray[entryId];
+            objectList.add(new Object[]{entryId, reverseCallGraph.getMethodHash(entryMethodId), reverseCallGraph.getCallerFullMethod(entryMethodId)});
+            if (!dbOperator.tryBatchInsert(entryMethodSql, objectList, false)) {
+                return false;
+            }
+        }
+        if (!dbOperator.tryBatchInsert(entryMethodSql, objectList, true)) {
+            return false;
+        }
+
+        String methodEntryReachSql = dbOperWrapper.genAndCacheInsertSql(JACGConstants.SQL_KEY_INSERT_METHOD_ENTRY_REACH,
+                DbInsertMode.DIME_INSERT,
+                JACGConstants.TABLE_PREFIX_METHOD_ENTRY_REACH,
+                JACGConstants.TABLE_COLUMNS_METHOD_ENTRY_REACH);
+
+        for (int methodId = 0; methodId < reachBitSetArray.length; methodId++) {
+            BitSet bitSet = reachBitSetArray[methodId];
+            if (bitSet == null) {
+                continue;
+            }
+
+            String methodHash = reverseCallGraph.getMethodHash(methodId);
+            int blockSeq = -1;
+            for (int entryId = bitSet.nextSetBit(0); entryId >= 0; entryId = bitSet.nextSetBit((blockSeq + 1) * JACGConstants.ENTRY_BITMAP_BLOCK_SIZE)) {
+                blockSeq = entryId / JACGConstants.ENTRY_BITMAP_BLOCK_SIZE;
+                objectList.add(new Object[]{methodHash, blockSeq, encodeBlock(bitSet, blockSeq)});
+                if (!dbOperator.tryBatchInsert(methodEntryReachSql, objectList, false)) {
+                    return false;
+                }
+            }
+        }
+        return dbOperator.tryBatchInsert(methodEntryReachSql, objectList, true);
+    }
+
+    /**
+     * 将位图中指定分块的内容使用Base64编码
+     *
+     * @param bitSet
+     * @param blockSeq 分块序号
+     * @return
+     */
+    public static String encodeBlock(BitSet bitSet, int blockSeq) {
+        int blockStart = blockSeq * JACGConstants.ENTRY_BITMAP_BLOCK_SIZE;
+        BitSet blockBitSet = bitSet.get(blockStart, blockStart + JACGConstants.ENTRY_BITMAP_BLOCK_SIZE);
+        return Base64.getEncoder().encodeToString(blockBitSet.toByteArray());
+    }
+
+    /**
+     * 将Base64编码的分块内容解码，并记录到位图中
+     *
+     * @param bitSet     用于记录解码结果的位图
+     * @param blockSeq   分块序号
+     * @param blockValue Base64编码的分块内容
+     */
+    public static void decodeBlock(BitSet bitSet, int blockSeq, String blockValue) {
+        int blockStart = blockSeq * JACGConstants.ENTRY_BITMAP_BLOCK_SIZE;
+        BitSet blockBitSet = BitSet.valueOf(Base64.getDecoder().decode(blockValue));
+        for (int i = blockBitSet.nextSetBit(0); i >= 0; i = blockBitSet.nextSetBit(i + 1)) {
+            bitSet.set(blockStart + i);
+        }
+    }
+
+    // 获取入口方法数量
+    public int getEntryMethodNum() {
+        return entryMethodIdArray.length;
+    }
+}
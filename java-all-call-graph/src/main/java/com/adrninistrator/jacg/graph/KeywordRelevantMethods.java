@@ -0,0 +1,207 @@
+package com.adrninistrator.jacg.graph;
+
+import com.adrninistrator.jacg.annotation.MethodAnnotationInfoCache;
+import com.adrninistrator.jacg.common.DC;
+import com.adrninistrator.jacg.common.JACGConstants;
+import com.adrninistrator.jacg.dboper.DbOperator;
+import com.adrninistrator.jacg.find_keyword.KeywordMatcher;
+import com.adrninistrator.jacg.util.JACGSqlUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/19
+ * @description: 直接在方法调用关系中查找关键字，标记与关键字匹配的方法，并计算处于起始方法到匹配方法之间路径上的方法
+ * 方法与关键字匹配的条件为以下任意内容包含关键字：完整方法（包含类名、方法名、参数）、方法注解信息、调用当前方法时的自定义数据
+ * 生成向下的调用链时，需要处理的方法为匹配的方法及可以调用到匹配方法的方法；生成向上的调用链时，需要处理的方法为匹配的方法及被匹配方法调用到的方法
+ * 以上结果是可能包含关键字的调用链行对应方法的超集，生成调用链时只处理以上方法，不需要生成完整的调用链
+ */
+public class KeywordRelevantMethods {
+    private static final Logger logger = LoggerFactory.getLogger(KeywordRelevantMethods.class);
+
+    private final KeywordMatcher keywordMatcher;
+
+    // 方法注解信息缓存，不显示方法注解时为null
+    private final MethodAnnotationInfoCache methodAnnotationInfoCache;
+
+    /*
+        方法HASH+长度与方法序号的映射关系
+        key: 方法HASH+长度
+        value: 方法序号
+     */
+    private final Map<String, Integer> methodIdMap = new HashMap<>();
+
+    // 方法序号对应的方法HASH+长度
+    private final List<String> methodHashList = new ArrayList<>();
+
+    // 完整方法与方法序号的映射关系，用于处理人工添加的自定义数据
+    private final Map<String, Integer> fullMethodIdMap = new HashMap<>();
+
+    // 与关键字匹配的方法序号
+    private final BitSet matchedMethodIdSet = new BitSet();
+
+    // 调用关系对应的调用方法及被调用方法序号
+    private int[] edgeCallerIdArray = new int[1024];
+    private int[] edgeCalleeIdArray = new int[1024];
+    private int edgeNum = 0;
+
+    private KeywordRelevantMethods(KeywordMatcher keywordMatcher, MethodAnnotationInfoCache methodAnnotationInfoCache) {
+        this.keywordMatcher = keywordMatcher;
+        this.methodAnnotationInfoCache = methodAnnotationInfoCache;
+    }
+
+    /**
+     * 计算生成调用链时需要处理的方法
+     *
+     * @param dbOperator
+     * @param appName
+     * @param keywordMatcher            需要查找的关键字
+     * @param order4ee                  true: 生成向上的方法调用链 false: 生成向下的方法调用链
+     * @param methodAnnotationInfoCache 方法注解信息缓存，不显示方法注解时传入null
+     * @return 需要处理的方法HASH+长度，null: 计算失败
+     */
+    public static Set<String> compute(DbOperator dbOperator, String appName, KeywordMatcher keywordMatcher, boolean order4ee,
+                                      MethodAnnotationInfoCache methodAnnotationInfoCache) {
+        long startTime = System.currentTimeMillis();
+
+        KeywordRelevantMethods keywordRelevantMethods = new KeywordRelevantMethods(keywordMatcher, methodAnnotationInfoCache);
+        if (!keywordRelevantMethods.loadMethodCall(dbOperator, appName) ||
+                !keywordRelevantMethods.matchExtendedData(dbOperator, appName) ||
+                !keywordRelevantMethods.matchManualAddExtendedData(dbOperator, appName)) {
+            return null;
+        }
+
+        Set<String> relevantMethodHashSet = keywordRelevantMethods.genRelevantMethodHashSet(order4ee);
+        logger.info("直接查找关键字，方法数量 {} 与关键字匹配的方法数量 {} 需要处理的方法数量 {} 耗时 {} S", keywordRelevantMethods.methodHashList.size(),
+                keywordRelevantMethods.matchedMethodIdSet.cardinality(), relevantMethodHashSet.size(), (System.currentTimeMillis() - startTime) / 1000.0D);
+        return relevantMethodHashSet;
+    }
+
+    // 加载全部方法调用关系，并判断各方法是否与关键字匹配
+    private boolean loadMethodCall(DbOperator dbOperator, String appName) {
+        String sql = "select " + JACGSqlUtil.joinColumns(DC.MC_CALLER_METHOD_HASH, DC.MC_CALLER_FULL_METHOD, DC.MC_CALLEE_METHOD_HASH, DC.MC_CALLEE_FULL_METHOD) +
+                " from " + JACGConstants.TABLE_PREFIX_METHOD_CALL + appName;
+        return dbOperator.queryStream(sql, null, rs -> {
+            int callerId = getOrAddMethodId(rs.getString(1), rs.getString(2));
+            int calleeId = getOrAddMethodId(rs.getString(3), rs.getString(4));
+            if (edgeNum == edgeCallerIdArray.length) {
+                edgeCallerIdArray = Arrays.copyOf(edgeCallerIdArray, edgeNum * 2);
+                edgeCalleeIdArray = Arrays.copyOf(edgeCalleeIdArray, edgeNum * 2);
+            }
+            edgeCallerIdArray[edgeNum] = callerId;
+            edgeCalleeIdArray[edgeNum] = calleeId;
+            edgeNum++;
+            return true;
+        });
+    }
+
+    // 获取方法序号，不存在时添加，并判断方法是否与关键字匹配
+    private int getOrAddMethodId(String methodHash, String fullMethod) {
+        Integer methodId = methodIdMap.get(methodHash);
+        if (methodId != null) {
+            return methodId;
+        }
+
+        int newMethodId = methodHashList.size();
+        methodHashList.add(methodHash);
+        methodIdMap.put(methodHash, newMethodId);
+        fullMethodIdMap.put(fullMethod, newMethodId);
+
+        if (keywordMatcher.containsAny(fullMethod)) {
+            matchedMethodIdSet.set(newMethodId);
+        } else if (methodAnnotationInfoCache != null) {
+            // 使用与生成调用链时相同的方法注解信息进行判断
+            String methodAnnotationInfo = methodAnnotationInfoCache.get(methodHash);
+            if (!methodAnnotationInfo.isEmpty() && keywordMatcher.containsAny(methodAnnotationInfo)) {
+                matchedMethodIdSet.set(newMethodId);
+            }
+        }
+        return newMethodId;
+    }
+
+    // 判断方法调用对应的自定义数据是否与关键字匹配，匹配时标记被调用方法
+    private boolean matchExtendedData(DbOperator dbOperator, String appName) {
+        String sql = "select " + JACGSqlUtil.joinColumns("mc." + DC.MC_CALLEE_METHOD_HASH, "ed." + DC.ED_DATA_TYPE, "ed." + DC.ED_DATA_VALUE) +
+                " from " + JACGConstants.TABLE_PREFIX_EXTENDED_DATA + appName + " ed, " + JACGConstants.TABLE_PREFIX_METHOD_CALL + appName + " mc" +
+                " where ed." + DC.ED_CALL_ID + " = mc." + DC.MC_CALL_ID;
+        return dbOperator.queryStream(sql, null, rs -> {
+            Integer calleeId = methodIdMap.get(rs.getString(1));
+            if (calleeId != null && keywordMatcher.containsAny(JACGConstants.CALL_FLAG_EXTENDED_DATA + rs.getString(2) + JACGConstants.FLAG_AT + rs.getString(3))) {
+                matchedMethodIdSet.set(calleeId);
+            }
+            return true;
+        });
+    }
+
+    // 判断人工添加的自定义数据是否与关键字匹配，匹配时标记被调用方法
+    private boolean matchManualAddExtendedData(DbOperator dbOperator, String appName) {
+        String sql = "select " + JACGSqlUtil.joinColumns(DC.MAED_CALLEE_FULL_METHOD, DC.MAED_DATA_TYPE, DC.MAED_DATA_VALUE) +
+                " from " + JACGConstants.TABLE_PREFIX_MANUAL_ADD_EXTENDED_DATA + appName;
+        return dbOperator.queryStream(sql, null, rs -> {
+            Integer calleeId = fullMethodIdMap.get(rs.getString(1));
+            if (calleeId != null &&
+                    keywordMatcher.containsAny(JACGConstants.CALL_FLAG_EXTENDED_DATA_MANUAL_ADD + rs.getString(2) + JACGConstants.FLAG_AT + rs.getString(3))) {
+                matchedMethodIdSet.set(calleeId);
+            }
+            return true;
+        });
+    }
+
+    /**
+     * 从与关键字匹配的方法开始遍历调用关系，生成需要处理的方法
+     *
+     * @param order4ee true: 从调用方法向被调用方法遍历 false: 从被调用方法向调用方法遍历
+     * @return
+     */
+    private Set<String> genRelevantMethodHashSet(boolean order4ee) {
+        int methodNum = methodHashList.size();
+        // 遍历起点方法对应的调用关系另一端的方法，使用CSR格式存储
+        int[] fromIdArray = order4ee ? edgeCallerIdArray : edgeCalleeIdArray;
+        int[] toIdArray = order4ee ? edgeCalleeIdArray : edgeCallerIdArray;
+        int[] offsetArray = new int[methodNum + 1];
+        for (int i = 0; i < edgeNum; i++) {
+            offsetArray[fromIdArray[i] + 1]++;
+        }
+        for (int i = 0; i < methodNum; i++) {
+            offsetArray[i + 1] += offsetArray[i];
+        }
+        int[] adjacentIdArray = new int[edgeNum];
+        int[] fillArray = Arrays.copyOf(offsetArray, methodNum);
+        for (int i = 0; i < edgeNum; i++) {
+            adjacentIdArray[fillArray[fromIdArray[i]]++] = toIdArray[i];
+        }
+
+        BitSet relevantMethodIdSet = (BitSet) matchedMethodIdSet.clone();
+        int[] stack = new int[Math.max(methodNum, 1)];
+        int stackSize = 0;
+        for (int methodId = matchedMethodIdSet.nextSetBit(0); methodId >= 0; methodId = matchedMethodIdSet.nextSetBit(methodId + 1)) {
+            stack[stackSize++] = methodId;
+        }
+        while (stackSize > 0) {
+            int methodId = stack[--stackSize];
+            for (int i = offsetArray[methodId]; i < offsetArray[methodId + 1]; i++) {
+                int adjacentId = adjacentIdArray[i];
+                if (!relevantMethodIdSet.get(adjacentId)) {
+                    relevantMethodIdSet.set(adjacentId);
+                    stack[stackSize++] = adjacentId;
+                }
+            }
+        }
+
+        Set<String> relevantMethodHashSet = new HashSet<>(relevantMethodIdSet.cardinality() * 2);
+        for (int methodId = relevantMethodIdSet.nextSetBit(0); methodId >= 0; methodId = relevantMethodIdSet.nextSetBit(methodId + 1)) {
+            relevantMethodHashSet.add(methodHashList.get(methodId));
+        }
+        return relevantMethodHashSet;
+    }
+}
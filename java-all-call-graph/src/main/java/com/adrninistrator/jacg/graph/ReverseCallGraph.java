@@ -0,0 +1,381 @@
+package com.adrninistrator.jacg.graph;
+
+import com.adrninistrator.jacg.common.DC;
+import com.adrninistrator.jacg.common.JACGConstants;
+import com.adrninistrator.jacg.dboper.DbOperWrapper;
+import com.adrninistrator.jacg.dboper.DbOperator;
+import com.adrninistrator.jacg.dboper.MethodCallRowMapper;
+import com.adrninistrator.jacg.dto.entity.MethodCallRow;
+import com.adrninistrator.jacg.util.JACGSqlUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/9
+ * @description: 保存在内存中的反向方法调用关系（被调用方法 -> 调用方法），使用CSR格式存储
+ * 每个被调用方法对应的调用方法按调用方法HASH+长度升序排列，同一个调用方法仅保留call_id最小的调用关系，
+ * 与通过SQL语句“where callee_method_hash = ? and caller_method_hash > ? order by caller_method_hash limit 1”逐条查询的结果一致
+ */
+public class ReverseCallGraph {
+    private static final Logger logger = LoggerFactory.getLogger(ReverseCallGraph.class);
+
+    // 加载时记录调用关系的数组初始长度
+    private static final int INIT_EDGE_ARRAY_LENGTH = 10000;
+
+    /*
+        方法HASH+长度与方法序号的映射关系
+        key: 方法HASH+长度
+        value: 方法序号
+     */
+    private final Map<String, Integer> methodIdMap = new HashMap<>();
+
+    // 方法序号对应的方法HASH+长度
+    private String[] methodHashArray = new String[1024];
+
+    // 方法序号对应的方法HASH+长度按字符串排序后的序号
+    private int[] methodRankArray;
+
+    // 方法作为调用方法时的信息，下标为方法序号
+    private String[] callerFullMethodArray = new String[1024];
+    private String[] callerFullClassNameArray = new String[1024];
+    private String[] callerMethodNameArray = new String[1024];
+    private String[] callerClassNameArray = new String[1024];
+
+    // 方法数量
+    private int methodNum = 0;
+
+    // 被调用方法对应调用关系在以下数组中的起始位置，下标为被调用方法序号，长度为方法数量+1
+    private int[] calleeOffsetArray;
+
+    // 调用关系对应的调用方法序号
+    private int[] callerIdArray;
+
+    // 调用关系对应的call_id
+    private int[] callIdArray;
+
+    // 调用关系对应的enabled
+    private int[] enabledArray;
+
+    // 调用关系对应的调用者源代码行号
+    private int[] callerLineNumArray;
+
+    // 调用关系对应的调用类型
+    private String[] callTypeArray;
+
+    // 查询的字段中是否包含调用者源代码行号
+    private boolean withCallerLineNum;
+
+    private ReverseCallGraph() {
+    }
+
+    /**
+     * 从方法调用表中加载全部调用关系，生成反向调用关系
+     *
+     * @param dbOperator
+     * @param dbOperWrapper
+     * @param appName
+     * @param callerColumnSet 需要查询的调用方法相关字段
+     * @return null: 加载失败
+     */
+    public static ReverseCallGraph load(DbOperator dbOperator, DbOperWrapper dbOperWrapper, String appName, Set<String> callerColumnSet) {
+        long startTime = System.currentTimeMillis();
+
+        Set<String> columnSet = new LinkedHashSet<>(callerColumnSet);
+        columnSet.add(DC.MC_CALL_ID);
+        columnSet.add(DC.MC_CALL_TYPE);
+        columnSet.add(DC.MC_ENABLED);
+        columnSet.add(DC.MC_CALLER_METHOD_HASH);
+        columnSet.add(DC.MC_CALLEE_METHOD_HASH);
+
+        // 查询字段与配置参数有关，共用同一个DbOperWrapper时可能不同，因此SQL语句key中需要包含查询字段
+        String[] columnArray = columnSet.toArray(new String[0]);
+        String columns = JACGSqlUtil.joinColumns(columnArray);
+        String sqlKey = JACGConstants.SQL_KEY_MC_QUERY_ALL_4_REVERSE_GRAPH + JACGConstants.FLAG_AT + columns;
+        String sql = dbOperWrapper.getCachedSql(sqlKey);
+        if (sql == null) {
+            sql = "select " + columns + " from " + JACGConstants.TABLE_PREFIX_METHOD_CALL + appName + " order by " + DC.MC_CALL_ID;
+            dbOperWrapper.cacheSql(sqlKey, sql);
+        }
+
+        ReverseCallGraph reverseCallGraph = new ReverseCallGraph();
+        reverseCallGraph.withCallerLineNum = columnSet.contains(DC.MC_CALLER_LINE_NUM);
+
+        // 通过流式查询逐行读取全部调用关系，按字段序号写入可重复使用的对象，不需要分页查询，也不需要为每行记录创建Map
+        MethodCallRowMapper methodCallRowMapper = new MethodCallRowMapper(columnArray);
+        MethodCallRow methodCallRow = new MethodCallRow();
+        EdgeBuffer edgeBuffer = new EdgeBuffer();
+        if (!dbOperator.queryStream(sql, null, rs -> {
+            methodCallRowMapper.mapRow(rs, methodCallRow);
+            int callerId = reverseCallGraph.getOrAddMethodId(methodCallRow.getCallerMethodHash());
+            int calleeId = reverseCallGraph.getOrAddMethodId(methodCallRow.getCalleeMethodHash());
+            // 记录调用方法的信息
+            reverseCallGraph.recordCallerInfo(callerId, methodCallRow);
+            edgeBuffer.add(calleeId, callerId, methodCallRow, reverseCallGraph.withCallerLineNum);
+            return true;
+        })) {
+            return null;
+        }
+
+        // 生成CSR格式的数据
+        reverseCallGraph.build(edgeBuffer.edgeNum, edgeBuffer.calleeIdArray, edgeBuffer.callerIdArray, edgeBuffer.callIdArray, edgeBuffer.enabledArray,
+                edgeBuffer.callerLineNumArray, edgeBuffer.callTypeArray);
+
+        logger.info("加载反向方法调用关系完毕，方法数量 {} 调用关系数量 {} 去重后调用关系数量 {} 耗时 {} S", reverseCallGraph.methodNum, edgeBuffer.edgeNum,
+                reverseCallGraph.callerIdArray.length, (System.currentTimeMillis() - startTime) / 1000.0D);
+        return reverseCallGraph;
+    }
+
+    // 获取方法序号，不存在时添加
+    private int getOrAddMethodId(String methodHash) {
+        Integer methodId = methodIdMap.get(methodHash);
+        if (methodId != null) {
+            return methodId;
+        }
+
+        if (methodNum == methodHashArray.length) {
+            int newLength = methodNum * 2;
+            methodHashArray = Arrays.copyOf(methodHashArray, newLength);
+            callerFullMethodArray = Arrays.copyOf(callerFullMethodArray, newLength);
+            callerFullClassNameArray = Arrays.copyOf(callerFullClassNameArray, newLength);
+            callerMethodNameArray = Arrays.copyOf(callerMethodNameArray, newLength);
+            callerClassNameArray = Arrays.copyOf(callerClassNameArray, newLength);
+        }
+
+        methodHashArray[methodNum] = methodHash;
+        methodIdMap.put(methodHash, methodNum);
+        return methodNum++;
+    }
+
+    // 记录调用方法的信息，同一个方法的以下信息都相同，只需要记录一次
+    private void recordCallerInfo(int callerId, MethodCallRow methodCallRow) {
+        if (callerFullMethodArray[callerId] != null || callerFullClassNameArray[callerId] != null ||
+                callerMethodNameArray[callerId] != null || callerClassNameArray[callerId] != null) {
+            return;
+        }
+
+        callerFullMethodArray[callerId] = methodCallRow.getCallerFullMethod();
+        callerFullClassNameArray[callerId] = methodCallRow.getCallerFullClassName();
+        callerMethodNameArray[callerId] = methodCallRow.getCallerMethodName();
+        callerClassNameArray[callerId] = methodCallRow.getCallerClassName();
+    }
+
+    // 生成CSR格式的数据
+    private void build(int edgeNum, int[] edgeCalleeIdArray, int[] edgeCallerIdArray, int[] edgeCallIdArray, int[] edgeEnabledArray,
+                       int[] edgeCallerLineNumArray, String[] edgeCallTypeArray) {
+        // 计算各方法HASH+长度按字符串排序后的序号，与数据库中使用utf8_bin排序的结果一致
+        Integer[] sortedMethodIdArray = new Integer[methodNum];
+        for (int i = 0; i < methodNum; i++) {
+            sortedMethodIdArray[i] = i;
+        }
+        Arrays.sort(sortedMethodIdArray, (id1, id2) -> methodHashArray[id1].compareTo(methodHashArray[id2]));
+        methodRankArray = new int[methodNum];
+        for (int rank = 0; rank < methodNum; rank++) {
+            methodRankArray[sortedMethodIdArray[rank]] = rank;
+        }
+
+        // 统计每个被调用方法的调用关系数量
+        int[] edgeOffsetArray = new int[methodNum + 1];
+        for (int i = 0; i < edgeNum; i++) {
+            edgeOffsetArray[edgeCalleeIdArray[i] + 1]++;
+        }
+        for (int i = 0; i < methodNum; i++) {
+            edgeOffsetArray[i + 1] += edgeOffsetArray[i];
+        }
+
+        /*
+            按被调用方法分组，组内保存“调用方法排序序号（高32位）+调用关系序号（低32位）”
+            调用关系序号按call_id升序，排序后同一调用方法中call_id最小的调用关系在最前面
+         */
+        long[] sortKeyArray = new long[edgeNum];
+        int[] fillArray = Arrays.copyOf(edgeOffsetArray, methodNum);
+        for (int i = 0; i < edgeNum; i++) {
+            sortKeyArray[fillArray[edgeCalleeIdArray[i]]++] = ((long) methodRankArray[edgeCallerIdArray[i]] << 32) | i;
+        }
+
+        // 对每个被调用方法的调用关系排序，并对调用方法去重
+        calleeOffsetArray = new int[methodNum + 1];
+        int dedupEdgeNum = 0;
+        for (int calleeId = 0; calleeId < methodNum; calleeId++) {
+            int start = edgeOffsetArray[calleeId];
+            int end = edgeOffsetArray[calleeId + 1];
+            Arrays.sort(sortKeyArray, start, end);
+
+            calleeOffsetArray[calleeId] = dedupEdgeNum;
+            long lastRank = -1;
+            for (int i = start; i < end; i++) {
+                long rank = sortKeyArray[i] >>> 32;
+                if (rank != lastRank) {
+                    sortKeyArray[dedupEdgeNum++] = sortKeyArray[i];
+                    lastRank = rank;
+                }
+            }
+        }
+        calleeOffsetArray[methodNum] = dedupEdgeNum;
+
+        callerIdArray = new int[dedupEdgeNum];
+        callIdArray = new int[dedupEdgeNum];
+        enabledArray = new int[dedupEdgeNum];
+        callerLineNumArray = withCallerLineNum ? new int[dedupEdgeNum] : null;
+        callTypeArray = new String[dedupEdgeNum];
+        for (int i = 0; i < dedupEdgeNum; i++) {
+            int edgeIndex = (int) sortKeyArray[i];
+            callerIdArray[i] = edgeCallerIdArray[edgeIndex];
+            callIdArray[i] = edgeCallIdArray[edgeIndex];
+            enabledArray[i] = edgeEnabledArray[edgeIndex];
+            if (withCallerLineNum) {
+                callerLineNumArray[i] = edgeCallerLineNumArray[edgeIndex];
+            }
+            callTypeArray[i] = edgeCallTypeArray[edgeIndex];
+        }
+    }
+
+    /**
+     * 查询指定被调用方法的下一个调用方法
+     *
+     * @param calleeMethodHash 被调用方法HASH+长度
+     * @param callerMethodHash 上一次查询到的调用方法HASH+长度，为null时查询第一个调用方法
+     * @param methodCallRow    用于保存查询到的调用方法信息，字段与查询方法调用表时一致
+     * @return true: 查询到调用方法 false: 未查询到调用方法
+     */
+    public boolean queryOneCaller(String calleeMethodHash, String callerMethodHash, MethodCallRow methodCallRow) {
+        Integer calleeId = methodIdMap.get(calleeMethodHash);
+        if (calleeId == null) {
+            return false;
+        }
+
+        int start = calleeOffsetArray[calleeId];
+        int end = calleeOffsetArray[calleeId + 1];
+        int position = start;
+        if (callerMethodHash != null) {
+            // 二分查找第一个调用方法HASH+长度大于上一次查询到的调用方法的位置
+            position = findFirstGreater(start, end, callerMethodHash);
+        }
+
+        if (position >= end) {
+            return false;
+        }
+        fillCallerMethodRow(position, methodCallRow);
+        return true;
+    }
+
+    // 二分查找第一个调用方法HASH+长度大于指定值的位置
+    private int findFirstGreater(int start, int end, String callerMethodHash) {
+        Integer callerId = methodIdMap.get(callerMethodHash);
+        int low = start;
+        int high = end;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            boolean greater;
+            if (callerId != null) {
+                greater = methodRankArray[callerIdArray[mid]] > methodRankArray[callerId];
+            } else {
+                greater = methodHashArray[callerIdArray[mid]].compareTo(callerMethodHash) > 0;
+            }
+
+            if (greater) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    // 记录调用方法信息
+    private void fillCallerMethodRow(int position, MethodCallRow methodCallRow) {
+        int callerId = callerIdArray[position];
+        methodCallRow.clear();
+        methodCallRow.setCallId(callIdArray[position]);
+        methodCallRow.setCallType(callTypeArray[position]);
+        methodCallRow.setEnabled(enabledArray[position]);
+        methodCallRow.setCallerMethodHash(methodHashArray[callerId]);
+        methodCallRow.setCallerFullMethod(callerFullMethodArray[callerId]);
+        methodCallRow.setCallerFullClassName(callerFullClassNameArray[callerId]);
+        methodCallRow.setCallerMethodName(callerMethodNameArray[callerId]);
+        methodCallRow.setCallerClassName(callerClassNameArray[callerId]);
+        if (withCallerLineNum) {
+            methodCallRow.setCallerLineNum(callerLineNumArray[position]);
+        }
+    }
+
+    // 获取方法数量
+    public int getMethodNum() {
+        return methodNum;
+    }
+
+    // 获取方法HASH+长度对应的方法序号，不存在时返回null
+    Integer getMethodId(String methodHash) {
+        return methodIdMap.get(methodHash);
+    }
+
+    // 获取方法序号对应的方法HASH+长度
+    String getMethodHash(int methodId) {
+        return methodHashArray[methodId];
+    }
+
+    // 获取方法序号对应的调用方法完整方法，加载时未查询对应字段，或方法未作为调用方法出现时返回null
+    String getCallerFullMethod(int methodId) {
+        return callerFullMethodArray[methodId];
+    }
+
+    // 获取被调用方法对应调用关系的起始位置
+    int getCallerStartPosition(int calleeId) {
+        return calleeOffsetArray[calleeId];
+    }
+
+    // 获取被调用方法对应调用关系的结束位置（不包含）
+    int getCallerEndPosition(int calleeId) {
+        return calleeOffsetArray[calleeId + 1];
+    }
+
+    // 获取调用关系对应的调用方法序号
+    int getCallerId(int position) {
+        return callerIdArray[position];
+    }
+
+    // 判断调用关系是否启用，生成调用链时不会处理未启用的调用关系
+    boolean isEnabled(int position) {
+        return enabledArray[position] == JACGConstants.ENABLED;
+    }
+
+    // 加载时按照call_id升序记录的调用关系，下标为调用关系序号
+    private static class EdgeBuffer {
+        private int edgeNum = 0;
+        private int[] calleeIdArray = new int[INIT_EDGE_ARRAY_LENGTH];
+        private int[] callerIdArray = new int[INIT_EDGE_ARRAY_LENGTH];
+        private int[] callIdArray = new int[INIT_EDGE_ARRAY_LENGTH];
+        private int[] enabledArray = new int[INIT_EDGE_ARRAY_LENGTH];
+        private int[] callerLineNumArray = new int[INIT_EDGE_ARRAY_LENGTH];
+        private String[] callTypeArray = new String[INIT_EDGE_ARRAY_LENGTH];
+
+        private void add(int calleeId, int callerId, MethodCallRow methodCallRow, boolean withCallerLineNum) {
+            if (edgeNum == calleeIdArray.length) {
+                int newLength = edgeNum * 2;
+                calleeIdArray = Arrays.copyOf(calleeIdArray, newLength);
+                callerIdArray = Arrays.copyOf(callerIdArray, newLength);
+                callIdArray = Arrays.copyOf(callIdArray, newLength);
+                enabledArray = Arrays.copyOf(enabledArray, newLength);
+                callerLineNumArray = Arrays.copyOf(callerLineNumArray, newLength);
+                callTypeArray = Arrays.copyOf(callTypeArray, newLength);
+            }
+
+            calleeIdArray[edgeNum] = calleeId;
+            callerIdArray[edgeNum] = callerId;
+            callIdArray[edgeNum] = methodCallRow.getCallId();
+            enabledArray[edgeNum] = methodCallRow.getEnabled();
+            if (withCallerLineNum) {
+                callerLineNumArray[edgeNum] = methodCallRow.getCallerLineNum();
+            }
+            // 调用类型种类很少，使用intern减少内存占用
+            callTypeArray[edgeNum] = methodCallRow.getCallType().intern();
+            edgeNum++;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.adrninistrator.jacg.keyword_index;
+
+import com.adrninistrator.jacg.common.JACGConstants;
+import com.adrninistrator.jacg.util.JACGFileUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/19
+ * @description: 生成调用链文件时记录关键字索引，生成完毕后写入索引文件
+ * 调用链信息的行去掉方法级别及缩进后，使用TAB分隔的每一列作为一个词（包含类名、方法名、注解信息的列，调用者源代码行号的列，自定义数据的列等），记录各个词出现的文件及行号
+ * 多个线程会同时写入不同的调用链文件
+ */
+public class KeywordIndexBuilder {
+    private static final Logger logger = LoggerFactory.getLogger(KeywordIndexBuilder.class);
+
+    private static final String TMP_FILE_EXT = ".tmp";
+
+    // 输出目录
+    private final String dirPath;
+
+    /*
+        词与词序号的映射关系
+        key: 词
+        value: 词序号
+     */
+    private final Map<String, Integer> tokenIdMap = new ConcurrentHashMap<>();
+
+    private final AtomicInteger tokenIdGenerator = new AtomicInteger(0);
+
+    // 已记录的调用链文件，下标为文件序号
+    private final List<IndexedFile> indexedFileList = new ArrayList<>();
+
+    /*
+        文件名称与已记录的调用链文件的映射关系，用于处理合并生成的文件
+        key: 文件名称
+        value: 已记录的调用链文件
+     */
+    private final Map<String, IndexedFile> indexedFileMap = new HashMap<>();
+
+    public KeywordIndexBuilder(String dirPath) {
+        this.dirPath = dirPath;
+    }
+
+    /**
+     * 根据调用链文件路径生成索引中的文件名称，为相对于输出目录的路径，使用/作为分隔符
+     *
+     * @param filePath 调用链文件路径
+     * @return
+     */
+    public String genEntryName(String filePath) {
+        String entryName = filePath;
+        String dirPathWithSeparator = dirPath + File.separator;
+        if (filePath.startsWith(dirPathWithSeparator)) {
+            entryName = filePath.substring(dirPathWithSeparator.length());
+        }
+        return entryName.replace(File.separatorChar, '/');
+    }
+
+    // 获取词序号，不存在时添加
+    int getTokenId(String token) {
+        Integer tokenId = tokenIdMap.get(token);
+        if (tokenId != null) {
+            return tokenId;
+        }
+        return tokenIdMap.computeIfAbsent(token, key -> tokenIdGenerator.getAndIncrement());
+    }
+
+    /**
+     * 记录内容为空的调用链文件
+     *
+     * @param filePath 调用链文件路径
+     */
+    public void addEmptyFile(String filePath) {
+        addFile(genEntryName(filePath), 0, 0, false, new int[0], new long[0]);
+    }
+
+    /**
+     * 记录一个调用链文件的索引信息
+     *
+     * @param entryName       文件名称
+     * @param contentLength   文件内容的字节数
+     * @param lineCount       文件行数
+     * @param endsWithNewLine 文件内容是否以换行符结尾
+     * @param regionArray     各片段开始的行号及字节位置，依次存放
+     * @param tokenLineArray  文件中出现的词序号及行号，词序号保存在高32位，行号保存在低32位，需要升序排列且不重复
+     */
+    synchronized void addFile(String entryName, int contentLength, int lineCount, boolean endsWithNewLine, int[] regionArray, long[] tokenLineArray) {
+        IndexedFile indexedFile = new IndexedFile(entryName, contentLength, lineCount, endsWithNewLine, regionArray, tokenLineArray);
+        indexedFileList.add(indexedFile);
+        indexedFileMap.put(entryName, indexedFile);
+    }
+
+    /**
+     * 记录将多个调用链文件合并生成的文件，根据各个源文件的索引信息生成
+     * 合并方式需要与JACGFileUtil.combineTextFile()方法相同：源文件最后一行没有换行符时补充换行符（gzip文件不补充），每个文件之后再增加一个换行符
+     *
+     * @param destFilePath 合并生成的文件路径
+     * @param srcFileList  源文件列表
+     */
+    public synchronized void addCombinedFile(String destFilePath, List<File> srcFileList) {
+        long contentLength = 0L;
+        int lineCount = 0;
+        int tokenLineNum = 0;
+        List<IndexedFile> srcIndexedFileList = new ArrayList<>(srcFileList.size());
+        for (File srcFile : srcFileList) {
+            IndexedFile srcIndexedFile = indexedFileMap.get(genEntryName(srcFile.getPath()));
+            if (srcIndexedFile == null || (JACGFileUtil.isGzipFile(srcFile.getName()) && srcIndexedFile.contentLength > 0 && !srcIndexedFile.endsWithNewLine)) {
+                // 查找关键字时会使用完整读取的方式处理合并生成的文件
+                logger.warn("合并前的文件未记录关键字索引或格式不支持，合并生成的文件不记录关键字索引 {} {}", destFilePath, srcFile.getPath());
+                return;
+            }
+            srcIndexedFileList.add(srcIndexedFile);
+            tokenLineNum += srcIndexedFile.tokenLineArray.length;
+        }
+
+        List<Integer> regionList = new ArrayList<>();
+        long[] tokenLineArray = new long[tokenLineNum];
+        tokenLineNum = 0;
+        for (IndexedFile srcIndexedFile : srcIndexedFileList) {
+            for (int i = 0; i < srcIndexedFile.regionArray.length; i += 2) {
+                regionList.add(srcIndexedFile.regionArray[i] + lineCount);
+                regionList.add((int) (srcIndexedFile.regionArray[i + 1] + contentLength));
+            }
+            for (long tokenLine : srcIndexedFile.tokenLineArray) {
+                tokenLineArray[tokenLineNum++] = tokenLine + lineCount;
+            }
+
+            contentLength += srcIndexedFile.contentLength;
+            lineCount += srcIndexedFile.lineCount;
+            if (srcIndexedFile.contentLength > 0 && !srcIndexedFile.endsWithNewLine) {
+                // 补充的换行符
+                contentLength++;
+            }
+            // 每个文件之后增加的换行符，对应一个空行
+            contentLength++;
+            lineCount++;
+            if (contentLength > Integer.MAX_VALUE) {
+                logger.warn("合并生成的文件过大，不记录关键字索引 {}", destFilePath);
+                return;
+            }
+        }
+
+        int[] regionArray = new int[regionList.size()];
+        for (int i = 0; i < regionArray.length; i++) {
+            regionArray[i] = regionList.get(i);
+        }
+        // 不同文件的行号不同，排序后不存在重复数据
+        Arrays.sort(tokenLineArray);
+        addFile(genEntryName(destFilePath), (int) contentLength, lineCount, true, regionArray, tokenLineArray);
+    }
+
+    /**
+     * 写入关键字索引文件
+     *
+     * @return
+     */
+    public synchronized boolean writeIndex() {
+        String indexFilePath = dirPath + File.separator + JACGConstants.FILE_KEYWORD_INDEX;
+        logger.info("生成关键字索引文件 {}", indexFilePath);
+
+        String[] tokenArray = new String[tokenIdGenerator.get()];
+        for (Map.Entry<String, Integer> entry : tokenIdMap.entrySet()) {
+            tokenArray[entry.getValue()] = entry.getKey();
+        }
+
+        // 计算每个词的位置信息int数量
+        int[] postingIntNumArray = new int[tokenArray.length];
+        for (IndexedFile indexedFile : indexedFileList) {
+            long[] tokenLineArray = indexedFile.tokenLineArray;
+            int lastTokenId = -1;
+            for (long tokenLine : tokenLineArray) {
+                int tokenId = (int) (tokenLine >>> 32);
+                if (tokenId != lastTokenId) {
+                    // 文件序号、行数量
+                    postingIntNumArray[tokenId] += 2;
+                    lastTokenId = tokenId;
+                }
+                postingIntNumArray[tokenId]++;
+            }
+        }
+
+        // 按文件序号顺序生成每个词的位置信息
+        int[][] postingArray = new int[tokenArray.length][];
+        int[] postingPositionArray = new int[tokenArray.length];
+        int usedTokenNum = 0;
+        for (int tokenId = 0; tokenId < tokenArray.length; tokenId++) {
+            if (postingIntNumArray[tokenId] > 0) {
+                postingArray[tokenId] = new int[postingIntNumArray[tokenId]];
+                usedTokenNum++;
+            }
+        }
+        for (int fileId = 0; fileId < indexedFileList.size(); fileId++) {
+            long[] tokenLineArray = indexedFileList.get(fileId).tokenLineArray;
+            int lastTokenId = -1;
+            // 当前词的行数量在位置信息中的下标
+            int lineNumIndex = -1;
+            for (long tokenLine : tokenLineArray) {
+                int tokenId = (int) (tokenLine >>> 32);
+                int[] posting = postingArray[tokenId];
+                if (tokenId != lastTokenId) {
+                    posting[postingPositionArray[tokenId]++] = fileId;
+                    lineNumIndex = postingPositionArray[tokenId]++;
+                    lastTokenId = tokenId;
+                }
+                posting[lineNumIndex]++;
+                posting[postingPositionArray[tokenId]++] = (int) tokenLine;
+            }
+        }
+
+        File tmpFile = new File(indexFilePath + TMP_FILE_EXT);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+            out.writeInt(KeywordIndexFormat.FILE_MAGIC);
+            out.writeInt(KeywordIndexFormat.FILE_VERSION);
+
+            out.writeInt(indexedFileList.size());
+            for (IndexedFile indexedFile : indexedFileList) {
+                writeBytes(out, indexedFile.entryName.getBytes(StandardCharsets.UTF_8));
+                out.writeInt(indexedFile.contentLength);
+                out.writeInt(indexedFile.regionArray.length / 2);
+                for (int value : indexedFile.regionArray) {
+                    out.writeInt(value);
+                }
+            }
+
+            out.writeInt(usedTokenNum);
+            for (int tokenId = 0; tokenId < tokenArray.length; tokenId++) {
+                int[] posting = postingArray[tokenId];
+                if (posting == null) {
+                    // 词对应的文件未写入成功
+                    continue;
+                }
+
+                writeBytes(out, tokenArray[tokenId].getBytes(StandardCharsets.UTF_8));
+                out.writeInt(posting.length);
+                for (int value : posting) {
+                    out.writeInt(value);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("error {} ", indexFilePath, e);
+            return false;
+        }
+
+        try {
+            Files.move(tmpFile.toPath(), new File(indexFilePath).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.error("error {} ", indexFilePath, e);
+            return false;
+        }
+
+        logger.info("关键字索引文件生成完毕，文件数量 {} 词数量 {}", indexedFileList.size(), usedTokenNum);
+        return true;
+    }
+
+    private void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    // 已记录的一个调用链文件的索引信息
+    private static class IndexedFile {
+        private final String entryName;
+
+        private final int contentLength;
+
+        private final int lineCount;
+
+        private final boolean endsWithNewLine;
+
+        private final int[] regionArray;
+
+        private final long[] tokenLineArray;
+
+        IndexedFile(String entryName, int contentLength, int lineCount, boolean endsWithNewLine, int[] regionArray, long[] tokenLineArray) {
+            this.entryName = entryName;
+            this.contentLength = contentLength;
+            this.lineCount = lineCount;
+            this.endsWithNewLine = endsWithNewLine;
+            this.regionArray = regionArray;
+            this.tokenLineArray = tokenLineArray;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.adrninistrator.jacg.keyword_index;
+
+import com.adrninistrator.jacg.common.JACGConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/19
+ * @description: 将一个调用链文件的内容写入指定的Writer，同时记录关键字索引，关闭时将索引信息添加到KeywordIndexBuilder
+ * 按行处理的方式与查找关键字时读取调用链文件的方式相同：以\n分隔，去掉行尾的\r，以[开头的行为调用链信息的行
+ */
+public class KeywordIndexEntryWriter extends Writer {
+    private static final Logger logger = LoggerFactory.getLogger(KeywordIndexEntryWriter.class);
+
+    private static final char CHAR_LF = '\n';
+    private static final char CHAR_CR = '\r';
+    private static final char CHAR_LEFT_PARENTHESES = JACGConstants.FLAG_LEFT_PARENTHESES.charAt(0);
+    private static final char CHAR_RIGHT_PARENTHESES = JACGConstants.FLAG_RIGHT_PARENTHESES.charAt(0);
+    private static final char CHAR_HASHTAG = JACGConstants.FLAG_HASHTAG.charAt(0);
+    private static final char CHAR_SPACE = JACGConstants.FLAG_SPACE.charAt(0);
+    private static final char CHAR_TAB = JACGConstants.FLAG_TAB.charAt(0);
+
+    private final KeywordIndexBuilder keywordIndexBuilder;
+
+    // 索引中的文件名称
+    private final String entryName;
+
+    // 实际写入调用链文件内容的Writer
+    private final Writer writer;
+
+    // 当前行的内容
+    private final StringBuilder currentLine = new StringBuilder();
+
+    // 当前行号，从1开始
+    private int lineNum = 0;
+
+    // 已写入内容的UTF-8字节数
+    private long contentLength = 0L;
+
+    // 当前行开始的字节位置
+    private long lineStartOffset = 0L;
+
+    // 上一行是否为调用链信息的行
+    private boolean lastIsCallGraphLine = false;
+
+    // 最后写入的字符是否为换行符
+    private boolean lastIsNewLine = false;
+
+    // 各片段开始的行号及字节位置，依次存放
+    private int[] regionArray = new int[8];
+    private int regionIntNum = 0;
+
+    // 词序号及行号，词序号保存在高32位，行号保存在低32位
+    private long[] tokenLineArray = new long[64];
+    private int tokenLineNum = 0;
+
+    private boolean closed = false;
+
+    public KeywordIndexEntryWriter(KeywordIndexBuilder keywordIndexBuilder, String filePath, Writer writer) {
+        this.keywordIndexBuilder = keywordIndexBuilder;
+        this.entryName = keywordIndexBuilder.genEntryName(filePath);
+        this.writer = writer;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        writer.write(cbuf, off, len);
+        for (int i = off; i < off + len; i++) {
+            handleChar(cbuf[i]);
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        writer.write(str, off, len);
+        for (int i = off; i < off + len; i++) {
+            handleChar(str.charAt(i));
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        // 处理最后一行没有换行符的内容
+        if (currentLine.length() > 0) {
+            handleLine();
+        }
+        writer.close();
+
+        if (contentLength > Integer.MAX_VALUE) {
+            // 查找关键字时不支持读取以上文件，会使用完整读取的方式处理
+            logger.warn("调用链文件过大，不记录关键字索引 {} {}", entryName, contentLength);
+            return;
+        }
+
+        // 词序号及行号排序并去重，一行中可能多次出现相同的词
+        Arrays.sort(tokenLineArray, 0, tokenLineNum);
+        int distinctNum = 0;
+        for (int i = 0; i < tokenLineNum; i++) {
+            if (distinctNum == 0 || tokenLineArray[i] != tokenLineArray[distinctNum - 1]) {
+                tokenLineArray[distinctNum++] = tokenLineArray[i];
+            }
+        }
+        keywordIndexBuilder.addFile(entryName, (int) contentLength, lineNum, lastIsNewLine, Arrays.copyOf(regionArray, regionIntNum),
+                Arrays.copyOf(tokenLineArray, distinctNum));
+    }
+
+    private void handleChar(char c) {
+        lastIsNewLine = c == CHAR_LF;
+        if (lastIsNewLine) {
+            handleLine();
+            contentLength++;
+            lineStartOffset = contentLength;
+            return;
+        }
+
+        // 计算字符对应的UTF-8字节数，代理项字符成对出现，每个记为2字节
+        if (c < 0x80) {
+            contentLength++;
+        } else if (c < 0x800 || Character.isSurrogate(c)) {
+            contentLength += 2;
+        } else {
+            contentLength += 3;
+        }
+        currentLine.append(c);
+    }
+
+    // 处理一行内容
+    private void handleLine() {
+        lineNum++;
+        int length = currentLine.length();
+        if (length > 0 && currentLine.charAt(length - 1) == CHAR_CR) {
+            length--;
+        }
+
+        boolean isCallGraphLine = length > 0 && currentLine.charAt(0) == CHAR_LEFT_PARENTHESES;
+        if (isCallGraphLine) {
+            if (!lastIsCallGraphLine) {
+                // 不属于调用链信息的行之后的第一行调用链信息，为新片段的开始
+                addRegion();
+            }
+            addLineTokens(length);
+        }
+        lastIsCallGraphLine = isCallGraphLine;
+        currentLine.setLength(0);
+    }
+
+    private void addRegion() {
+        if (regionIntNum + 2 > regionArray.length) {
+            regionArray = Arrays.copyOf(regionArray, regionArray.length * 2);
+        }
+        regionArray[regionIntNum++] = lineNum;
+        regionArray[regionIntNum++] = (int) Math.min(lineStartOffset, Integer.MAX_VALUE);
+    }
+
+    // 记录调用链信息的行中的词，去掉方法级别及缩进后，使用TAB分隔
+    private void addLineTokens(int length) {
+        int columnStart = getContentStart(length);
+        for (int i = columnStart; i <= length; i++) {
+            if (i < length && currentLine.charAt(i) != CHAR_TAB) {
+                continue;
+            }
+
+            if (i > columnStart) {
+                addToken(currentLine.substring(columnStart, i));
+            }
+            columnStart = i + 1;
+        }
+    }
+
+    // 获取调用链信息的行中方法级别及缩进之后的位置，格式非法时返回0
+    private int getContentStart(int length) {
+        int index = 1;
+        while (index < length && currentLine.charAt(index) >= '0' && currentLine.charAt(index) <= '9') {
+            index++;
+        }
+        if (index == 1 || index + 1 >= length || currentLine.charAt(index) != CHAR_RIGHT_PARENTHESES || currentLine.charAt(index + 1) != CHAR_HASHTAG) {
+            return 0;
+        }
+
+        index += 2;
+        while (index < length && currentLine.charAt(index) == CHAR_SPACE) {
+            index++;
+        }
+        return index;
+    }
+
+    private void addToken(String token) {
+        if (tokenLineNum == tokenLineArray.length) {
+            tokenLineArray = Arrays.copyOf(tokenLineArray, tokenLineNum * 2);
+        }
+        tokenLineArray[tokenLineNum++] = ((long) keywordIndexBuilder.getTokenId(token) << 32) | lineNum;
+    }
+}
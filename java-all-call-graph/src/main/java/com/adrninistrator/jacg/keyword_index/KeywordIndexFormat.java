@@ -0,0 +1,18 @@
+package com.adrninistrator.jacg.keyword_index;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/19
+ * @description: 调用链关键字索引文件的格式定义，供KeywordIndexBuilder与KeywordIndexReader使用
+ * 文件头：标志、版本号
+ * 文件信息：文件数量，每个文件的名称字节数、名称（UTF-8）、内容字节数、片段数量、各片段开始的行号及字节位置
+ * 词信息：词数量，每个词的字节数、词（UTF-8）、位置信息int数量、位置信息（多组[文件序号、行数量、各行号]）
+ */
+class KeywordIndexFormat {
+    static final int FILE_MAGIC = 0x4A41434B;
+    static final int FILE_VERSION = 1;
+
+    private KeywordIndexFormat() {
+        throw new IllegalStateException("illegal");
+    }
+}
@@ -0,0 +1,202 @@
+package com.adrninistrator.jacg.keyword_index;
+
+import com.adrninistrator.jacg.common.JACGConstants;
+import com.adrninistrator.jacg.dto.keyword_index.KeywordIndexCandidate;
+import com.adrninistrator.jacg.find_keyword.KeywordMatcher;
+import com.adrninistrator.jacg.util.JACGFileUtil;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/19
+ * @description: 读取调用链关键字索引文件，查询各调用链文件中可能包含关键字的行
+ * 索引文件使用内存映射读取，只在需要时读取词对应的位置信息
+ */
+public class KeywordIndexReader {
+    private static final Logger logger = LoggerFactory.getLogger(KeywordIndexReader.class);
+
+    // 可能只出现在方法级别中的关键字，如“[”、“]”、“[1”、“12”、“2]”
+    private static final Pattern METHOD_LEVEL_PATTERN = Pattern.compile("\\[|]|\\[?[0-9]+]?");
+
+    // 索引文件内容
+    private final ByteBuffer buffer;
+
+    // 各文件名称，下标为文件序号
+    private final String[] entryNames;
+
+    // 各文件内容的字节数
+    private final int[] contentLengths;
+
+    // 各文件中片段开始的行号
+    private final int[][] regionStartLineNumsArray;
+
+    // 各文件中片段开始的字节位置
+    private final int[][] regionStartOffsetsArray;
+
+    // 词数量
+    private final int tokenNum;
+
+    // 词信息开始的位置
+    private final int tokenStartPosition;
+
+    private KeywordIndexReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+        int position = 2 * Integer.BYTES;
+
+        int fileNum = buffer.getInt(position);
+        position += Integer.BYTES;
+        entryNames = new String[fileNum];
+        contentLengths = new int[fileNum];
+        regionStartLineNumsArray = new int[fileNum][];
+        regionStartOffsetsArray = new int[fileNum][];
+        for (int fileId = 0; fileId < fileNum; fileId++) {
+            int nameLength = buffer.getInt(position);
+            position += Integer.BYTES;
+            entryNames[fileId] = decode(position, nameLength);
+            position += nameLength;
+            contentLengths[fileId] = buffer.getInt(position);
+            position += Integer.BYTES;
+            int regionNum = buffer.getInt(position);
+            position += Integer.BYTES;
+            int[] regionStartLineNums = new int[regionNum];
+            int[] regionStartOffsets = new int[regionNum];
+            for (int i = 0; i < regionNum; i++) {
+                regionStartLineNums[i] = buffer.getInt(position);
+                regionStartOffsets[i] = buffer.getInt(position + Integer.BYTES);
+                position += 2 * Integer.BYTES;
+            }
+            regionStartLineNumsArray[fileId] = regionStartLineNums;
+            regionStartOffsetsArray[fileId] = regionStartOffsets;
+        }
+
+        tokenNum = buffer.getInt(position);
+        tokenStartPosition = position + Integer.BYTES;
+    }
+
+    /**
+     * 判断目录中是否存在关键字索引文件
+     *
+     * @param dirPath 调用链文件所在目录
+     * @return
+     */
+    public static boolean isKeywordIndexExists(String dirPath) {
+        return JACGFileUtil.isFileExists(dirPath + File.separator + JACGConstants.FILE_KEYWORD_INDEX);
+    }
+
+    /**
+     * 打开关键字索引文件
+     *
+     * @param dirPath 调用链文件所在目录
+     * @return null: 打开失败
+     */
+    public static KeywordIndexReader genKeywordIndexReader(String dirPath) {
+        File file = new File(dirPath, JACGConstants.FILE_KEYWORD_INDEX);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                logger.error("关键字索引文件过大 {} {}", file.getAbsolutePath(), channel.size());
+                return null;
+            }
+
+            // 关闭FileChannel后，已映射的内容仍可以使用
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < 2 * Integer.BYTES ||
+                    buffer.getInt(0) != KeywordIndexFormat.FILE_MAGIC ||
+                    buffer.getInt(Integer.BYTES) != KeywordIndexFormat.FILE_VERSION) {
+                logger.error("关键字索引文件格式非法 {}", file.getAbsolutePath());
+                return null;
+            }
+            return new KeywordIndexReader(buffer);
+        } catch (Exception e) {
+            logger.error("打开关键字索引文件失败 {} ", file.getAbsolutePath(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 判断关键字是否支持通过索引查找
+     * 索引中的词不包含方法级别、缩进及TAB，以下关键字可能只出现在这些内容中或跨越多个词，需要完整读取调用链文件进行查找：
+     * 包含TAB、换行符、#，以空格开头，可能只出现在方法级别中
+     *
+     * @param keyword
+     * @return
+     */
+    public static boolean isKeywordSupported(String keyword) {
+        return !keyword.isEmpty() &&
+                !StringUtils.containsAny(keyword, JACGConstants.FLAG_TAB, "\r", "\n", JACGConstants.FLAG_HASHTAG) &&
+                !keyword.startsWith(JACGConstants.FLAG_SPACE) &&
+                !METHOD_LEVEL_PATTERN.matcher(keyword).matches();
+    }
+
+    /**
+     * 查询各调用链文件中可能包含关键字的行
+     *
+     * @param keywordMatcher 需要查找的关键字，需要都支持通过索引查找
+     * @return key: 文件名称，为调用链文件相对于输出目录的路径，使用/作为分隔符 value: 可能包含关键字的行，null: 查询失败
+     */
+    public Map<String, KeywordIndexCandidate> queryCandidates(KeywordMatcher keywordMatcher) {
+        try {
+            // 各文件可能包含关键字的行号
+            BitSet[] lineNumBitSets = new BitSet[entryNames.length];
+            int position = tokenStartPosition;
+            for (int i = 0; i < tokenNum; i++) {
+                int tokenLength = buffer.getInt(position);
+                int tokenStart = position + Integer.BYTES;
+                int tokenEnd = tokenStart + tokenLength;
+                int postingIntNum = buffer.getInt(tokenEnd);
+                int postingStart = tokenEnd + Integer.BYTES;
+                position = postingStart + postingIntNum * Integer.BYTES;
+
+                // 直接对索引文件中的词的字节进行匹配
+                if (!keywordMatcher.containsAny(buffer, tokenStart, tokenEnd)) {
+                    continue;
+                }
+
+                // 记录包含关键字的词出现的文件及行号
+                int postingPosition = postingStart;
+                while (postingPosition < position) {
+                    int fileId = buffer.getInt(postingPosition);
+                    int lineNum = buffer.getInt(postingPosition + Integer.BYTES);
+                    postingPosition += 2 * Integer.BYTES;
+                    if (lineNumBitSets[fileId] == null) {
+                        lineNumBitSets[fileId] = new BitSet();
+                    }
+                    for (int j = 0; j < lineNum; j++) {
+                        lineNumBitSets[fileId].set(buffer.getInt(postingPosition));
+                        postingPosition += Integer.BYTES;
+                    }
+                }
+            }
+
+            Map<String, KeywordIndexCandidate> candidateMap = new HashMap<>(entryNames.length * 2);
+            for (int fileId = 0; fileId < entryNames.length; fileId++) {
+                int[] lineNums = lineNumBitSets[fileId] == null ? new int[0] : lineNumBitSets[fileId].stream().toArray();
+                candidateMap.put(entryNames[fileId], new KeywordIndexCandidate(contentLengths[fileId], regionStartLineNumsArray[fileId],
+                        regionStartOffsetsArray[fileId], lineNums));
+            }
+            return candidateMap;
+        } catch (Exception e) {
+            logger.error("读取关键字索引文件失败 ", e);
+            return null;
+        }
+    }
+
+    private String decode(int start, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
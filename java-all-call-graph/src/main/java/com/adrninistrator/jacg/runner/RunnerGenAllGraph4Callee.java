@@ -4,14 +4,15 @@ import com.adrninistrator.jacg.common.DC;
 import com.adrninistrator.jacg.common.JACGConstants;
 import com.adrninistrator.jacg.common.enums.OtherConfigFileUseSetEnum;
 import com.adrninistrator.jacg.common.enums.OutputDetailEnum;
+import com.adrninistrator.jacg.dto.entity.MethodCallRow;
 import com.adrninistrator.jacg.dto.node.TmpNode4Callee;
 import com.adrninistrator.jacg.dto.task.CalleeTaskInfo;
 import com.adrninistrator.jacg.dto.task.CalleeTmpMethodInfo;
 import com.adrninistrator.jacg.dto.task.FindMethodInfo;
+import com.adrninistrator.jacg.graph.ReverseCallGraph;
 import com.adrninistrator.jacg.runner.base.AbstractRunnerGenCallGraph;
 import com.adrninistrator.jacg.util.JACGCallGraphFileUtil;
 import com.adrninistrator.jacg.util.JACGFileUtil;
-import com.adrninistrator.jacg.util.JACGSqlUtil;
 import com.adrninistrator.jacg.util.JACGUtil;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.MutablePair;
@@ -21,10 +22,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -43,6 +41,12 @@ public class RunnerGenAllGraph4Callee extends AbstractRunnerGenCallGraph {
 
     private static final Logger logger = LoggerFactory.getLogger(RunnerGenAllGraph4Callee.class);
 
+    // 保存在内存中的反向方法调用关系，仅当需要将方法调用关系加载到内存中时非空，加载后只读，各线程共用
+    private ReverseCallGraph reverseCallGraph;
+
+    // 查询被调用关系时所需字段，查询结果按字段顺序写入MethodCallRow
+    private String[] callerColumns;
+
     @Override
     public boolean preHandle() {
         // 检查Jar包文件是否有更新
@@ -75,7 +79,23 @@ public class RunnerGenAllGraph4Callee extends AbstractRunnerGenCallGraph {
             return false;
         }
 
-        return true;
+        // 直接查找关键字时，计算需要处理的方法
+        if (!initKeywordRelevantMethods(true)) {
+            return false;
+        }
+
+        // 确定查询被调用关系时所需字段
+        Set<String> callerColumnSet = chooseCallerColumnSet();
+        callerColumns = callerColumnSet.toArray(new String[0]);
+
+        if (confInfo.isGenCalleeUseMemoryGraph()) {
+            // 将方法调用关系加载到内存中
+            reverseCallGraph = ReverseCallGraph.load(dbOperator, dbOperWrapper, confInfo.getAppName(), callerColumnSet);
+            return reverseCallGraph != null;
+        }
+
+        // 初始化查询方法调用关系使用的存储
+        return initMethodCallStorage(callerColumns, null);
     }
 
     @Override
@@ -221,6 +241,17 @@ public class RunnerGenAllGraph4Callee extends AbstractRunnerGenCallGraph {
                 return false;
             }
 
+            if (annotationStorage != null) {
+                // 按需查询注解信息时，一次查询当前类全部方法的注解信息
+                List<String> calleeMethodHashList = new ArrayList<>(calleeTmpMethodInfoList.size());
+                for (CalleeTmpMethodInfo calleeTmpMethodInfo : calleeTmpMethodInfoList) {
+                    calleeMethodHashList.add(calleeTmpMethodInfo.getMethodHash());
+                }
+                if (!annotationStorage.prefetch4Methods(calleeMethodHashList)) {
+                    return false;
+                }
+            }
+
             for (CalleeTmpMethodInfo calleeTmpMethodInfo : calleeTmpMethodInfoList) {
                 // 处理一个被调用方法
                 handleOneCalleeMethod(calleeSimpleClassName, calleeTmpMethodInfo.getMethodHash(), calleeTmpMethodInfo.getFullMethod(), null);
@@ -286,6 +317,13 @@ public class RunnerGenAllGraph4Callee extends AbstractRunnerGenCallGraph {
         wait4TPEExecute();
 
         threadPoolExecutor.execute(() -> {
+            // 当前任务执行期间固定使用同一个数据库连接，并缓存PreparedStatement
+            if (!dbOperator.openSession()) {
+                // 记录执行失败的任务信息
+                recordTaskFail(origTaskText != null ? origTaskText : calleeFullMethod);
+                return;
+            }
+
             try {
                 // 执行处理一个被调用方法
                 if (!doHandleOneCalleeMethod(calleeSimpleClassName, calleeMethodHash, calleeFullMethod, origTaskText)) {
@@ -296,6 +334,8 @@ public class RunnerGenAllGraph4Callee extends AbstractRunnerGenCallGraph {
                 logger.error("error {} ", origTaskText, e);
                 // 记录执行失败的任务信息
                 recordTaskFail(origTaskText != null ? origTaskText : calleeFullMethod);
+            } finally {
+                dbOperator.closeSession();
             }
         });
     }
@@ -305,7 +345,7 @@ public class RunnerGenAllGraph4Callee extends AbstractRunnerGenCallGraph {
         String methodName = JACGUtil.getMethodNameFromFull(calleeFullMethod);
         // 生成方法对应的调用链文件名
         String outputFilePath4Method = outputDirPrefix + File.separator + JACGConstants.DIR_OUTPUT_METHODS + File.separator +
-                JACGCallGraphFileUtil.getCallGraphMethodFileName(calleeSimpleClassName, methodName, calleeMethodHash) + JACGConstants.EXT_TXT;
+                JACGCallGraphFileUtil.getCallGraphMethodFileName(calleeSimpleClassName, methodName, calleeMethodHash) + getOutputFileExt();
         logger.info("当前方法输出文件名 {}", outputFilePath4Method);
 
         if (origTaskText != null) {
@@ -319,7 +359,7 @@ public class RunnerGenAllGraph4Callee extends AbstractRunnerGenCallGraph {
             return true;
         }
 
-        try (BufferedWriter out4Method = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFilePath4Method), StandardCharsets.UTF_8))) {
+        try (BufferedWriter out4Method = genOutputWriter(outputFilePath4Method)) {
             if (confInfo.isWriteConf()) {
                 // 在结果文件中写入配置信息
                 out4Method.write(confInfo.toString() + JACGConstants.NEW_LINE);
@@ -432,7 +472,7 @@ public class RunnerGenAllGraph4Callee extends AbstractRunnerGenCallGraph {
                 JACGCallGraphFileUtil.getEmptyCallGraphFileName(calleeSimpleClassName, methodInfoInTask);
         logger.info("生成空文件 {} {} {}", calleeSimpleClassName, methodInfoInTask, outputFilePath4EmptyFile);
         // 创建文件
-        return JACGFileUtil.createNewFile(outputFilePath4EmptyFile);
+        return createEmptyOutputFile(outputFilePath4EmptyFile);
     }
 
     /**
@@ -457,22 +497,30 @@ public class RunnerGenAllGraph4Callee extends AbstractRunnerGenCallGraph {
 
         int lineNum = 0;
 
+        // 保存查询到的调用方法信息，每次查询时重复使用
+        MethodCallRow methodCallRow = new MethodCallRow();
+
+        // 记录最后一条调用方法之后是否跳过了调用方法，跳过时最后一条调用方法不能设置为入口方法
+        boolean skippedAfterLastRecord = false;
+
         while (true) {
             TmpNode4Callee currentNode = node4CalleeList.get(currentNodeLevel);
 
             // 查询当前节点的一个上层调用方法
-            Map<String, Object> methodMapByCallee = queryOneByCalleeMethod(currentNode);
-            if (methodMapByCallee == null) {
+            Boolean found = queryOneByCalleeMethod(currentNode, methodCallRow);
+            if (found == null) {
                 // 查询失败
                 return false;
             }
 
-            if (methodMapByCallee.isEmpty()) {
+            if (!found) {
                 // 未查询到记录
                 if (currentNodeLevel <= JACGConstants.CALL_GRAPH_METHOD_LEVEL_START) {
                     // 当前处理的节点为最下层节点，结束循环
                     // 将调用方法列表中最后一条记录设置为入口方法
-                    markMethodAsEntry(callerMethodList);
+                    if (!skippedAfterLastRecord) {
+                        markMethodAsEntry(callerMethodList);
+                    }
                     return true;
                 }
 
@@ -480,7 +528,9 @@ public class RunnerGenAllGraph4Callee extends AbstractRunnerGenCallGraph {
                 currentNodeLevel--;
 
                 // 将调用方法列表中最后一条记录设置为入口方法
-                markMethodAsEntry(callerMethodList);
+                if (!skippedAfterLastRecord) {
+                    markMethodAsEntry(callerMethodList);
+                }
                 continue;
             }
 
@@ -490,8 +540,8 @@ public class RunnerGenAllGraph4Callee extends AbstractRunnerGenCallGraph {
                 logger.info("记录数达到 {} {}", lineNum, calleeFullMethod);
             }
 
-            String currentCallerMethodHash = (String) methodMapByCallee.get(DC.MC_CALLER_METHOD_HASH);
-            int enabled = (Integer) methodMapByCallee.get(DC.MC_ENABLED);
+            String currentCallerMethodHash = methodCallRow.getCallerMethodHash();
+            int enabled = methodCallRow.getEnabled();
 
             // 判断是否需要忽略
             if (enabled != JACGConstants.ENABLED) {
@@ -499,20 +549,26 @@ public class RunnerGenAllGraph4Callee extends AbstractRunnerGenCallGraph {
                 // 更新当前处理节点的调用者方法HASH
                 node4CalleeList.get(currentNodeLevel).setCurrentCallerMethodHash(currentCallerMethodHash);
 
-                int callId = (Integer) methodMapByCallee.get(DC.MC_CALL_ID);
-                String callType = (String) methodMapByCallee.get(DC.MC_CALL_TYPE);
-
                 // 记录被禁用的方法调用
-                recordDisabledMethodCall(callId, callType);
+                recordDisabledMethodCall(methodCallRow.getCallId(), methodCallRow.getCallType());
+                continue;
+            }
+
+            if (skipKeywordIrrelevantMethod(currentCallerMethodHash)) {
+                // 直接查找关键字时，跳过当前调用方法
+                node4CalleeList.get(currentNodeLevel).setCurrentCallerMethodHash(currentCallerMethodHash);
+                skippedAfterLastRecord = true;
                 continue;
             }
+
             // 检查是否出现循环调用
             int back2Level = checkCycleCall(node4CalleeList, currentNodeLevel, currentCallerMethodHash);
 
             // 记录调用方法信息
-            if (!recordCallerInfo(methodMapByCallee, currentNodeLevel, currentCallerMethodHash, back2Level, callerMethodList)) {
+            if (!recordCallerInfo(methodCallRow, currentNodeLevel, currentCallerMethodHash, back2Level, callerMethodList)) {
                 return false;
             }
+            skippedAfterLastRecord = false;
 
             if (back2Level != JACGConstants.NO_CYCLE_CALL_FLAG) {
                 logger.info("找到循环调用 {} [{}]", currentCallerMethodHash, back2Level);
@@ -579,79 +635,41 @@ public class RunnerGenAllGraph4Callee extends AbstractRunnerGenCallGraph {
         }
     }
 
-    // 查询当前节点的一个上层调用方法
-    private Map<String, Object> queryOneByCalleeMethod(TmpNode4Callee node) {
-        // 确定通过调用方法进行查询使用的SQL语句
-        String sql = chooseQueryByCalleeMethodSql(node.getCurrentCallerMethodHash());
-
-        List<Map<String, Object>> list;
-        if (node.getCurrentCallerMethodHash() == null) {
-            list = dbOperator.queryList(sql, new Object[]{node.getCurrentCalleeMethodHash()});
-        } else {
-            list = dbOperator.queryList(sql, new Object[]{node.getCurrentCalleeMethodHash(), node.getCurrentCallerMethodHash()});
-        }
-
-        if (list == null) {
-            // 查询失败
-            return null;
-        }
-
-        if (list.isEmpty()) {
-            // 查询不到结果时，返回空Map
-            return new HashMap<>(0);
-        }
-
-        return list.get(0);
-    }
-
-    // 确定通过调用方法进行查询使用的SQL语句
-    protected String chooseQueryByCalleeMethodSql(String callerMethodHash) {
-        if (callerMethodHash == null) {
-            // 第一次查询
-            String sqlKey = JACGConstants.SQL_KEY_MC_QUERY_ONE_CALLER1;
-            String sql = dbOperWrapper.getCachedSql(sqlKey);
-            if (sql == null) {
-                // 确定查询被调用关系时所需字段
-                sql = "select " + chooseCallerColumns() + " from " + JACGConstants.TABLE_PREFIX_METHOD_CALL + confInfo.getAppName() + " where " +
-                        DC.MC_CALLEE_METHOD_HASH + " = ? order by " + DC.MC_CALLER_METHOD_HASH + " limit 1";
-                dbOperWrapper.cacheSql(sqlKey, sql);
-            }
-            return sql;
+    /**
+     * 查询当前节点的一个上层调用方法，查询结果写入methodCallRow
+     *
+     * @param node
+     * @param methodCallRow
+     * @return null: 查询失败 Boolean.FALSE: 未查询到记录 Boolean.TRUE: 查询到记录
+     */
+    private Boolean queryOneByCalleeMethod(TmpNode4Callee node, MethodCallRow methodCallRow) {
+        if (reverseCallGraph != null) {
+            // 从内存中的反向方法调用关系查询
+            return reverseCallGraph.queryOneCaller(node.getCurrentCalleeMethodHash(), node.getCurrentCallerMethodHash(), methodCallRow);
         }
 
-        // 不是第一次查询
-        String sqlKey = JACGConstants.SQL_KEY_MC_QUERY_ONE_CALLER2;
-        String sql = dbOperWrapper.getCachedSql(sqlKey);
-        if (sql == null) {
-            // 确定查询被调用关系时所需字段
-            sql = "select " + chooseCallerColumns() + " from " + JACGConstants.TABLE_PREFIX_METHOD_CALL + confInfo.getAppName() + " where " +
-                    DC.MC_CALLEE_METHOD_HASH + " = ? and " + DC.MC_CALLER_METHOD_HASH + " > ? order by " +
-                    DC.MC_CALLER_METHOD_HASH + " limit 1";
-            dbOperWrapper.cacheSql(sqlKey, sql);
-        }
-        return sql;
+        return methodCallStorage.queryOneCaller(node.getCurrentCalleeMethodHash(), node.getCurrentCallerMethodHash(), methodCallRow);
     }
 
     // 记录调用方法信息
-    protected boolean recordCallerInfo(Map<String, Object> callerMethodMap, int currentNodeLevel, String currentCallerMethodHash, int back2Level,
+    protected boolean recordCallerInfo(MethodCallRow methodCallRow, int currentNodeLevel, String currentCallerMethodHash, int back2Level,
                                        List<Pair<String, Boolean>> callerMethodList) {
         StringBuilder callerInfo = new StringBuilder();
         callerInfo.append(genOutputPrefix(currentNodeLevel + 1));
 
         if (confInfo.getCallGraphOutputDetail().equals(OutputDetailEnum.ODE_1.getDetail())) {
             // # 1: 展示 完整类名+方法名+方法参数
-            String fullMethod = (String) callerMethodMap.get(DC.MC_CALLER_FULL_METHOD);
-            callerInfo.append(fullMethod);
+            callerInfo.append(methodCallRow.getCallerFullMethod());
         } else if (confInfo.getCallGraphOutputDetail().equals(OutputDetailEnum.ODE_2.getDetail())) {
             // # 2: 展示 完整类名+方法名
-            callerInfo.append(callerMethodMap.get(DC.MC_CALLER_FULL_CLASS_NAME))
+            callerInfo.append(methodCallRow.getCallerFullClassName())
                     .append(JACGConstants.FLAG_COLON)
-                    .append(callerMethodMap.get(DC.MC_CALLER_METHOD_NAME));
+                    .append(methodCallRow.getCallerMethodName());
         } else {
             // # 3: 展示 简单类名（对于同名类展示完整类名）+方法名
-            callerInfo.append(callerMethodMap.get(DC.MC_CALLER_CLASS_NAME))
+            callerInfo.append(methodCallRow.getCallerClassName())
                     .append(JACGConstants.FLAG_COLON)
-                    .append(callerMethodMap.get(DC.MC_CALLER_METHOD_NAME));
+                    .append(methodCallRow.getCallerMethodName());
         }
 
         // 添加方法注解信息
@@ -666,9 +684,9 @@ public class RunnerGenAllGraph4Callee extends AbstractRunnerGenCallGraph {
         if (confInfo.isShowCallerLineNum()) {
             callerInfo.append(JACGConstants.FLAG_TAB)
                     .append(JACGConstants.FLAG_LEFT_BRACKET)
-                    .append((String) callerMethodMap.get(DC.MC_CALLER_CLASS_NAME))
+                    .append(methodCallRow.getCallerClassName())
                     .append(JACGConstants.FLAG_COLON)
-                    .append((int) callerMethodMap.get(DC.MC_CALLER_LINE_NUM))
+                    .append(methodCallRow.getCallerLineNum())
                     .append(JACGConstants.FLAG_RIGHT_BRACKET);
         }
 
@@ -680,11 +698,8 @@ public class RunnerGenAllGraph4Callee extends AbstractRunnerGenCallGraph {
         Pair<String, Boolean> pair = new MutablePair<>(callerInfo.toString(), Boolean.FALSE);
         callerMethodList.add(pair);
 
-        int callId = (Integer) callerMethodMap.get(DC.MC_CALL_ID);
-        String callType = (String) callerMethodMap.get(DC.MC_CALL_TYPE);
-
         // 记录可能出现一对多的方法调用
-        return recordMethodCallMayBeMulti(callId, callType);
+        return recordMethodCallMayBeMulti(methodCallRow.getCallId(), methodCallRow.getCallType());
     }
 
     // 确定写入输出文件的当前被调用方法信息
@@ -703,8 +718,8 @@ public class RunnerGenAllGraph4Callee extends AbstractRunnerGenCallGraph {
         return calleeClassName + JACGConstants.FLAG_COLON + calleeMethodName;
     }
 
-    // 确定查询被调用关系时所需字段
-    private String chooseCallerColumns() {
+    // 确定查询被调用关系时所需字段集合
+    private Set<String> chooseCallerColumnSet() {
         Set<String> columnSet = new HashSet<>();
         columnSet.add(DC.MC_CALL_ID);
         columnSet.add(DC.MC_CALL_TYPE);
@@ -730,10 +745,7 @@ public class RunnerGenAllGraph4Callee extends AbstractRunnerGenCallGraph {
             columnSet.add(DC.MC_CALLER_LINE_NUM);
         }
 
-        String[] columnArray = new String[columnSet.size()];
-        columnSet.toArray(columnArray);
-
-        return JACGSqlUtil.joinColumns(columnArray);
+        return columnSet;
     }
 
     // 打印存在一对多的方法调用，自定义处理
@@ -770,7 +782,12 @@ public class RunnerGenAllGraph4Callee extends AbstractRunnerGenCallGraph {
 
     // 将输出的方法文件合并为类对应的文件
     private void combineClassFile() {
-        List<File> methodOutputFileList = JACGFileUtil.findFileInCurrentDir(outputDirPrefix + File.separator + JACGConstants.DIR_OUTPUT_METHODS, JACGConstants.EXT_TXT);
+        if (callGraphArchiveWriter != null) {
+            // 生成归档文件时，可通过归档索引文件按类名查找方法对应的条目，不需要生成类对应的文件
+            return;
+        }
+
+        List<File> methodOutputFileList = JACGFileUtil.findFileInCurrentDir(outputDirPrefix + File.separator + JACGConstants.DIR_OUTPUT_METHODS, getOutputFileExt());
         if (JACGUtil.isCollectionEmpty(methodOutputFileList)) {
             return;
         }
@@ -804,8 +821,11 @@ public class RunnerGenAllGraph4Callee extends AbstractRunnerGenCallGraph {
 
     // 执行将输出的方法文件合并为类对应的文件
     private void doCombineClassFile(String lastClassName, List<File> combineMethodFileList) {
-        String classFilePath = outputDirPrefix + File.separator + lastClassName + JACGConstants.EXT_TXT;
+        String classFilePath = outputDirPrefix + File.separator + lastClassName + getOutputFileExt();
         logger.info("将以下类对应的方法文件合并为类对应的文件 {}", classFilePath);
-        JACGFileUtil.combineTextFile(classFilePath, combineMethodFileList);
+        if (JACGFileUtil.combineTextFile(classFilePath, combineMethodFileList) && keywordIndexBuilder != null) {
+            // 根据方法对应的文件的关键字索引，记录类对应的文件的关键字索引
+            keywordIndexBuilder.addCombinedFile(classFilePath, combineMethodFileList);
+        }
     }
 }
@@ -4,6 +4,7 @@ import com.adrninistrator.jacg.common.DC;
 import com.adrninistrator.jacg.common.JACGConstants;
 import com.adrninistrator.jacg.common.enums.OtherConfigFileUseSetEnum;
 import com.adrninistrator.jacg.common.enums.OutputDetailEnum;
+import com.adrninistrator.jacg.dto.entity.MethodCallRow;
 import com.adrninistrator.jacg.dto.multiple.MultiImplMethodInfo;
 import com.adrninistrator.jacg.dto.node.TmpNode4Caller;
 import com.adrninistrator.jacg.dto.task.CallerTaskInfo;
@@ -25,10 +26,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -90,6 +88,9 @@ public class RunnerGenAllGraph4Caller extends AbstractRunnerGenCallGraph {
     // 简单类名及对应的完整类名Map
     protected Map<String, String> simpleAndFullClassNameMap = new ConcurrentHashMap<>();
 
+    // 查询调用关系时所需字段，查询结果按字段顺序写入MethodCallRow
+    private String[] selectMethodColumns;
+
     @Override
     public boolean preHandle() {
         // 检查Jar包文件是否有更新
@@ -147,12 +148,21 @@ public class RunnerGenAllGraph4Caller extends AbstractRunnerGenCallGraph {
             return false;
         }
 
+        // 直接查找关键字时，计算需要处理的方法
+        if (!initKeywordRelevantMethods(false)) {
+            return false;
+        }
+
         // 查询存在多个实现类的接口或父类方法HASH
         if (!confInfo.isMultiImplGenInCurrentFile() && !queryMultiImplMethodHash()) {
             return false;
         }
 
-        return true;
+        // 确定查询调用关系时所需字段
+        selectMethodColumns = chooseSelectMethodColumns();
+
+        // 初始化查询方法调用关系使用的存储
+        return initMethodCallStorage(null, selectMethodColumns);
     }
 
     @Override
@@ -228,6 +238,13 @@ public class RunnerGenAllGraph4Caller extends AbstractRunnerGenCallGraph {
             wait4TPEExecute();
 
             threadPoolExecutor.execute(() -> {
+                // 当前任务执行期间固定使用同一个数据库连接，并缓存PreparedStatement
+                if (!dbOperator.openSession()) {
+                    // 记录执行失败的任务信息
+                    recordTaskFail(callerTaskInfo.getOrigText());
+                    return;
+                }
+
                 try {
                     // 处理一个任务
                     if (!handleOneTask(callerTaskInfo)) {
@@ -238,6 +255,8 @@ public class RunnerGenAllGraph4Caller extends AbstractRunnerGenCallGraph {
                     logger.error("error {} ", JsonUtil.getJsonStr(callerTaskInfo), e);
                     // 记录执行失败的任务信息
                     recordTaskFail(callerTaskInfo.getOrigText());
+                } finally {
+                    dbOperator.closeSession();
                 }
             });
         }
@@ -368,26 +387,23 @@ public class RunnerGenAllGraph4Caller extends AbstractRunnerGenCallGraph {
                 " where " + DC.MC_CALL_TYPE + " = ? and " + DC.MC_ENABLED + " = ?" +
                 " group by " + DC.MC_CALLER_METHOD_HASH +
                 " having count(" + DC.MC_CALLER_METHOD_HASH + ") > 1";
-        List<Object> multiImplMethodHashList = dbOperator.queryListOneColumn(sql, new Object[]{CallTypeEnum.CTE_ITF.getType(), JACGConstants.ENABLED});
-        if (multiImplMethodHashList == null) {
+        // 使用流式查询，不需要将全部查询结果保存在内存中
+        multiImplMethodHashSet = new HashSet<>();
+        if (!dbOperator.queryStream(sql, new Object[]{CallTypeEnum.CTE_ITF.getType(), JACGConstants.ENABLED}, rs -> {
+            multiImplMethodHashSet.add(rs.getString(1));
+            return true;
+        })) {
             return false;
         }
 
-        multiImplMethodHashSet = new HashSet<>(multiImplMethodHashList.size());
-        for (Object multiImplMethodHash : multiImplMethodHashList) {
-            multiImplMethodHashSet.add((String) multiImplMethodHash);
-        }
-
-        List<Object> multiChildrenMethodHashList = dbOperator.queryListOneColumn(sql, new Object[]{CallTypeEnum.CTE_SCC.getType(), JACGConstants.ENABLED});
-        if (multiChildrenMethodHashList == null) {
+        multiChildrenMethodHashSet = new HashSet<>();
+        if (!dbOperator.queryStream(sql, new Object[]{CallTypeEnum.CTE_SCC.getType(), JACGConstants.ENABLED}, rs -> {
+            multiChildrenMethodHashSet.add(rs.getString(1));
+            return true;
+        })) {
             return false;
         }
 
-        multiChildrenMethodHashSet = new HashSet<>(multiChildrenMethodHashList.size());
-        for (Object multiChildrenMethodHash : multiChildrenMethodHashList) {
-            multiChildrenMethodHashSet.add((String) multiChildrenMethodHash);
-        }
-
         return true;
     }
 
@@ -395,19 +411,18 @@ public class RunnerGenAllGraph4Caller extends AbstractRunnerGenCallGraph {
     private boolean queryCallIdWithExtendedData() {
         // 只查询一次，不需要缓存
         String sql = "select distinct(" + DC.ED_CALL_ID + ") from " + JACGConstants.TABLE_PREFIX_EXTENDED_DATA + confInfo.getAppName();
-        List<Object> callIdWithExtendedDataList = dbOperator.queryListOneColumn(sql, new Object[]{});
-        if (callIdWithExtendedDataList == null) {
-            return false;
-        }
-        if (callIdWithExtendedDataList.isEmpty()) {
+        // 使用流式查询，不需要将全部查询结果保存在内存中
+        Set<Integer> tmpCallIdWithExtendedDataSet = new HashSet<>();
+        if (!dbOperator.queryStream(sql, null, rs -> {
+            tmpCallIdWithExtendedDataSet.add(rs.getInt(1));
             return true;
+        })) {
+            return false;
         }
 
-        callIdWithExtendedDataSet = new HashSet<>(callIdWithExtendedDataList.size());
-        for (Object callIdWithExtendedData : callIdWithExtendedDataList) {
-            callIdWithExtendedDataSet.add((Integer) callIdWithExtendedData);
+        if (!tmpCallIdWithExtendedDataSet.isEmpty()) {
+            callIdWithExtendedDataSet = tmpCallIdWithExtendedDataSet;
         }
-
         return true;
     }
 
@@ -635,7 +650,7 @@ public class RunnerGenAllGraph4Caller extends AbstractRunnerGenCallGraph {
             // 假如有指定行号时，再加上：@[起始行号]-[结束行号]
             sbOutputFilePath.append(JACGConstants.FLAG_AT).append(lineNumStart).append(JACGConstants.FLAG_MINUS).append(lineNumEnd);
         }
-        sbOutputFilePath.append(JACGConstants.EXT_TXT);
+        sbOutputFilePath.append(getOutputFileExt());
         String outputFileName = sbOutputFilePath.toString();
         logger.info("当前输出文件名 {} {}", outputFileName, callerFullMethod);
 
@@ -650,7 +665,7 @@ public class RunnerGenAllGraph4Caller extends AbstractRunnerGenCallGraph {
             return true;
         }
 
-        try (BufferedWriter out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFileName), StandardCharsets.UTF_8))) {
+        try (BufferedWriter out = genOutputWriter(outputFileName)) {
             StringBuilder stringBuilder = new StringBuilder();
 
             if (confInfo.isWriteConf()) {
@@ -778,7 +793,7 @@ public class RunnerGenAllGraph4Caller extends AbstractRunnerGenCallGraph {
         String finalFilePath = emptyFilePath.append(JACGCallGraphFileUtil.getEmptyCallGraphFileName(callerClass, methodName)).toString();
         logger.info("生成空文件 {} {}", callerClass, finalFilePath);
         // 创建文件
-        return JACGFileUtil.createNewFile(finalFilePath);
+        return createEmptyOutputFile(finalFilePath);
     }
 
     /**
@@ -816,6 +831,9 @@ public class RunnerGenAllGraph4Caller extends AbstractRunnerGenCallGraph {
             recordedCalleeMap.put(0, new HashSet<>());
         }
 
+        // 保存查询到的被调用方法信息，每次查询时重复使用
+        MethodCallRow methodCallRow = new MethodCallRow();
+
         while (true) {
             int currentLineNumStart = JACGConstants.LINE_NUM_NONE;
             int currentLineNumEnd = JACGConstants.LINE_NUM_NONE;
@@ -827,13 +845,13 @@ public class RunnerGenAllGraph4Caller extends AbstractRunnerGenCallGraph {
             TmpNode4Caller currentNode = node4CallerList.get(currentNodeLevel);
 
             // 查询当前节点的一个下层被调用方法
-            Map<String, Object> calleeMethodMap = queryOneCalleeMethod(currentNode, currentLineNumStart, currentLineNumEnd);
-            if (calleeMethodMap == null) {
+            Boolean found = queryOneCalleeMethod(currentNode, currentLineNumStart, currentLineNumEnd, methodCallRow);
+            if (found == null) {
                 // 查询失败
                 return false;
             }
 
-            if (calleeMethodMap.isEmpty()) {
+            if (!found) {
                 // 未查询到记录
                 if (currentNodeLevel <= JACGConstants.CALL_GRAPH_METHOD_LEVEL_START) {
                     // 当前处理的节点为最上层节点，结束循环
@@ -854,28 +872,27 @@ public class RunnerGenAllGraph4Caller extends AbstractRunnerGenCallGraph {
                 logger.info("记录数达到 {} {}", outputLineNum, callerFullMethod);
             }
 
-            int currentMethodCallId = (Integer) calleeMethodMap.get(DC.MC_CALL_ID);
-            int enabled = (Integer) calleeMethodMap.get(DC.MC_ENABLED);
+            int currentMethodCallId = methodCallRow.getCallId();
+            int enabled = methodCallRow.getEnabled();
 
             // 判断是否需要忽略
-            if ((isSupportIgnore() && ignoreCurrentMethod(calleeMethodMap)) ||
-                    enabled != JACGConstants.ENABLED) {
+            if ((isSupportIgnore() && ignoreCurrentMethod(methodCallRow)) ||
+                    enabled != JACGConstants.ENABLED ||
+                    skipKeywordIrrelevantMethod(methodCallRow.getCalleeMethodHash())) {
                 // 当前记录需要忽略
                 // 更新当前处理节点的id
                 node4CallerList.get(currentNodeLevel).setCurrentCalleeMethodId(currentMethodCallId);
 
                 if (enabled != JACGConstants.ENABLED) {
-                    String callType = (String) calleeMethodMap.get(DC.MC_CALL_TYPE);
-
                     // 记录被禁用的方法调用
-                    recordDisabledMethodCall(currentMethodCallId, callType);
+                    recordDisabledMethodCall(currentMethodCallId, methodCallRow.getCallType());
                 }
 
                 continue;
             }
 
             // 当前记录需要处理
-            String currentCalleeMethodHash = (String) calleeMethodMap.get(DC.MC_CALLEE_METHOD_HASH);
+            String currentCalleeMethodHash = methodCallRow.getCalleeMethodHash();
 
             // 判断被调用的方法是否为存在多个实现类的接口或父类方法
             CallTypeEnum multiImplMethodCallType = null;
@@ -889,7 +906,7 @@ public class RunnerGenAllGraph4Caller extends AbstractRunnerGenCallGraph {
             }
 
             // 获取被调用方法信息（包含方法注解信息、自定义数据）
-            String calleeInfo = getCalleeInfo(calleeMethodMap, currentCalleeMethodHash, currentMethodCallId, multiImplMethodCallType);
+            String calleeInfo = getCalleeInfo(methodCallRow, currentCalleeMethodHash, currentMethodCallId, multiImplMethodCallType);
             if (calleeInfo == null) {
                 return false;
             }
@@ -913,7 +930,7 @@ public class RunnerGenAllGraph4Caller extends AbstractRunnerGenCallGraph {
             int back2Level = checkCycleCall(node4CallerList, currentNodeLevel, currentCalleeMethodHash);
 
             // 记录被调用方法信息
-            if (!recordCalleeInfo(calleeMethodMap, currentNodeLevel, back2Level, out, currentMethodCallId, calleeInfo)) {
+            if (!recordCalleeInfo(methodCallRow, currentNodeLevel, back2Level, out, currentMethodCallId, calleeInfo)) {
                 return false;
             }
 
@@ -973,62 +990,24 @@ public class RunnerGenAllGraph4Caller extends AbstractRunnerGenCallGraph {
         return JACGConstants.NO_CYCLE_CALL_FLAG;
     }
 
-    // 查询当前节点的一个下层被调用方法
-    private Map<String, Object> queryOneCalleeMethod(TmpNode4Caller node, int currentLineNumStart, int currentLineNumEnd) {
-        // 确定通过被调用方法进行查询使用的SQL语句
-        String sql = chooseQueryCalleeMethodSql(currentLineNumStart, currentLineNumEnd);
-
-        List<Object> argList = new ArrayList<>(4);
-        argList.add(node.getCurrentCalleeMethodHash());
-        argList.add(node.getCurrentCalleeMethodId());
-        if (currentLineNumStart != JACGConstants.LINE_NUM_NONE && currentLineNumEnd != JACGConstants.LINE_NUM_NONE) {
-            argList.add(currentLineNumStart);
-            argList.add(currentLineNumEnd);
-        }
-
-        List<Map<String, Object>> list = dbOperator.queryList(sql, argList.toArray());
-        if (list == null) {
-            // 查询失败
-            return null;
-        }
-
-        if (list.isEmpty()) {
-            // 查询不到结果时，返回空Map
-            return new HashMap<>(0);
-        }
-
-        return list.get(0);
-    }
-
-    // 确定通过被调用方法进行查询使用的SQL语句
-    protected String chooseQueryCalleeMethodSql(int currentLineNumStart, int currentLineNumEnd) {
-        String sqlKey = JACGConstants.SQL_KEY_MC_QUERY_ONE_CALLEE;
-        if (currentLineNumStart != JACGConstants.LINE_NUM_NONE && currentLineNumEnd != JACGConstants.LINE_NUM_NONE) {
-            sqlKey = JACGConstants.SQL_KEY_MC_QUERY_ONE_CALLEE_CHECK_LINE_NUM;
-        }
-
-        String sql = dbOperWrapper.getCachedSql(sqlKey);
-        if (sql == null) {
-            // 确定查询被调用关系时所需字段
-            String selectMethodColumns = chooseSelectMethodColumns();
-
-            StringBuilder sbSql = new StringBuilder("select ").append(selectMethodColumns).append(" from ")
-                    .append(JACGConstants.TABLE_PREFIX_METHOD_CALL).append(confInfo.getAppName()).append(" where ")
-                    .append(DC.MC_CALLER_METHOD_HASH).append(" = ? and ").append(DC.MC_CALL_ID).append(" > ?");
-            if (currentLineNumStart != JACGConstants.LINE_NUM_NONE && currentLineNumEnd != JACGConstants.LINE_NUM_NONE) {
-                sbSql.append(" and ").append(DC.MC_CALLER_LINE_NUM).append(" >= ? and ").append(DC.MC_CALLER_LINE_NUM).append(" <= ?");
-            }
-            sbSql.append(" order by ").append(DC.MC_CALL_ID).append(" limit 1");
-            sql = sbSql.toString();
-            dbOperWrapper.cacheSql(sqlKey, sql);
-        }
-        return sql;
+    /**
+     * 查询当前节点的一个下层被调用方法，查询结果写入methodCallRow
+     *
+     * @param node
+     * @param currentLineNumStart
+     * @param currentLineNumEnd
+     * @param methodCallRow
+     * @return null: 查询失败 Boolean.FALSE: 未查询到记录 Boolean.TRUE: 查询到记录
+     */
+    private Boolean queryOneCalleeMethod(TmpNode4Caller node, int currentLineNumStart, int currentLineNumEnd, MethodCallRow methodCallRow) {
+        return methodCallStorage.queryOneCallee(node.getCurrentCalleeMethodHash(), node.getCurrentCalleeMethodId(), currentLineNumStart, currentLineNumEnd,
+                methodCallRow);
     }
 
     // 判断当前找到的被调用方法是否需要处理
-    private boolean ignoreCurrentMethod(Map<String, Object> methodMapByCaller) {
-        String callType = (String) methodMapByCaller.get(DC.MC_CALL_TYPE);
-        String calleeFullMethod = (String) methodMapByCaller.get(DC.MC_CALLEE_FULL_METHOD);
+    private boolean ignoreCurrentMethod(MethodCallRow methodCallRow) {
+        String callType = methodCallRow.getCallType();
+        String calleeFullMethod = methodCallRow.getCalleeFullMethod();
 
         // 当完整方法（类名+方法名+参数）为以下前缀时，忽略
         if (isIgnoredFullMethodWithPrefixByFullMethod(calleeFullMethod)) {
@@ -1057,11 +1036,11 @@ public class RunnerGenAllGraph4Caller extends AbstractRunnerGenCallGraph {
     }
 
     // 获取被调用方法信息（包含方法注解信息、自定义数据）
-    protected String getCalleeInfo(Map<String, Object> calleeMethodMap, String currentCalleeMethodHash, int currentMethodCallId, CallTypeEnum multiImplMethodCallType) {
+    protected String getCalleeInfo(MethodCallRow methodCallRow, String currentCalleeMethodHash, int currentMethodCallId, CallTypeEnum multiImplMethodCallType) {
         StringBuilder calleeInfo = new StringBuilder();
 
-        String callerFullMethod = (String) calleeMethodMap.get(DC.MC_CALLER_FULL_METHOD);
-        String calleeFullMethod = (String) calleeMethodMap.get(DC.MC_CALLEE_FULL_METHOD);
+        String callerFullMethod = methodCallRow.getCallerFullMethod();
+        String calleeFullMethod = methodCallRow.getCalleeFullMethod();
 
         if (confInfo.getCallGraphOutputDetail().equals(OutputDetailEnum.ODE_1.getDetail())) {
             // # 1: 展示 完整类名+方法名+方法参数
@@ -1078,7 +1057,7 @@ public class RunnerGenAllGraph4Caller extends AbstractRunnerGenCallGraph {
             // # 3: 展示 简单类名（对于同名类展示完整类名）+方法名
             String calleeMethodName = JACGUtil.getMethodNameFromFull(calleeFullMethod);
 
-            calleeInfo.append(calleeMethodMap.get(DC.MC_CALLEE_CLASS_NAME))
+            calleeInfo.append(methodCallRow.getCalleeClassName())
                     .append(JACGConstants.FLAG_COLON)
                     .append(calleeMethodName);
         }
@@ -1146,7 +1125,7 @@ public class RunnerGenAllGraph4Caller extends AbstractRunnerGenCallGraph {
     }
 
     // 记录被调用方法信息
-    protected boolean recordCalleeInfo(Map<String, Object> calleeMethodMap, int currentNodeLevel, int back2Level, BufferedWriter out, int currentMethodCallId, String
+    protected boolean recordCalleeInfo(MethodCallRow methodCallRow, int currentNodeLevel, int back2Level, BufferedWriter out, int currentMethodCallId, String
             calleeInfo) throws IOException {
         StringBuilder stringBuilder = new StringBuilder();
         // 生成输出文件前缀，包含了当前方法的调用层级
@@ -1159,9 +1138,9 @@ public class RunnerGenAllGraph4Caller extends AbstractRunnerGenCallGraph {
         if (confInfo.isShowCallerLineNum()) {
             // 显示调用者代码行号
             String callerLineNumber = JACGConstants.FLAG_LEFT_PARENTHESES +
-                    calleeMethodMap.get(DC.MC_CALLER_CLASS_NAME) +
+                    methodCallRow.getCallerClassName() +
                     JACGConstants.FLAG_COLON +
-                    calleeMethodMap.get(DC.MC_CALLER_LINE_NUM) +
+                    methodCallRow.getCallerLineNum() +
                     JACGConstants.FLAG_RIGHT_PARENTHESES +
                     JACGConstants.FLAG_TAB;
             stringBuilder.append(callerLineNumber);
@@ -1179,9 +1158,8 @@ public class RunnerGenAllGraph4Caller extends AbstractRunnerGenCallGraph {
         stringBuilder.append(JACGConstants.NEW_LINE);
         out.write(stringBuilder.toString());
 
-        String callType = (String) calleeMethodMap.get(DC.MC_CALL_TYPE);
         // 记录可能出现一对多的方法调用
-        return recordMethodCallMayBeMulti(currentMethodCallId, callType);
+        return recordMethodCallMayBeMulti(currentMethodCallId, methodCallRow.getCallType());
     }
 
     // 添加自定义数据
@@ -1465,7 +1443,7 @@ public class RunnerGenAllGraph4Caller extends AbstractRunnerGenCallGraph {
     }
 
     // 确定查询调用关系时所需字段
-    private String chooseSelectMethodColumns() {
+    private String[] chooseSelectMethodColumns() {
         Set<String> columnSet = new HashSet<>();
         columnSet.add(DC.MC_CALL_ID);
         columnSet.add(DC.MC_CALL_TYPE);
@@ -1490,10 +1468,7 @@ public class RunnerGenAllGraph4Caller extends AbstractRunnerGenCallGraph {
             columnSet.add(DC.MC_CALLER_LINE_NUM);
         }
 
-        String[] columnArray = new String[columnSet.size()];
-        columnSet.toArray(columnArray);
-
-        return JACGSqlUtil.joinColumns(columnArray);
+        return columnSet.toArray(new String[0]);
     }
 
     // 获取调用者完整类名
@@ -1,19 +1,29 @@
 package com.adrninistrator.jacg.runner;
 
+import com.adrninistrator.jacg.annotation.AnnotationIndex;
+import com.adrninistrator.jacg.annotation.AnnotationStorage;
+import com.adrninistrator.jacg.common.CommonAnnotationConstants;
+import com.adrninistrator.jacg.common.DC;
 import com.adrninistrator.jacg.common.JACGConstants;
-import com.adrninistrator.jacg.common.enums.ConfigKeyEnum;
 import com.adrninistrator.jacg.common.enums.DbInsertMode;
 import com.adrninistrator.jacg.common.enums.InputDirEnum;
 import com.adrninistrator.jacg.common.enums.OtherConfigFileUseSetEnum;
 import com.adrninistrator.jacg.conf.ConfManager;
+import com.adrninistrator.jacg.dboper.DbObjectRegistry;
 import com.adrninistrator.jacg.dto.annotation.AnnotationInfo4WriteDb;
 import com.adrninistrator.jacg.dto.entity.JarInfoEntity;
 import com.adrninistrator.jacg.dto.entity.MethodCallEntity;
 import com.adrninistrator.jacg.extensions.annotation_attributes.AllAnnotationAttributesFormator;
 import com.adrninistrator.jacg.extensions.util.JsonUtil;
+import com.adrninistrator.jacg.graph.EntryMethodReachability;
+import com.adrninistrator.jacg.graph.ReverseCallGraph;
 import com.adrninistrator.jacg.runner.base.AbstractRunner;
+import com.adrninistrator.jacg.spring.SpringIndex;
+import com.adrninistrator.jacg.storage.MappedMethodCallStorage;
+import com.adrninistrator.jacg.storage.MappedMethodCallStorageWriter;
+import com.adrninistrator.jacg.storage.ShardedMethodCallStorage;
+import com.adrninistrator.jacg.storage.ShardedMethodCallStorageWriter;
 import com.adrninistrator.jacg.util.JACGFileUtil;
-import com.adrninistrator.jacg.util.JACGSqlUtil;
 import com.adrninistrator.jacg.util.JACGUtil;
 import com.adrninistrator.javacg.common.JavaCGConstants;
 import com.adrninistrator.javacg.dto.method.MethodLineNumberInfo;
@@ -27,6 +37,7 @@ import org.slf4j.LoggerFactory;
 import java.io.BufferedReader;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -66,16 +77,17 @@ public class RunnerWriteDb extends AbstractRunner {
     // 方法代码行号输出文件路径
     private String callGraphLineNumberOutputFilePath = null;
 
+    // 记录写入数据库的注解中是否有Spring相关注解，没有时不需要生成Spring索引
+    private boolean springAnnotationFound = false;
+
     @Override
     public boolean preHandle() {
-        if (JACGSqlUtil.isMySQLDb(confInfo.getDbDriverName()) &&
-                !confInfo.getDbUrl().contains(JACGConstants.MYSQL_REWRITEBATCHEDSTATEMENTS)) {
-            logger.info("使用MYSQL时，请在{}参数指定{}", ConfigKeyEnum.CKE_DB_URL, JACGConstants.MYSQL_REWRITEBATCHEDSTATEMENTS);
-            return false;
-        }
+        // 数据库中的数据将被修改，其他操作已加载的信息不再使用
+        DbObjectRegistry.invalidateOthers(dbObjectHolder);
 
         // 使用多线程，线程数固定为10
         confInfo.setThreadNum(10);
+        resetDbPoolSize(confInfo.getThreadNum());
 
         // 读取其他配置文件
         if (!readOtherConfig()) {
@@ -174,6 +186,35 @@ public class RunnerWriteDb extends AbstractRunner {
         // 等待直到任务执行完毕
         wait4TPEDone();
 
+        // 计算可以调用到各方法的入口方法并写入数据库
+        if (confInfo.isGenEntryReachability() && !genEntryReachability()) {
+            return false;
+        }
+
+        // 生成注解倒排索引并写入数据库
+        if (!genAnnotationIndex()) {
+            return false;
+        }
+
+        // 生成Spring索引并写入数据库
+        if (!genSpringIndex()) {
+            return false;
+        }
+
+        // 将方法调用关系写入内存映射文件
+        if (confInfo.isMethodCallStorageMapped() &&
+                !MappedMethodCallStorageWriter.write(dbOperator, confInfo.getAppName(), MappedMethodCallStorage.genDirPath(confInfo.getAppName()))) {
+            return false;
+        }
+
+        // 将方法调用关系写入分库
+        List<String> shardDbList = ShardedMethodCallStorage.readShardDbList(configureWrapper);
+        if (!shardDbList.isEmpty() &&
+                !ShardedMethodCallStorageWriter.write(dbOperator, confInfo, shardDbList, readCreateTableSql(JACGConstants.FILE_SQL_METHOD_CALL),
+                        readCreateTableSql(JACGConstants.FILE_SQL_METHOD_CALL_SHARD_INFO))) {
+            return false;
+        }
+
         if (confInfo.isDbUseH2()) {
             // 显示H2数据库JDBC URL
             printH2JdbcUrl();
@@ -349,6 +390,12 @@ public class RunnerWriteDb extends AbstractRunner {
         String jarInfoSql = readCreateTableSql(JACGConstants.FILE_SQL_JAR_INFO);
         String extendedDataSql = readCreateTableSql(JACGConstants.FILE_SQL_EXTENDED_DATA);
         String manualAddExtendedDataSql = readCreateTableSql(JACGConstants.FILE_SQL_MANUAL_ADD_EXTENDED_DATA);
+        String entryMethodSql = readCreateTableSql(JACGConstants.FILE_SQL_ENTRY_METHOD);
+        String methodEntryReachSql = readCreateTableSql(JACGConstants.FILE_SQL_METHOD_ENTRY_REACH);
+        String annotationTargetSql = readCreateTableSql(JACGConstants.FILE_SQL_ANNOTATION_TARGET);
+        String annotationIndexSql = readCreateTableSql(JACGConstants.FILE_SQL_ANNOTATION_INDEX);
+        String springBeanSql = readCreateTableSql(JACGConstants.FILE_SQL_SPRING_BEAN);
+        String springControllerSql = readCreateTableSql(JACGConstants.FILE_SQL_SPRING_CONTROLLER);
 
         if (StringUtils.isAnyBlank(
                 classNameSql,
@@ -358,7 +405,13 @@ public class RunnerWriteDb extends AbstractRunner {
                 methodLineNumberSql,
                 jarInfoSql,
                 extendedDataSql,
-                manualAddExtendedDataSql)) {
+                manualAddExtendedDataSql,
+                entryMethodSql,
+                methodEntryReachSql,
+                annotationTargetSql,
+                annotationIndexSql,
+                springBeanSql,
+                springControllerSql)) {
             logger.error("存在创建数据库表的sql语句为空");
             return false;
         }
@@ -370,7 +423,13 @@ public class RunnerWriteDb extends AbstractRunner {
                 !dbOperator.createTable(methodLineNumberSql) ||
                 !dbOperator.createTable(jarInfoSql) ||
                 !dbOperator.createTable(extendedDataSql) ||
-                !dbOperator.createTable(manualAddExtendedDataSql)) {
+                !dbOperator.createTable(manualAddExtendedDataSql) ||
+                !dbOperator.createTable(entryMethodSql) ||
+                !dbOperator.createTable(methodEntryReachSql) ||
+                !dbOperator.createTable(annotationTargetSql) ||
+                !dbOperator.createTable(annotationIndexSql) ||
+                !dbOperator.createTable(springBeanSql) ||
+                !dbOperator.createTable(springControllerSql)) {
             return false;
         }
 
@@ -406,7 +465,13 @@ public class RunnerWriteDb extends AbstractRunner {
                 !dbOperator.truncateTable(JACGConstants.TABLE_PREFIX_METHOD_ANNOTATION + confInfo.getAppName()) ||
                 !dbOperator.truncateTable(JACGConstants.TABLE_PREFIX_METHOD_LINE_NUMBER + confInfo.getAppName()) ||
                 !dbOperator.truncateTable(JACGConstants.TABLE_PREFIX_JAR_INFO + confInfo.getAppName()) ||
-                !dbOperator.truncateTable(JACGConstants.TABLE_PREFIX_EXTENDED_DATA + confInfo.getAppName())) {
+                !dbOperator.truncateTable(JACGConstants.TABLE_PREFIX_EXTENDED_DATA + confInfo.getAppName()) ||
+                !dbOperator.truncateTable(JACGConstants.TABLE_PREFIX_ENTRY_METHOD + confInfo.getAppName()) ||
+                !dbOperator.truncateTable(JACGConstants.TABLE_PREFIX_METHOD_ENTRY_REACH + confInfo.getAppName()) ||
+                !dbOperator.truncateTable(JACGConstants.TABLE_PREFIX_ANNOTATION_TARGET + confInfo.getAppName()) ||
+                !dbOperator.truncateTable(JACGConstants.TABLE_PREFIX_ANNOTATION_INDEX + confInfo.getAppName()) ||
+                !dbOperator.truncateTable(JACGConstants.TABLE_PREFIX_SPRING_BEAN + confInfo.getAppName()) ||
+                !dbOperator.truncateTable(JACGConstants.TABLE_PREFIX_SPRING_CONTROLLER + confInfo.getAppName())) {
             // TABLE_PREFIX_MANUAL_ADD_EXTENDED_DATA，不清除数据
             return false;
         }
@@ -471,7 +536,7 @@ public class RunnerWriteDb extends AbstractRunner {
 
             return true;
         } catch (Exception e) {
-            logger.error("error ", e);
+            logger.error("error {} ", callGraphOutputFilePath, e);
             return false;
         }
     }
@@ -628,7 +693,7 @@ public class RunnerWriteDb extends AbstractRunner {
 
             return true;
         } catch (Exception e) {
-            logger.error("error ", e);
+            logger.error("error {} ", callGraphAnnotationOutputFilePath, e);
             return false;
         }
     }
@@ -658,7 +723,7 @@ public class RunnerWriteDb extends AbstractRunner {
 
             return true;
         } catch (Exception e) {
-            logger.error("error ", e);
+            logger.error("error {} ", callGraphLineNumberOutputFilePath, e);
             return false;
         }
     }
@@ -688,6 +753,11 @@ public class RunnerWriteDb extends AbstractRunner {
             return true;
         }
 
+        if (!springAnnotationFound && StringUtils.equalsAny(annotationName,
+                methodOrClass ? CommonAnnotationConstants.SPRING_MVC_MAPPING_ANNOTATIONS : CommonAnnotationConstants.SPRING_COMPONENT_ANNOTATIONS)) {
+            springAnnotationFound = true;
+        }
+
         AnnotationInfo4WriteDb annotationInfo4WriteDb;
         if (array.length > JavaCGConstants.ANNOTATION_COLUMN_NUM_WITHOUT_ATTRIBUTE) {
             // 当前行的注解信息有属性
@@ -881,7 +951,7 @@ public class RunnerWriteDb extends AbstractRunner {
 
             return true;
         } catch (Exception e) {
-            logger.error("error ", e);
+            logger.error("error {} ", callGraphOutputFilePath, e);
             return false;
         }
     }
@@ -989,6 +1059,68 @@ public class RunnerWriteDb extends AbstractRunner {
         return false;
     }
 
+    // 计算可以调用到各方法的入口方法并写入数据库
+    private boolean genEntryReachability() {
+        ReverseCallGraph reverseCallGraph = ReverseCallGraph.load(dbOperator, dbOperWrapper, confInfo.getAppName(),
+                Collections.singleton(DC.MC_CALLER_FULL_METHOD));
+        if (reverseCallGraph == null) {
+            logger.error("加载反向方法调用关系失败");
+            return false;
+        }
+
+        EntryMethodReachability entryMethodReachability = EntryMethodReachability.compute(reverseCallGraph);
+        logger.info("写入数据库，入口方法表 {}", entryMethodReachability.getEntryMethodNum());
+        return entryMethodReachability.write2Db(dbOperator, dbOperWrapper);
+    }
+
+    // 生成注解倒排索引并写入数据库
+    private boolean genAnnotationIndex() {
+        AnnotationIndex annotationIndex = AnnotationIndex.build(dbOperator, confInfo.getAppName());
+        if (annotationIndex == null) {
+            logger.error("生成注解倒排索引失败");
+            return false;
+        }
+
+        if (!annotationIndex.write2Db(dbOperator, dbOperWrapper)) {
+            logger.error("注解倒排索引写入数据库失败");
+            return false;
+        }
+
+        // 之后使用当前对象查询时，重新加载注解倒排索引
+        dbOperWrapper.resetAnnotationIndex();
+        return true;
+    }
+
+    // 生成Spring索引并写入数据库
+    private boolean genSpringIndex() {
+        // 之后使用当前对象查询时，重新加载Spring索引
+        dbOperWrapper.resetSpringIndex();
+
+        if (!springAnnotationFound) {
+            logger.info("写入数据库的注解中没有Spring相关注解，不生成Spring索引");
+            return true;
+        }
+
+        // 按需查询注解信息，只查询Spring相关的类及方法的注解信息；不使用数据库相关共享对象中的注解信息，因为其中可能是之前加载的数据
+        AnnotationStorage annotationStorage = new AnnotationStorage(dbOperator, dbOperWrapper, confInfo.getAppName(), true);
+        if (!annotationStorage.init()) {
+            logger.error("查询注解信息失败");
+            return false;
+        }
+
+        SpringIndex springIndex = SpringIndex.build(annotationStorage);
+        if (springIndex == null) {
+            logger.error("生成Spring索引失败");
+            return false;
+        }
+
+        if (!springIndex.write2Db(dbOperator, dbOperWrapper)) {
+            logger.error("Spring索引写入数据库失败");
+            return false;
+        }
+        return true;
+    }
+
     // 显示H2数据库JDBC URL
     private void printH2JdbcUrl() {
         String h2DbFilePath = JACGFileUtil.getCanonicalPath(getH2DbFile());
@@ -4,6 +4,8 @@ import com.adrninistrator.jacg.common.JACGConstants;
 import com.adrninistrator.jacg.conf.ConfInfo;
 import com.adrninistrator.jacg.conf.ConfManager;
 import com.adrninistrator.jacg.conf.ConfigureWrapper;
+import com.adrninistrator.jacg.dboper.DbObjectHolder;
+import com.adrninistrator.jacg.dboper.DbObjectRegistry;
 import com.adrninistrator.jacg.dboper.DbOperWrapper;
 import com.adrninistrator.jacg.dboper.DbOperator;
 import com.adrninistrator.jacg.thread.ThreadFactory4TPE;
@@ -47,6 +49,12 @@ public abstract class AbstractRunner {
 
     protected DbOperWrapper dbOperWrapper;
 
+    // 数据库相关共享对象
+    protected DbObjectHolder dbObjectHolder;
+
+    // 当前操作在数据库相关共享对象中需要的连接数，释放时从数据源的最大连接数中减去
+    private int dbPoolSize;
+
     protected ThreadPoolExecutor threadPoolExecutor;
 
     // 任务执行失败标志
@@ -86,6 +94,15 @@ public abstract class AbstractRunner {
      */
     protected abstract boolean checkH2DbFile();
 
+    /**
+     * 使用H2数据库时，是否将数据库文件复制到内存数据库中只读使用，只需要读取数据库的操作可以重写
+     *
+     * @return
+     */
+    protected boolean useH2MemorySnapshot() {
+        return false;
+    }
+
     /**
      * 初始化
      *
@@ -104,12 +121,15 @@ public abstract class AbstractRunner {
                 return false;
             }
 
-            dbOperator = DbOperator.genInstance(confInfo);
-            if (dbOperator == null) {
+            // 获取数据库相关共享对象，同一个JVM中使用相同数据库及appName的操作共用
+            dbObjectHolder = DbObjectRegistry.acquire(confInfo, useH2MemorySnapshot());
+            if (dbObjectHolder == null) {
                 return false;
             }
+            dbPoolSize = confInfo.getThreadNum();
 
-            dbOperWrapper = new DbOperWrapper(dbOperator, confInfo.getAppName());
+            dbOperator = dbObjectHolder.getDbOperator();
+            dbOperWrapper = dbObjectHolder.getDbOperWrapper();
             inited = true;
             return true;
         }
@@ -176,8 +196,24 @@ public abstract class AbstractRunner {
             threadPoolExecutor.shutdown();
         }
 
-        logger.info("操作结束时关闭数据源");
-        dbOperator.closeDs();
+        // 输出SQL语句执行统计结果，数据源被多个操作共用时为累计值
+        dbOperator.printSqlStatistics();
+
+        logger.info("操作结束时释放数据源，不再被其他操作使用时关闭");
+        DbObjectRegistry.release(dbObjectHolder, dbPoolSize);
+        dbObjectHolder = null;
+        // 再次执行时重新初始化
+        inited = false;
+    }
+
+    /**
+     * 修改当前操作需要的连接数，数据源的最大连接数相应增加或减少
+     *
+     * @param poolSize
+     */
+    protected void resetDbPoolSize(int poolSize) {
+        dbObjectHolder.changeMaxPoolSize(poolSize - dbPoolSize);
+        dbPoolSize = poolSize;
     }
 
     /**
@@ -1,18 +1,29 @@
 package com.adrninistrator.jacg.runner.base;
 
 import com.adrninistrator.jacg.annotation.AnnotationStorage;
+import com.adrninistrator.jacg.annotation.MethodAnnotationInfoCache;
+import com.adrninistrator.jacg.archive.ArchiveEntryWriter;
+import com.adrninistrator.jacg.archive.CallGraphArchiveWriter;
 import com.adrninistrator.jacg.common.DC;
 import com.adrninistrator.jacg.common.JACGConstants;
 import com.adrninistrator.jacg.common.enums.ConfigKeyEnum;
+import com.adrninistrator.jacg.common.enums.OtherConfigFileUseListEnum;
 import com.adrninistrator.jacg.common.enums.OtherConfigFileUseSetEnum;
-import com.adrninistrator.jacg.dto.annotation.MethodWithAnnotationInfo;
-import com.adrninistrator.jacg.dto.annotation_attribute.BaseAnnotationAttribute;
 import com.adrninistrator.jacg.dto.multiple.MultiCallInfo;
 import com.adrninistrator.jacg.dto.notice.NoticeCallInfo;
 import com.adrninistrator.jacg.dto.task.FindMethodInfo;
 import com.adrninistrator.jacg.extensions.annotation_handler.AbstractAnnotationHandler;
 import com.adrninistrator.jacg.extensions.annotation_handler.DefaultAnnotationHandler;
+import com.adrninistrator.jacg.extensions.annotation_handler.SpringMvcRequestMappingHandler;
+import com.adrninistrator.jacg.find_keyword.KeywordMatcher;
+import com.adrninistrator.jacg.graph.KeywordRelevantMethods;
+import com.adrninistrator.jacg.keyword_index.KeywordIndexBuilder;
+import com.adrninistrator.jacg.keyword_index.KeywordIndexEntryWriter;
 import com.adrninistrator.jacg.runner.RunnerGenAllGraph4Callee;
+import com.adrninistrator.jacg.storage.JdbcMethodCallStorage;
+import com.adrninistrator.jacg.storage.MappedMethodCallStorage;
+import com.adrninistrator.jacg.storage.MethodCallStorage;
+import com.adrninistrator.jacg.storage.ShardedMethodCallStorage;
 import com.adrninistrator.jacg.util.JACGFileUtil;
 import com.adrninistrator.jacg.util.JACGSqlUtil;
 import com.adrninistrator.jacg.util.JACGUtil;
@@ -24,6 +35,7 @@ import org.slf4j.LoggerFactory;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -96,7 +108,7 @@ public abstract class AbstractRunnerGenCallGraph extends AbstractRunner {
     protected List<AbstractAnnotationHandler> annotationHandlerList;
 
     // 保存各个方法已处理过的所有注解信息
-    protected Map<String, String> methodAllAnnotationInfoMap = new HashMap<>();
+    protected MethodAnnotationInfoCache methodAnnotationInfoCache;
 
     /*
         保存配置文件中指定的方法信息与生成文件名之间的映射关系
@@ -111,6 +123,21 @@ public abstract class AbstractRunnerGenCallGraph extends AbstractRunner {
     // 保存类及方法上的注解信息
     protected AnnotationStorage annotationStorage;
 
+    // 将调用链文件写入归档文件的对象，仅当需要生成归档文件时非空
+    protected CallGraphArchiveWriter callGraphArchiveWriter;
+
+    // 记录关键字索引的对象，仅当需要生成关键字索引文件时非空
+    protected KeywordIndexBuilder keywordIndexBuilder;
+
+    // 查询方法调用关系使用的存储
+    protected MethodCallStorage methodCallStorage;
+
+    // 直接查找关键字时需要查找的关键字，为null时生成完整的调用链
+    private KeywordMatcher directSearchKeywordMatcher;
+
+    // 直接查找关键字时，生成调用链需要处理的方法HASH+长度，为null时处理全部方法
+    private Set<String> keywordRelevantMethodHashSet;
+
     // 设置输出文件根目录
     public static void setOutputRootPath(String outputRootPath) {
         System.setProperty(JACGConstants.PROPERTY_OUTPUT_ROOT_PATH, outputRootPath);
@@ -121,8 +148,40 @@ public abstract class AbstractRunnerGenCallGraph extends AbstractRunner {
         if (!confInfo.isShowMethodAnnotation()) {
             return true;
         }
-        annotationStorage = new AnnotationStorage(dbOperator, confInfo.getAppName());
-        return annotationStorage.init();
+        // 使用数据库相关共享对象中已加载的注解信息
+        annotationStorage = dbObjectHolder.getAnnotationStorage(confInfo.isGenAnnotationLazyLoad());
+        return annotationStorage != null;
+    }
+
+    /**
+     * 初始化查询方法调用关系使用的存储
+     *
+     * @param callerColumns 查询调用方法时需要查询的字段，不需要时为null
+     * @param calleeColumns 查询被调用方法时需要查询的字段，不需要时为null
+     * @return
+     */
+    protected boolean initMethodCallStorage(String[] callerColumns, String[] calleeColumns) {
+        List<String> shardDbList = ShardedMethodCallStorage.readShardDbList(configureWrapper);
+        if (!shardDbList.isEmpty()) {
+            if (confInfo.isMethodCallStorageMapped()) {
+                logger.error("使用内存映射文件保存方法调用关系时，不支持同时使用分库 {} {}", ConfigKeyEnum.CKE_METHOD_CALL_STORAGE_MAPPED.getKey(),
+                        OtherConfigFileUseListEnum.OCFULE_METHOD_CALL_SHARD_DB);
+                return false;
+            }
+
+            // 使用写入数据库时生成的分库
+            methodCallStorage = ShardedMethodCallStorage.open(dbOperator, confInfo, shardDbList, callerColumns, calleeColumns);
+            return methodCallStorage != null;
+        }
+
+        if (!confInfo.isMethodCallStorageMapped()) {
+            methodCallStorage = new JdbcMethodCallStorage(dbOperator, dbOperWrapper, confInfo.getAppName(), callerColumns, calleeColumns);
+            return true;
+        }
+
+        // 使用写入数据库时生成的内存映射文件
+        methodCallStorage = MappedMethodCallStorage.open(MappedMethodCallStorage.genDirPath(confInfo.getAppName()), dbOperator, confInfo.getAppName());
+        return methodCallStorage != null;
     }
 
     /**
@@ -222,7 +281,67 @@ public abstract class AbstractRunnerGenCallGraph extends AbstractRunner {
 
             logger.info("创建保存输出文件的目录 {}", outputDirPrefix);
             // 判断目录是否存在，不存在时尝试创建
-            return JACGFileUtil.isDirectoryExists(outputDirPrefix);
+            if (!JACGFileUtil.isDirectoryExists(outputDirPrefix)) {
+                return false;
+            }
+
+            // 需要生成关键字索引文件时，创建记录关键字索引的对象
+            keywordIndexBuilder = confInfo.isOutputKeywordIndex() ? new KeywordIndexBuilder(outputDirPrefix) : null;
+
+            if (confInfo.isOutputArchive()) {
+                // 需要生成归档文件
+                callGraphArchiveWriter = CallGraphArchiveWriter.genCallGraphArchiveWriter(outputDirPrefix, confInfo.isOutputCompress());
+                return callGraphArchiveWriter != null;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 获取调用链文件的BufferedWriter
+     * 需要生成归档文件时，文件内容在关闭时写入归档文件，否则写入对应的文件
+     * 需要生成关键字索引文件时，写入文件内容的同时记录关键字索引
+     *
+     * @param outputFilePath 调用链文件路径
+     * @return
+     * @throws IOException
+     */
+    protected BufferedWriter genOutputWriter(String outputFilePath) throws IOException {
+        BufferedWriter writer;
+        if (callGraphArchiveWriter != null) {
+            writer = new BufferedWriter(new ArchiveEntryWriter(callGraphArchiveWriter, outputFilePath));
+        } else {
+            writer = JACGFileUtil.genBufferedWriter(outputFilePath);
+        }
+
+        if (keywordIndexBuilder != null) {
+            return new BufferedWriter(new KeywordIndexEntryWriter(keywordIndexBuilder, outputFilePath, writer));
+        }
+        return writer;
+    }
+
+    /**
+     * 生成内容为空的调用链文件
+     * 需要生成归档文件时，在归档文件中写入内容为空的条目
+     *
+     * @param outputFilePath 调用链文件路径
+     * @return
+     */
+    protected boolean createEmptyOutputFile(String outputFilePath) {
+        if (keywordIndexBuilder != null) {
+            keywordIndexBuilder.addEmptyFile(outputFilePath);
+        }
+
+        if (callGraphArchiveWriter == null) {
+            return JACGFileUtil.createNewFile(outputFilePath);
+        }
+
+        try {
+            callGraphArchiveWriter.addEntry(outputFilePath, "");
+            return true;
+        } catch (IOException e) {
+            logger.error("error {} ", outputFilePath, e);
+            return false;
         }
     }
 
@@ -235,12 +354,23 @@ public abstract class AbstractRunnerGenCallGraph extends AbstractRunner {
         return stringBuilder.toString();
     }
 
+    // 获取调用链文件的后缀，需要压缩时使用.txt.gz（生成归档文件时在归档文件中对条目进行压缩，不修改后缀）
+    protected String getOutputFileExt() {
+        return confInfo.isOutputCompress() && !confInfo.isOutputArchive() ? JACGConstants.EXT_TXT_GZ : JACGConstants.EXT_TXT;
+    }
+
     // 将输出文件合并
     protected void combineOutputFile(String fileName) {
+        if (callGraphArchiveWriter != null) {
+            // 生成归档文件时，归档文件已包含全部调用链，不需要生成合并文件
+            return;
+        }
+
         if (confInfo.isGenCombinedOutput()) {
-            List<File> outputFileList = JACGFileUtil.findFileInCurrentDir(outputDirPrefix, JACGConstants.EXT_TXT);
+            String outputFileExt = getOutputFileExt();
+            List<File> outputFileList = JACGFileUtil.findFileInCurrentDir(outputDirPrefix, outputFileExt);
             if (!JACGUtil.isCollectionEmpty(outputFileList) && outputFileList.size() > 1) {
-                String combinedOutputFilePath = outputDirPrefix + File.separator + JACGConstants.COMBINE_FILE_NAME_PREFIX + fileName + JACGConstants.EXT_TXT;
+                String combinedOutputFilePath = outputDirPrefix + File.separator + JACGConstants.COMBINE_FILE_NAME_PREFIX + fileName + outputFileExt;
                 JACGFileUtil.combineTextFile(combinedOutputFilePath, outputFileList);
             }
         }
@@ -638,31 +768,68 @@ public abstract class AbstractRunnerGenCallGraph extends AbstractRunner {
             return false;
         }
 
+        if (useH2MemorySnapshot()) {
+            // 使用H2数据库的内存快照时，只会以只读方式打开数据库文件，不需要检查是否可写
+            return true;
+        }
+
         // 检查H2数据库文件是否可写
         return checkH2DbFileWritable(h2DbFile);
     }
 
+    @Override
+    protected boolean useH2MemorySnapshot() {
+        return confInfo.isGenUseH2MemorySnapshot();
+    }
+
+    @Override
+    protected void beforeExit() {
+        if (callGraphArchiveWriter != null) {
+            // 处理失败时未写入归档索引文件，也需要关闭归档文件
+            callGraphArchiveWriter.close();
+        }
+
+        if (methodCallStorage != null) {
+            methodCallStorage.close();
+            methodCallStorage = null;
+        }
+
+        if (annotationStorage != null) {
+            annotationStorage.printLazyCacheStatistics();
+        }
+
+        if (methodAnnotationInfoCache != null) {
+            methodAnnotationInfoCache.printStatistics();
+        }
+
+        super.beforeExit();
+    }
+
     private Map<String, Map<String, Object>> queryJarFileInfo() {
         String sqlKey = JACGConstants.SQL_KEY_JI_QUERY_JAR_INFO;
         String sql = dbOperWrapper.getCachedSql(sqlKey);
         if (sql == null) {
-            sql = "select * from " + JACGConstants.TABLE_PREFIX_JAR_INFO + confInfo.getAppName();
+            sql = "select " + JACGSqlUtil.joinColumns(DC.JI_JAR_PATH_HASH, DC.JI_LAST_MODIFIED, DC.JI_JAR_HASH) +
+                    " from " + JACGConstants.TABLE_PREFIX_JAR_INFO + confInfo.getAppName();
             dbOperWrapper.cacheSql(sqlKey, sql);
         }
 
-        List<Map<String, Object>> list = dbOperator.queryList(sql, new Object[]{});
-        if (JACGUtil.isCollectionEmpty(list)) {
-            logger.error("查询到Jar包信息为空");
+        // 使用流式查询，只记录检查Jar包文件是否有更新时需要使用的字段
+        Map<String, Map<String, Object>> rtnMap = new HashMap<>();
+        if (!dbOperator.queryStream(sql, null, rs -> {
+            Map<String, Object> map = new HashMap<>(3);
+            map.put(DC.JI_LAST_MODIFIED, rs.getString(2));
+            map.put(DC.JI_JAR_HASH, rs.getString(3));
+            rtnMap.putIfAbsent(rs.getString(1), map);
+            return true;
+        })) {
             return null;
         }
 
-        Map<String, Map<String, Object>> rtnMap = new HashMap<>(list.size());
-
-        for (Map<String, Object> map : list) {
-            String jarPathHash = (String) map.get(DC.JI_JAR_PATH_HASH);
-            rtnMap.putIfAbsent(jarPathHash, map);
+        if (rtnMap.isEmpty()) {
+            logger.error("查询到Jar包信息为空");
+            return null;
         }
-
         return rtnMap;
     }
 
@@ -696,7 +863,42 @@ public abstract class AbstractRunnerGenCallGraph extends AbstractRunner {
         threadPoolExecutor.setCorePoolSize(newPoolSize);
         threadPoolExecutor.setMaximumPoolSize(newPoolSize);
 
-        dbOperator.setMaxPoolSize(newPoolSize);
+        resetDbPoolSize(newPoolSize);
+    }
+
+    /**
+     * 设置直接查找关键字，生成调用链时只处理可能处于起始方法到包含关键字的方法之间路径上的方法，不生成完整的调用链
+     *
+     * @param directSearchKeywordMatcher 需要查找的关键字
+     */
+    public void setDirectSearchKeywordMatcher(KeywordMatcher directSearchKeywordMatcher) {
+        this.directSearchKeywordMatcher = directSearchKeywordMatcher;
+    }
+
+    /**
+     * 直接查找关键字时，计算生成调用链需要处理的方法，需要在初始化方法注解信息缓存之后调用
+     *
+     * @param order4ee true: 生成向上的方法调用链 false: 生成向下的方法调用链
+     * @return
+     */
+    protected boolean initKeywordRelevantMethods(boolean order4ee) {
+        if (directSearchKeywordMatcher == null) {
+            return true;
+        }
+
+        keywordRelevantMethodHashSet = KeywordRelevantMethods.compute(dbOperator, confInfo.getAppName(), directSearchKeywordMatcher, order4ee,
+                confInfo.isShowMethodAnnotation() ? methodAnnotationInfoCache : null);
+        return keywordRelevantMethodHashSet != null;
+    }
+
+    /**
+     * 判断生成调用链时是否需要跳过指定方法，直接查找关键字时，跳过不可能处于起始方法到包含关键字的方法之间路径上的方法
+     *
+     * @param methodHash 方法HASH+长度
+     * @return true: 需要跳过 false: 需要处理
+     */
+    protected boolean skipKeywordIrrelevantMethod(String methodHash) {
+        return keywordRelevantMethodHashSet != null && !keywordRelevantMethodHashSet.contains(methodHash);
     }
 
     // 添加用于添加对方法上的注解进行处理的类
@@ -710,7 +912,7 @@ public abstract class AbstractRunnerGenCallGraph extends AbstractRunner {
             annotationHandlerList = new ArrayList<>(1);
             // 添加默认的处理类
             annotationHandlerList.add(new DefaultAnnotationHandler());
-            return true;
+            return initMethodAnnotationInfoCache();
         }
 
         annotationHandlerList = new ArrayList<>(methodAnnotationHandlerClasses.size());
@@ -721,15 +923,33 @@ public abstract class AbstractRunnerGenCallGraph extends AbstractRunner {
                     return false;
                 }
                 annotationHandler.setAnnotationStorage(annotationStorage);
+                annotationHandler.setDbOperWrapper(dbOperWrapper);
                 annotationHandlerList.add(annotationHandler);
             }
             // 在最后添加默认的处理类
             annotationHandlerList.add(new DefaultAnnotationHandler());
-            return true;
         } catch (Exception e) {
             logger.error("error ", e);
             return false;
         }
+        return initMethodAnnotationInfoCache();
+    }
+
+    // 初始化方法注解信息缓存，根据配置预先处理全部有注解的方法
+    private boolean initMethodAnnotationInfoCache() {
+        for (AbstractAnnotationHandler annotationHandler : annotationHandlerList) {
+            if (annotationHandler instanceof SpringMvcRequestMappingHandler) {
+                // 使用Spring MVC注解处理类时需要使用Spring索引，在启动线程池之前加载，避免在已打开数据库会话的工作线程中加载
+                dbOperWrapper.getSpringIndex();
+                break;
+            }
+        }
+
+        methodAnnotationInfoCache = new MethodAnnotationInfoCache(annotationStorage, annotationHandlerList);
+        if (!confInfo.isGenAnnotationPrecompute()) {
+            return true;
+        }
+        return methodAnnotationInfoCache.precompute(confInfo.getThreadNum());
     }
 
     /**
@@ -739,61 +959,23 @@ public abstract class AbstractRunnerGenCallGraph extends AbstractRunner {
      * @return
      */
     protected String getMethodAnnotationInfo(String methodHash) {
-        // 根据完整方法HASH+长度获取对应的注解信息
-        Map<String, Map<String, BaseAnnotationAttribute>> methodAnnotationMap = annotationStorage.getAnnotationMap4Method(methodHash);
-        if (methodAnnotationMap == null) {
-            // 当前方法上没有注解
-            return "";
-        }
+        return methodAnnotationInfoCache.get(methodHash);
+    }
 
-        // 当前方法上有注解
-        String existedAnnotationInfo = methodAllAnnotationInfoMap.get(methodHash);
-        if (existedAnnotationInfo != null) {
-            // 当前方法对应的注解信息已查询过，直接使用
-            return existedAnnotationInfo;
+    // 生成映射文件
+    protected void writeMappingFile() {
+        if (keywordIndexBuilder != null) {
+            // 关键字索引文件与映射文件生成在相同目录中
+            keywordIndexBuilder.writeIndex();
         }
 
-        // 当前方法对应的注解信息未查询过
-        StringBuilder stringBuilder = new StringBuilder();
-
-        MethodWithAnnotationInfo methodWithAnnotationInfo = annotationStorage.getMethodWithAnnotationInfo(methodHash);
-        if (methodWithAnnotationInfo != null) {
-            // 遍历当前方法上的所有注解进行处理
-            for (Map.Entry<String, Map<String, BaseAnnotationAttribute>> methodAnnotationMapEntry : methodAnnotationMap.entrySet()) {
-                String annotationName = methodAnnotationMapEntry.getKey();
-                // 遍历用于对方法上的注解进行处理的类
-                for (AbstractAnnotationHandler annotationHandler : annotationHandlerList) {
-                    if (!annotationHandler.checkHandleAnnotation(annotationName)) {
-                        continue;
-                    }
-
-                    // 找到能够处理的类进行处理
-                    String annotationInfo = annotationHandler.handleAnnotation(methodWithAnnotationInfo.getFullMethod(), methodWithAnnotationInfo.getFullClassName(),
-                            annotationName, methodAnnotationMapEntry.getValue());
-                    // 假如注解信息中包含了特定字符，会导致调用链文件行分隔时出现问题，因此将TAB替换为空格，半角@替换为全角＠
-                    if (StringUtils.contains(annotationInfo, JACGConstants.FLAG_TAB)) {
-                        logger.warn("注解内容中包含了TAB，将其替换为空格，请确认是否有影响 {}", annotationInfo);
-                        annotationInfo = annotationInfo.replace(JACGConstants.FLAG_TAB, JACGConstants.FLAG_SPACE);
-                    }
-                    if (StringUtils.contains(annotationInfo, JACGConstants.FLAG_AT)) {
-                        logger.warn("注解内容中包含了半角{}，将其替换为全角＠，请确认是否有影响 {}", JACGConstants.FLAG_AT, annotationInfo);
-                        annotationInfo = annotationInfo.replace(JACGConstants.FLAG_AT, "＠");
-                    }
-
-                    // 注解信息以@开头，在以上方法中不需要返回以@开头
-                    stringBuilder.append(JACGConstants.FLAG_AT).append(annotationInfo);
-                    break;
-                }
-            }
+        if (callGraphArchiveWriter != null) {
+            // 生成归档文件时，映射关系写入归档索引文件
+            callGraphArchiveWriter.writeIndex(methodInConfAndFileMap);
+            callGraphArchiveWriter.close();
+            return;
         }
 
-        String allAnnotationInfo = stringBuilder.toString();
-        methodAllAnnotationInfoMap.put(methodHash, allAnnotationInfo);
-        return allAnnotationInfo;
-    }
-
-    // 生成映射文件
-    protected void writeMappingFile() {
         String mappingFilePath = outputDirPrefix + File.separator + JACGConstants.FILE_MAPPING_NAME;
         logger.info("生成映射文件 {}", mappingFilePath);
 
@@ -0,0 +1,317 @@
+package com.adrninistrator.jacg.scanner;
+
+import com.adrninistrator.jacg.util.JACGFileUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/19
+ * @description: 调用链文件按行读取，读取时不将每行内容转换为字符串，只返回行在UTF-8字节中的位置，需要时再转换
+ * 较小的文件一次性读取到内存中，较大的未压缩文件使用内存映射，较大的gzip压缩文件从输入流逐行读取
+ * 从输入流逐行读取时每行内容单独保存，只能向后跳转
+ * 每个对象只能在一个线程中使用，使用完毕后需要调用close()
+ */
+public class CallGraphLineScanner implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(CallGraphLineScanner.class);
+
+    /*
+        内容（使用gzip压缩时为压缩后的内容）不超过该大小时，可以一次性读取到内存中
+        gzip格式的最大压缩比约为1032:1，不超过该大小的压缩内容解压后也不会超过数组长度上限
+     */
+    public static final int READ_ALL_MAX_SIZE = 1024 * 1024;
+
+    // 从输入流逐行读取时，内容长度未知
+    public static final int LIMIT_UNKNOWN = -1;
+
+    // 从输入流逐行读取时，每次读取的字节数
+    private static final int STREAM_READ_SIZE = 64 * 1024;
+
+    private static final byte BYTE_LF = '\n';
+
+    private static final byte BYTE_CR = '\r';
+
+    // 文件内容，从输入流逐行读取时为null
+    private final ByteBuffer buffer;
+
+    // 文件内容的长度，从输入流逐行读取时为LIMIT_UNKNOWN
+    private final int limit;
+
+    // 下一行开始的位置
+    private long position = 0;
+
+    // 逐行读取的输入流，根据文件内容创建对象时为null
+    private final InputStream inputStream;
+
+    // 从输入流读取的内容
+    private byte[] readBuffer;
+
+    // 从输入流读取的内容中，未处理部分开始的位置
+    private int readStart = 0;
+
+    // 从输入流读取的内容中，有效部分结束的位置
+    private int readEnd = 0;
+
+    // 从输入流读取时，当前行的内容
+    private byte[] lineBytes;
+
+    private CallGraphLineScanner(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.limit = buffer.limit();
+        this.inputStream = null;
+    }
+
+    private CallGraphLineScanner(InputStream inputStream) {
+        this.buffer = null;
+        this.limit = LIMIT_UNKNOWN;
+        this.inputStream = inputStream;
+        this.readBuffer = new byte[STREAM_READ_SIZE];
+        this.lineBytes = new byte[256];
+    }
+
+    /**
+     * 根据文件路径创建对象，文件后缀为.gz时解压缩后读取
+     * 文件大小不超过READ_ALL_MAX_SIZE时一次性读取到内存中，避免大量小文件各自创建内存映射
+     * 较大的未压缩文件使用内存映射，内存映射在对象被回收后释放；较大的gzip压缩文件及超过2GB的未压缩文件从输入流逐行读取
+     *
+     * @param filePath
+     * @return null: 创建失败
+     */
+    public static CallGraphLineScanner genScanner(String filePath) {
+        Path path = Paths.get(filePath);
+        boolean gzip = JACGFileUtil.isGzipFile(filePath);
+        try {
+            long size = Files.size(path);
+            if (size <= READ_ALL_MAX_SIZE) {
+                byte[] bytes = Files.readAllBytes(path);
+                if (gzip) {
+                    bytes = JACGFileUtil.unGzipBytes(bytes);
+                }
+                return new CallGraphLineScanner(ByteBuffer.wrap(bytes));
+            }
+
+            if (gzip) {
+                InputStream fileInputStream = Files.newInputStream(path);
+                try {
+                    return new CallGraphLineScanner(new GZIPInputStream(fileInputStream, STREAM_READ_SIZE));
+                } catch (IOException e) {
+                    fileInputStream.close();
+                    throw e;
+                }
+            }
+
+            if (size > Integer.MAX_VALUE) {
+                return new CallGraphLineScanner(Files.newInputStream(path));
+            }
+
+            try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+                // 内存映射在文件关闭后仍然有效
+                return new CallGraphLineScanner(fileChannel.map(FileChannel.MapMode.READ_ONLY, 0L, size));
+            }
+        } catch (Exception e) {
+            logger.error("error {} ", filePath, e);
+            return null;
+        }
+    }
+
+    /**
+     * 根据已读取的文件内容创建对象
+     *
+     * @param bytes 使用UTF-8编码的文件内容
+     * @return
+     */
+    public static CallGraphLineScanner genScanner(byte[] bytes) {
+        return new CallGraphLineScanner(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * 根据输入流创建对象，逐行读取，不将全部内容读取到内存中，关闭当前对象时关闭输入流
+     *
+     * @param inputStream 使用UTF-8编码的内容
+     * @return
+     */
+    public static CallGraphLineScanner genScanner(InputStream inputStream) {
+        return new CallGraphLineScanner(inputStream);
+    }
+
+    /**
+     * 读取下一行，行内容不包含换行符
+     *
+     * @return null: 已读取完毕
+     * @throws IOException
+     */
+    public CallGraphLineView nextLine() throws IOException {
+        if (inputStream != null) {
+            return nextLineFromStream();
+        }
+
+        if (position >= limit) {
+            return null;
+        }
+
+        int start = (int) position;
+        int end = start;
+        while (end < limit && buffer.get(end) != BYTE_LF) {
+            end++;
+        }
+        // 跳过换行符
+        position = end + 1L;
+
+        if (end > start && buffer.get(end - 1) == BYTE_CR) {
+            end--;
+        }
+        return new CallGraphLineView(buffer, start, end - start);
+    }
+
+    // 从输入流读取下一行，每行内容单独保存，之前读取的行在之后仍可以使用
+    private CallGraphLineView nextLineFromStream() throws IOException {
+        int lineLength = 0;
+        boolean readAny = false;
+        boolean foundLf = false;
+        while (!foundLf) {
+            if (readStart >= readEnd && !fillReadBuffer()) {
+                break;
+            }
+
+            readAny = true;
+            int end = readStart;
+            while (end < readEnd && readBuffer[end] != BYTE_LF) {
+                end++;
+            }
+
+            int copyLength = end - readStart;
+            if (lineLength + copyLength > lineBytes.length) {
+                lineBytes = Arrays.copyOf(lineBytes, Math.max(lineBytes.length * 2, lineLength + copyLength));
+            }
+            System.arraycopy(readBuffer, readStart, lineBytes, lineLength, copyLength);
+            lineLength += copyLength;
+            position += copyLength;
+
+            if (end < readEnd) {
+                // 跳过换行符
+                foundLf = true;
+                readStart = end + 1;
+                position++;
+            } else {
+                readStart = end;
+            }
+        }
+
+        if (!readAny) {
+            return null;
+        }
+
+        if (lineLength > 0 && lineBytes[lineLength - 1] == BYTE_CR) {
+            lineLength--;
+        }
+        return new CallGraphLineView(ByteBuffer.wrap(Arrays.copyOf(lineBytes, lineLength)), 0, lineLength);
+    }
+
+    // 从输入流读取内容，返回false代表输入流已读取完毕
+    private boolean fillReadBuffer() throws IOException {
+        readStart = 0;
+        readEnd = 0;
+        int readLength;
+        do {
+            readLength = inputStream.read(readBuffer);
+        } while (readLength == 0);
+        if (readLength < 0) {
+            return false;
+        }
+        readEnd = readLength;
+        return true;
+    }
+
+    /**
+     * 设置下一行开始的位置，用于跳过不需要读取的内容
+     * 从输入流逐行读取时只能向后跳转
+     *
+     * @param position 需要为某一行开始的位置
+     * @throws IOException
+     */
+    public void setPosition(int position) throws IOException {
+        if (inputStream == null) {
+            this.position = position;
+            return;
+        }
+
+        long skipLength = position - this.position;
+        if (skipLength < 0) {
+            throw new IOException("从输入流逐行读取时不支持向前跳转 " + this.position + " " + position);
+        }
+
+        int bufferedLength = readEnd - readStart;
+        if (skipLength <= bufferedLength) {
+            readStart += (int) skipLength;
+        } else {
+            skipLength -= bufferedLength;
+            readStart = readEnd;
+            while (skipLength > 0) {
+                long skipped = inputStream.skip(skipLength);
+                if (skipped <= 0) {
+                    // skip()未跳过内容时，通过read()判断是否已读取完毕
+                    if (inputStream.read() < 0) {
+                        break;
+                    }
+                    skipped = 1;
+                }
+                skipLength -= skipped;
+            }
+        }
+        this.position = position;
+    }
+
+    /**
+     * 获取文件内容的长度
+     *
+     * @return LIMIT_UNKNOWN: 从输入流逐行读取，内容长度未知
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public void close() {
+        if (inputStream == null) {
+            return;
+        }
+        try {
+            inputStream.close();
+        } catch (IOException e) {
+            logger.error("error ", e);
+        }
+    }
+
+    /**
+     * 将指定位置的UTF-8字节转换为字符串
+     *
+     * @param buffer
+     * @param start
+     * @param length
+     * @return
+     */
+    static String decode(ByteBuffer buffer, int start, int length) {
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + start, length, StandardCharsets.UTF_8);
+        }
+
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,305 @@
+package com.adrninistrator.jacg.scanner;
+
+import com.adrninistrator.jacg.common.JACGConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/19
+ * @description: 调用链文件中一行的内容，只记录在文件UTF-8字节中的位置，调用toString()方法时才转换为字符串
+ * 提供的判断及解析方法与JACGCallGraphFileUtil类中处理字符串的对应方法结果相同
+ */
+public class CallGraphLineView {
+    private static final Logger logger = LoggerFactory.getLogger(CallGraphLineView.class);
+
+    private static final byte BYTE_LEFT_PARENTHESES = JACGConstants.FLAG_LEFT_PARENTHESES.getBytes(StandardCharsets.UTF_8)[0];
+    private static final byte BYTE_RIGHT_PARENTHESES = JACGConstants.FLAG_RIGHT_PARENTHESES.getBytes(StandardCharsets.UTF_8)[0];
+    private static final byte BYTE_HASHTAG = JACGConstants.FLAG_HASHTAG.getBytes(StandardCharsets.UTF_8)[0];
+    private static final byte BYTE_SPACE = JACGConstants.FLAG_SPACE.getBytes(StandardCharsets.UTF_8)[0];
+    private static final byte BYTE_DOT = JACGConstants.FLAG_DOT.getBytes(StandardCharsets.UTF_8)[0];
+    private static final byte BYTE_TAB = JACGConstants.FLAG_TAB.getBytes(StandardCharsets.UTF_8)[0];
+
+    private static final byte[] BYTES_MD_LINE_NUMBER = JACGConstants.FLAG_MD_LINE_NUMBER.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BYTES_ENTRY = JACGConstants.CALLEE_FLAG_ENTRY.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BYTES_CYCLE_PREFIX = (JACGConstants.FLAG_TAB + "!cycle[").getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BYTES_EXTENDED_DATA = JACGConstants.CALL_FLAG_EXTENDED_DATA.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BYTES_EXTENDED_DATA_MANUAL_ADD = JACGConstants.CALL_FLAG_EXTENDED_DATA_MANUAL_ADD.getBytes(StandardCharsets.UTF_8);
+
+    // 文件内容
+    private final ByteBuffer buffer;
+
+    // 当前行在文件内容中开始的位置
+    private final int start;
+
+    // 当前行的字节数
+    private final int length;
+
+    // 转换后的字符串
+    private String content;
+
+    CallGraphLineView(ByteBuffer buffer, int start, int length) {
+        this.buffer = buffer;
+        this.start = start;
+        this.length = length;
+    }
+
+    /**
+     * 获取当前行指定位置的字节
+     *
+     * @param index 相对于行开始的位置
+     * @return
+     */
+    public byte byteAt(int index) {
+        return buffer.get(start + index);
+    }
+
+    /**
+     * 判断当前行是否以指定字节开头
+     *
+     * @param bytes
+     * @return
+     */
+    public boolean startsWith(byte[] bytes) {
+        return regionMatches(0, bytes);
+    }
+
+    /**
+     * 查找指定字节在当前行中第一次出现的位置
+     *
+     * @param b
+     * @param fromIndex 相对于行开始的位置
+     * @return -1: 未找到
+     */
+    public int indexOf(byte b, int fromIndex) {
+        for (int i = fromIndex; i < length; i++) {
+            if (buffer.get(start + i) == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 查找指定字节序列在当前行中第一次出现的位置
+     *
+     * @param bytes
+     * @param fromIndex 相对于行开始的位置
+     * @return -1: 未找到
+     */
+    public int indexOf(byte[] bytes, int fromIndex) {
+        for (int i = fromIndex; i <= length - bytes.length; i++) {
+            if (regionMatches(i, bytes)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean contains(byte[] bytes) {
+        return indexOf(bytes, 0) != -1;
+    }
+
+    private boolean regionMatches(int index, byte[] bytes) {
+        if (index < 0 || index + bytes.length > length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (buffer.get(start + index + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 解析指定范围内的非负整数，格式非法时返回-1
+    private int parseNum(int fromIndex, int toIndex) {
+        if (fromIndex >= toIndex) {
+            return -1;
+        }
+        int num = 0;
+        for (int i = fromIndex; i < toIndex; i++) {
+            byte b = buffer.get(start + i);
+            if (b < '0' || b > '9' || num > (Integer.MAX_VALUE - 9) / 10) {
+                return -1;
+            }
+            num = num * 10 + (b - '0');
+        }
+        return num;
+    }
+
+    /**
+     * 判断是否为方法完整调用链的行
+     *
+     * @return
+     */
+    public boolean isCallGraphLine() {
+        return length > 0 && byteAt(0) == BYTE_LEFT_PARENTHESES;
+    }
+
+    /**
+     * 判断调用链搜索结果文件中当前行是否为序号对应的行，以#开头
+     *
+     * @return
+     */
+    public boolean isDataSeqLine() {
+        return length > 0 && byteAt(0) == BYTE_HASHTAG && contains(BYTES_MD_LINE_NUMBER);
+    }
+
+    /**
+     * 获取调用链搜索结果文件中序号对应行的序号值
+     *
+     * @param lineNumber 当前行号
+     * @return
+     */
+    public int getDataSeq(int lineNumber) {
+        int spaceIndex = indexOf(BYTE_SPACE, 0);
+        int dotIndex = indexOf(BYTE_DOT, 0);
+        int dataSeq = -1;
+        if (spaceIndex != -1 && dotIndex != -1 && spaceIndex < dotIndex) {
+            dataSeq = parseNum(spaceIndex + 1, dotIndex);
+        }
+        if (dataSeq == -1) {
+            logger.error("第 {} 行内容非法 {}", lineNumber, this);
+            return JACGConstants.DATA_SEQ_NONE;
+        }
+        return dataSeq;
+    }
+
+    /**
+     * 获取方法完整调用链的行中当前方法的级别
+     * 文件行示例 [0]#java.lang.System:setProperty
+     *
+     * @return
+     */
+    public int getMethodLevel() {
+        int indexLeft = indexOf(BYTE_LEFT_PARENTHESES, 0);
+        int indexRight = indexOf(BYTE_RIGHT_PARENTHESES, 0);
+        if (indexLeft == -1 || indexRight == -1 || indexLeft >= indexRight) {
+            logger.error("文件行内容非法 {}", this);
+            return JACGConstants.CALL_GRAPH_METHOD_LEVEL_ILLEGAL;
+        }
+
+        int methodLevel = parseNum(indexLeft + 1, indexRight);
+        if (methodLevel == -1) {
+            logger.error("文件行内容方法级别非法 {}", this);
+            return JACGConstants.CALL_GRAPH_METHOD_LEVEL_ILLEGAL;
+        }
+        return methodLevel;
+    }
+
+    /**
+     * 判断当前行是否为入口方法
+     *
+     * @return
+     */
+    public boolean isEntry() {
+        return contains(BYTES_ENTRY);
+    }
+
+    /**
+     * 获取当前行出现循环调用时，被循环调用的方法对应的级别
+     *
+     * @return JACGConstants.NO_CYCLE_CALL_FLAG: 未出现循环调用
+     */
+    public int getCycleCallLevel() {
+        int cycleIndex = indexOf(BYTES_CYCLE_PREFIX, 0);
+        if (cycleIndex == -1) {
+            return JACGConstants.NO_CYCLE_CALL_FLAG;
+        }
+
+        int numStart = cycleIndex + BYTES_CYCLE_PREFIX.length;
+        int indexRight = indexOf(BYTE_RIGHT_PARENTHESES, numStart);
+        int cycleLevel = indexRight == -1 ? -1 : parseNum(numStart, indexRight);
+        return cycleLevel == -1 ? JACGConstants.NO_CYCLE_CALL_FLAG : cycleLevel;
+    }
+
+    /**
+     * 判断调用链搜索结果文件行内容是否包含自定义数据
+     *
+     * @return
+     */
+    public boolean containsExtendedData() {
+        return isCallGraphLine() && (contains(BYTES_EXTENDED_DATA) || contains(BYTES_EXTENDED_DATA_MANUAL_ADD));
+    }
+
+    /**
+     * 获取当前行中的自定义数据字符串，使用TAB分隔后，返回第一个以自定义数据标志开头的列中标志之后的内容
+     *
+     * @return null: 未找到自定义数据
+     */
+    public String getExtendedDataString() {
+        // 当前列开始位置，第一列前面没有TAB，与TAB之后的列统一处理时，记为从-1开始
+        int tabIndex = -1;
+        while (true) {
+            int columnEnd = indexOf(BYTE_TAB, tabIndex + 1);
+            if (columnEnd == -1) {
+                columnEnd = length;
+            }
+
+            // 判断TAB及之后的内容是否为自定义数据标志，第一列前面没有TAB，需要跳过TAB进行判断
+            String extendedData = getExtendedDataInColumn(tabIndex, columnEnd, BYTES_EXTENDED_DATA);
+            if (extendedData == null) {
+                extendedData = getExtendedDataInColumn(tabIndex, columnEnd, BYTES_EXTENDED_DATA_MANUAL_ADD);
+            }
+            if (extendedData != null) {
+                return extendedData;
+            }
+
+            if (columnEnd == length) {
+                break;
+            }
+            tabIndex = columnEnd;
+        }
+
+        logger.error("未找到自定义数据 {}", this);
+        return null;
+    }
+
+    // 判断从指定的TAB位置开始的列是否以指定的自定义数据标志开头，标志以TAB开头
+    private String getExtendedDataInColumn(int tabIndex, int columnEnd, byte[] flagBytesWithTab) {
+        int flagLength = flagBytesWithTab.length - 1;
+        int columnStart = tabIndex + 1;
+        if (columnEnd - columnStart < flagLength) {
+            return null;
+        }
+        for (int i = 0; i < flagLength; i++) {
+            if (buffer.get(start + columnStart + i) != flagBytesWithTab[i + 1]) {
+                return null;
+            }
+        }
+        return CallGraphLineScanner.decode(buffer, start + columnStart + flagLength, columnEnd - columnStart - flagLength);
+    }
+
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return start + length;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * 获取当前行的字符串，首次调用时进行转换
+     *
+     * @return
+     */
+    @Override
+    public String toString() {
+        if (content == null) {
+            content = CallGraphLineScanner.decode(buffer, start, length);
+        }
+        return content;
+    }
+}
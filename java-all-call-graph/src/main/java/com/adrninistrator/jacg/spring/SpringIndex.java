@@ -0,0 +1,280 @@
+package com.adrninistrator.jacg.spring;
+
+import com.adrninistrator.jacg.annotation.AnnotationStorage;
+import com.adrninistrator.jacg.common.DC;
+import com.adrninistrator.jacg.common.JACGConstants;
+import com.adrninistrator.jacg.common.enums.DbInsertMode;
+import com.adrninistrator.jacg.dboper.DbOperWrapper;
+import com.adrninistrator.jacg.dboper.DbOperator;
+import com.adrninistrator.jacg.dto.annotation.MethodWithAnnotationInfo;
+import com.adrninistrator.jacg.dto.annotation_attribute.BaseAnnotationAttribute;
+import com.adrninistrator.jacg.dto.spring.SpringBeanInfo;
+import com.adrninistrator.jacg.dto.spring.SpringControllerInfo;
+import com.adrninistrator.jacg.extensions.annotation_handler.SpringMvcRequestMappingHandler;
+import com.adrninistrator.jacg.util.JACGSqlUtil;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/19
+ * @description: Spring索引，包含Spring Bean信息，及Spring Controller方法的路径与HTTP请求方法
+ * 在写入数据库时根据类及方法上的注解生成并写入数据库，生成调用链或查找入口方法时从数据库加载，不需要再遍历注解信息
+ */
+public class SpringIndex {
+    private static final Logger logger = LoggerFactory.getLogger(SpringIndex.class);
+
+    // 按需查询注解信息时，每次预先查询注解信息的方法数量，需要小于注解信息缓存的数量
+    private static final int PREFETCH_METHOD_NUM = 1000;
+
+    // Spring Bean信息，按完整类名排序
+    private final List<SpringBeanInfo> springBeanInfoList = new ArrayList<>();
+
+    // Spring Controller方法的路径信息，按方法HASH+长度及序号排序
+    private final List<SpringControllerInfo> springControllerInfoList = new ArrayList<>();
+
+    /*
+        Spring Controller方法对应的路径信息
+        key 方法HASH+长度
+        value 路径信息，按序号排序
+     */
+    private final Map<String, List<SpringControllerInfo>> springControllerInfoMap = new HashMap<>();
+
+    private SpringIndex() {
+    }
+
+    /**
+     * 根据类及方法上的注解生成Spring索引
+     * 只处理有Spring Component相关注解的类，及有Spring MVC RequestMapping相关注解的方法，注解信息可以使用按需查询模式，不需要查询全部注解信息
+     *
+     * @param annotationStorage
+     * @return null: 生成失败
+     */
+    public static SpringIndex build(AnnotationStorage annotationStorage) {
+        long startTime = System.currentTimeMillis();
+
+        List<SpringBeanInfo> springBeanInfoList = annotationStorage.genSpringBeanInfoList();
+        if (springBeanInfoList == null) {
+            return null;
+        }
+
+        Set<String> methodHashSet = annotationStorage.getSpringControllerMethodHashes();
+        if (methodHashSet == null) {
+            return null;
+        }
+
+        SpringIndex springIndex = new SpringIndex();
+        springIndex.springBeanInfoList.addAll(springBeanInfoList);
+
+        // 使用Spring MVC注解处理类获取路径，保证与调用链中显示的路径相同
+        SpringMvcRequestMappingHandler springMvcRequestMappingHandler = new SpringMvcRequestMappingHandler();
+        springMvcRequestMappingHandler.setAnnotationStorage(annotationStorage);
+
+        List<String> methodHashList = new ArrayList<>(methodHashSet);
+        for (int i = 0; i < methodHashList.size(); i += PREFETCH_METHOD_NUM) {
+            List<String> batchList = methodHashList.subList(i, Math.min(i + PREFETCH_METHOD_NUM, methodHashList.size()));
+            // 按需查询模式下，合并查询一批方法的注解信息
+            if (!annotationStorage.prefetch4Methods(batchList)) {
+                return null;
+            }
+
+            for (String methodHash : batchList) {
+                springIndex.recordSpringController(annotationStorage, springMvcRequestMappingHandler, methodHash);
+            }
+        }
+
+        logger.info("生成Spring索引完毕，Spring Bean数量 {} Spring Controller方法路径数量 {} 耗时 {} S", springIndex.springBeanInfoList.size(),
+                springIndex.springControllerInfoList.size(), (System.currentTimeMillis() - startTime) / 1000.0D);
+        return springIndex;
+    }
+
+    // 记录一个Spring Controller方法的路径信息
+    private void recordSpringController(AnnotationStorage annotationStorage, SpringMvcRequestMappingHandler springMvcRequestMappingHandler, String methodHash) {
+        Map<String, Map<String, BaseAnnotationAttribute>> methodAnnotationMap = annotationStorage.getAnnotationMap4Method(methodHash);
+        MethodWithAnnotationInfo methodWithAnnotationInfo = annotationStorage.getMethodWithAnnotationInfo(methodHash);
+        if (methodAnnotationMap == null || methodWithAnnotationInfo == null) {
+            return;
+        }
+
+        int seq = 0;
+        for (Map.Entry<String, Map<String, BaseAnnotationAttribute>> methodAnnotationMapEntry : methodAnnotationMap.entrySet()) {
+            String annotationName = methodAnnotationMapEntry.getKey();
+            if (!springMvcRequestMappingHandler.checkHandleAnnotation(annotationName)) {
+                continue;
+            }
+
+            Map<String, BaseAnnotationAttribute> classAttributeMap =
+                    springMvcRequestMappingHandler.getClassRequestMappingAttributeMap(methodWithAnnotationInfo.getFullClassName());
+            // 类上没有对应注解时，类上的路径使用null
+            List<String> classPathList = classAttributeMap == null ? Collections.singletonList(null) :
+                    springMvcRequestMappingHandler.getPathListInRequestMappingAnnotation(classAttributeMap);
+            List<String> methodPathList = springMvcRequestMappingHandler.getPathListInRequestMappingAnnotation(methodAnnotationMapEntry.getValue());
+            String requestMethod = SpringMvcRequestMappingHandler.getRequestMethod(annotationName, methodAnnotationMapEntry.getValue(), classAttributeMap);
+
+            // 类上的路径在外层，保证序号最小的路径与调用链中显示的路径相同
+            for (String classPath : classPathList) {
+                for (String methodPath : methodPathList) {
+                    addSpringControllerInfo(new SpringControllerInfo(methodHash, seq++,
+                            SpringMvcRequestMappingHandler.genShowUri(classPath, methodPath), StringUtils.defaultString(classPath), methodPath,
+                            requestMethod, annotationName, methodWithAnnotationInfo.getFullMethod()));
+                }
+            }
+        }
+    }
+
+    private void addSpringControllerInfo(SpringControllerInfo springControllerInfo) {
+        springControllerInfoList.add(springControllerInfo);
+        springControllerInfoMap.computeIfAbsent(springControllerInfo.getMethodHash(), k -> new ArrayList<>()).add(springControllerInfo);
+    }
+
+    /**
+     * 将Spring索引写入数据库
+     *
+     * @param dbOperator
+     * @param dbOperWrapper
+     * @return
+     */
+    public boolean write2Db(DbOperator dbOperator, DbOperWrapper dbOperWrapper) {
+        String springBeanSql = dbOperWrapper.genAndCacheInsertSql(JACGConstants.SQL_KEY_INSERT_SPRING_BEAN,
+                DbInsertMode.DIME_INSERT,
+                JACGConstants.TABLE_PREFIX_SPRING_BEAN,
+                JACGConstants.TABLE_COLUMNS_SPRING_BEAN);
+
+        List<Object[]> objectList = new ArrayList<>(JACGConstants.DB_INSERT_BATCH_SIZE);
+        for (SpringBeanInfo springBeanInfo : springBeanInfoList) {
+            objectList.add(new Object[]{springBeanInfo.getFullClassName(), springBeanInfo.getBeanName(), springBeanInfo.getAnnotationName()});
+            if (!dbOperator.tryBatchInsert(springBeanSql, objectList, false)) {
+                return false;
+            }
+        }
+        if (!dbOperator.tryBatchInsert(springBeanSql, objectList, true)) {
+            return false;
+        }
+
+        String springControllerSql = dbOperWrapper.genAndCacheInsertSql(JACGConstants.SQL_KEY_INSERT_SPRING_CONTROLLER,
+                DbInsertMode.DIME_INSERT,
+                JACGConstants.TABLE_PREFIX_SPRING_CONTROLLER,
+                JACGConstants.TABLE_COLUMNS_SPRING_CONTROLLER);
+        for (SpringControllerInfo springControllerInfo : springControllerInfoList) {
+            objectList.add(new Object[]{
+                    springControllerInfo.getMethodHash(),
+                    springControllerInfo.getSeq(),
+                    springControllerInfo.getShowUri(),
+                    springControllerInfo.getClassPath(),
+                    springControllerInfo.getMethodPath(),
+                    springControllerInfo.getRequestMethod(),
+                    springControllerInfo.getAnnotationName(),
+                    springControllerInfo.getFullMethod()
+            });
+            if (!dbOperator.tryBatchInsert(springControllerSql, objectList, false)) {
+                return false;
+            }
+        }
+        return dbOperator.tryBatchInsert(springControllerSql, objectList, true);
+    }
+
+    /**
+     * 从数据库加载Spring索引
+     *
+     * @param dbOperator
+     * @param dbOperWrapper
+     * @param appName
+     * @return null: 加载失败
+     */
+    public static SpringIndex load(DbOperator dbOperator, DbOperWrapper dbOperWrapper, String appName) {
+        long startTime = System.currentTimeMillis();
+
+        String springBeanSqlKey = JACGConstants.SQL_KEY_SB_QUERY_ALL;
+        String springBeanSql = dbOperWrapper.getCachedSql(springBeanSqlKey);
+        if (springBeanSql == null) {
+            springBeanSql = "select " + JACGSqlUtil.joinColumns(DC.SB_FULL_CLASS_NAME, DC.SB_BEAN_NAME, DC.SB_ANNOTATION_NAME) +
+                    " from " + JACGConstants.TABLE_PREFIX_SPRING_BEAN + appName +
+                    " order by " + DC.SB_FULL_CLASS_NAME;
+            dbOperWrapper.cacheSql(springBeanSqlKey, springBeanSql);
+        }
+
+        // 不使用流式查询，当前线程已打开会话时使用会话的连接，避免再从连接池获取连接
+        List<SpringBeanInfo> springBeanInfoList = dbOperator.queryList(springBeanSql, null,
+                rs -> new SpringBeanInfo(rs.getString(1), rs.getString(2), rs.getString(3)));
+        if (springBeanInfoList == null) {
+            return null;
+        }
+
+        SpringIndex springIndex = new SpringIndex();
+        springIndex.springBeanInfoList.addAll(springBeanInfoList);
+
+        String springControllerSqlKey = JACGConstants.SQL_KEY_SPC_QUERY_ALL;
+        String springControllerSql = dbOperWrapper.getCachedSql(springControllerSqlKey);
+        if (springControllerSql == null) {
+            springControllerSql = "select " + JACGSqlUtil.joinColumns(DC.SPC_METHOD_HASH, DC.SPC_SEQ, DC.SPC_SHOW_URI, DC.SPC_CLASS_PATH, DC.SPC_METHOD_PATH,
+                    DC.SPC_REQUEST_METHOD, DC.SPC_ANNOTATION_NAME, DC.SPC_FULL_METHOD) +
+                    " from " + JACGConstants.TABLE_PREFIX_SPRING_CONTROLLER + appName +
+                    " order by " + JACGSqlUtil.joinColumns(DC.SPC_METHOD_HASH, DC.SPC_SEQ);
+            dbOperWrapper.cacheSql(springControllerSqlKey, springControllerSql);
+        }
+
+        List<SpringControllerInfo> springControllerInfoList = dbOperator.queryList(springControllerSql, null,
+                rs -> new SpringControllerInfo(rs.getString(1), rs.getInt(2), rs.getString(3), rs.getString(4), rs.getString(5), rs.getString(6),
+                        rs.getString(7), rs.getString(8)));
+        if (springControllerInfoList == null) {
+            return null;
+        }
+
+        for (SpringControllerInfo springControllerInfo : springControllerInfoList) {
+            springIndex.addSpringControllerInfo(springControllerInfo);
+        }
+
+        logger.info("加载Spring索引完毕，Spring Bean数量 {} Spring Controller方法路径数量 {} 耗时 {} S", springIndex.springBeanInfoList.size(),
+                springIndex.springControllerInfoList.size(), (System.currentTimeMillis() - startTime) / 1000.0D);
+        return springIndex;
+    }
+
+    /**
+     * 获取Spring Controller方法在调用链中显示的路径
+     *
+     * @param methodHash     方法HASH+长度
+     * @param annotationName 方法上的注解类名
+     * @return null: 未找到对应的路径
+     */
+    public String getShowUri(String methodHash, String annotationName) {
+        List<SpringControllerInfo> list = springControllerInfoMap.get(methodHash);
+        if (list == null) {
+            return null;
+        }
+
+        for (SpringControllerInfo springControllerInfo : list) {
+            if (springControllerInfo.getAnnotationName().equals(annotationName)) {
+                return springControllerInfo.getShowUri();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获取Spring Controller方法对应的全部路径信息
+     *
+     * @param methodHash 方法HASH+长度
+     * @return 方法不是Spring Controller方法时返回空列表
+     */
+    public List<SpringControllerInfo> getSpringControllerInfoList(String methodHash) {
+        List<SpringControllerInfo> list = springControllerInfoMap.get(methodHash);
+        return list == null ? Collections.emptyList() : Collections.unmodifiableList(list);
+    }
+
+    // 获取全部Spring Controller方法的路径信息
+    public List<SpringControllerInfo> getSpringControllerInfoList() {
+        return Collections.unmodifiableList(springControllerInfoList);
+    }
+
+    public List<SpringBeanInfo> getSpringBeanInfoList() {
+        return Collections.unmodifiableList(springBeanInfoList);
+    }
+}
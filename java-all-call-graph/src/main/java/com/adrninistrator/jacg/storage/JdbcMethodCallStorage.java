@@ -0,0 +1,149 @@
+package com.adrninistrator.jacg.storage;
+
+import com.adrninistrator.jacg.common.DC;
+import com.adrninistrator.jacg.common.JACGConstants;
+import com.adrninistrator.jacg.dboper.DbOperWrapper;
+import com.adrninistrator.jacg.dboper.DbOperator;
+import com.adrninistrator.jacg.dboper.MethodCallRowMapper;
+import com.adrninistrator.jacg.dto.entity.MethodCallRow;
+import com.adrninistrator.jacg.util.JACGSqlUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/16
+ * @description: 通过数据库的方法调用表查询方法调用关系
+ * 只查询构造函数中指定的字段，其他字段在MethodCallRow中为初始值
+ */
+public class JdbcMethodCallStorage implements MethodCallStorage {
+    private final DbOperator dbOperator;
+
+    private final DbOperWrapper dbOperWrapper;
+
+    // 查询调用方法时使用的数据库表名
+    private final String callerQueryTableName;
+
+    // 查询被调用方法时使用的数据库表名
+    private final String calleeQueryTableName;
+
+    // 查询调用方法时需要查询的字段，不需要查询调用方法时为null
+    private final String[] callerColumns;
+
+    // 查询被调用方法时需要查询的字段，不需要查询被调用方法时为null
+    private final String[] calleeColumns;
+
+    // 查询调用方法时使用的MethodCallRowMapper，不需要查询调用方法时为null
+    private final MethodCallRowMapper callerRowMapper;
+
+    // 查询被调用方法时使用的MethodCallRowMapper，不需要查询被调用方法时为null
+    private final MethodCallRowMapper calleeRowMapper;
+
+    /*
+        以下为使用的SQL语句key
+        共用同一个DbOperWrapper的多个对象，使用的数据库表名及查询字段可能不同（与配置参数有关），因此SQL语句key中需要包含数据库表名及查询字段
+     */
+    private final String sqlKeyQueryOneCaller1;
+    private final String sqlKeyQueryOneCaller2;
+    private final String sqlKeyQueryOneCallee;
+    private final String sqlKeyQueryOneCalleeCheckLineNum;
+
+    public JdbcMethodCallStorage(DbOperator dbOperator, DbOperWrapper dbOperWrapper, String appName, String[] callerColumns, String[] calleeColumns) {
+        this(dbOperator, dbOperWrapper, JACGConstants.TABLE_PREFIX_METHOD_CALL + appName, JACGConstants.TABLE_PREFIX_METHOD_CALL + appName, callerColumns,
+                calleeColumns);
+    }
+
+    /**
+     * 查询调用方法与查询被调用方法使用不同的数据库表
+     * SQL语句key中包含数据库表名及查询字段，因此同一个DbOperWrapper可以被使用不同数据库表或查询字段的多个对象共用
+     *
+     * @param dbOperator
+     * @param dbOperWrapper
+     * @param callerQueryTableName 查询调用方法时使用的数据库表名
+     * @param calleeQueryTableName 查询被调用方法时使用的数据库表名
+     * @param callerColumns
+     * @param calleeColumns
+     */
+    public JdbcMethodCallStorage(DbOperator dbOperator, DbOperWrapper dbOperWrapper, String callerQueryTableName, String calleeQueryTableName,
+                                 String[] callerColumns, String[] calleeColumns) {
+        this.dbOperator = dbOperator;
+        this.dbOperWrapper = dbOperWrapper;
+        this.callerQueryTableName = callerQueryTableName;
+        this.calleeQueryTableName = calleeQueryTableName;
+        this.callerColumns = callerColumns;
+        this.calleeColumns = calleeColumns;
+        callerRowMapper = callerColumns != null ? new MethodCallRowMapper(callerColumns) : null;
+        calleeRowMapper = calleeColumns != null ? new MethodCallRowMapper(calleeColumns) : null;
+        sqlKeyQueryOneCaller1 = genSqlKey(JACGConstants.SQL_KEY_MC_QUERY_ONE_CALLER1, callerQueryTableName, callerColumns);
+        sqlKeyQueryOneCaller2 = genSqlKey(JACGConstants.SQL_KEY_MC_QUERY_ONE_CALLER2, callerQueryTableName, callerColumns);
+        sqlKeyQueryOneCallee = genSqlKey(JACGConstants.SQL_KEY_MC_QUERY_ONE_CALLEE, calleeQueryTableName, calleeColumns);
+        sqlKeyQueryOneCalleeCheckLineNum = genSqlKey(JACGConstants.SQL_KEY_MC_QUERY_ONE_CALLEE_CHECK_LINE_NUM, calleeQueryTableName, calleeColumns);
+    }
+
+    // 生成包含数据库表名及查询字段的SQL语句key，不需要查询时返回null
+    private static String genSqlKey(String sqlKey, String tableName, String[] columns) {
+        if (columns == null) {
+            return null;
+        }
+        return sqlKey + JACGConstants.FLAG_AT + tableName + JACGConstants.FLAG_AT + JACGSqlUtil.joinColumns(columns);
+    }
+
+    @Override
+    public Boolean queryOneCaller(String calleeMethodHash, String lastCallerMethodHash, MethodCallRow methodCallRow) {
+        if (lastCallerMethodHash == null) {
+            // 第一次查询
+            String sqlKey = sqlKeyQueryOneCaller1;
+            String sql = dbOperWrapper.getCachedSql(sqlKey);
+            if (sql == null) {
+                sql = "select " + JACGSqlUtil.joinColumns(callerColumns) + " from " + callerQueryTableName + " where " +
+                        DC.MC_CALLEE_METHOD_HASH + " = ? order by " + DC.MC_CALLER_METHOD_HASH + " limit 1";
+                dbOperWrapper.cacheSql(sqlKey, sql);
+            }
+            return dbOperator.queryOneRow(sql, new Object[]{calleeMethodHash}, rs -> callerRowMapper.mapRow(rs, methodCallRow));
+        }
+
+        // 不是第一次查询
+        String sqlKey = sqlKeyQueryOneCaller2;
+        String sql = dbOperWrapper.getCachedSql(sqlKey);
+        if (sql == null) {
+            sql = "select " + JACGSqlUtil.joinColumns(callerColumns) + " from " + callerQueryTableName + " where " +
+                    DC.MC_CALLEE_METHOD_HASH + " = ? and " + DC.MC_CALLER_METHOD_HASH + " > ? order by " +
+                    DC.MC_CALLER_METHOD_HASH + " limit 1";
+            dbOperWrapper.cacheSql(sqlKey, sql);
+        }
+        return dbOperator.queryOneRow(sql, new Object[]{calleeMethodHash, lastCallerMethodHash}, rs -> callerRowMapper.mapRow(rs, methodCallRow));
+    }
+
+    @Override
+    public Boolean queryOneCallee(String callerMethodHash, int lastCallId, int lineNumStart, int lineNumEnd, MethodCallRow methodCallRow) {
+        boolean checkLineNum = lineNumStart != JACGConstants.LINE_NUM_NONE && lineNumEnd != JACGConstants.LINE_NUM_NONE;
+        String sqlKey = checkLineNum ? sqlKeyQueryOneCalleeCheckLineNum : sqlKeyQueryOneCallee;
+        String sql = dbOperWrapper.getCachedSql(sqlKey);
+        if (sql == null) {
+            StringBuilder sbSql = new StringBuilder("select ").append(JACGSqlUtil.joinColumns(calleeColumns)).append(" from ")
+                    .append(calleeQueryTableName).append(" where ")
+                    .append(DC.MC_CALLER_METHOD_HASH).append(" = ? and ").append(DC.MC_CALL_ID).append(" > ?");
+            if (checkLineNum) {
+                sbSql.append(" and ").append(DC.MC_CALLER_LINE_NUM).append(" >= ? and ").append(DC.MC_CALLER_LINE_NUM).append(" <= ?");
+            }
+            sbSql.append(" order by ").append(DC.MC_CALL_ID).append(" limit 1");
+            sql = sbSql.toString();
+            dbOperWrapper.cacheSql(sqlKey, sql);
+        }
+
+        List<Object> argList = new ArrayList<>(4);
+        argList.add(callerMethodHash);
+        argList.add(lastCallId);
+        if (checkLineNum) {
+            argList.add(lineNumStart);
+            argList.add(lineNumEnd);
+        }
+        return dbOperator.queryOneRow(sql, argList.toArray(), rs -> calleeRowMapper.mapRow(rs, methodCallRow));
+    }
+
+    @Override
+    public void close() {
+        // 数据源由创建方关闭，不需要处理
+    }
+}
@@ -0,0 +1,335 @@
+package com.adrninistrator.jacg.storage;
+
+import com.adrninistrator.jacg.common.DC;
+import com.adrninistrator.jacg.common.JACGConstants;
+import com.adrninistrator.jacg.common.enums.ConfigKeyEnum;
+import com.adrninistrator.jacg.dboper.DbOperator;
+import com.adrninistrator.jacg.dto.entity.MethodCallRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/16
+ * @description: 通过内存映射文件查询方法调用关系，文件由MappedMethodCallStorageWriter生成，不需要访问数据库
+ * 包含以下文件：
+ * 字典文件：方法调用表中全部字符串按UTF-8字节升序排列（与utf8_bin排序一致），方法调用记录中使用字符串在字典中的序号，序号大小关系与字符串大小关系一致
+ * 方法调用文件：每条方法调用记录使用固定数量的int保存，按调用方法HASH+长度、调用序号升序排列
+ * 被调用方法索引文件：方法调用记录的序号，按被调用方法HASH+长度、调用方法HASH+长度升序排列，同一对被调用方法与调用方法仅保留调用序号最小的记录
+ * 各文件以只读方式映射，映射后不占用堆内存，支持多线程并发查询
+ * 各文件的文件头中保存了生成文件时方法调用表的记录数量及最大调用序号，打开时与数据库中的方法调用表比较，不一致时说明文件已过期
+ */
+public class MappedMethodCallStorage implements MethodCallStorage {
+    private static final Logger logger = LoggerFactory.getLogger(MappedMethodCallStorage.class);
+
+    // 字典中字符串的数量
+    private final int dictNum;
+
+    // 字典中各字符串的起始偏移量，数量为字符串数量+1
+    private final IntBuffer dictOffsetBuffer;
+
+    // 字典中字符串的UTF-8字节
+    private final ByteBuffer dictByteBuffer;
+
+    // 方法调用记录数量
+    private final int callNum;
+
+    private final IntBuffer callBuffer;
+
+    // 被调用方法索引数量
+    private final int calleeIndexNum;
+
+    private final IntBuffer calleeIndexBuffer;
+
+    private MappedMethodCallStorage(IntBuffer dictBuffer, ByteBuffer dictMappedBuffer, IntBuffer callBuffer, IntBuffer calleeIndexBuffer) {
+        dictNum = dictBuffer.get(MappedStorageFormat.H_NUM);
+        dictOffsetBuffer = slice(dictBuffer, MappedStorageFormat.FILE_HEADER_INTS, dictNum + 1);
+        dictMappedBuffer.position((MappedStorageFormat.FILE_HEADER_INTS + dictNum + 1) * Integer.BYTES);
+        dictByteBuffer = dictMappedBuffer.slice();
+
+        callNum = callBuffer.get(MappedStorageFormat.H_NUM);
+        this.callBuffer = slice(callBuffer, MappedStorageFormat.FILE_HEADER_INTS, callNum * MappedStorageFormat.RECORD_INTS);
+
+        calleeIndexNum = calleeIndexBuffer.get(MappedStorageFormat.H_NUM);
+        this.calleeIndexBuffer = slice(calleeIndexBuffer, MappedStorageFormat.FILE_HEADER_INTS, calleeIndexNum);
+    }
+
+    /**
+     * 生成保存内存映射文件的目录路径
+     *
+     * @param appName
+     * @return
+     */
+    public static String genDirPath(String appName) {
+        return JACGConstants.DIR_METHOD_CALL_STORAGE + File.separator + appName;
+    }
+
+    /**
+     * 打开指定目录中的内存映射文件，并检查文件是否与数据库中的方法调用表一致
+     *
+     * @param dirPath
+     * @param dbOperator
+     * @param appName
+     * @return null: 打开失败，或文件已过期
+     */
+    public static MappedMethodCallStorage open(String dirPath, DbOperator dbOperator, String appName) {
+        try {
+            ByteBuffer dictMappedBuffer = mapFile(dirPath, MappedStorageFormat.FILE_DICT);
+            ByteBuffer callMappedBuffer = mapFile(dirPath, MappedStorageFormat.FILE_METHOD_CALL);
+            ByteBuffer calleeIndexMappedBuffer = mapFile(dirPath, MappedStorageFormat.FILE_CALLEE_INDEX);
+            if (dictMappedBuffer == null || callMappedBuffer == null || calleeIndexMappedBuffer == null ||
+                    !checkSourceInfo(dirPath, dbOperator, appName, dictMappedBuffer, callMappedBuffer, calleeIndexMappedBuffer)) {
+                return null;
+            }
+
+            MappedMethodCallStorage storage = new MappedMethodCallStorage(dictMappedBuffer.asIntBuffer(), dictMappedBuffer, callMappedBuffer.asIntBuffer(),
+                    calleeIndexMappedBuffer.asIntBuffer());
+            logger.info("打开方法调用关系内存映射文件 {} 字符串数量 {} 方法调用数量 {} 被调用方法索引数量 {}", dirPath, storage.dictNum, storage.callNum,
+                    storage.calleeIndexNum);
+            return storage;
+        } catch (Exception e) {
+            logger.error("打开方法调用关系内存映射文件失败 {} ", dirPath, e);
+            return null;
+        }
+    }
+
+    // 以只读方式映射文件，并检查文件头
+    private static ByteBuffer mapFile(String dirPath, String fileName) throws Exception {
+        File file = new File(dirPath, fileName);
+        if (!file.isFile()) {
+            logger.error("方法调用关系内存映射文件不存在，请先在配置文件中开启 {} 后执行写入数据库操作 {}", ConfigKeyEnum.CKE_METHOD_CALL_STORAGE_MAPPED.getKey(),
+                    file.getAbsolutePath());
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                logger.error("方法调用关系内存映射文件过大 {} {}", file.getAbsolutePath(), channel.size());
+                return null;
+            }
+
+            // 关闭FileChannel后，已映射的内容仍可以使用
+            MappedByteBuffer mappedByteBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mappedByteBuffer.limit() < MappedStorageFormat.FILE_HEADER_INTS * Integer.BYTES ||
+                    mappedByteBuffer.getInt(0) != MappedStorageFormat.FILE_MAGIC ||
+                    mappedByteBuffer.getInt(Integer.BYTES) != MappedStorageFormat.FILE_VERSION) {
+                logger.error("方法调用关系内存映射文件格式非法，请重新执行写入数据库操作 {}", file.getAbsolutePath());
+                return null;
+            }
+            return mappedByteBuffer;
+        }
+    }
+
+    /**
+     * 检查各文件头中生成文件时方法调用表的记录数量及最大调用序号，是否与数据库中的方法调用表一致
+     *
+     * @param dirPath
+     * @param dbOperator
+     * @param appName
+     * @param mappedBuffers
+     * @return
+     */
+    private static boolean checkSourceInfo(String dirPath, DbOperator dbOperator, String appName, ByteBuffer... mappedBuffers) {
+        String sql = "select count(*), max(" + DC.MC_CALL_ID + ") from " + JACGConstants.TABLE_PREFIX_METHOD_CALL + appName;
+        // 方法调用表的记录数量及最大调用序号
+        int[] sourceInfo = new int[2];
+        Boolean found = dbOperator.queryOneRow(sql, null, rs -> {
+            sourceInfo[0] = rs.getInt(1);
+            sourceInfo[1] = rs.getInt(2);
+            return sourceInfo;
+        });
+        if (!Boolean.TRUE.equals(found)) {
+            logger.error("查询方法调用表的记录数量失败 {}", appName);
+            return false;
+        }
+
+        for (ByteBuffer mappedBuffer : mappedBuffers) {
+            int fileRowNum = mappedBuffer.getInt(MappedStorageFormat.H_SOURCE_ROW_NUM * Integer.BYTES);
+            int fileMaxCallId = mappedBuffer.getInt(MappedStorageFormat.H_SOURCE_MAX_CALL_ID * Integer.BYTES);
+            if (fileRowNum != sourceInfo[0] || fileMaxCallId != sourceInfo[1]) {
+                logger.error("方法调用关系内存映射文件与数据库中的方法调用表不一致，请重新执行写入数据库操作 {} 文件中的记录数量 {} 最大调用序号 {} 数据库中的记录数量 {} 最大调用序号 {}",
+                        dirPath, fileRowNum, fileMaxCallId, sourceInfo[0], sourceInfo[1]);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static IntBuffer slice(IntBuffer intBuffer, int start, int length) {
+        IntBuffer duplicate = intBuffer.duplicate();
+        duplicate.position(start);
+        duplicate.limit(start + length);
+        return duplicate.slice();
+    }
+
+    @Override
+    public Boolean queryOneCaller(String calleeMethodHash, String lastCallerMethodHash, MethodCallRow methodCallRow) {
+        try {
+            int calleeHashId = findString(calleeMethodHash);
+            if (calleeHashId < 0) {
+                return Boolean.FALSE;
+            }
+
+            // 需要查询的调用方法HASH+长度需要大于以下序号
+            int callerHashIdBound = -1;
+            if (lastCallerMethodHash != null) {
+                int lastCallerHashId = findString(lastCallerMethodHash);
+                // 字典中不存在时，小于插入位置的序号对应的字符串都小于指定的字符串
+                callerHashIdBound = lastCallerHashId >= 0 ? lastCallerHashId : -lastCallerHashId - 2;
+            }
+
+            // 二分查找第一个大于（被调用方法，调用方法）的位置
+            int low = 0;
+            int high = calleeIndexNum;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                int position = calleeIndexBuffer.get(mid);
+                int midCalleeHashId = getField(position, MappedStorageFormat.F_CALLEE_METHOD_HASH);
+                if (midCalleeHashId < calleeHashId ||
+                        (midCalleeHashId == calleeHashId && getField(position, MappedStorageFormat.F_CALLER_METHOD_HASH) <= callerHashIdBound)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+
+            if (low >= calleeIndexNum) {
+                return Boolean.FALSE;
+            }
+            int position = calleeIndexBuffer.get(low);
+            if (getField(position, MappedStorageFormat.F_CALLEE_METHOD_HASH) != calleeHashId) {
+                return Boolean.FALSE;
+            }
+
+            fillMethodCallRow(position, methodCallRow);
+            return Boolean.TRUE;
+        } catch (Exception e) {
+            logger.error("error {} {} ", calleeMethodHash, lastCallerMethodHash, e);
+            return null;
+        }
+    }
+
+    @Override
+    public Boolean queryOneCallee(String callerMethodHash, int lastCallId, int lineNumStart, int lineNumEnd, MethodCallRow methodCallRow) {
+        try {
+            int callerHashId = findString(callerMethodHash);
+            if (callerHashId < 0) {
+                return Boolean.FALSE;
+            }
+
+            // 二分查找第一个大于（调用方法，调用序号）的位置
+            int low = 0;
+            int high = callNum;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                int midCallerHashId = getField(mid, MappedStorageFormat.F_CALLER_METHOD_HASH);
+                if (midCallerHashId < callerHashId || (midCallerHashId == callerHashId && getField(mid, MappedStorageFormat.F_CALL_ID) <= lastCallId)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+
+            boolean checkLineNum = lineNumStart != JACGConstants.LINE_NUM_NONE && lineNumEnd != JACGConstants.LINE_NUM_NONE;
+            for (int position = low; position < callNum && getField(position, MappedStorageFormat.F_CALLER_METHOD_HASH) == callerHashId; position++) {
+                if (checkLineNum) {
+                    int callerLineNum = getField(position, MappedStorageFormat.F_CALLER_LINE_NUM);
+                    if (callerLineNum < lineNumStart || callerLineNum > lineNumEnd) {
+                        continue;
+                    }
+                }
+
+                fillMethodCallRow(position, methodCallRow);
+                return Boolean.TRUE;
+            }
+            return Boolean.FALSE;
+        } catch (Exception e) {
+            logger.error("error {} {} ", callerMethodHash, lastCallId, e);
+            return null;
+        }
+    }
+
+    private int getField(int position, int field) {
+        return callBuffer.get(position * MappedStorageFormat.RECORD_INTS + field);
+    }
+
+    private void fillMethodCallRow(int position, MethodCallRow methodCallRow) {
+        methodCallRow.clear();
+        methodCallRow.setCallId(getField(position, MappedStorageFormat.F_CALL_ID));
+        methodCallRow.setCallType(getString(getField(position, MappedStorageFormat.F_CALL_TYPE)));
+        methodCallRow.setEnabled(getField(position, MappedStorageFormat.F_ENABLED));
+        methodCallRow.setCallerMethodHash(getString(getField(position, MappedStorageFormat.F_CALLER_METHOD_HASH)));
+        methodCallRow.setCallerFullMethod(getString(getField(position, MappedStorageFormat.F_CALLER_FULL_METHOD)));
+        methodCallRow.setCallerMethodName(getString(getField(position, MappedStorageFormat.F_CALLER_METHOD_NAME)));
+        methodCallRow.setCallerFullClassName(getString(getField(position, MappedStorageFormat.F_CALLER_FULL_CLASS_NAME)));
+        methodCallRow.setCallerClassName(getString(getField(position, MappedStorageFormat.F_CALLER_CLASS_NAME)));
+        methodCallRow.setCallerLineNum(getField(position, MappedStorageFormat.F_CALLER_LINE_NUM));
+        methodCallRow.setCalleeMethodHash(getString(getField(position, MappedStorageFormat.F_CALLEE_METHOD_HASH)));
+        methodCallRow.setCalleeFullMethod(getString(getField(position, MappedStorageFormat.F_CALLEE_FULL_METHOD)));
+        methodCallRow.setCalleeMethodName(getString(getField(position, MappedStorageFormat.F_CALLEE_METHOD_NAME)));
+        methodCallRow.setCalleeFullClassName(getString(getField(position, MappedStorageFormat.F_CALLEE_FULL_CLASS_NAME)));
+        methodCallRow.setCalleeClassName(getString(getField(position, MappedStorageFormat.F_CALLEE_CLASS_NAME)));
+    }
+
+    // 获取字典中指定序号的字符串
+    private String getString(int id) {
+        int start = dictOffsetBuffer.get(id);
+        int end = dictOffsetBuffer.get(id + 1);
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = dictByteBuffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 在字典中二分查找指定的字符串
+     *
+     * @param str
+     * @return 大于等于0: 字符串在字典中的序号 小于0: 字典中不存在，值为 -(插入位置) - 1
+     */
+    private int findString(String str) {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = dictNum - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int result = compareString(mid, bytes);
+            if (result < 0) {
+                low = mid + 1;
+            } else if (result > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    // 比较字典中指定序号的字符串与指定的UTF-8字节，按无符号字节比较
+    private int compareString(int id, byte[] bytes) {
+        int start = dictOffsetBuffer.get(id);
+        int length = dictOffsetBuffer.get(id + 1) - start;
+        int minLength = Math.min(length, bytes.length);
+        for (int i = 0; i < minLength; i++) {
+            int result = (dictByteBuffer.get(start + i) & 0xff) - (bytes[i] & 0xff);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return length - bytes.length;
+    }
+
+    @Override
+    public void close() {
+        // 内存映射在对象被回收时释放，不需要处理
+    }
+}
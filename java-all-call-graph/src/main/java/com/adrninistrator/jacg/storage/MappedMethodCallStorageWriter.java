@@ -0,0 +1,292 @@
+package com.adrninistrator.jacg.storage;
+
+import com.adrninistrator.jacg.common.DC;
+import com.adrninistrator.jacg.common.JACGConstants;
+import com.adrninistrator.jacg.dboper.DbOperator;
+import com.adrninistrator.jacg.util.JACGFileUtil;
+import com.adrninistrator.jacg.util.JACGSqlUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/16
+ * @description: 将方法调用表中的数据写入MappedMethodCallStorage使用的内存映射文件，文件格式见MappedMethodCallStorage
+ * 先写入临时文件，全部写入完毕后再替换正式文件
+ */
+public class MappedMethodCallStorageWriter {
+    private static final Logger logger = LoggerFactory.getLogger(MappedMethodCallStorageWriter.class);
+
+    // 方法调用记录中使用字典序号的字段
+    private static final int[] DICT_FIELDS = new int[]{
+            MappedStorageFormat.F_CALL_TYPE,
+            MappedStorageFormat.F_CALLER_METHOD_HASH,
+            MappedStorageFormat.F_CALLER_FULL_METHOD,
+            MappedStorageFormat.F_CALLER_METHOD_NAME,
+            MappedStorageFormat.F_CALLER_FULL_CLASS_NAME,
+            MappedStorageFormat.F_CALLER_CLASS_NAME,
+            MappedStorageFormat.F_CALLEE_METHOD_HASH,
+            MappedStorageFormat.F_CALLEE_FULL_METHOD,
+            MappedStorageFormat.F_CALLEE_METHOD_NAME,
+            MappedStorageFormat.F_CALLEE_FULL_CLASS_NAME,
+            MappedStorageFormat.F_CALLEE_CLASS_NAME
+    };
+
+    private static final String TMP_FILE_EXT = ".tmp";
+
+    // 临时的字符串序号，key: 字符串 value: 序号
+    private final Map<String, Integer> tmpStringIdMap = new HashMap<>();
+
+    private String[] tmpStringArray = new String[1024];
+
+    // 方法调用记录，按调用序号升序
+    private int[] recordArray = new int[1024 * MappedStorageFormat.RECORD_INTS];
+
+    private int recordNum = 0;
+
+    // 方法调用表的最大调用序号
+    private int maxCallId = 0;
+
+    private MappedMethodCallStorageWriter() {
+    }
+
+    /**
+     * 从方法调用表查询全部数据，写入指定目录中的内存映射文件
+     *
+     * @param dbOperator
+     * @param appName
+     * @param dirPath
+     * @return
+     */
+    public static boolean write(DbOperator dbOperator, String appName, String dirPath) {
+        long startTime = System.currentTimeMillis();
+        if (!JACGFileUtil.isDirectoryExists(dirPath)) {
+            return false;
+        }
+
+        MappedMethodCallStorageWriter writer = new MappedMethodCallStorageWriter();
+        if (!writer.load(dbOperator, appName)) {
+            return false;
+        }
+
+        try {
+            writer.writeFiles(dirPath);
+        } catch (Exception e) {
+            logger.error("写入方法调用关系内存映射文件失败 {} ", dirPath, e);
+            return false;
+        }
+
+        logger.info("写入方法调用关系内存映射文件完毕 {} 字符串数量 {} 方法调用数量 {} 耗时 {} S", dirPath, writer.tmpStringIdMap.size(), writer.recordNum,
+                (System.currentTimeMillis() - startTime) / 1000.0D);
+        return true;
+    }
+
+    // 流式查询方法调用表的全部数据
+    private boolean load(DbOperator dbOperator, String appName) {
+        String sql = "select " + JACGSqlUtil.joinColumns(DC.MC_CALL_ID, DC.MC_CALL_TYPE, DC.MC_ENABLED, DC.MC_CALLER_METHOD_HASH, DC.MC_CALLER_FULL_METHOD,
+                DC.MC_CALLER_METHOD_NAME, DC.MC_CALLER_FULL_CLASS_NAME, DC.MC_CALLER_CLASS_NAME, DC.MC_CALLER_LINE_NUM, DC.MC_CALLEE_METHOD_HASH,
+                DC.MC_CALLEE_FULL_METHOD, DC.MC_CALLEE_METHOD_NAME, DC.MC_CALLEE_FULL_CLASS_NAME, DC.MC_CALLEE_CLASS_NAME) +
+                " from " + JACGConstants.TABLE_PREFIX_METHOD_CALL + appName +
+                " order by " + DC.MC_CALL_ID;
+
+        return dbOperator.queryStream(sql, null, rs -> {
+            if ((recordNum + 1) * MappedStorageFormat.RECORD_INTS > recordArray.length) {
+                recordArray = Arrays.copyOf(recordArray, recordArray.length * 2);
+            }
+
+            // 查询的字段顺序与记录中的字段下标一致
+            int base = recordNum * MappedStorageFormat.RECORD_INTS;
+            recordArray[base + MappedStorageFormat.F_CALL_ID] = rs.getInt(1);
+            recordArray[base + MappedStorageFormat.F_CALL_TYPE] = getOrAddStringId(rs.getString(2));
+            recordArray[base + MappedStorageFormat.F_ENABLED] = rs.getInt(3);
+            recordArray[base + MappedStorageFormat.F_CALLER_METHOD_HASH] = getOrAddStringId(rs.getString(4));
+            recordArray[base + MappedStorageFormat.F_CALLER_FULL_METHOD] = getOrAddStringId(rs.getString(5));
+            recordArray[base + MappedStorageFormat.F_CALLER_METHOD_NAME] = getOrAddStringId(rs.getString(6));
+            recordArray[base + MappedStorageFormat.F_CALLER_FULL_CLASS_NAME] = getOrAddStringId(rs.getString(7));
+            recordArray[base + MappedStorageFormat.F_CALLER_CLASS_NAME] = getOrAddStringId(rs.getString(8));
+            recordArray[base + MappedStorageFormat.F_CALLER_LINE_NUM] = rs.getInt(9);
+            recordArray[base + MappedStorageFormat.F_CALLEE_METHOD_HASH] = getOrAddStringId(rs.getString(10));
+            recordArray[base + MappedStorageFormat.F_CALLEE_FULL_METHOD] = getOrAddStringId(rs.getString(11));
+            recordArray[base + MappedStorageFormat.F_CALLEE_METHOD_NAME] = getOrAddStringId(rs.getString(12));
+            recordArray[base + MappedStorageFormat.F_CALLEE_FULL_CLASS_NAME] = getOrAddStringId(rs.getString(13));
+            recordArray[base + MappedStorageFormat.F_CALLEE_CLASS_NAME] = getOrAddStringId(rs.getString(14));
+            // 按调用序号升序查询，最后一条记录的调用序号最大
+            maxCallId = recordArray[base + MappedStorageFormat.F_CALL_ID];
+            recordNum++;
+            return true;
+        });
+    }
+
+    private int getOrAddStringId(String str) {
+        Integer id = tmpStringIdMap.get(str);
+        if (id != null) {
+            return id;
+        }
+
+        int newId = tmpStringIdMap.size();
+        if (newId == tmpStringArray.length) {
+            tmpStringArray = Arrays.copyOf(tmpStringArray, newId * 2);
+        }
+        tmpStringArray[newId] = str;
+        tmpStringIdMap.put(str, newId);
+        return newId;
+    }
+
+    private void writeFiles(String dirPath) throws IOException {
+        // 字典中的字符串按UTF-8字节升序排列，将记录中的临时序号替换为排序后的序号
+        int stringNum = tmpStringIdMap.size();
+        byte[][] stringBytesArray = new byte[stringNum][];
+        Integer[] sortedTmpIdArray = new Integer[stringNum];
+        for (int i = 0; i < stringNum; i++) {
+            stringBytesArray[i] = tmpStringArray[i].getBytes(StandardCharsets.UTF_8);
+            sortedTmpIdArray[i] = i;
+        }
+        Arrays.sort(sortedTmpIdArray, (id1, id2) -> compareBytes(stringBytesArray[id1], stringBytesArray[id2]));
+        int[] rankArray = new int[stringNum];
+        for (int rank = 0; rank < stringNum; rank++) {
+            rankArray[sortedTmpIdArray[rank]] = rank;
+        }
+        for (int i = 0; i < recordNum; i++) {
+            int base = i * MappedStorageFormat.RECORD_INTS;
+            for (int field : DICT_FIELDS) {
+                recordArray[base + field] = rankArray[recordArray[base + field]];
+            }
+        }
+
+        // 方法调用记录按调用方法、调用序号排序，当前记录已按调用序号升序，排序键为“调用方法序号（高32位）+记录序号（低32位）”
+        long[] sortKeyArray = new long[recordNum];
+        for (int i = 0; i < recordNum; i++) {
+            sortKeyArray[i] = ((long) recordArray[i * MappedStorageFormat.RECORD_INTS + MappedStorageFormat.F_CALLER_METHOD_HASH] << 32) | i;
+        }
+        Arrays.sort(sortKeyArray);
+        int[] sortedRecordArray = new int[recordNum * MappedStorageFormat.RECORD_INTS];
+        for (int position = 0; position < recordNum; position++) {
+            System.arraycopy(recordArray, (int) sortKeyArray[position] * MappedStorageFormat.RECORD_INTS, sortedRecordArray,
+                    position * MappedStorageFormat.RECORD_INTS, MappedStorageFormat.RECORD_INTS);
+        }
+        recordArray = null;
+
+        int[] calleeIndexArray = genCalleeIndex(sortedRecordArray, stringNum);
+
+        writeDictFile(dirPath, sortedTmpIdArray, stringBytesArray);
+        writeIntFile(dirPath, MappedStorageFormat.FILE_METHOD_CALL, sortedRecordArray, recordNum, sortedRecordArray.length);
+        writeIntFile(dirPath, MappedStorageFormat.FILE_CALLEE_INDEX, calleeIndexArray, calleeIndexArray.length, calleeIndexArray.length);
+    }
+
+    /**
+     * 生成被调用方法索引，按被调用方法分组，组内按调用方法排序，同一个调用方法仅保留调用序号最小的记录
+     *
+     * @param sortedRecordArray 已按调用方法、调用序号排序的方法调用记录
+     * @param stringNum
+     * @return
+     */
+    private int[] genCalleeIndex(int[] sortedRecordArray, int stringNum) {
+        int[] groupOffsetArray = new int[stringNum + 1];
+        for (int position = 0; position < recordNum; position++) {
+            groupOffsetArray[sortedRecordArray[position * MappedStorageFormat.RECORD_INTS + MappedStorageFormat.F_CALLEE_METHOD_HASH] + 1]++;
+        }
+        for (int i = 0; i < stringNum; i++) {
+            groupOffsetArray[i + 1] += groupOffsetArray[i];
+        }
+
+        // 组内排序键为“调用方法序号（高32位）+记录位置（低32位）”，同一调用方法中记录位置越小调用序号越小
+        long[] sortKeyArray = new long[recordNum];
+        int[] fillArray = Arrays.copyOf(groupOffsetArray, stringNum);
+        for (int position = 0; position < recordNum; position++) {
+            int base = position * MappedStorageFormat.RECORD_INTS;
+            int calleeHashId = sortedRecordArray[base + MappedStorageFormat.F_CALLEE_METHOD_HASH];
+            sortKeyArray[fillArray[calleeHashId]++] = ((long) sortedRecordArray[base + MappedStorageFormat.F_CALLER_METHOD_HASH] << 32) | position;
+        }
+
+        int indexNum = 0;
+        for (int calleeHashId = 0; calleeHashId < stringNum; calleeHashId++) {
+            int start = groupOffsetArray[calleeHashId];
+            int end = groupOffsetArray[calleeHashId + 1];
+            Arrays.sort(sortKeyArray, start, end);
+
+            long lastCallerHashId = -1;
+            for (int i = start; i < end; i++) {
+                long callerHashId = sortKeyArray[i] >>> 32;
+                if (callerHashId != lastCallerHashId) {
+                    sortKeyArray[indexNum++] = sortKeyArray[i];
+                    lastCallerHashId = callerHashId;
+                }
+            }
+        }
+
+        int[] calleeIndexArray = new int[indexNum];
+        for (int i = 0; i < indexNum; i++) {
+            calleeIndexArray[i] = (int) sortKeyArray[i];
+        }
+        return calleeIndexArray;
+    }
+
+    private void writeDictFile(String dirPath, Integer[] sortedTmpIdArray, byte[][] stringBytesArray) throws IOException {
+        File tmpFile = new File(dirPath, MappedStorageFormat.FILE_DICT + TMP_FILE_EXT);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+            writeHeader(out, sortedTmpIdArray.length);
+
+            int offset = 0;
+            out.writeInt(offset);
+            for (Integer tmpId : sortedTmpIdArray) {
+                offset += stringBytesArray[tmpId].length;
+                if (offset < 0) {
+                    throw new IOException("字典文件过大");
+                }
+                out.writeInt(offset);
+            }
+            for (Integer tmpId : sortedTmpIdArray) {
+                out.write(stringBytesArray[tmpId]);
+            }
+        }
+        replaceFile(tmpFile, new File(dirPath, MappedStorageFormat.FILE_DICT));
+    }
+
+    private void writeIntFile(String dirPath, String fileName, int[] array, int num, int length) throws IOException {
+        File tmpFile = new File(dirPath, fileName + TMP_FILE_EXT);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+            writeHeader(out, num);
+            for (int i = 0; i < length; i++) {
+                out.writeInt(array[i]);
+            }
+        }
+        replaceFile(tmpFile, new File(dirPath, fileName));
+    }
+
+    // 写入文件头，包含生成文件时方法调用表的记录数量及最大调用序号，打开文件时用于检查是否与数据库一致
+    private void writeHeader(DataOutputStream out, int num) throws IOException {
+        out.writeInt(MappedStorageFormat.FILE_MAGIC);
+        out.writeInt(MappedStorageFormat.FILE_VERSION);
+        out.writeInt(num);
+        out.writeInt(recordNum);
+        out.writeInt(maxCallId);
+    }
+
+    private void replaceFile(File tmpFile, File file) throws IOException {
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // 按无符号字节比较
+    private static int compareBytes(byte[] bytes1, byte[] bytes2) {
+        int minLength = Math.min(bytes1.length, bytes2.length);
+        for (int i = 0; i < minLength; i++) {
+            int result = (bytes1[i] & 0xff) - (bytes2[i] & 0xff);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return bytes1.length - bytes2.length;
+    }
+}
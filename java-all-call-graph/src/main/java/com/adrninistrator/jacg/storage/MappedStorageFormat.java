@@ -0,0 +1,44 @@
+package com.adrninistrator.jacg.storage;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/16
+ * @description: 方法调用关系内存映射文件的格式定义，供MappedMethodCallStorage与MappedMethodCallStorageWriter使用
+ */
+class MappedStorageFormat {
+    static final String FILE_DICT = "dict.dat";
+    static final String FILE_METHOD_CALL = "method_call.dat";
+    static final String FILE_CALLEE_INDEX = "callee_index.dat";
+
+    // 文件头：标志、版本号、记录数量、生成文件时方法调用表的记录数量、生成文件时方法调用表的最大调用序号
+    static final int FILE_MAGIC = 0x4A414347;
+    static final int FILE_VERSION = 2;
+    static final int FILE_HEADER_INTS = 5;
+
+    // 文件头中各字段的下标
+    static final int H_NUM = 2;
+    static final int H_SOURCE_ROW_NUM = 3;
+    static final int H_SOURCE_MAX_CALL_ID = 4;
+
+    // 方法调用记录中各字段的下标
+    static final int F_CALL_ID = 0;
+    static final int F_CALL_TYPE = 1;
+    static final int F_ENABLED = 2;
+    static final int F_CALLER_METHOD_HASH = 3;
+    static final int F_CALLER_FULL_METHOD = 4;
+    static final int F_CALLER_METHOD_NAME = 5;
+    static final int F_CALLER_FULL_CLASS_NAME = 6;
+    static final int F_CALLER_CLASS_NAME = 7;
+    static final int F_CALLER_LINE_NUM = 8;
+    static final int F_CALLEE_METHOD_HASH = 9;
+    static final int F_CALLEE_FULL_METHOD = 10;
+    static final int F_CALLEE_METHOD_NAME = 11;
+    static final int F_CALLEE_FULL_CLASS_NAME = 12;
+    static final int F_CALLEE_CLASS_NAME = 13;
+    // 每条方法调用记录使用的int数量
+    static final int RECORD_INTS = 14;
+
+    private MappedStorageFormat() {
+        throw new IllegalStateException("illegal");
+    }
+}
@@ -0,0 +1,39 @@
+package com.adrninistrator.jacg.storage;
+
+import com.adrninistrator.jacg.dto.entity.MethodCallRow;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/16
+ * @description: 生成调用链时查询方法调用关系使用的存储接口，实现类需要支持多线程并发查询
+ * 查询结果写入调用方提供的MethodCallRow，返回值 null: 查询失败 Boolean.FALSE: 未查询到记录 Boolean.TRUE: 查询到记录
+ * 只用于逐条查询方法调用表，生成调用链时对其他表的查询，以及对方法调用表的其他查询，仍然通过数据库执行
+ */
+public interface MethodCallStorage {
+    /**
+     * 查询被调用方法的下一个调用方法，按调用方法HASH+长度升序查询
+     *
+     * @param calleeMethodHash     被调用方法HASH+长度
+     * @param lastCallerMethodHash 上一次查询到的调用方法HASH+长度，为null时查询第一个调用方法
+     * @param methodCallRow        用于保存查询到的方法调用信息
+     * @return
+     */
+    Boolean queryOneCaller(String calleeMethodHash, String lastCallerMethodHash, MethodCallRow methodCallRow);
+
+    /**
+     * 查询调用方法的下一个被调用方法，按调用序号升序查询
+     *
+     * @param callerMethodHash 调用方法HASH+长度
+     * @param lastCallId       上一次查询到的调用序号，首次查询时使用JACGConstants.METHOD_CALL_ID_START
+     * @param lineNumStart     调用者源代码行号起始值，不限制时使用JACGConstants.LINE_NUM_NONE
+     * @param lineNumEnd       调用者源代码行号结束值，不限制时使用JACGConstants.LINE_NUM_NONE
+     * @param methodCallRow    用于保存查询到的方法调用信息
+     * @return
+     */
+    Boolean queryOneCallee(String callerMethodHash, int lastCallId, int lineNumStart, int lineNumEnd, MethodCallRow methodCallRow);
+
+    /**
+     * 使用完毕后释放资源
+     */
+    void close();
+}
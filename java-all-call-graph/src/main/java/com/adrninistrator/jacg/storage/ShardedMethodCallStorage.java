@@ -0,0 +1,236 @@
+package com.adrninistrator.jacg.storage;
+
+import com.adrninistrator.jacg.common.DC;
+import com.adrninistrator.jacg.common.JACGConstants;
+import com.adrninistrator.jacg.common.enums.OtherConfigFileUseListEnum;
+import com.adrninistrator.jacg.conf.ConfInfo;
+import com.adrninistrator.jacg.conf.ConfigureWrapper;
+import com.adrninistrator.jacg.dboper.DbObjectHolder;
+import com.adrninistrator.jacg.dboper.DbObjectRegistry;
+import com.adrninistrator.jacg.dboper.DbOperator;
+import com.adrninistrator.jacg.dto.entity.MethodCallRow;
+import com.adrninistrator.jacg.util.JACGSqlUtil;
+import com.adrninistrator.jacg.util.JACGUtil;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/18
+ * @description: 分库保存的方法调用关系，每个分库中保存两张方法调用表
+ * method_call_[app.name]: 按调用方法HASH分库，用于查询被调用方法
+ * method_call_by_callee_[app.name]: 按被调用方法HASH分库，用于查询调用方法
+ * 查询时根据方法HASH选择对应的分库，同一个方法的调用关系都在同一个分库中，查询结果与不分库时相同
+ * 打开时检查各分库中记录的方法调用分库信息，分库顺序变化或方法调用表变化后需要重新写入分库
+ */
+public class ShardedMethodCallStorage implements MethodCallStorage {
+    private static final Logger logger = LoggerFactory.getLogger(ShardedMethodCallStorage.class);
+
+    // 各分库的数据库相关共享对象
+    private final List<DbObjectHolder> holderList;
+
+    // 各分库对应的查询对象
+    private final List<JdbcMethodCallStorage> storageList;
+
+    // 获取各分库的数据库相关共享对象时使用的线程数
+    private final int poolSize;
+
+    private ShardedMethodCallStorage(List<DbObjectHolder> holderList, List<JdbcMethodCallStorage> storageList, int poolSize) {
+        this.holderList = holderList;
+        this.storageList = storageList;
+        this.poolSize = poolSize;
+    }
+
+    /**
+     * 读取配置文件中指定的分库
+     *
+     * @param configureWrapper
+     * @return 未指定分库时返回空列表
+     */
+    public static List<String> readShardDbList(ConfigureWrapper configureWrapper) {
+        List<String> shardDbList = new ArrayList<>();
+        List<String> configList = configureWrapper.getOtherConfigList(OtherConfigFileUseListEnum.OCFULE_METHOD_CALL_SHARD_DB);
+        if (configList == null) {
+            return shardDbList;
+        }
+
+        for (String config : configList) {
+            String shardDb = StringUtils.trim(config);
+            if (StringUtils.isNotBlank(shardDb) && !StringUtils.startsWith(shardDb, JACGConstants.FLAG_HASHTAG)) {
+                // 配置文件中被注释的行不处理
+                shardDbList.add(shardDb);
+            }
+        }
+        return shardDbList;
+    }
+
+    /**
+     * 根据方法HASH+长度确定所在的分库序号
+     * String.hashCode()的计算方式是固定的，写入数据库与查询时可以在不同的JVM中执行
+     *
+     * @param methodHash
+     * @param shardNum
+     * @return
+     */
+    public static int getShardIndex(String methodHash, int shardNum) {
+        return (methodHash.hashCode() & Integer.MAX_VALUE) % shardNum;
+    }
+
+    /**
+     * 获取分库的数据库相关共享对象，数据库驱动类名、用户名、密码、appName及线程数与配置文件中的相同
+     *
+     * @param confInfo
+     * @param shardDbList
+     * @return null: 获取失败，已获取的对象会被释放
+     */
+    public static List<DbObjectHolder> acquireShardHolders(ConfInfo confInfo, List<String> shardDbList) {
+        List<DbObjectHolder> holderList = new ArrayList<>(shardDbList.size());
+        for (String shardDb : shardDbList) {
+            ConfInfo shardConfInfo = new ConfInfo();
+            shardConfInfo.setAppName(confInfo.getAppName());
+            shardConfInfo.setThreadNum(confInfo.getThreadNum());
+            shardConfInfo.setDbUseH2(confInfo.isDbUseH2());
+            shardConfInfo.setDbSqlStatistics(confInfo.isDbSqlStatistics());
+            if (confInfo.isDbUseH2()) {
+                // H2数据库文件路径不需要指定后缀，指定时去掉
+                shardConfInfo.setDbH2FilePath(JACGUtil.getFileNameWithOutExt(shardDb, JACGConstants.H2_FILE_EXT));
+            } else {
+                shardConfInfo.setDbDriverName(confInfo.getDbDriverName());
+                shardConfInfo.setDbUrl(shardDb);
+                shardConfInfo.setDbUsername(confInfo.getDbUsername());
+                shardConfInfo.setDbPassword(confInfo.getDbPassword());
+            }
+
+            DbObjectHolder holder = DbObjectRegistry.acquire(shardConfInfo, false);
+            if (holder == null) {
+                logger.error("获取分库的数据源失败 {}", shardDb);
+                releaseShardHolders(holderList, confInfo.getThreadNum());
+                return null;
+            }
+            holderList.add(holder);
+        }
+        return holderList;
+    }
+
+    /**
+     * 释放分库的数据库相关共享对象
+     *
+     * @param holderList
+     * @param poolSize   获取时使用的线程数
+     */
+    public static void releaseShardHolders(List<DbObjectHolder> holderList, int poolSize) {
+        for (DbObjectHolder holder : holderList) {
+            DbObjectRegistry.release(holder, poolSize);
+        }
+    }
+
+    /**
+     * 打开分库保存的方法调用关系，分库与方法调用表不一致时打开失败
+     *
+     * @param dbOperator    方法调用关系所在数据库，用于检查分库是否已过期
+     * @param confInfo
+     * @param shardDbList
+     * @param callerColumns 查询调用方法时需要查询的字段，不需要时为null
+     * @param calleeColumns 查询被调用方法时需要查询的字段，不需要时为null
+     * @return null: 打开失败
+     */
+    public static ShardedMethodCallStorage open(DbOperator dbOperator, ConfInfo confInfo, List<String> shardDbList, String[] callerColumns,
+                                                String[] calleeColumns) {
+        List<DbObjectHolder> holderList = acquireShardHolders(confInfo, shardDbList);
+        if (holderList == null) {
+            return null;
+        }
+
+        if (!checkSourceInfo(dbOperator, confInfo.getAppName(), shardDbList, holderList)) {
+            releaseShardHolders(holderList, confInfo.getThreadNum());
+            return null;
+        }
+
+        List<JdbcMethodCallStorage> storageList = new ArrayList<>(holderList.size());
+        for (DbObjectHolder holder : holderList) {
+            storageList.add(new JdbcMethodCallStorage(holder.getDbOperator(), holder.getDbOperWrapper(),
+                    JACGConstants.TABLE_PREFIX_METHOD_CALL_BY_CALLEE + confInfo.getAppName(), JACGConstants.TABLE_PREFIX_METHOD_CALL + confInfo.getAppName(),
+                    callerColumns, calleeColumns));
+        }
+        logger.info("使用分库保存的方法调用关系，分库数量 {}", holderList.size());
+        return new ShardedMethodCallStorage(holderList, storageList, confInfo.getThreadNum());
+    }
+
+    /**
+     * 检查各分库中记录的分库序号、分库数量，及写入分库时方法调用表的记录数量与最大调用序号，与当前配置及方法调用表是否一致
+     *
+     * @param dbOperator
+     * @param appName
+     * @param shardDbList
+     * @param holderList
+     * @return
+     */
+    private static boolean checkSourceInfo(DbOperator dbOperator, String appName, List<String> shardDbList, List<DbObjectHolder> holderList) {
+        String sql = "select count(*), max(" + DC.MC_CALL_ID + ") from " + JACGConstants.TABLE_PREFIX_METHOD_CALL + appName;
+        // 方法调用表的记录数量及最大调用序号
+        int[] sourceInfo = new int[2];
+        Boolean found = dbOperator.queryOneRow(sql, null, rs -> {
+            sourceInfo[0] = rs.getInt(1);
+            sourceInfo[1] = rs.getInt(2);
+            return sourceInfo;
+        });
+        if (!Boolean.TRUE.equals(found)) {
+            logger.error("查询方法调用表的记录数量失败 {}", appName);
+            return false;
+        }
+
+        String shardInfoSql = "select " + JACGSqlUtil.joinColumns(JACGConstants.TABLE_COLUMNS_METHOD_CALL_SHARD_INFO) + " from " +
+                JACGConstants.TABLE_PREFIX_METHOD_CALL_SHARD_INFO + appName;
+        for (int i = 0; i < holderList.size(); i++) {
+            String shardDb = shardDbList.get(i);
+            // 分库中记录的分库序号、分库数量、记录数量及最大调用序号
+            int[] shardInfo = new int[4];
+            Boolean shardFound = holderList.get(i).getDbOperator().queryOneRow(shardInfoSql, null, rs -> {
+                for (int j = 0; j < shardInfo.length; j++) {
+                    shardInfo[j] = rs.getInt(j + 1);
+                }
+                return shardInfo;
+            });
+            if (!Boolean.TRUE.equals(shardFound)) {
+                logger.error("分库中不存在方法调用分库信息，请重新执行写入数据库操作 {}", shardDb);
+                return false;
+            }
+
+            if (shardInfo[0] != i || shardInfo[1] != holderList.size()) {
+                logger.error("分库的序号或数量与写入时不一致，请按写入时的顺序指定分库，或重新执行写入数据库操作 {} 写入时的序号 {} 数量 {} 当前的序号 {} 数量 {}", shardDb,
+                        shardInfo[0], shardInfo[1], i, holderList.size());
+                return false;
+            }
+
+            if (shardInfo[2] != sourceInfo[0] || shardInfo[3] != sourceInfo[1]) {
+                logger.error("分库与数据库中的方法调用表不一致，请重新执行写入数据库操作 {} 分库中的记录数量 {} 最大调用序号 {} 数据库中的记录数量 {} 最大调用序号 {}", shardDb,
+                        shardInfo[2], shardInfo[3], sourceInfo[0], sourceInfo[1]);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Boolean queryOneCaller(String calleeMethodHash, String lastCallerMethodHash, MethodCallRow methodCallRow) {
+        return storageList.get(getShardIndex(calleeMethodHash, storageList.size())).queryOneCaller(calleeMethodHash, lastCallerMethodHash, methodCallRow);
+    }
+
+    @Override
+    public Boolean queryOneCallee(String callerMethodHash, int lastCallId, int lineNumStart, int lineNumEnd, MethodCallRow methodCallRow) {
+        return storageList.get(getShardIndex(callerMethodHash, storageList.size())).queryOneCallee(callerMethodHash, lastCallId, lineNumStart, lineNumEnd,
+                methodCallRow);
+    }
+
+    @Override
+    public void close() {
+        for (DbObjectHolder holder : holderList) {
+            holder.getDbOperator().printSqlStatistics();
+        }
+        releaseShardHolders(holderList, poolSize);
+    }
+}
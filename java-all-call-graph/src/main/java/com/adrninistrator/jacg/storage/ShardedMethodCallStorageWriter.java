@@ -0,0 +1,153 @@
+package com.adrninistrator.jacg.storage;
+
+import com.adrninistrator.jacg.common.DC;
+import com.adrninistrator.jacg.common.JACGConstants;
+import com.adrninistrator.jacg.common.enums.DbInsertMode;
+import com.adrninistrator.jacg.conf.ConfInfo;
+import com.adrninistrator.jacg.dboper.DbObjectHolder;
+import com.adrninistrator.jacg.dboper.DbOperator;
+import com.adrninistrator.jacg.util.JACGSqlUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/18
+ * @description: 将数据库中的方法调用关系写入各分库，在写入数据库操作的最后执行
+ * 每条方法调用关系按调用方法HASH写入一个分库的method_call_[app.name]表，并按被调用方法HASH写入一个分库的method_call_by_callee_[app.name]表
+ * 写入分库时复制数据，数据库中的方法调用表仍保留全部数据，原因如下：
+ * 生成调用链时只有逐条查询调用方法或被调用方法的操作使用分库，其他对方法调用表的查询（加载反向调用图、查询入口方法、查询关键字相关方法、查询提示信息等）不指定方法HASH，仍然查询数据库中完整的方法调用表；
+ * 向上与向下查询分别按被调用方法HASH与调用方法HASH确定分库，若每条记录只保存一份，其中一个方向的每次查询都需要访问全部分库
+ * 每个分库的method_call_shard_info_[app.name]表中记录分库序号、分库数量，及写入分库时方法调用表的记录数量与最大调用序号，打开分库时用于检查分库是否已过期
+ */
+public class ShardedMethodCallStorageWriter {
+    private static final Logger logger = LoggerFactory.getLogger(ShardedMethodCallStorageWriter.class);
+
+    private ShardedMethodCallStorageWriter() {
+        throw new IllegalStateException("illegal");
+    }
+
+    /**
+     * 写入各分库
+     *
+     * @param dbOperator    方法调用关系所在数据库
+     * @param confInfo
+     * @param shardDbList   分库列表
+     * @param methodCallSql 方法调用表的建表SQL语句
+     * @param shardInfoSql  方法调用分库信息表的建表SQL语句
+     * @return
+     */
+    public static boolean write(DbOperator dbOperator, ConfInfo confInfo, List<String> shardDbList, String methodCallSql, String shardInfoSql) {
+        String appName = confInfo.getAppName();
+        logger.info("开始将方法调用关系写入分库，分库数量 {}", shardDbList.size());
+
+        // 获取分库的数据库相关共享对象时使用的线程数
+        int poolSize = confInfo.getThreadNum();
+        List<DbObjectHolder> holderList = ShardedMethodCallStorage.acquireShardHolders(confInfo, shardDbList);
+        if (holderList == null) {
+            return false;
+        }
+
+        try {
+            // 按被调用方法HASH分库的方法调用表，表名及索引名与方法调用表不同
+            String methodCallByCalleeSql = methodCallSql.replace(JACGConstants.TABLE_PREFIX_METHOD_CALL + appName,
+                    JACGConstants.TABLE_PREFIX_METHOD_CALL_BY_CALLEE + appName).replace(" idx_mc_", " idx_mcbe_");
+
+            int shardNum = holderList.size();
+            String[] callerShardSqls = new String[shardNum];
+            String[] calleeShardSqls = new String[shardNum];
+            for (int i = 0; i < shardNum; i++) {
+                DbObjectHolder holder = holderList.get(i);
+                DbOperator shardDbOperator = holder.getDbOperator();
+                // 先清空分库信息表，写入过程中失败时，打开分库会因为缺少分库信息而失败
+                if (!shardDbOperator.createTable(methodCallSql) ||
+                        !shardDbOperator.createTable(methodCallByCalleeSql) ||
+                        !shardDbOperator.createTable(shardInfoSql) ||
+                        !shardDbOperator.truncateTable(JACGConstants.TABLE_PREFIX_METHOD_CALL_SHARD_INFO + appName) ||
+                        !shardDbOperator.truncateTable(JACGConstants.TABLE_PREFIX_METHOD_CALL + appName) ||
+                        !shardDbOperator.truncateTable(JACGConstants.TABLE_PREFIX_METHOD_CALL_BY_CALLEE + appName)) {
+                    return false;
+                }
+                callerShardSqls[i] = holder.getDbOperWrapper().genAndCacheInsertSql(JACGConstants.SQL_KEY_INSERT_METHOD_CALL, DbInsertMode.DIME_INSERT,
+                        JACGConstants.TABLE_PREFIX_METHOD_CALL, JACGConstants.TABLE_COLUMNS_METHOD_CALL);
+                calleeShardSqls[i] = holder.getDbOperWrapper().genAndCacheInsertSql(JACGConstants.SQL_KEY_INSERT_METHOD_CALL_BY_CALLEE,
+                        DbInsertMode.DIME_INSERT, JACGConstants.TABLE_PREFIX_METHOD_CALL_BY_CALLEE, JACGConstants.TABLE_COLUMNS_METHOD_CALL);
+            }
+
+            List<List<Object[]>> callerShardBufferList = new ArrayList<>(shardNum);
+            List<List<Object[]>> calleeShardBufferList = new ArrayList<>(shardNum);
+            for (int i = 0; i < shardNum; i++) {
+                callerShardBufferList.add(new ArrayList<>(JACGConstants.DB_INSERT_BATCH_SIZE));
+                calleeShardBufferList.add(new ArrayList<>(JACGConstants.DB_INSERT_BATCH_SIZE));
+            }
+
+            int columnNum = JACGConstants.TABLE_COLUMNS_METHOD_CALL.length;
+            int callIdIndex = findColumnIndex(DC.MC_CALL_ID);
+            int callerHashIndex = findColumnIndex(DC.MC_CALLER_METHOD_HASH);
+            int calleeHashIndex = findColumnIndex(DC.MC_CALLEE_METHOD_HASH);
+            // 方法调用表的记录数量及最大调用序号，按调用序号升序查询，最后一条记录的调用序号即为最大调用序号
+            int[] sourceInfo = new int[2];
+
+            String sql = "select " + JACGSqlUtil.joinColumns(JACGConstants.TABLE_COLUMNS_METHOD_CALL) + " from " + JACGConstants.TABLE_PREFIX_METHOD_CALL +
+                    appName + " order by " + DC.MC_CALL_ID;
+            boolean success = dbOperator.queryStream(sql, null, rs -> {
+                Object[] row = new Object[columnNum];
+                for (int i = 0; i < columnNum; i++) {
+                    row[i] = rs.getObject(i + 1);
+                }
+
+                int callerShardIndex = ShardedMethodCallStorage.getShardIndex((String) row[callerHashIndex], shardNum);
+                int calleeShardIndex = ShardedMethodCallStorage.getShardIndex((String) row[calleeHashIndex], shardNum);
+                sourceInfo[0]++;
+                sourceInfo[1] = ((Number) row[callIdIndex]).intValue();
+                callerShardBufferList.get(callerShardIndex).add(row);
+                calleeShardBufferList.get(calleeShardIndex).add(row);
+                return holderList.get(callerShardIndex).getDbOperator().tryBatchInsert(callerShardSqls[callerShardIndex],
+                        callerShardBufferList.get(callerShardIndex), false) &&
+                        holderList.get(calleeShardIndex).getDbOperator().tryBatchInsert(calleeShardSqls[calleeShardIndex],
+                                calleeShardBufferList.get(calleeShardIndex), false);
+            });
+            if (!success) {
+                return false;
+            }
+
+            // 写入剩余的数据
+            for (int i = 0; i < shardNum; i++) {
+                DbOperator shardDbOperator = holderList.get(i).getDbOperator();
+                if (!shardDbOperator.tryBatchInsert(callerShardSqls[i], callerShardBufferList.get(i), true) ||
+                        !shardDbOperator.tryBatchInsert(calleeShardSqls[i], calleeShardBufferList.get(i), true)) {
+                    return false;
+                }
+            }
+
+            // 方法调用关系全部写入后，再写入分库信息
+            for (int i = 0; i < shardNum; i++) {
+                DbObjectHolder holder = holderList.get(i);
+                String shardInfoInsertSql = holder.getDbOperWrapper().genAndCacheInsertSql(JACGConstants.SQL_KEY_INSERT_METHOD_CALL_SHARD_INFO,
+                        DbInsertMode.DIME_INSERT, JACGConstants.TABLE_PREFIX_METHOD_CALL_SHARD_INFO, JACGConstants.TABLE_COLUMNS_METHOD_CALL_SHARD_INFO);
+                Object[] shardInfoRow = new Object[]{i, shardNum, sourceInfo[0], sourceInfo[1]};
+                if (!holder.getDbOperator().batchInsert(shardInfoInsertSql, Collections.singletonList(shardInfoRow))) {
+                    return false;
+                }
+            }
+
+            logger.info("将方法调用关系写入分库完毕，记录数 {} 最大调用序号 {}", sourceInfo[0], sourceInfo[1]);
+            return true;
+        } finally {
+            ShardedMethodCallStorage.releaseShardHolders(holderList, poolSize);
+        }
+    }
+
+    private static int findColumnIndex(String column) {
+        for (int i = 0; i < JACGConstants.TABLE_COLUMNS_METHOD_CALL.length; i++) {
+            if (JACGConstants.TABLE_COLUMNS_METHOD_CALL[i].equals(column)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("方法调用表中不存在字段 " + column);
+    }
+}
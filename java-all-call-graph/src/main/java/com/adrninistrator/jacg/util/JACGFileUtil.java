@@ -10,6 +10,9 @@ import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -17,8 +20,11 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
@@ -27,6 +33,8 @@ import java.util.Base64;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * @author adrninistrator
@@ -38,6 +46,14 @@ public class JACGFileUtil {
 
     private static final Logger logger = LoggerFactory.getLogger(JACGFileUtil.class);
 
+    // gzip压缩及解压缩时使用的缓冲区大小
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private static final byte[] NEW_LINE_BYTES = JACGConstants.NEW_LINE.getBytes(StandardCharsets.UTF_8);
+
+    // 仅包含换行符的gzip数据，gzip格式支持将多段压缩数据直接拼接
+    private static final byte[] GZIP_NEW_LINE_BYTES = genGzipBytes(NEW_LINE_BYTES);
+
     public static File findFile(String filePath) {
         // 尝试通过文件路径获取文件
         File file = new File(filePath);
@@ -231,6 +247,7 @@ public class JACGFileUtil {
 
     /**
      * 将指定的一个或多个文本类型的源文件合并为目录文件
+     * 使用FileChannel.transferTo进行拷贝，不需要将文件内容逐行读取到JVM中再写入
      *
      * @param destFilePath 目标文件路径
      * @param srcFileList  源文件列表
@@ -242,10 +259,10 @@ public class JACGFileUtil {
             return false;
         }
 
-        try (BufferedWriter out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(destFilePath), StandardCharsets.UTF_8))) {
+        try (FileChannel destChannel = new FileOutputStream(destFilePath).getChannel()) {
             for (File file : srcFileList) {
                 // 拷贝指定文件的内容
-                if (!copyFileContent(out, file)) {
+                if (!copyFileContent(destChannel, file)) {
                     return false;
                 }
             }
@@ -256,6 +273,71 @@ public class JACGFileUtil {
         }
     }
 
+    /**
+     * 拷贝指定文件的内容，使用FileChannel.transferTo
+     * 与逐行拷贝的结果保持一致：源文件最后一行没有换行符时补充换行符，每个文件之后再增加一个换行符
+     *
+     * @param destChannel 目标文件Channel
+     * @param file        源文件
+     * @return
+     */
+    public static boolean copyFileContent(FileChannel destChannel, File file) {
+        try (FileChannel srcChannel = new FileInputStream(file).getChannel()) {
+            long size = srcChannel.size();
+            long position = 0;
+            while (position < size) {
+                // transferTo单次可能不会拷贝全部内容，需要循环处理
+                position += srcChannel.transferTo(position, size - position, destChannel);
+            }
+
+            if (isGzipFile(file.getName())) {
+                // gzip文件直接拼接压缩数据，生成的调用链文件最后一行都有换行符，只需要在每个文件之后增加一个换行符
+                writeFully(destChannel, GZIP_NEW_LINE_BYTES);
+                return true;
+            }
+
+            if (size > 0) {
+                // 判断源文件最后一个字节是否为换行符
+                ByteBuffer lastByte = ByteBuffer.allocate(1);
+                srcChannel.read(lastByte, size - 1);
+                if (lastByte.get(0) != NEW_LINE_BYTES[0]) {
+                    writeFully(destChannel, NEW_LINE_BYTES);
+                }
+            }
+            writeFully(destChannel, NEW_LINE_BYTES);
+            return true;
+        } catch (Exception e) {
+            logger.error("error {} ", file.getAbsolutePath(), e);
+            return false;
+        }
+    }
+
+    // 生成指定字节数组压缩后的gzip数据
+    public static byte[] genGzipBytes(byte[] bytes) {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(byteArrayOutputStream)) {
+            gzipOutputStream.write(bytes);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    // 对gzip数据进行解压缩
+    public static byte[] unGzipBytes(byte[] bytes) throws IOException {
+        try (InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return IOUtils.toByteArray(inputStream);
+        }
+    }
+
+    // 将字节数组完整写入Channel
+    public static void writeFully(FileChannel channel, byte[] bytes) throws IOException {
+        ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
+        while (byteBuffer.hasRemaining()) {
+            channel.write(byteBuffer);
+        }
+    }
+
     // 拷贝指定文件的内容
     public static boolean copyFileContent(BufferedWriter out, File file) {
         try (BufferedReader br = genBufferedReader(file)) {
@@ -399,28 +481,78 @@ public class JACGFileUtil {
         return false;
     }
 
+    /**
+     * 判断文件是否为gzip格式，根据文件后缀判断
+     *
+     * @param filePath
+     * @return
+     */
+    public static boolean isGzipFile(String filePath) {
+        return StringUtils.endsWithIgnoreCase(filePath, JACGConstants.EXT_GZ);
+    }
+
+    /**
+     * 获取文件的BufferedWriter，若文件后缀为.gz则使用gzip格式进行压缩
+     *
+     * @param filePath
+     * @return
+     * @throws IOException
+     */
+    public static BufferedWriter genBufferedWriter(String filePath) throws IOException {
+        OutputStream outputStream = new FileOutputStream(filePath);
+        if (isGzipFile(filePath)) {
+            try {
+                outputStream = new GZIPOutputStream(outputStream, GZIP_BUFFER_SIZE);
+            } catch (IOException e) {
+                // 写入gzip文件头失败时关闭已打开的文件
+                closeOnFailure(outputStream, e);
+                throw e;
+            }
+        }
+        return new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+    }
+
     /**
      * todo 使用javacg中的
-     * 获取文件的BufferedReader
+     * 获取文件的BufferedReader，若文件后缀为.gz则进行解压缩
      *
      * @param filePath
      * @return
-     * @throws FileNotFoundException
+     * @throws IOException
      */
-    public static BufferedReader genBufferedReader(String filePath) throws FileNotFoundException {
-        return new BufferedReader(new InputStreamReader(new FileInputStream(filePath), StandardCharsets.UTF_8));
+    public static BufferedReader genBufferedReader(String filePath) throws IOException {
+        return genBufferedReader(new File(filePath));
     }
 
     /**
      * todo 使用javacg中的
-     * 获取文件的BufferedReader
+     * 获取文件的BufferedReader，若文件后缀为.gz则进行解压缩
      *
      * @param file
      * @return
-     * @throws FileNotFoundException
+     * @throws IOException
      */
-    public static BufferedReader genBufferedReader(File file) throws FileNotFoundException {
-        return new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+    public static BufferedReader genBufferedReader(File file) throws IOException {
+        InputStream inputStream = new FileInputStream(file);
+        if (isGzipFile(file.getName())) {
+            try {
+                inputStream = new GZIPInputStream(inputStream, GZIP_BUFFER_SIZE);
+            } catch (IOException e) {
+                // 读取gzip文件头失败时关闭已打开的文件
+                closeOnFailure(inputStream, e);
+                throw e;
+            }
+        }
+        return new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
+    // 处理失败时关闭已打开的流，关闭时出现的异常记录到原异常中
+    private static void closeOnFailure(Closeable closeable, Exception originalException) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            originalException.addSuppressed(e);
+        }
     }
 
     /**
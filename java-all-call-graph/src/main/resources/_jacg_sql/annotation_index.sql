@@ -0,0 +1,7 @@
+CREATE TABLE if not exists annotation_index_{appName} (
+  annotation_name varchar(255) NOT NULL COMMENT '注解类名',
+  target_type varchar(10) NOT NULL COMMENT '对象类型，method: 方法，class: 类',
+  block_seq int NOT NULL COMMENT '位图分块序号，每块对应8192个对象序号',
+  target_bitmap text NOT NULL COMMENT '当前分块中有该注解的方法或类的序号位图，Base64格式',
+  PRIMARY KEY (annotation_name, target_type, block_seq)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_bin COMMENT='注解倒排索引表，记录有各注解的方法及类';
\ No newline at end of file
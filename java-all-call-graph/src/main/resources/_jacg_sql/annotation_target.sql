@@ -0,0 +1,7 @@
+CREATE TABLE if not exists annotation_target_{appName} (
+  target_type varchar(10) NOT NULL COMMENT '对象类型，method: 方法，class: 类',
+  target_id int NOT NULL COMMENT '对象序号，方法按方法hash+字节数排序，类按完整类名排序',
+  method_hash varchar(30) NOT NULL COMMENT '方法hash+字节数，类对应的记录为空字符串',
+  full_name text NOT NULL COMMENT '完整方法（类名+方法名+参数）或完整类名',
+  PRIMARY KEY (target_type, target_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_bin COMMENT='有注解的方法及类的序号表，用于注解倒排索引';
\ No newline at end of file
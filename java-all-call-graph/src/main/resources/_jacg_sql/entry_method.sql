@@ -0,0 +1,7 @@
+CREATE TABLE if not exists entry_method_{appName} (
+  entry_id int NOT NULL COMMENT '入口方法序号，从0开始',
+  method_hash varchar(30) NOT NULL COMMENT '方法hash+字节数',
+  full_method text NOT NULL COMMENT '完整方法（类名+方法名+参数）',
+  PRIMARY KEY (entry_id),
+  UNIQUE INDEX idx_em_mh_{appName}(method_hash)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_bin COMMENT='入口方法表，入口方法为没有被其他方法调用的方法';
\ No newline at end of file
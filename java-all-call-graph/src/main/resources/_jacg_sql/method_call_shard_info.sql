@@ -0,0 +1,7 @@
+CREATE TABLE if not exists method_call_shard_info_{appName} (
+  shard_index int NOT NULL COMMENT '分库序号，从0开始',
+  shard_num int NOT NULL COMMENT '分库数量',
+  source_row_num int NOT NULL COMMENT '写入分库时方法调用表的记录数量',
+  source_max_call_id int NOT NULL COMMENT '写入分库时方法调用表的最大调用序号',
+  PRIMARY KEY (shard_index)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_bin COMMENT='方法调用分库信息表，用于检查分库与方法调用表是否一致';
\ No newline at end of file
@@ -0,0 +1,6 @@
+CREATE TABLE if not exists method_entry_reach_{appName} (
+  method_hash varchar(30) NOT NULL COMMENT '方法hash+字节数',
+  block_seq int NOT NULL COMMENT '位图分块序号，每块对应8192个入口方法序号',
+  entry_bitmap text NOT NULL COMMENT '当前分块中可以到达当前方法的入口方法序号位图，Base64格式',
+  PRIMARY KEY (method_hash, block_seq)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_bin COMMENT='方法可达入口方法表，记录可以调用到各方法的入口方法';
\ No newline at end of file
@@ -0,0 +1,7 @@
+CREATE TABLE if not exists spring_bean_{appName} (
+  full_class_name varchar(255) NOT NULL COMMENT '完整类名',
+  bean_name varchar(255) NOT NULL COMMENT 'Spring Bean名称',
+  annotation_name varchar(255) NOT NULL COMMENT '定义Bean的注解类名',
+  PRIMARY KEY (full_class_name),
+  INDEX idx_sb_bn_{appName}(bean_name)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_bin COMMENT='Spring Bean信息表';
\ No newline at end of file
@@ -0,0 +1,11 @@
+CREATE TABLE if not exists spring_controller_{appName} (
+  method_hash varchar(30) NOT NULL COMMENT '方法hash+字节数',
+  seq int NOT NULL COMMENT '序号，从0开始，一个方法对应多个路径时分别记录，序号为0的路径与调用链中显示的路径相同',
+  show_uri varchar(500) NOT NULL COMMENT '类与方法上的注解中的路径拼接后的路径',
+  class_path varchar(255) NOT NULL COMMENT '类上的注解中的路径',
+  method_path varchar(255) NOT NULL COMMENT '方法上的注解中的路径',
+  request_method varchar(50) NOT NULL COMMENT 'HTTP请求方法，多个时使用半角逗号分隔，未指定时为空字符串',
+  annotation_name varchar(255) NOT NULL COMMENT '方法上的注解类名',
+  full_method text NOT NULL COMMENT '完整方法（类名+方法名+参数）',
+  PRIMARY KEY (method_hash, seq)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_bin COMMENT='Spring Controller方法信息表';
\ No newline at end of file
@@ -0,0 +1,142 @@
+package test.run_by_code.concurrent;
+
+import com.adrninistrator.jacg.conf.ConfInfo;
+import com.adrninistrator.jacg.dboper.DbOperator;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/11
+ * @description: 使用H2数据库，测试多线程并发通过DbOperator查询时的吞吐量，线程数从1增加到32，并发查询的结果需要与单线程依次查询的结果一致
+ */
+public class TestDbOperatorConcurrentQuery {
+    private static final Logger logger = LoggerFactory.getLogger(TestDbOperatorConcurrentQuery.class);
+
+    private static final int MAX_THREAD_NUM = 32;
+
+    private static final int ROW_NUM = 1000;
+
+    // 每种线程数的执行时间
+    private static final long DURATION_MILLIS = 3000L;
+
+    private static final String TABLE_NAME = "test_concurrent_query";
+
+    private static final String QUERY_SQL = "select id, data_value from " + TABLE_NAME + " where id = ?";
+
+    private DbOperator dbOperator;
+
+    // 单线程依次查询的结果，下标为id
+    private List<Map<String, Object>> expectedRowList;
+
+    @Before
+    public void init() {
+        ConfInfo confInfo = new ConfInfo();
+        confInfo.setAppName("test_concurrent");
+        confInfo.setThreadNum(MAX_THREAD_NUM);
+        confInfo.setDbUseH2(true);
+        confInfo.setDbH2FilePath("./build/jacg_h2db_concurrent");
+
+        dbOperator = DbOperator.genInstance(confInfo);
+        Assert.assertNotNull(dbOperator);
+
+        Assert.assertTrue(dbOperator.executeDDLSql("CREATE TABLE if not exists " + TABLE_NAME + " (id int NOT NULL, data_value varchar(30) NOT NULL, PRIMARY KEY (id))"));
+        Assert.assertTrue(dbOperator.truncateTable(TABLE_NAME));
+
+        List<Object[]> objectList = new ArrayList<>(ROW_NUM);
+        for (int i = 0; i < ROW_NUM; i++) {
+            objectList.add(new Object[]{i, "data-" + i});
+        }
+        Assert.assertTrue(dbOperator.batchInsert("insert into " + TABLE_NAME + " (id, data_value) values (?, ?)", objectList));
+    }
+
+    @After
+    public void destroy() {
+        if (dbOperator != null) {
+            dbOperator.closeDs();
+        }
+    }
+
+    @Test
+    public void test() throws InterruptedException {
+        expectedRowList = querySerially();
+
+        double singleThreadQps = 0;
+        for (int threadNum = 1; threadNum <= MAX_THREAD_NUM; threadNum *= 2) {
+            double qps = runQuery(threadNum);
+            if (threadNum == 1) {
+                singleThreadQps = qps;
+            }
+            logger.info("线程数 {} 每秒查询次数 {} 相对单线程倍数 {}", threadNum, String.format("%.1f", qps), String.format("%.2f", qps / singleThreadQps));
+        }
+    }
+
+    // 单线程依次查询每个id对应的记录，作为并发查询时的预期结果
+    private List<Map<String, Object>> querySerially() {
+        List<Map<String, Object>> rowList = new ArrayList<>(ROW_NUM);
+        for (int id = 0; id < ROW_NUM; id++) {
+            Map<String, Object> map = dbOperator.queryOneRow(QUERY_SQL, new Object[]{id});
+            Assert.assertNotNull(map);
+            Assert.assertEquals(2, map.size());
+            Assert.assertTrue(map.containsValue("data-" + id));
+            rowList.add(map);
+        }
+        return rowList;
+    }
+
+    // 使用指定数量的线程并发查询，返回每秒查询次数
+    private double runQuery(int threadNum) throws InterruptedException {
+        AtomicLong queryCount = new AtomicLong(0);
+        AtomicLong failCount = new AtomicLong(0);
+        AtomicLong mismatchCount = new AtomicLong(0);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        CountDownLatch doneLatch = new CountDownLatch(threadNum);
+        long[] endTime = new long[1];
+
+        for (int i = 0; i < threadNum; i++) {
+            new Thread(() -> {
+                try {
+                    startLatch.await();
+                    long count = 0;
+                    while (System.currentTimeMillis() < endTime[0]) {
+                        int id = ThreadLocalRandom.current().nextInt(ROW_NUM);
+                        Map<String, Object> map = dbOperator.queryOneRow(QUERY_SQL, new Object[]{id});
+                        if (map == null || map.isEmpty()) {
+                            failCount.incrementAndGet();
+                        } else if (!expectedRowList.get(id).equals(map)) {
+                            logger.error("并发查询结果与单线程查询结果不一致 {} {} {}", id, expectedRowList.get(id), map);
+                            mismatchCount.incrementAndGet();
+                        }
+                        count++;
+                    }
+                    queryCount.addAndGet(count);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    doneLatch.countDown();
+                }
+            }).start();
+        }
+
+        long startTime = System.currentTimeMillis();
+        endTime[0] = startTime + DURATION_MILLIS;
+        startLatch.countDown();
+        doneLatch.await();
+
+        Assert.assertTrue(queryCount.get() > 0);
+        Assert.assertEquals(0L, failCount.get());
+        Assert.assertEquals(0L, mismatchCount.get());
+        return queryCount.get() * 1000.0D / (System.currentTimeMillis() - startTime);
+    }
+}
@@ -0,0 +1,276 @@
+package test.run_by_code.find_keyword;
+
+import com.adrninistrator.jacg.common.JACGConstants;
+import com.adrninistrator.jacg.common.enums.ConfigKeyEnum;
+import com.adrninistrator.jacg.common.enums.InputDirEnum;
+import com.adrninistrator.jacg.common.enums.OtherConfigFileUseListEnum;
+import com.adrninistrator.jacg.common.enums.OtherConfigFileUseSetEnum;
+import com.adrninistrator.jacg.common.enums.OutputDetailEnum;
+import com.adrninistrator.jacg.conf.ConfInfo;
+import com.adrninistrator.jacg.conf.ConfigureWrapper;
+import com.adrninistrator.jacg.dboper.DbOperator;
+import com.adrninistrator.jacg.find_keyword.FindKeywordCallGraph;
+import com.adrninistrator.jacg.util.JACGFileUtil;
+import com.adrninistrator.jacg.util.JACGSqlUtil;
+import com.adrninistrator.jacg.util.JACGUtil;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/19
+ * @description: 使用H2数据库，在数据库中写入随机生成的方法调用关系，比较生成关键字索引文件后通过索引查找关键字，与逐行查找关键字生成的结果文件是否一致
+ */
+public class TestFindKeywordIndex {
+    private static final Logger logger = LoggerFactory.getLogger(TestFindKeywordIndex.class);
+
+    private static final String APP_NAME = "test_kw_index";
+
+    private static final String H2_DB_FILE_PATH = "./build/jacg_h2db_kw_index";
+
+    private static final int CLASS_NUM = 6;
+
+    private static final int METHOD_NUM = 4;
+
+    private static final String[] SQL_FILE_NAMES = new String[]{
+            JACGConstants.FILE_SQL_CLASS_NAME,
+            JACGConstants.FILE_SQL_CLASS_ANNOTATION,
+            JACGConstants.FILE_SQL_METHOD_ANNOTATION,
+            JACGConstants.FILE_SQL_METHOD_CALL,
+            JACGConstants.FILE_SQL_METHOD_LINE_NUMBER,
+            JACGConstants.FILE_SQL_JAR_INFO,
+            JACGConstants.FILE_SQL_EXTENDED_DATA,
+            JACGConstants.FILE_SQL_MANUAL_ADD_EXTENDED_DATA,
+            JACGConstants.FILE_SQL_ENTRY_METHOD,
+            JACGConstants.FILE_SQL_METHOD_ENTRY_REACH,
+            JACGConstants.FILE_SQL_ANNOTATION_TARGET,
+            JACGConstants.FILE_SQL_ANNOTATION_INDEX,
+            JACGConstants.FILE_SQL_SPRING_BEAN,
+            JACGConstants.FILE_SQL_SPRING_CONTROLLER
+    };
+
+    // 需要查找的关键字，包含类名、方法、自定义数据、方法注解、调用者源代码行号，及不存在的关键字
+    private static final String[][] KEYWORDS_ARRAY = new String[][]{
+            {"C3:m2(", JACGConstants.CALL_FLAG_EXTENDED_DATA + "T@v1", "Ann2", "C5:m0"},
+            {"10", "C4"},
+            {"@", "m3()"},
+            {"not_exists"}
+    };
+
+    // 输出方式，分别为是否压缩、是否归档
+    private static final boolean[][] OUTPUT_MODES = new boolean[][]{
+            {false, false},
+            {true, false},
+            {false, true},
+            {true, true}
+    };
+
+    private final Random random = new Random(20221019L);
+
+    @Before
+    public void init() {
+        ConfInfo confInfo = new ConfInfo();
+        confInfo.setAppName(APP_NAME);
+        confInfo.setThreadNum(2);
+        confInfo.setDbUseH2(true);
+        confInfo.setDbH2FilePath(H2_DB_FILE_PATH);
+
+        DbOperator dbOperator = DbOperator.genInstance(confInfo);
+        Assert.assertNotNull(dbOperator);
+        try {
+            for (String sqlFileName : SQL_FILE_NAMES) {
+                // 与写入数据库时相同，对建表的SQL语句进行处理
+                String sql = JACGFileUtil.readFile2String(InputDirEnum.IDE_SQL.getDirName() + "/" + sqlFileName);
+                Assert.assertNotNull(sql);
+                sql = sql.replace(JACGConstants.APPNAME_IN_SQL, APP_NAME)
+                        .replace("ENGINE=InnoDB", "")
+                        .replace("COLLATE=utf8_bin", "")
+                        .replace(" text ", " varchar(" + JACGConstants.DB_TEXT_MAX_CHARACTER_SIZE + ") ");
+                Assert.assertTrue(sqlFileName, dbOperator.createTable(sql));
+                Assert.assertTrue(sqlFileName, dbOperator.truncateTable(sqlFileName.replace(".sql", "_" + APP_NAME)));
+            }
+
+            writeData(dbOperator);
+        } finally {
+            dbOperator.closeDs();
+        }
+    }
+
+    @Test
+    public void test4er() throws IOException {
+        checkFindKeyword(false);
+    }
+
+    @Test
+    public void test4ee() throws IOException {
+        checkFindKeyword(true);
+    }
+
+    // 写入类名、方法调用关系、自定义数据及方法注解，被调用方法大多数在调用方法之后，少数随机指定，以产生循环调用
+    private void writeData(DbOperator dbOperator) {
+        List<Object[]> classNameList = new ArrayList<>(CLASS_NUM);
+        for (int i = 0; i < CLASS_NUM; i++) {
+            classNameList.add(new Object[]{"a.b.C" + i, "C" + i});
+        }
+
+        List<Object[]> methodCallList = new ArrayList<>();
+        List<Object[]> extendedDataList = new ArrayList<>();
+        int methodTotal = CLASS_NUM * METHOD_NUM;
+        int callId = JACGConstants.METHOD_CALL_ID_START + 1;
+        for (int caller = 0; caller < methodTotal; caller++) {
+            int calleeNum = random.nextInt(3);
+            for (int i = 0; i < calleeNum; i++) {
+                int callee = random.nextInt(20) == 0 ? random.nextInt(methodTotal) : Math.min(methodTotal - 1, caller + 1 + random.nextInt(6));
+                String callerClassName = "C" + caller / METHOD_NUM;
+                String callerMethodName = "m" + caller % METHOD_NUM;
+                String callerFullMethod = "a.b." + callerClassName + ":" + callerMethodName + "()";
+                String calleeClassName = "C" + callee / METHOD_NUM;
+                String calleeMethodName = "m" + callee % METHOD_NUM;
+                String calleeFullMethod = "a.b." + calleeClassName + ":" + calleeMethodName + "()";
+                methodCallList.add(new Object[]{
+                        callId,
+                        "_VIR",
+                        JACGConstants.ENABLED,
+                        1,
+                        JACGUtil.genHashWithLen(callerFullMethod),
+                        callerFullMethod,
+                        callerMethodName,
+                        "a.b." + callerClassName,
+                        callerClassName,
+                        10 + i,
+                        JACGUtil.genHashWithLen(calleeFullMethod),
+                        calleeFullMethod,
+                        calleeMethodName,
+                        "a.b." + calleeClassName,
+                        calleeClassName
+                });
+                if (random.nextInt(10) == 0) {
+                    extendedDataList.add(new Object[]{callId, "T", "v" + random.nextInt(3)});
+                }
+                callId++;
+            }
+        }
+
+        List<Object[]> methodAnnotationList = new ArrayList<>();
+        for (int method = 0; method < methodTotal; method += 3) {
+            String fullMethod = "a.b.C" + method / METHOD_NUM + ":m" + method % METHOD_NUM + "()";
+            methodAnnotationList.add(new Object[]{JACGUtil.genHashWithLen(fullMethod), "x.y.Ann" + method % 4, "", "", fullMethod});
+        }
+
+        Assert.assertTrue(dbOperator.batchInsert(genInsertSql(JACGConstants.TABLE_PREFIX_CLASS_NAME, JACGConstants.TABLE_COLUMNS_CLASS_NAME), classNameList));
+        Assert.assertTrue(dbOperator.batchInsert(genInsertSql(JACGConstants.TABLE_PREFIX_METHOD_CALL, JACGConstants.TABLE_COLUMNS_METHOD_CALL), methodCallList));
+        Assert.assertTrue(dbOperator.batchInsert(genInsertSql(JACGConstants.TABLE_PREFIX_EXTENDED_DATA, JACGConstants.TABLE_COLUMNS_EXTENDED_DATA),
+                extendedDataList));
+        Assert.assertTrue(dbOperator.batchInsert(genInsertSql(JACGConstants.TABLE_PREFIX_METHOD_ANNOTATION, JACGConstants.TABLE_COLUMNS_METHOD_ANNOTATION),
+                methodAnnotationList));
+    }
+
+    private String genInsertSql(String tablePrefix, String[] columns) {
+        return "insert into " + tablePrefix + APP_NAME + " " + JACGSqlUtil.genColumnString(columns) + " values " + JACGSqlUtil.genQuestionString(columns.length);
+    }
+
+    // 分别使用各种输出方式，比较使用关键字索引与逐行查找关键字的结果
+    private void checkFindKeyword(boolean order4ee) throws IOException {
+        int totalHitLineNum = 0;
+        for (String[] keywords : KEYWORDS_ARRAY) {
+            for (boolean[] outputMode : OUTPUT_MODES) {
+                int[] hitLineNum = new int[1];
+                String expectedResult = find(order4ee, keywords, false, outputMode[0], outputMode[1], hitLineNum);
+                String actualResult = find(order4ee, keywords, true, outputMode[0], outputMode[1], null);
+                Assert.assertEquals(Arrays.toString(keywords) + " " + Arrays.toString(outputMode), expectedResult, actualResult);
+                logger.info("{} {} {} 查找到关键字的行数 {}", order4ee, Arrays.toString(keywords), Arrays.toString(outputMode), hitLineNum[0]);
+                totalHitLineNum += hitLineNum[0];
+            }
+        }
+        // 避免生成的数据过于稀疏，未查找到关键字时比较结果没有意义
+        Assert.assertTrue(totalHitLineNum > 0);
+    }
+
+    /**
+     * 执行关键字查找，返回全部结果文件的内容
+     *
+     * @param order4ee
+     * @param keywords
+     * @param outputKeywordIndex
+     * @param outputCompress
+     * @param outputArchive
+     * @param hitLineNum         非null时记录查找到关键字的调用链行数
+     * @return
+     */
+    private String find(boolean order4ee, String[] keywords, boolean outputKeywordIndex, boolean outputCompress, boolean outputArchive, int[] hitLineNum)
+            throws IOException {
+        ConfigureWrapper configureWrapper = new ConfigureWrapper();
+        configureWrapper.addConfig(ConfigKeyEnum.CKE_APP_NAME, APP_NAME);
+        configureWrapper.addConfig(ConfigKeyEnum.CKE_CALL_GRAPH_JAR_LIST, "build/libs/test.jar");
+        configureWrapper.addConfig(ConfigKeyEnum.CKE_CALL_GRAPH_OUTPUT_DETAIL, OutputDetailEnum.ODE_1.getDetail());
+        configureWrapper.addConfig(ConfigKeyEnum.CKE_THREAD_NUM, "2");
+        configureWrapper.addConfig(ConfigKeyEnum.CKE_SHOW_METHOD_ANNOTATION, Boolean.TRUE.toString());
+        configureWrapper.addConfig(ConfigKeyEnum.CKE_GEN_COMBINED_OUTPUT, Boolean.FALSE.toString());
+        configureWrapper.addConfig(ConfigKeyEnum.CKE_SHOW_CALLER_LINE_NUM, Boolean.TRUE.toString());
+        configureWrapper.addConfig(ConfigKeyEnum.CKE_OUTPUT_KEYWORD_INDEX, String.valueOf(outputKeywordIndex));
+        configureWrapper.addConfig(ConfigKeyEnum.CKE_OUTPUT_COMPRESS, String.valueOf(outputCompress));
+        configureWrapper.addConfig(ConfigKeyEnum.CKE_OUTPUT_ARCHIVE, String.valueOf(outputArchive));
+        configureWrapper.addConfig(ConfigKeyEnum.CKE_DB_USE_H2, Boolean.TRUE.toString());
+        configureWrapper.addConfig(ConfigKeyEnum.CKE_DB_H2_FILE_PATH, H2_DB_FILE_PATH);
+
+        Set<String> entryMethodSet = new HashSet<>();
+        Set<String> calleeClassNameSet = new HashSet<>();
+        for (int i = 0; i < CLASS_NUM; i++) {
+            entryMethodSet.add("C" + i + ":m0(");
+            entryMethodSet.add("C" + i + ":m1(");
+            if (i % 2 == 0) {
+                calleeClassNameSet.add("C" + i);
+            }
+        }
+        configureWrapper.addOtherConfigSet(OtherConfigFileUseSetEnum.OCFUSE_IN_ALLOWED_CLASS_PREFIX, new HashSet<>(Collections.singletonList("a.b.")));
+        configureWrapper.addOtherConfigSet(OtherConfigFileUseSetEnum.OCFUSE_OUT_GRAPH_FOR_CALLER_ENTRY_METHOD, entryMethodSet);
+        configureWrapper.addOtherConfigSet(OtherConfigFileUseSetEnum.OCFUSE_OUT_GRAPH_FOR_CALLEE_CLASS_NAME, calleeClassNameSet);
+        configureWrapper.addOtherConfigList(order4ee ? OtherConfigFileUseListEnum.OCFULE_FIND_KEYWORD_4CALLEE : OtherConfigFileUseListEnum.OCFULE_FIND_KEYWORD_4CALLER,
+                Arrays.asList(keywords));
+
+        FindKeywordCallGraph findKeywordCallGraph = new FindKeywordCallGraph();
+        findKeywordCallGraph.setReturnResultFileList();
+        List<String> resultFileList = findKeywordCallGraph.find(order4ee, configureWrapper);
+        Assert.assertNotNull(resultFileList);
+
+        // 结果文件按照相对路径排序，处理文件的路径包含生成时间，不比较
+        Path currentDirPath = Paths.get(findKeywordCallGraph.getCurrentDirPath());
+        List<String> relativePathList = new ArrayList<>(resultFileList.size());
+        for (String resultFile : resultFileList) {
+            relativePathList.add(currentDirPath.relativize(Paths.get(resultFile)).toString());
+        }
+        Collections.sort(relativePathList);
+
+        StringBuilder stringBuilder = new StringBuilder();
+        for (String relativePath : relativePathList) {
+            stringBuilder.append("== ").append(relativePath).append(JACGConstants.NEW_LINE);
+            for (String line : Files.readAllLines(currentDirPath.resolve(relativePath), StandardCharsets.UTF_8)) {
+                if (line.startsWith("- 处理文件")) {
+                    continue;
+                }
+                if (hitLineNum != null && line.startsWith("[")) {
+                    hitLineNum[0]++;
+                }
+                stringBuilder.append(line).append(JACGConstants.NEW_LINE);
+            }
+        }
+        return stringBuilder.toString();
+    }
+}
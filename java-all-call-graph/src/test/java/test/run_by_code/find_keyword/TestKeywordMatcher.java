@@ -0,0 +1,89 @@
+package test.run_by_code.find_keyword;
+
+import com.adrninistrator.jacg.find_keyword.KeywordMatcher;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/19
+ * @description: 使用随机生成的关键字及字符串，比较KeywordMatcher的匹配结果与String.contains()的结果
+ */
+public class TestKeywordMatcher {
+    // 用于生成关键字及字符串的片段，包含ASCII、多字节UTF-8字符及调用链文件中的特殊字符
+    private static final String[] TOKENS = new String[]{"a", "b", "ab", "ba", ":", "(", ")", "!", "\t", "中", "文", "é", "😀", "#"};
+
+    private final Random random = new Random(20221019L);
+
+    @Test
+    public void test() {
+        for (int round = 0; round < 500; round++) {
+            int keywordNum = 1 + random.nextInt(6);
+            List<String> keywordList = new ArrayList<>(keywordNum);
+            for (int i = 0; i < keywordNum; i++) {
+                keywordList.add(genString(1 + random.nextInt(4)));
+            }
+            KeywordMatcher keywordMatcher = KeywordMatcher.build(keywordList);
+            Assert.assertEquals(keywordNum, keywordMatcher.getKeywordNum());
+
+            for (int i = 0; i < 50; i++) {
+                checkMatch(keywordMatcher, keywordList, genString(random.nextInt(30)));
+            }
+        }
+    }
+
+    @Test
+    public void testSpecialKeywords() {
+        // 重复的关键字、互为前缀或后缀的关键字、空字符串
+        List<String> keywordList = Arrays.asList("ab", "ab", "b", "abab", "中文", "文", "");
+        KeywordMatcher keywordMatcher = KeywordMatcher.build(keywordList);
+        for (String line : new String[]{"", "a", "ab", "xabab", "中", "中文", "文中", "b\tab"}) {
+            checkMatch(keywordMatcher, keywordList, line);
+        }
+    }
+
+    private String genString(int tokenNum) {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (int i = 0; i < tokenNum; i++) {
+            stringBuilder.append(TOKENS[random.nextInt(TOKENS.length)]);
+        }
+        return stringBuilder.toString();
+    }
+
+    private void checkMatch(KeywordMatcher keywordMatcher, List<String> keywordList, String line) {
+        int expectedNum = 0;
+        boolean[] expectedFlags = new boolean[keywordList.size()];
+        for (int i = 0; i < keywordList.size(); i++) {
+            if (line.contains(keywordList.get(i))) {
+                expectedFlags[i] = true;
+                expectedNum++;
+            }
+        }
+
+        boolean[] matchedFlags = new boolean[keywordList.size()];
+        Assert.assertEquals(line, expectedNum, keywordMatcher.match(line, matchedFlags));
+        Assert.assertArrayEquals(line, expectedFlags, matchedFlags);
+        Assert.assertEquals(line, expectedNum > 0, keywordMatcher.containsAny(line));
+
+        // 字符串前后有其他内容时，只匹配指定范围内的字节
+        byte[] lineBytes = line.getBytes(StandardCharsets.UTF_8);
+        byte[] prefixBytes = genString(3).getBytes(StandardCharsets.UTF_8);
+        byte[] suffixBytes = genString(3).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(prefixBytes.length + lineBytes.length + suffixBytes.length);
+        buffer.put(prefixBytes).put(lineBytes).put(suffixBytes);
+        int start = prefixBytes.length;
+        int end = start + lineBytes.length;
+
+        Arrays.fill(matchedFlags, false);
+        Assert.assertEquals(line, expectedNum, keywordMatcher.match(buffer, start, end, matchedFlags));
+        Assert.assertArrayEquals(line, expectedFlags, matchedFlags);
+        Assert.assertEquals(line, expectedNum > 0, keywordMatcher.containsAny(buffer, start, end));
+    }
+}
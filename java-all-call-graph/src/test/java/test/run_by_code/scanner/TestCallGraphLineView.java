@@ -0,0 +1,150 @@
+package test.run_by_code.scanner;
+
+import com.adrninistrator.jacg.common.JACGConstants;
+import com.adrninistrator.jacg.scanner.CallGraphLineScanner;
+import com.adrninistrator.jacg.scanner.CallGraphLineView;
+import com.adrninistrator.jacg.util.JACGCallGraphFileUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/19
+ * @description: 使用随机生成的调用链文件内容，比较CallGraphLineView的判断及解析结果与JACGCallGraphFileUtil中处理字符串的对应方法的结果
+ */
+public class TestCallGraphLineView {
+    private static final Pattern PATTERN_CYCLE = Pattern.compile("\t!cycle\\[(\\d+)]");
+
+    private static final String[] METHODS = new String[]{"test.call_graph.TestMCCaller:test1a()", "java.lang.System:setProperty(java.lang.String,java.lang.String)",
+            "a.b.中文类:方法(int)", "a.b.C:m(a.b.D)"};
+
+    private final Random random = new Random(20221019L);
+
+    @Test
+    public void test() throws IOException {
+        for (String lineSeparator : new String[]{"\n", "\r\n"}) {
+            List<String> lineList = new ArrayList<>();
+            for (int i = 0; i < 5000; i++) {
+                lineList.add(genLine(i));
+            }
+
+            byte[] bytes = (String.join(lineSeparator, lineList) + lineSeparator).getBytes(StandardCharsets.UTF_8);
+            // 分别使用文件内容及输入流创建对象，从输入流逐行读取时内容超过每次读取的字节数
+            for (CallGraphLineScanner callGraphLineScanner : new CallGraphLineScanner[]{CallGraphLineScanner.genScanner(bytes),
+                    CallGraphLineScanner.genScanner(new ByteArrayInputStream(bytes))}) {
+                for (int i = 0; i < lineList.size(); i++) {
+                    CallGraphLineView callGraphLineView = callGraphLineScanner.nextLine();
+                    Assert.assertNotNull(callGraphLineView);
+                    checkLine(lineList.get(i), callGraphLineView, i + 1);
+                }
+                Assert.assertNull(callGraphLineScanner.nextLine());
+                callGraphLineScanner.close();
+            }
+        }
+    }
+
+    // 从输入流逐行读取时，向后跳转到指定行开始的位置，及最后一行没有换行符的情况
+    @Test
+    public void testStreamSetPosition() throws IOException {
+        List<String> lineList = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            lineList.add(genLine(i));
+        }
+        String content = String.join("\r\n", lineList);
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+
+        try (CallGraphLineScanner callGraphLineScanner = CallGraphLineScanner.genScanner(new ByteArrayInputStream(bytes))) {
+            checkLine(lineList.get(0), callGraphLineScanner.nextLine(), 1);
+            for (int lineIndex : new int[]{1, 10, 3000, lineList.size() - 1}) {
+                int position = String.join("\r\n", lineList.subList(0, lineIndex)).getBytes(StandardCharsets.UTF_8).length + 2;
+                callGraphLineScanner.setPosition(position);
+                checkLine(lineList.get(lineIndex), callGraphLineScanner.nextLine(), lineIndex + 1);
+            }
+            Assert.assertNull(callGraphLineScanner.nextLine());
+        }
+    }
+
+    // 生成调用链文件或调用链搜索结果文件中的一行
+    private String genLine(int index) {
+        switch (random.nextInt(6)) {
+            case 0:
+                return JACGConstants.FLAG_HASHTAG + JACGConstants.FLAG_SPACE + index + JACGConstants.FLAG_DOT + JACGConstants.FLAG_MD_LINE_NUMBER +
+                        random.nextInt(10000);
+            case 1:
+                return random.nextBoolean() ? "" : JACGConstants.FLAG_MD_CODE;
+            case 2:
+                // 方法级别非法的行
+                return "[" + (random.nextBoolean() ? "x" : "") + "]#" + METHODS[random.nextInt(METHODS.length)];
+            default:
+                break;
+        }
+
+        int methodLevel = random.nextInt(30);
+        StringBuilder stringBuilder = new StringBuilder("[").append(methodLevel).append("]#");
+        for (int i = 0; i < methodLevel; i++) {
+            stringBuilder.append(JACGConstants.OUTPUT_SPLIT_FLAG);
+        }
+        stringBuilder.append("[TestMCCaller:").append(random.nextInt(200)).append("]\t").append(METHODS[random.nextInt(METHODS.length)]);
+        if (random.nextInt(4) == 0) {
+            stringBuilder.append("\t@org.springframework.web.bind.annotation.GetMapping(/path)");
+        }
+        if (random.nextInt(5) == 0) {
+            stringBuilder.append(JACGConstants.CALLEE_FLAG_ENTRY);
+        }
+        if (random.nextInt(5) == 0) {
+            stringBuilder.append(String.format(JACGConstants.CALL_FLAG_CYCLE, random.nextInt(methodLevel + 1)));
+        }
+        switch (random.nextInt(6)) {
+            case 0:
+                stringBuilder.append(JACGConstants.CALL_FLAG_EXTENDED_DATA).append("DB_OPER@select@[table_a]");
+                break;
+            case 1:
+                stringBuilder.append(JACGConstants.CALL_FLAG_EXTENDED_DATA_MANUAL_ADD).append("MQ@topic_中文");
+                break;
+            case 2:
+                stringBuilder.append(JACGConstants.CALL_FLAG_EXTENDED_DATA);
+                break;
+            default:
+                break;
+        }
+        return stringBuilder.toString();
+    }
+
+    private void checkLine(String line, CallGraphLineView callGraphLineView, int lineNumber) {
+        Assert.assertEquals(line, callGraphLineView.toString());
+        Assert.assertEquals(line.getBytes(StandardCharsets.UTF_8).length, callGraphLineView.getLength());
+
+        boolean dataSeqLine = JACGCallGraphFileUtil.isDataSeqLine(line);
+        Assert.assertEquals(line, dataSeqLine, callGraphLineView.isDataSeqLine());
+        if (dataSeqLine) {
+            Assert.assertEquals(line, JACGCallGraphFileUtil.getDataSeqFromLine(line, lineNumber), callGraphLineView.getDataSeq(lineNumber));
+        }
+
+        boolean callGraphLine = JACGCallGraphFileUtil.isCallGraphLine(line);
+        Assert.assertEquals(line, callGraphLine, callGraphLineView.isCallGraphLine());
+        if (callGraphLine) {
+            Assert.assertEquals(line, JACGCallGraphFileUtil.getCallGraphMethodLevel(line), callGraphLineView.getMethodLevel());
+        }
+
+        Assert.assertEquals(line, line.contains(JACGConstants.CALLEE_FLAG_ENTRY), callGraphLineView.isEntry());
+
+        Matcher matcher = PATTERN_CYCLE.matcher(line);
+        int expectedCycleLevel = matcher.find() ? Integer.parseInt(matcher.group(1)) : JACGConstants.NO_CYCLE_CALL_FLAG;
+        Assert.assertEquals(line, expectedCycleLevel, callGraphLineView.getCycleCallLevel());
+
+        boolean containsExtendedData = JACGCallGraphFileUtil.checkLineContainsExtendedData(line);
+        Assert.assertEquals(line, containsExtendedData, callGraphLineView.containsExtendedData());
+        if (containsExtendedData) {
+            Assert.assertEquals(line, JACGCallGraphFileUtil.getExtendedDataStringFromLine(line), callGraphLineView.getExtendedDataString());
+        }
+    }
+}
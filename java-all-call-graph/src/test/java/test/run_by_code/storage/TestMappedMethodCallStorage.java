@@ -0,0 +1,46 @@
+package test.run_by_code.storage;
+
+import com.adrninistrator.jacg.dboper.DbOperWrapper;
+import com.adrninistrator.jacg.storage.JdbcMethodCallStorage;
+import com.adrninistrator.jacg.storage.MappedMethodCallStorage;
+import com.adrninistrator.jacg.storage.MappedMethodCallStorageWriter;
+import com.adrninistrator.jacg.storage.MethodCallStorage;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/16
+ * @description: 使用H2数据库，将方法调用表写入内存映射文件后读取，与通过数据库查询的结果进行比较，并检查方法调用表变化后打开内存映射文件失败
+ */
+public class TestMappedMethodCallStorage extends TestMethodCallStorageBase {
+    private static final String APP_NAME = "test_mapped";
+
+    private static final String DIR_PATH = "./build/jacg_storage_mapped";
+
+    @Before
+    public void init() {
+        initMethodCall(APP_NAME, "./build/jacg_h2db_storage");
+    }
+
+    @Test
+    public void test() {
+        Assert.assertTrue(MappedMethodCallStorageWriter.write(dbOperator, APP_NAME, DIR_PATH));
+        MethodCallStorage mappedStorage = MappedMethodCallStorage.open(DIR_PATH, dbOperator, APP_NAME);
+        Assert.assertNotNull(mappedStorage);
+
+        MethodCallStorage jdbcStorage = new JdbcMethodCallStorage(dbOperator, new DbOperWrapper(dbOperator, APP_NAME), APP_NAME, ALL_COLUMNS, ALL_COLUMNS);
+        Assert.assertTrue(compareAll(jdbcStorage, mappedStorage) > ROW_NUM);
+
+        // 方法调用表变化后，内存映射文件已过期
+        Assert.assertTrue(dbOperator.batchInsert(genInsertSql(), Collections.singletonList(genRow(ROW_NUM + 1))));
+        Assert.assertNull(MappedMethodCallStorage.open(DIR_PATH, dbOperator, APP_NAME));
+
+        // 重新写入后可以打开
+        Assert.assertTrue(MappedMethodCallStorageWriter.write(dbOperator, APP_NAME, DIR_PATH));
+        Assert.assertNotNull(MappedMethodCallStorage.open(DIR_PATH, dbOperator, APP_NAME));
+    }
+}
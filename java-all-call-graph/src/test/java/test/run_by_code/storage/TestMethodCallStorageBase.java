@@ -0,0 +1,211 @@
+package test.run_by_code.storage;
+
+import com.adrninistrator.jacg.common.DC;
+import com.adrninistrator.jacg.common.JACGConstants;
+import com.adrninistrator.jacg.common.enums.InputDirEnum;
+import com.adrninistrator.jacg.conf.ConfInfo;
+import com.adrninistrator.jacg.dboper.DbOperator;
+import com.adrninistrator.jacg.dto.entity.MethodCallRow;
+import com.adrninistrator.jacg.storage.MethodCallStorage;
+import com.adrninistrator.jacg.util.JACGFileUtil;
+import com.adrninistrator.jacg.util.JACGSqlUtil;
+import org.junit.After;
+import org.junit.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/18
+ * @description: 使用H2数据库，在方法调用表中写入随机生成的方法调用关系，比较不同存储方式查询方法调用关系的结果
+ */
+public abstract class TestMethodCallStorageBase {
+    // 查询方法调用关系时查询的全部字段
+    protected static final String[] ALL_COLUMNS = new String[]{
+            DC.MC_CALL_ID,
+            DC.MC_CALL_TYPE,
+            DC.MC_ENABLED,
+            DC.MC_CALLER_METHOD_HASH,
+            DC.MC_CALLER_FULL_METHOD,
+            DC.MC_CALLER_METHOD_NAME,
+            DC.MC_CALLER_FULL_CLASS_NAME,
+            DC.MC_CALLER_CLASS_NAME,
+            DC.MC_CALLER_LINE_NUM,
+            DC.MC_CALLEE_METHOD_HASH,
+            DC.MC_CALLEE_FULL_METHOD,
+            DC.MC_CALLEE_METHOD_NAME,
+            DC.MC_CALLEE_FULL_CLASS_NAME,
+            DC.MC_CALLEE_CLASS_NAME
+    };
+
+    protected static final int ROW_NUM = 3000;
+
+    private static final int METHOD_NUM = 60;
+
+    protected ConfInfo confInfo;
+
+    protected DbOperator dbOperator;
+
+    // 方法调用表的建表SQL语句
+    protected String methodCallSql;
+
+    private final List<String> methodHashList = new ArrayList<>(METHOD_NUM);
+
+    private final Random random = new Random(20221018L);
+
+    /**
+     * 创建方法调用表并写入随机生成的方法调用关系
+     *
+     * @param appName
+     * @param h2DbFilePath
+     */
+    protected void initMethodCall(String appName, String h2DbFilePath) {
+        confInfo = new ConfInfo();
+        confInfo.setAppName(appName);
+        confInfo.setThreadNum(2);
+        confInfo.setDbUseH2(true);
+        confInfo.setDbH2FilePath(h2DbFilePath);
+
+        dbOperator = DbOperator.genInstance(confInfo);
+        Assert.assertNotNull(dbOperator);
+
+        methodCallSql = readCreateTableSql(JACGConstants.FILE_SQL_METHOD_CALL);
+        Assert.assertTrue(dbOperator.createTable(methodCallSql));
+        Assert.assertTrue(dbOperator.truncateTable(JACGConstants.TABLE_PREFIX_METHOD_CALL + appName));
+
+        // 方法HASH使用大小写字母及数字，检查各种存储方式的排序与数据库排序一致
+        String chars = "ABCXYZabcxyz0189-#";
+        for (int i = 0; i < METHOD_NUM; i++) {
+            StringBuilder stringBuilder = new StringBuilder();
+            int length = 3 + random.nextInt(6);
+            for (int j = 0; j < length; j++) {
+                stringBuilder.append(chars.charAt(random.nextInt(chars.length())));
+            }
+            methodHashList.add(stringBuilder.toString() + "#" + i);
+        }
+
+        List<Object[]> objectList = new ArrayList<>(ROW_NUM);
+        for (int callId = 1; callId <= ROW_NUM; callId++) {
+            objectList.add(genRow(callId));
+        }
+        Assert.assertTrue(dbOperator.batchInsert(genInsertSql(), objectList));
+    }
+
+    // 读取建表的SQL语句，与写入数据库时相同，对建表的SQL语句进行处理
+    protected String readCreateTableSql(String sqlFileName) {
+        String sql = JACGFileUtil.readFile2String(InputDirEnum.IDE_SQL.getDirName() + "/" + sqlFileName);
+        Assert.assertNotNull(sqlFileName, sql);
+        return sql.replace(JACGConstants.APPNAME_IN_SQL, confInfo.getAppName())
+                .replace("ENGINE=InnoDB", "")
+                .replace("COLLATE=utf8_bin", "")
+                .replace(" text ", " varchar(" + JACGConstants.DB_TEXT_MAX_CHARACTER_SIZE + ") ");
+    }
+
+    @After
+    public void destroyMethodCall() {
+        if (dbOperator != null) {
+            dbOperator.closeDs();
+        }
+    }
+
+    // 生成方法调用表的一条记录，字段顺序与JACGConstants.TABLE_COLUMNS_METHOD_CALL一致
+    protected Object[] genRow(int callId) {
+        String callerMethodHash = methodHashList.get(random.nextInt(METHOD_NUM));
+        String calleeMethodHash = methodHashList.get(random.nextInt(METHOD_NUM));
+        return new Object[]{
+                callId,
+                random.nextBoolean() ? "ITF" : "_SPR_ACT_I",
+                random.nextInt(5) == 0 ? JACGConstants.DISABLED : JACGConstants.ENABLED,
+                1,
+                callerMethodHash,
+                "a.b.Caller" + callerMethodHash + ":m(java.lang.String)",
+                "m",
+                "a.b.Caller" + callerMethodHash,
+                "Caller" + callerMethodHash,
+                random.nextInt(100),
+                calleeMethodHash,
+                "c.d.Callee" + calleeMethodHash + ":n()",
+                "n",
+                "c.d.Callee" + calleeMethodHash,
+                "Callee" + calleeMethodHash
+        };
+    }
+
+    protected String genInsertSql() {
+        return "insert into " + JACGConstants.TABLE_PREFIX_METHOD_CALL + confInfo.getAppName() + " " +
+                JACGSqlUtil.genColumnString(JACGConstants.TABLE_COLUMNS_METHOD_CALL) + " values " +
+                JACGSqlUtil.genQuestionString(JACGConstants.TABLE_COLUMNS_METHOD_CALL.length);
+    }
+
+    /**
+     * 使用全部方法HASH及不存在的方法HASH，比较两种存储方式查询到的全部调用方法及被调用方法
+     *
+     * @param expectedStorage
+     * @param actualStorage
+     * @return 查询到的记录数
+     */
+    protected int compareAll(MethodCallStorage expectedStorage, MethodCallStorage actualStorage) {
+        List<String> queryHashList = new ArrayList<>(methodHashList);
+        queryHashList.add("not_exists");
+        queryHashList.add("");
+
+        int rowNum = 0;
+        for (String methodHash : queryHashList) {
+            rowNum += compareCallers(expectedStorage, actualStorage, methodHash);
+            rowNum += compareCallees(expectedStorage, actualStorage, methodHash, JACGConstants.LINE_NUM_NONE, JACGConstants.LINE_NUM_NONE);
+            rowNum += compareCallees(expectedStorage, actualStorage, methodHash, 20, 60);
+        }
+        return rowNum;
+    }
+
+    // 比较被调用方法的全部调用方法，返回查询到的记录数
+    private int compareCallers(MethodCallStorage expectedStorage, MethodCallStorage actualStorage, String calleeMethodHash) {
+        MethodCallRow expectedRow = new MethodCallRow();
+        MethodCallRow actualRow = new MethodCallRow();
+        String lastCallerMethodHash = null;
+        int rowNum = 0;
+        while (true) {
+            Boolean expectedFound = expectedStorage.queryOneCaller(calleeMethodHash, lastCallerMethodHash, expectedRow);
+            Boolean actualFound = actualStorage.queryOneCaller(calleeMethodHash, lastCallerMethodHash, actualRow);
+            Assert.assertNotNull(expectedFound);
+            Assert.assertEquals(expectedFound, actualFound);
+            if (!expectedFound) {
+                return rowNum;
+            }
+            Assert.assertEquals(rowToString(expectedRow), rowToString(actualRow));
+            lastCallerMethodHash = expectedRow.getCallerMethodHash();
+            rowNum++;
+        }
+    }
+
+    // 比较调用方法的全部被调用方法，返回查询到的记录数
+    private int compareCallees(MethodCallStorage expectedStorage, MethodCallStorage actualStorage, String callerMethodHash, int lineNumStart,
+                               int lineNumEnd) {
+        MethodCallRow expectedRow = new MethodCallRow();
+        MethodCallRow actualRow = new MethodCallRow();
+        int lastCallId = JACGConstants.METHOD_CALL_ID_START;
+        int rowNum = 0;
+        while (true) {
+            Boolean expectedFound = expectedStorage.queryOneCallee(callerMethodHash, lastCallId, lineNumStart, lineNumEnd, expectedRow);
+            Boolean actualFound = actualStorage.queryOneCallee(callerMethodHash, lastCallId, lineNumStart, lineNumEnd, actualRow);
+            Assert.assertNotNull(expectedFound);
+            Assert.assertEquals(expectedFound, actualFound);
+            if (!expectedFound) {
+                return rowNum;
+            }
+            Assert.assertEquals(rowToString(expectedRow), rowToString(actualRow));
+            lastCallId = expectedRow.getCallId();
+            rowNum++;
+        }
+    }
+
+    private String rowToString(MethodCallRow methodCallRow) {
+        return methodCallRow.getCallId() + "|" + methodCallRow.getCallType() + "|" + methodCallRow.getEnabled() + "|" +
+                methodCallRow.getCallerMethodHash() + "|" + methodCallRow.getCallerFullMethod() + "|" + methodCallRow.getCallerMethodName() + "|" +
+                methodCallRow.getCallerFullClassName() + "|" + methodCallRow.getCallerClassName() + "|" + methodCallRow.getCallerLineNum() + "|" +
+                methodCallRow.getCalleeMethodHash() + "|" + methodCallRow.getCalleeFullMethod() + "|" + methodCallRow.getCalleeMethodName() + "|" +
+                methodCallRow.getCalleeFullClassName() + "|" + methodCallRow.getCalleeClassName();
+    }
+}
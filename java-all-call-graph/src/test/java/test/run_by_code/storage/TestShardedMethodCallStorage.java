@@ -0,0 +1,93 @@
+package test.run_by_code.storage;
+
+import com.adrninistrator.jacg.common.DC;
+import com.adrninistrator.jacg.common.JACGConstants;
+import com.adrninistrator.jacg.dboper.DbObjectHolder;
+import com.adrninistrator.jacg.dboper.DbOperWrapper;
+import com.adrninistrator.jacg.storage.JdbcMethodCallStorage;
+import com.adrninistrator.jacg.storage.MethodCallStorage;
+import com.adrninistrator.jacg.storage.ShardedMethodCallStorage;
+import com.adrninistrator.jacg.storage.ShardedMethodCallStorageWriter;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author adrninistrator
+ * @date 2022/10/18
+ * @description: 使用多个H2数据库作为分库，将方法调用表写入分库后读取，与不分库时通过数据库查询的结果进行比较
+ */
+public class TestShardedMethodCallStorage extends TestMethodCallStorageBase {
+    private static final String APP_NAME = "test_sharded";
+
+    private static final List<String> SHARD_DB_LIST = Arrays.asList(
+            "./build/jacg_h2db_shard_0",
+            "./build/jacg_h2db_shard_1",
+            "./build/jacg_h2db_shard_2");
+
+    @Before
+    public void init() {
+        initMethodCall(APP_NAME, "./build/jacg_h2db_shard_main");
+    }
+
+    @Test
+    public void test() {
+        String shardInfoSql = readCreateTableSql(JACGConstants.FILE_SQL_METHOD_CALL_SHARD_INFO);
+        Assert.assertTrue(ShardedMethodCallStorageWriter.write(dbOperator, confInfo, SHARD_DB_LIST, methodCallSql, shardInfoSql));
+
+        // 每个分库的两张表中，只保存按对应方法HASH分到当前分库的记录，两张表的记录数之和都与方法调用表相同
+        List<DbObjectHolder> holderList = ShardedMethodCallStorage.acquireShardHolders(confInfo, SHARD_DB_LIST);
+        Assert.assertNotNull(holderList);
+        try {
+            Assert.assertEquals(ROW_NUM, checkShardTable(holderList, JACGConstants.TABLE_PREFIX_METHOD_CALL, DC.MC_CALLER_METHOD_HASH));
+            Assert.assertEquals(ROW_NUM, checkShardTable(holderList, JACGConstants.TABLE_PREFIX_METHOD_CALL_BY_CALLEE, DC.MC_CALLEE_METHOD_HASH));
+        } finally {
+            ShardedMethodCallStorage.releaseShardHolders(holderList, confInfo.getThreadNum());
+        }
+
+        MethodCallStorage shardedStorage = ShardedMethodCallStorage.open(dbOperator, confInfo, SHARD_DB_LIST, ALL_COLUMNS, ALL_COLUMNS);
+        Assert.assertNotNull(shardedStorage);
+        try {
+            MethodCallStorage jdbcStorage = new JdbcMethodCallStorage(dbOperator, new DbOperWrapper(dbOperator, APP_NAME), APP_NAME, ALL_COLUMNS,
+                    ALL_COLUMNS);
+            Assert.assertTrue(compareAll(jdbcStorage, shardedStorage) > ROW_NUM);
+        } finally {
+            shardedStorage.close();
+        }
+
+        // 分库顺序与写入时不同时，不能打开
+        List<String> reversedShardDbList = new ArrayList<>(SHARD_DB_LIST);
+        Collections.reverse(reversedShardDbList);
+        Assert.assertNull(ShardedMethodCallStorage.open(dbOperator, confInfo, reversedShardDbList, ALL_COLUMNS, ALL_COLUMNS));
+
+        // 方法调用表变化后，分库已过期
+        Assert.assertTrue(dbOperator.batchInsert(genInsertSql(), Collections.singletonList(genRow(ROW_NUM + 1))));
+        Assert.assertNull(ShardedMethodCallStorage.open(dbOperator, confInfo, SHARD_DB_LIST, ALL_COLUMNS, ALL_COLUMNS));
+
+        // 重新写入后可以打开
+        Assert.assertTrue(ShardedMethodCallStorageWriter.write(dbOperator, confInfo, SHARD_DB_LIST, methodCallSql, shardInfoSql));
+        shardedStorage = ShardedMethodCallStorage.open(dbOperator, confInfo, SHARD_DB_LIST, ALL_COLUMNS, ALL_COLUMNS);
+        Assert.assertNotNull(shardedStorage);
+        shardedStorage.close();
+    }
+
+    // 检查各分库中指定表的记录都按指定字段分到了当前分库，返回各分库的记录数之和
+    private int checkShardTable(List<DbObjectHolder> holderList, String tablePrefix, String shardColumn) {
+        int rowNum = 0;
+        for (int i = 0; i < holderList.size(); i++) {
+            List<Object> list = holderList.get(i).getDbOperator().queryListOneColumn("select " + shardColumn + " from " + tablePrefix + APP_NAME,
+                    null);
+            Assert.assertNotNull(list);
+            for (Object methodHash : list) {
+                Assert.assertEquals(i, ShardedMethodCallStorage.getShardIndex((String) methodHash, holderList.size()));
+            }
+            rowNum += list.size();
+        }
+        return rowNum;
+    }
+}